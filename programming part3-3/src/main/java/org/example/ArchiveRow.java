@@ -0,0 +1,94 @@
+package org.example;
+
+/**
+ * Flyweight view of one row of an archive store
+ * The store's subclass decodes each field straight from its own storage, so
+ * a view holds nothing but the row number. forEach() moves one view from row
+ * to row instead of creating one per message.
+ *
+ * Also holds the field encoding shared by the archive stores.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Shared archive row view
+ */
+abstract class ArchiveRow extends MessageManager.Message {
+
+    // Field numbers, in the record order of the off-heap and mapped stores
+    static final int HASH_FIELD = 0;
+    static final int ID_FIELD = 1;
+    static final int RECIPIENT_FIELD = 2;
+    static final int SENDER_FIELD = 3;
+    static final int CONTENT_FIELD = 4;
+
+    int row;
+
+    ArchiveRow(int row) {
+        super(null, null, null, null, (MessageFlag) null);
+        this.row = row;
+    }
+
+    /**
+     * @param field one of the field numbers above
+     * @return the decoded field of the current row
+     */
+    abstract String field(int field);
+
+    /**
+     * @return MessageFlag code of the current row, negative for no flag
+     */
+    abstract byte flagCode();
+
+    @Override
+    public String getMessageHash() {
+        return field(HASH_FIELD);
+    }
+
+    @Override
+    public String getMessageID() {
+        return field(ID_FIELD);
+    }
+
+    @Override
+    public String getRecipient() {
+        return field(RECIPIENT_FIELD);
+    }
+
+    @Override
+    public String getMessage() {
+        return field(CONTENT_FIELD);
+    }
+
+    @Override
+    public String getFlag() {
+        MessageFlag flag = getFlagValue();
+        return flag != null ? flag.getLabel() : null;
+    }
+
+    @Override
+    public MessageFlag getFlagValue() {
+        byte code = flagCode();
+        return code >= 0 ? MessageFlag.fromCode(code) : null;
+    }
+
+    @Override
+    public String getSender() {
+        return field(SENDER_FIELD);
+    }
+
+    /**
+     * Encodes a field, refusing values its length column cannot hold
+     * @param value field value; null is stored as an empty string
+     * @param field field name for the error message
+     * @param maxBytes largest UTF-8 length the store can record
+     * @return the UTF-8 bytes
+     * @throws IllegalArgumentException if the value is longer than maxBytes
+     */
+    static byte[] fieldBytes(String value, String field, int maxBytes) {
+        byte[] bytes = RowHashIndex.keyBytes(value);
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException("Message " + field + " is " + bytes.length
+                    + " bytes, the archive holds at most " + maxBytes);
+        }
+        return bytes;
+    }
+}
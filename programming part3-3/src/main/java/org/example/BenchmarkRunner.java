@@ -0,0 +1,1114 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.ref.Reference;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Performance benchmarks for the message storage layer
+ * Prints throughput figures to the console, in the same spirit as TestRunner
+ *
+ * Run with: mvn compile exec:java -Dexec.mainClass="org.example.BenchmarkRunner"
+ *
+ * @author Heloisa Campos
+ * @version 1.16 - Reachability fences in the footprint benchmark
+ */
+public class BenchmarkRunner {
+
+    // Messages each ingest thread adds per run
+    private static final int MESSAGES_PER_THREAD = 200_000;
+
+    /**
+     * Executes every benchmark in the system
+     */
+    public static void runAllBenchmarks() {
+        runConcurrentIngestBenchmark();
+        runColumnarFootprintBenchmark();
+        runReportRenderingBenchmark();
+        runFileFormatBenchmark();
+        runMappedArchiveBenchmark();
+        runJsonBindingBenchmark();
+        runShardedStorageBenchmark();
+        runDirectoryImportBenchmark();
+        runNdjsonBenchmark();
+        runRecoveryBenchmark();
+        runReloadBenchmark();
+        runWatchReloadBenchmark();
+        runStoreBenchmark();
+        runWarmStartBenchmark();
+        runCsvBenchmark();
+        System.out.println("\n=== ALL BENCHMARKS COMPLETED ===");
+    }
+
+    /**
+     * Measures ingest throughput of the concurrent repository from 1 thread
+     * up to the number of cores, while one reporting thread keeps iterating
+     * the sent partition. Ideal scaling doubles throughput with the threads.
+     */
+    public static void runConcurrentIngestBenchmark() {
+        System.out.println("\n--- CONCURRENT INGEST SCALING ---");
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Available cores: " + cores);
+        System.out.printf("%-10s %-16s %-10s %-10s\n", "Threads", "Messages/sec", "Speedup", "Efficiency");
+
+        // Warm-up run so the JIT has compiled the hot paths
+        measureIngest(Math.max(1, cores / 2));
+
+        // Powers of two up to the core count, always finishing on the core count itself
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(cores);
+
+        double baseline = 0;
+        for (int threads : threadCounts) {
+            double throughput = measureIngest(threads);
+            if (threads == 1) {
+                baseline = throughput;
+            }
+            double speedup = throughput / baseline;
+            System.out.printf("%-10d %-16.0f %-10.2f %-10s\n",
+                    threads, throughput, speedup, Math.round(speedup / threads * 100) + "%");
+        }
+    }
+
+    /**
+     * Runs one ingest round with the given number of writer threads
+     * @return messages added per second across all writers
+     */
+    static double measureIngest(int threads) {
+        MessageRepository repository = new MessageRepository(true);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int writer = t;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                        repository.add(syntheticMessage(writer, i));
+                    }
+                    return null;
+                }));
+            }
+
+            // Reporting thread: walks the sent partition until the writers finish
+            Future<?> reader = pool.submit(() -> {
+                start.await();
+                long seen = 0;
+                while (!allDone(writers)) {
+                    for (MessageManager.Message msg : repository.flagged(MessageFlag.SENT)) {
+                        seen += msg.getMessage().length();
+                    }
+                }
+                return seen;
+            });
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            reader.get();
+
+            return (double) threads * MESSAGES_PER_THREAD / (elapsed / 1_000_000_000.0);
+        } catch (Exception e) {
+            throw new IllegalStateException("Benchmark run failed: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Compares retained heap per message across the object repository,
+     * the columnar store and the off-heap store
+     */
+    public static void runColumnarFootprintBenchmark() {
+        System.out.println("\n--- COLUMNAR FOOTPRINT ---");
+        int count = 500_000;
+
+        long before = usedHeap();
+        MessageRepository repository = new MessageRepository();
+        for (int i = 0; i < count; i++) {
+            repository.add(syntheticMessage(0, i));
+        }
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        ColumnarMessageStore store = new ColumnarMessageStore();
+        for (int i = 0; i < count; i++) {
+            store.add(syntheticMessage(0, i));
+        }
+        long columnarBytes = usedHeap() - before;
+
+        before = usedHeap();
+        OffHeapMessageStore offHeap = new OffHeapMessageStore();
+        for (int i = 0; i < count; i++) {
+            offHeap.add(syntheticMessage(0, i));
+        }
+        long offHeapHeapBytes = usedHeap() - before;
+
+        System.out.printf("%-22s %-14s %-14s\n", "Layout", "Bytes/msg", "Total MB");
+        System.out.printf("%-22s %-14d %-14d\n", "Object repository", objectBytes / count, objectBytes >> 20);
+        System.out.printf("%-22s %-14d %-14d\n", "Columnar store", columnarBytes / count, columnarBytes >> 20);
+        System.out.printf("%-22s %-14d %-14d\n", "Off-heap store (heap)", offHeapHeapBytes / count, offHeapHeapBytes >> 20);
+        System.out.printf("%-22s %-14d %-14d\n", "Off-heap store (direct)",
+                offHeap.offHeapBytes() / count, offHeap.offHeapBytes() >> 20);
+        System.out.printf("Columnar reduction factor: %.1fx\n", (double) objectBytes / columnarBytes);
+        System.out.printf("Off-heap heap reduction factor: %.1fx\n", (double) objectBytes / offHeapHeapBytes);
+
+        // Keep every store alive until after the measurements
+        Reference.reachabilityFence(repository);
+        Reference.reachabilityFence(store);
+        Reference.reachabilityFence(offHeap);
+    }
+
+    /**
+     * Renders a one-million-row full report both ways into a discarding sink:
+     * one printf per row versus the buffered ReportWriter
+     */
+    public static void runReportRenderingBenchmark() {
+        System.out.println("\n--- REPORT RENDERING ---");
+        int count = 1_000_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+
+        PrintStream printfSink = new PrintStream(OutputStream.nullOutputStream());
+        long begin = System.nanoTime();
+        for (MessageManager.Message msg : rows) {
+            String preview = msg.getMessage().length() > 40 ?
+                    msg.getMessage().substring(0, 40) + "..." : msg.getMessage();
+            printfSink.printf("%-10s %-12s %-18s %-45s\n",
+                    msg.getMessageHash(), msg.getMessageID(), msg.getRecipient(), preview);
+        }
+        double printfSeconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        begin = System.nanoTime();
+        try (ReportWriter out = ReportWriter.of(OutputStream.nullOutputStream())) {
+            for (MessageManager.Message msg : rows) {
+                out.cell(msg.getMessageHash(), 10).cell(msg.getMessageID(), 12)
+                        .cell(msg.getRecipient(), 18).lastPreviewCell(msg.getMessage(), 40, 45);
+            }
+        }
+        double writerSeconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        System.out.printf("%-22s %-14s\n", "Renderer", "Rows/sec");
+        System.out.printf("%-22s %-14.0f\n", "printf per row", count / printfSeconds);
+        System.out.printf("%-22s %-14.0f\n", "ReportWriter", count / writerSeconds);
+    }
+
+    /**
+     * Compares JSON and the binary format of MessageFiles on file size,
+     * write time and read time for the same messages
+     */
+    public static void runFileFormatBenchmark() {
+        System.out.println("\n--- FILE FORMAT: JSON VS BINARY ---");
+        int count = 200_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+
+        System.out.printf("%-10s %-14s %-12s %-12s\n", "Format", "Size (KB)", "Write (ms)", "Read (ms)");
+        for (String extension : new String[] {".json", MessageFiles.BINARY_EXTENSION}) {
+            File file = null;
+            try {
+                file = File.createTempFile("benchmark", extension);
+                // Warm-up pass so the JIT has compiled both codecs
+                MessageFiles.writeManagerMessages(file.getPath(), rows);
+                MessageFiles.readManagerMessages(file.getPath(), msg -> { });
+
+                long begin = System.nanoTime();
+                MessageFiles.writeManagerMessages(file.getPath(), rows);
+                double writeMillis = (System.nanoTime() - begin) / 1_000_000.0;
+
+                begin = System.nanoTime();
+                MessageFiles.readManagerMessages(file.getPath(), msg -> { });
+                double readMillis = (System.nanoTime() - begin) / 1_000_000.0;
+
+                System.out.printf("%-10s %-14d %-12.0f %-12.0f\n",
+                        extension, file.length() / 1024, writeMillis, readMillis);
+            } catch (IOException e) {
+                System.out.println("Error benchmarking " + extension + ": " + e.getMessage());
+            } finally {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares loading a JSON file into memory with opening the same messages
+     * as a memory-mapped archive and answering hash lookups from it
+     */
+    public static void runMappedArchiveBenchmark() {
+        System.out.println("\n--- MAPPED ARCHIVE: STARTUP AND LOOKUP ---");
+        int count = 200_000;
+        int lookups = 10_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+
+        File json = null;
+        File mapped = null;
+        try {
+            json = File.createTempFile("benchmark", ".json");
+            mapped = File.createTempFile("benchmark", ".msga");
+            MessageFiles.writeManagerMessages(json.getPath(), rows);
+            MappedMessageArchive.write(mapped.getPath(), rows);
+            rows = null;
+
+            long heapBefore = usedHeap();
+            long begin = System.nanoTime();
+            List<MessageManager.Message> loaded = new ArrayList<>();
+            MessageFiles.readManagerMessages(json.getPath(), loaded::add);
+            double jsonMillis = (System.nanoTime() - begin) / 1_000_000.0;
+            long jsonHeap = usedHeap() - heapBefore;
+            int loadedCount = loaded.size();
+            loaded = null;
+
+            heapBefore = usedHeap();
+            begin = System.nanoTime();
+            MappedMessageArchive archive = MappedMessageArchive.open(mapped.getPath());
+            double openMillis = (System.nanoTime() - begin) / 1_000_000.0;
+            long mappedHeap = Math.max(0, usedHeap() - heapBefore);
+
+            begin = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (archive.findByHash("W0:" + (i * 7919 % count)) != null) {
+                    found++;
+                }
+            }
+            double lookupMicros = (System.nanoTime() - begin) / 1_000.0 / lookups;
+
+            System.out.printf("%-22s %-14s %-14s\n", "Startup", "Time (ms)", "Heap (KB)");
+            System.out.printf("%-22s %-14.1f %-14d\n", "JSON load (" + loadedCount + ")", jsonMillis, jsonHeap / 1024);
+            System.out.printf("%-22s %-14.1f %-14d\n", "Mapped open", openMillis, mappedHeap / 1024);
+            System.out.printf("Mapped hash lookup: %.2f us (%d of %d found)\n", lookupMicros, found, lookups);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking mapped archive: " + e.getMessage());
+        } finally {
+            if (json != null) {
+                json.delete();
+            }
+            if (mapped != null) {
+                mapped.delete();
+            }
+        }
+    }
+
+    /**
+     * Compares Gson's reflective binding with the MessageJson adapters for both
+     * message models, serializing and parsing in calls of 1000 records each,
+     * the size of a typical snapshot or import batch
+     */
+    public static void runJsonBindingBenchmark() {
+        System.out.println("\n--- JSON BINDING: REFLECTIVE VS ADAPTERS ---");
+        int batch = 1000;
+        int calls = 200;
+        List<MessageManager.Message> managerRows = new ArrayList<>(batch);
+        List<Message> messages = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            managerRows.add(syntheticMessage(0, i));
+            Message msg = new Message();
+            msg.setMessageID("ID0-" + i);
+            msg.setMessageHash("W0:" + i);
+            msg.setRecipient("+2783" + String.format("%07d", i % 1000));
+            msg.setMessageContent("Benchmark message number " + i);
+            msg.setMessageNumber(i);
+            messages.add(msg);
+        }
+
+        System.out.printf("%-28s %-16s %-16s\n", "Binding", "Serialize rec/s", "Parse rec/s");
+        try {
+            // Warm-up passes so the JIT has compiled both paths
+            for (int round = 0; round < 3; round++) {
+                boolean print = round == 2;
+                measureBinding("Reflective Message", messages, Message.class, null, calls, print);
+                measureBinding("Adapter Message", messages, Message.class,
+                        MessageJson.MESSAGE_ADAPTER, calls, print);
+                measureBinding("Reflective Manager.Message", managerRows, MessageManager.Message.class,
+                        null, calls, print);
+                measureBinding("Adapter Manager.Message", managerRows, MessageManager.Message.class,
+                        MessageJson.MANAGER_MESSAGE_ADAPTER, calls, print);
+            }
+        } catch (IOException e) {
+            System.out.println("Error benchmarking JSON binding: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serializes and parses one batch repeatedly, the way the code did before
+     * (a fresh Gson and TypeToken per call) or through the shared adapters
+     * @param adapter adapter to measure, or null for reflective binding
+     */
+    private static <T> void measureBinding(String label, List<T> rows, Class<T> type, TypeAdapter<T> adapter,
+                                           int calls, boolean print) throws IOException {
+        String json = null;
+        long begin = System.nanoTime();
+        for (int call = 0; call < calls; call++) {
+            StringWriter out = new StringWriter(rows.size() * 128);
+            if (adapter != null) {
+                MessageJson.writeArray(out, rows, adapter, false);
+            } else {
+                new Gson().toJson(rows, out);
+            }
+            json = out.toString();
+        }
+        double serializeSeconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        int parsed = 0;
+        begin = System.nanoTime();
+        for (int call = 0; call < calls; call++) {
+            List<?> result;
+            if (adapter != null) {
+                result = parseArray(json, adapter);
+            } else {
+                Type listType = TypeToken.getParameterized(List.class, type).getType();
+                result = new Gson().fromJson(json, listType);
+            }
+            parsed += result.size();
+        }
+        double parseSeconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        if (print) {
+            long records = (long) rows.size() * calls;
+            System.out.printf("%-28s %-16.0f %-16.0f\n", label, records / serializeSeconds, parsed / parseSeconds);
+        }
+    }
+
+    private static <T> List<T> parseArray(String json, TypeAdapter<T> adapter) throws IOException {
+        List<T> parsed = new ArrayList<>();
+        JsonReader in = new JsonReader(new StringReader(json));
+        in.beginArray();
+        while (in.hasNext()) {
+            parsed.add(adapter.read(in));
+        }
+        in.endArray();
+        return parsed;
+    }
+
+    /**
+     * Compares one JSON file with the sharded store for a single-recipient query
+     * and a single delete; the single file has to be read, and for the delete
+     * rewritten, in full each time
+     */
+    public static void runShardedStorageBenchmark() {
+        System.out.println("\n--- SHARDED STORAGE: ONE FILE VS SHARDS ---");
+        int count = 200_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+        String recipient = rows.get(42).getRecipient();
+        String hash = rows.get(42).getMessageHash();
+
+        File single = null;
+        File directory = null;
+        try {
+            single = File.createTempFile("benchmark", ".json");
+            directory = Files.createTempDirectory("benchmark-shards").toFile();
+            MessageFiles.writeManagerMessages(single.getPath(), rows);
+            ShardedMessageStore shards = ShardedMessageStore.open(directory.getPath());
+            shards.put(rows);
+
+            long begin = System.nanoTime();
+            List<MessageManager.Message> all = new ArrayList<>();
+            MessageFiles.readManagerMessages(single.getPath(), all::add);
+            all.removeIf(msg -> !recipient.equals(msg.getRecipient()));
+            double singleQuery = (System.nanoTime() - begin) / 1_000_000.0;
+
+            begin = System.nanoTime();
+            List<MessageManager.Message> fromShards = shards.loadRecipient(recipient);
+            double shardQuery = (System.nanoTime() - begin) / 1_000_000.0;
+
+            begin = System.nanoTime();
+            all.clear();
+            MessageFiles.readManagerMessages(single.getPath(), all::add);
+            all.removeIf(msg -> hash.equals(msg.getMessageHash()));
+            MessageFiles.writeManagerMessages(single.getPath(), all);
+            double singleDelete = (System.nanoTime() - begin) / 1_000_000.0;
+
+            begin = System.nanoTime();
+            shards.remove(hash, recipient);
+            double shardDelete = (System.nanoTime() - begin) / 1_000_000.0;
+
+            System.out.println(shards.shardCount() + " shards, " + fromShards.size() + " messages for " + recipient);
+            System.out.printf("%-22s %-16s %-16s\n", "Layout", "Query (ms)", "Delete (ms)");
+            System.out.printf("%-22s %-16.1f %-16.1f\n", "Single JSON file", singleQuery, singleDelete);
+            System.out.printf("%-22s %-16.1f %-16.1f\n", "Sharded", shardQuery, shardDelete);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking sharded storage: " + e.getMessage());
+        } finally {
+            if (single != null) {
+                single.delete();
+            }
+            if (directory != null) {
+                File[] files = directory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                directory.delete();
+            }
+        }
+    }
+
+    /**
+     * Imports a directory of JSON drops file by file and then in parallel
+     * on the common ForkJoinPool; both end with the same repository contents
+     */
+    public static void runDirectoryImportBenchmark() {
+        System.out.println("\n--- DIRECTORY IMPORT: SEQUENTIAL VS FORK-JOIN ---");
+        int fileCount = 200;
+        int perFile = 2_000;
+        File directory = null;
+        try {
+            directory = Files.createTempDirectory("benchmark-drops").toFile();
+            for (int f = 0; f < fileCount; f++) {
+                List<MessageManager.Message> rows = new ArrayList<>(perFile);
+                for (int i = 0; i < perFile; i++) {
+                    rows.add(syntheticMessage(f, i));
+                }
+                MessageFiles.writeManagerMessages(new File(directory, String.format("drop-%03d.json", f)).getPath(), rows);
+            }
+            List<File> files = MessageDirectoryImporter.listMessageFiles(directory.getPath());
+            MessageDirectoryImporter importer = new MessageDirectoryImporter();
+
+            // Warm-up so both paths run compiled code
+            importer.importDirectory(directory.getPath(), new MessageRepository()::add);
+
+            MessageRepository sequential = new MessageRepository();
+            long begin = System.nanoTime();
+            for (File file : files) {
+                MessageFiles.readManagerMessages(file.getPath(), sequential::add);
+            }
+            double sequentialMillis = (System.nanoTime() - begin) / 1_000_000.0;
+
+            MessageRepository parallel = new MessageRepository();
+            begin = System.nanoTime();
+            MessageDirectoryImporter.Result result = importer.importDirectory(directory.getPath(), parallel::add);
+            double parallelMillis = (System.nanoTime() - begin) / 1_000_000.0;
+
+            double slowest = Double.MAX_VALUE;
+            double fastest = 0;
+            for (MessageDirectoryImporter.FileResult file : result.getFiles()) {
+                slowest = Math.min(slowest, file.recordsPerSecond());
+                fastest = Math.max(fastest, file.recordsPerSecond());
+            }
+
+            System.out.println(fileCount + " files x " + perFile + " messages, pool parallelism "
+                    + ForkJoinPool.commonPool().getParallelism());
+            System.out.printf("%-22s %-14s %-14s\n", "Import", "Time (ms)", "Messages");
+            System.out.printf("%-22s %-14.1f %-14d\n", "Sequential", sequentialMillis, sequential.size());
+            System.out.printf("%-22s %-14.1f %-14d\n", "Fork-join", parallelMillis, parallel.size());
+            System.out.printf("Speedup: %.2fx, per-file throughput %.0f - %.0f messages/sec\n",
+                    sequentialMillis / parallelMillis, slowest, fastest);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking directory import: " + e.getMessage());
+        } finally {
+            if (directory != null) {
+                File[] files = directory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                directory.delete();
+            }
+        }
+    }
+
+    /**
+     * Compares the JSON array with JSON Lines for a full export and import,
+     * then measures how long an appended line takes to reach a follower's sink
+     */
+    public static void runNdjsonBenchmark() {
+        System.out.println("\n--- JSON LINES: EXPORT, IMPORT AND TAIL-FOLLOW ---");
+        int count = 200_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+
+        File array = null;
+        File lines = null;
+        File feed = null;
+        try {
+            array = File.createTempFile("benchmark", ".json");
+            lines = File.createTempFile("benchmark", MessageNdjson.EXTENSION);
+            feed = File.createTempFile("benchmark-feed", MessageNdjson.EXTENSION);
+
+            System.out.printf("%-14s %-14s %-14s %-12s\n", "Format", "Export (ms)", "Import (ms)", "Size (KB)");
+            for (File file : new File[] {array, lines}) {
+                // First pass warms up, second is measured
+                double export = 0;
+                double load = 0;
+                for (int pass = 0; pass < 2; pass++) {
+                    long begin = System.nanoTime();
+                    MessageFiles.writeManagerMessages(file.getPath(), rows);
+                    export = (System.nanoTime() - begin) / 1_000_000.0;
+                    long[] seen = new long[1];
+                    begin = System.nanoTime();
+                    MessageFiles.readManagerMessages(file.getPath(), msg -> seen[0]++);
+                    load = (System.nanoTime() - begin) / 1_000_000.0;
+                }
+                System.out.printf("%-14s %-14.1f %-14.1f %-12d\n",
+                        file == array ? "JSON array" : "JSON Lines", export, load, file.length() / 1024);
+            }
+
+            // Tail-follow latency: append one line at a time and time its arrival
+            int appends = 2_000;
+            long[] sentAt = new long[appends];
+            long[] latency = new long[appends];
+            try (MessageNdjson.Follower follower = MessageNdjson.follow(feed.getPath(), msg -> {
+                int i = Integer.parseInt(msg.getMessageID());
+                latency[i] = System.nanoTime() - sentAt[i];
+            }, false, MessageNdjson.DEFAULT_POLL_MILLIS)) {
+                for (int i = 0; i < appends; i++) {
+                    MessageManager.Message msg = new MessageManager.Message("F" + i, Integer.toString(i),
+                            "+27830000001", "Feed message " + i, MessageFlag.SENT);
+                    sentAt[i] = System.nanoTime();
+                    MessageNdjson.writeFile(feed.getPath(), List.of(msg), MessageJson.MANAGER_MESSAGE_ADAPTER, true);
+                    follower.awaitRecords(i + 1, 1000);
+                }
+            }
+            long[] sorted = latency.clone();
+            Arrays.sort(sorted);
+            System.out.printf("Tail-follow latency over %d appends: median %.2f ms, p99 %.2f ms, max %.2f ms\n",
+                    appends, sorted[appends / 2] / 1_000_000.0, sorted[appends * 99 / 100] / 1_000_000.0,
+                    sorted[appends - 1] / 1_000_000.0);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking JSON Lines: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (File file : new File[] {array, lines, feed}) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares three ways of rebuilding the repository after a restart:
+     * re-parsing the full JSON history, replaying a journal of every change,
+     * and loading a checkpoint plus the journal tail written after it
+     */
+    public static void runRecoveryBenchmark() {
+        System.out.println("\n--- CRASH RECOVERY: FULL RELOAD VS CHECKPOINT + JOURNAL TAIL ---");
+        int count = 200_000;
+        int tail = 10_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+
+        File json = null;
+        File fullJournal = null;
+        File checkpoint = null;
+        File tailJournal = null;
+        try {
+            json = File.createTempFile("benchmark", ".json");
+            fullJournal = File.createTempFile("benchmark-full", ".journal");
+            checkpoint = File.createTempFile("benchmark", ".ckpt");
+            tailJournal = File.createTempFile("benchmark-tail", ".journal");
+
+            MessageFiles.writeManagerMessages(json.getPath(), rows);
+            MessageCheckpoint.write(checkpoint.getPath(), count, rows);
+            try (MessageJournal all = MessageJournal.recover(fullJournal.getPath(), 0, MessageLog.SyncPolicy.NEVER, entry -> { });
+                 MessageJournal recent = MessageJournal.recover(tailJournal.getPath(), count, MessageLog.SyncPolicy.NEVER, entry -> { })) {
+                for (MessageManager.Message msg : rows) {
+                    all.add(msg);
+                }
+                for (int i = 0; i < tail; i++) {
+                    MessageManager.Message msg = syntheticMessage(1, i);
+                    all.add(msg);
+                    recent.add(msg);
+                }
+            }
+
+            double[] millis = new double[3];
+            int[] sizes = new int[3];
+            // First pass warms up, second is measured
+            for (int pass = 0; pass < 2; pass++) {
+                long begin = System.nanoTime();
+                MessageRepository reloaded = new MessageRepository();
+                MessageFiles.readManagerMessages(json.getPath(), reloaded::add);
+                millis[0] = (System.nanoTime() - begin) / 1_000_000.0;
+                sizes[0] = reloaded.size();
+
+                begin = System.nanoTime();
+                MessageRepository replayed = new MessageRepository();
+                MessageJournal.recover(fullJournal.getPath(), 0, MessageLog.SyncPolicy.NEVER,
+                        entry -> entry.applyTo(replayed)).close();
+                millis[1] = (System.nanoTime() - begin) / 1_000_000.0;
+                sizes[1] = replayed.size();
+
+                begin = System.nanoTime();
+                MessageRepository recovered = new MessageRepository();
+                long lsn = MessageCheckpoint.read(checkpoint.getPath(), recovered::add).getLsn();
+                MessageJournal.recover(tailJournal.getPath(), lsn, MessageLog.SyncPolicy.NEVER,
+                        entry -> entry.applyTo(recovered)).close();
+                millis[2] = (System.nanoTime() - begin) / 1_000_000.0;
+                sizes[2] = recovered.size();
+            }
+
+            System.out.println(count + " messages in history, " + tail + " changes since the last checkpoint");
+            System.out.printf("%-30s %-14s %-10s\n", "Recovery", "Time (ms)", "Messages");
+            System.out.printf("%-30s %-14.1f %-10d\n", "Full JSON reload", millis[0], sizes[0]);
+            System.out.printf("%-30s %-14.1f %-10d\n", "Full journal replay", millis[1], sizes[1]);
+            System.out.printf("%-30s %-14.1f %-10d\n", "Checkpoint + journal tail", millis[2], sizes[2]);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking recovery: " + e.getMessage());
+        } finally {
+            for (File file : new File[] {json, fullJournal, checkpoint, tailJournal}) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the same binary file into MessageManager three times: once into
+     * empty arrays, then again with every record replaced (the old behaviour),
+     * then again through the duplicate check that skips known messages
+     */
+    public static void runReloadBenchmark() {
+        System.out.println("\n--- RELOAD: REPLACE EVERY RECORD VS SKIP DUPLICATES ---");
+        int count = 200_000;
+        File file = null;
+        try {
+            file = File.createTempFile("benchmark", MessageFiles.BINARY_EXTENSION);
+            List<MessageManager.Message> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add(syntheticMessage(0, i));
+            }
+            MessageFiles.writeManagerMessages(file.getPath(), rows);
+            rows = null;
+
+            MessageManager.populateArrays();
+            long begin = System.nanoTime();
+            MessageFiles.readManagerMessages(file.getPath(), MessageManager::importMessage);
+            double first = (System.nanoTime() - begin) / 1_000_000.0;
+
+            begin = System.nanoTime();
+            MessageFiles.readManagerMessages(file.getPath(), MessageManager::addMessageToArrays);
+            double replace = (System.nanoTime() - begin) / 1_000_000.0;
+
+            long[] skipped = new long[1];
+            begin = System.nanoTime();
+            MessageFiles.readManagerMessages(file.getPath(), msg -> {
+                if (!MessageManager.importMessage(msg)) {
+                    skipped[0]++;
+                }
+            });
+            double skip = (System.nanoTime() - begin) / 1_000_000.0;
+
+            System.out.println(MessageManager.allMessages.size() + " messages after three loads, "
+                    + skipped[0] + " skipped on the last");
+            System.out.printf("%-30s %-14s\n", "Load", "Time (ms)");
+            System.out.printf("%-30s %-14.1f\n", "First load", first);
+            System.out.printf("%-30s %-14.1f\n", "Reload, replace every record", replace);
+            System.out.printf("%-30s %-14.1f\n", "Reload, skip duplicates", skip);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking reloads: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+            MessageManager.populateArrays();
+        }
+    }
+
+    /**
+     * Edits one record of a large watched file at a time and measures how long
+     * the change takes to reach the listener, against re-adding every record
+     */
+    public static void runWatchReloadBenchmark() {
+        System.out.println("\n--- FILE WATCH: INCREMENTAL RELOAD VS FULL RELOAD ---");
+        int count = 200_000;
+        int edits = 5;
+        File directory = null;
+        try {
+            directory = Files.createTempDirectory("benchmark-watch").toFile();
+            File file = new File(directory, "messages" + MessageFiles.BINARY_EXTENSION);
+            File temp = new File(directory, "messages.tmp" + MessageFiles.BINARY_EXTENSION);
+            List<MessageManager.Message> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add(syntheticMessage(0, i));
+            }
+            MessageFiles.writeManagerMessages(file.getPath(), rows);
+
+            long begin = System.nanoTime();
+            MessageRepository full = new MessageRepository();
+            MessageFiles.readManagerMessages(file.getPath(), full::add);
+            double fullReload = (System.nanoTime() - begin) / 1_000_000.0;
+            full = null;
+
+            long[] changes = new long[1];
+            MessageRepository tracked = new MessageRepository();
+            try (MessageFileWatcher watcher = MessageFileWatcher.watch(file.getPath(), new MessageFileWatcher.Listener() {
+                @Override
+                public void onInsert(MessageManager.Message msg) {
+                    tracked.add(msg);
+                    changes[0]++;
+                }
+
+                @Override
+                public void onUpdate(MessageManager.Message msg) {
+                    tracked.add(msg);
+                    changes[0]++;
+                }
+
+                @Override
+                public void onDelete(String hash) {
+                    tracked.remove(hash);
+                    changes[0]++;
+                }
+            }, true)) {
+                changes[0] = 0;
+                double total = 0;
+                double worst = 0;
+                for (int edit = 0; edit < edits; edit++) {
+                    MessageManager.Message old = rows.get(edit * 1000);
+                    rows.set(edit * 1000, new MessageManager.Message(old.getMessageHash(), old.getMessageID(),
+                            old.getRecipient(), "Edited outside " + edit, old.getFlagValue()));
+                    MessageFiles.writeManagerMessages(temp.getPath(), rows);
+                    begin = System.nanoTime();
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    watcher.awaitReloads(edit + 2, 10_000);
+                    double latency = (System.nanoTime() - begin) / 1_000_000.0;
+                    total += latency;
+                    worst = Math.max(worst, latency);
+                }
+                System.out.println(count + " messages, " + edits + " single-record edits, "
+                        + changes[0] + " listener calls");
+                System.out.printf("%-34s %-14.1f\n", "Full reload into repository (ms)", fullReload);
+                System.out.printf("%-34s %-14.1f\n", "Edit to listener, mean (ms)", total / edits);
+                System.out.printf("%-34s %-14.1f\n", "Edit to listener, worst (ms)", worst);
+            }
+        } catch (IOException e) {
+            System.out.println("Error benchmarking file watch: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (directory != null) {
+                File[] files = directory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                directory.delete();
+            }
+        }
+    }
+
+    /**
+     * Restarts from the same checkpoint twice: once indexing every message again,
+     * once installing the indexes saved next to it by MessageIndexFile
+     */
+    public static void runWarmStartBenchmark() {
+        System.out.println("\n--- WARM START: REBUILT INDEXES VS SAVED INDEXES ---");
+        int count = 200_000;
+        MessageRepository source = new MessageRepository();
+        for (int i = 0; i < count; i++) {
+            source.add(syntheticMessage(0, i));
+        }
+
+        File checkpoint = null;
+        File index = null;
+        try {
+            checkpoint = File.createTempFile("benchmark", ".ckpt");
+            index = new File(MessageIndexFile.pathFor(checkpoint.getPath()));
+            MessageCheckpoint.write(checkpoint.getPath(), count, source.messages());
+            long begin = System.nanoTime();
+            MessageIndexFile.write(index.getPath(), count, source);
+            double writeMillis = (System.nanoTime() - begin) / 1_000_000.0;
+
+            double[] millis = new double[2];
+            MessageRepository[] started = new MessageRepository[2];
+            // First pass warms up, second is measured
+            for (int pass = 0; pass < 2; pass++) {
+                started[0] = null;
+                started[1] = null;
+                // Collect first so neither side pays for the other's garbage
+                usedHeap();
+                begin = System.nanoTime();
+                MessageRepository rebuilt = new MessageRepository();
+                MessageCheckpoint.read(checkpoint.getPath(), rebuilt::add);
+                millis[0] = (System.nanoTime() - begin) / 1_000_000.0;
+                started[0] = rebuilt;
+
+                usedHeap();
+                begin = System.nanoTime();
+                List<MessageManager.Message> saved = new ArrayList<>(count);
+                long lsn = MessageCheckpoint.read(checkpoint.getPath(), saved::add).getLsn();
+                started[1] = MessageIndexFile.load(index.getPath(), lsn, saved, false);
+                millis[1] = (System.nanoTime() - begin) / 1_000_000.0;
+            }
+
+            boolean same = started[0].findByContent("number 4*").size() == started[1].findByContent("number 4*").size()
+                    && started[0].countByRecipientPrefix("+27830000") == started[1].countByRecipientPrefix("+27830000")
+                    && started[0].findByID("ID0-777") == null == (started[1].findByID("ID0-777") == null);
+            System.out.printf("%d messages, index file %.1f MB written in %.1f ms, same answers: %s%n",
+                    count, index.length() / (1024.0 * 1024.0), writeMillis, same);
+            System.out.printf("%-34s %-14s\n", "Start from checkpoint", "Time (ms)");
+            System.out.printf("%-34s %-14.1f\n", "Rebuild every index", millis[0]);
+            System.out.printf("%-34s %-14.1f\n", "Load saved indexes", millis[1]);
+        } catch (IOException e) {
+            System.out.println("Error benchmarking warm start: " + e.getMessage());
+        } finally {
+            for (File file : new File[] {checkpoint, index}) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one workload against every built-in MessageStore backend: a bulk
+     * load, single durable updates (latency percentiles), lookups, deletes,
+     * then a reopen that reads the whole store back
+     */
+    public static void runStoreBenchmark() {
+        System.out.println("\n--- STORAGE BACKENDS: SAME WORKLOAD PER BACKEND ---");
+        int count = 50_000;
+        int updates = 100;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(syntheticMessage(0, i));
+        }
+        System.out.println(count + " messages bulk loaded, then " + updates + " single updates, lookups and deletes");
+        System.out.printf("%-9s %-12s %-12s %-12s %-12s %-12s %-12s\n", "Backend", "Bulk (msg/s)",
+                "Put p50 (ms)", "Put p99 (ms)", "Get (us)", "Delete (ms)", "Reopen (ms)");
+
+        String[][] backends = {
+                {"memory", null},
+                {"json", "messages.json"},
+                {"binary", "messages" + MessageFiles.BINARY_EXTENSION},
+                {"log", "log"},
+                {"sharded", "shards"}
+        };
+        for (String[] backend : backends) {
+            File directory = null;
+            try {
+                directory = Files.createTempDirectory("benchmark-store").toFile();
+                Properties config = new Properties();
+                config.setProperty("type", backend[0]);
+                if (backend[1] != null) {
+                    config.setProperty("path", new File(directory, backend[1]).getPath());
+                }
+
+                long begin = System.nanoTime();
+                double[] latencies = new double[updates];
+                double getMicros;
+                double deleteMillis;
+                try (MessageStore store = MessageStores.open(config)) {
+                    store.putAll(rows);
+                    store.flush();
+                    double bulkSeconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+                    for (int i = 0; i < updates; i++) {
+                        MessageManager.Message old = rows.get(i * (count / updates));
+                        MessageManager.Message edited = new MessageManager.Message(old.getMessageHash(),
+                                old.getMessageID(), old.getRecipient(), "Updated " + i, MessageFlag.SENT);
+                        long start = System.nanoTime();
+                        store.put(edited);
+                        store.flush();
+                        latencies[i] = (System.nanoTime() - start) / 1_000_000.0;
+                    }
+
+                    begin = System.nanoTime();
+                    for (int i = 0; i < updates; i++) {
+                        store.get(rows.get(i * 7).getMessageHash());
+                    }
+                    getMicros = (System.nanoTime() - begin) / 1_000.0 / updates;
+
+                    begin = System.nanoTime();
+                    for (int i = 0; i < 10; i++) {
+                        store.remove(rows.get(count - 1 - i).getMessageHash());
+                    }
+                    store.flush();
+                    deleteMillis = (System.nanoTime() - begin) / 1_000_000.0 / 10;
+
+                    Arrays.sort(latencies);
+                    System.out.printf("%-9s %-12.0f %-12.2f %-12.2f %-12.1f %-12.2f ", backend[0], count / bulkSeconds,
+                            latencies[updates / 2], latencies[updates * 99 / 100], getMicros, deleteMillis);
+                }
+
+                if (backend[1] == null) {
+                    System.out.printf("%-12s\n", "-");
+                    continue;
+                }
+                begin = System.nanoTime();
+                long[] reloaded = new long[1];
+                try (MessageStore store = MessageStores.open(config)) {
+                    store.loadAll(msg -> reloaded[0]++);
+                }
+                System.out.printf("%-12.1f\n", (System.nanoTime() - begin) / 1_000_000.0);
+                if (reloaded[0] != count - 10) {
+                    System.out.println("  ⚠️  " + backend[0] + " reopened with " + reloaded[0] + " messages");
+                }
+            } catch (IOException e) {
+                System.out.println("Error benchmarking the " + backend[0] + " store: " + e.getMessage());
+            } finally {
+                deleteTree(directory);
+            }
+        }
+    }
+
+    /**
+     * Compares CSV export and import with the JSON array, then reads the CSV
+     * file in parallel chunks with one thread up to the number of cores
+     * Every tenth message holds a comma, a quote and a line break, so quoting is exercised
+     */
+    public static void runCsvBenchmark() {
+        System.out.println("\n--- CSV: EXPORT, STREAMING IMPORT AND CHUNKED PARALLEL IMPORT ---");
+        int count = 500_000;
+        List<MessageManager.Message> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MessageManager.Message msg = syntheticMessage(0, i);
+            rows.add(i % 10 != 0 ? msg : new MessageManager.Message(msg.getMessageHash(), msg.getMessageID(),
+                    msg.getRecipient(), "Quoted, \"multi-line\"\nmessage " + i, msg.getFlagValue()));
+        }
+
+        File json = null;
+        File csv = null;
+        try {
+            json = File.createTempFile("benchmark", ".json");
+            csv = File.createTempFile("benchmark", MessageCsv.EXTENSION);
+
+            System.out.printf("%-14s %-14s %-14s %-12s\n", "Format", "Export (ms)", "Import (ms)", "Size (KB)");
+            for (File file : new File[] {json, csv}) {
+                // First pass warms up, second is measured
+                double export = 0;
+                double load = 0;
+                for (int pass = 0; pass < 2; pass++) {
+                    long begin = System.nanoTime();
+                    MessageFiles.writeManagerMessages(file.getPath(), rows);
+                    export = (System.nanoTime() - begin) / 1_000_000.0;
+                    long[] seen = new long[1];
+                    usedHeap();
+                    begin = System.nanoTime();
+                    MessageFiles.readManagerMessages(file.getPath(), msg -> seen[0]++);
+                    load = (System.nanoTime() - begin) / 1_000_000.0;
+                }
+                System.out.printf("%-14s %-14.1f %-14.1f %-12d\n",
+                        file == json ? "JSON array" : "CSV", export, load, file.length() / 1024);
+            }
+
+            System.out.printf("%-10s %-14s %-16s %-12s\n", "Threads", "Import (ms)", "Messages/sec", "MB/sec");
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                double millis = 0;
+                long records = 0;
+                for (int pass = 0; pass < 2; pass++) {
+                    usedHeap();
+                    long begin = System.nanoTime();
+                    records = MessageCsv.readFileInChunks(csv.getPath(), threads, batch -> { });
+                    millis = (System.nanoTime() - begin) / 1_000_000.0;
+                }
+                System.out.printf("%-10d %-14.1f %-16.0f %-12.1f\n", threads, millis,
+                        records * 1000 / millis, csv.length() / 1024.0 / 1024.0 * 1000 / millis);
+            }
+        } catch (IOException e) {
+            System.out.println("Error benchmarking CSV: " + e.getMessage());
+        } finally {
+            for (File file : new File[] {json, csv}) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a temporary benchmark directory and everything below it
+     */
+    private static void deleteTree(File file) {
+        if (file == null) {
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Heap in use after asking for a full collection
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Builds a deterministic message spread over 1000 recipients and all flags
+     */
+    static MessageManager.Message syntheticMessage(int writer, int i) {
+        MessageFlag flag = MessageFlag.fromCode((byte) (i % 3));
+        String recipient = "+2783" + String.format("%07d", i % 1000);
+        return new MessageManager.Message("W" + writer + ":" + i, "ID" + writer + "-" + i,
+                recipient, "Benchmark message number " + i, flag);
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Entry point for running the benchmarks from the command line
+     * @param args command line arguments (not used)
+     */
+    public static void main(String[] args) {
+        runAllBenchmarks();
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over string keys, used as a fast "definitely new" check on message hashes
+ * mightContain() never answers false for a key that was added; it answers true
+ * for an absent key with roughly the false-positive rate the filter was sized for,
+ * so a true answer must be confirmed against the real store.
+ *
+ * Keys cannot be removed. Bits are set with compare-and-set, so concurrent
+ * ingest threads can add and test without locking.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Duplicate check for idempotent loads
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param expectedKeys keys the filter is sized for; accuracy drops past it
+     * @param falsePositiveRate wanted share of absent keys reported as present, e.g. 0.01
+     */
+    BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected keys must be positive and the rate between 0 and 1");
+        }
+        // Optimal sizes: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+        long wanted = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (Math.max(wanted, 64) + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+        this.capacity = expectedKeys;
+    }
+
+    /**
+     * Records a key
+     * @param key key to add
+     */
+    void add(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * @param key key to test
+     * @return false if the key was never added; true if it probably was
+     */
+    boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true once more keys were added than the filter was sized for
+     */
+    boolean isSaturated() {
+        return insertions.get() > capacity;
+    }
+
+    /**
+     * @return keys added so far, counting repeats
+     */
+    long insertions() {
+        return insertions.get();
+    }
+
+    /**
+     * @return size of the bit array in bytes
+     */
+    long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % bitCount;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current = bits.get(word);
+        while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+            current = bits.get(word);
+        }
+    }
+
+    /**
+     * FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mix so both halves are usable
+     */
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
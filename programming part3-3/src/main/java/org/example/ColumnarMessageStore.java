@@ -0,0 +1,388 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Columnar (struct-of-arrays) message store
+ * Instead of one object with six String references per message, each field
+ * lives in its own primitive column:
+ * - flag as a single byte
+ * - numeric message IDs as a long (other IDs go to the byte heap)
+ * - recipient and sender dictionary-encoded to int/short codes
+ * - hash and content as UTF-8 bytes in a paged byte heap
+ *
+ * Messages are only handed out as flyweight Row views over the columns.
+ * Deleted rows are tombstoned; their heap bytes are not reclaimed.
+ *
+ * The heap is a list of 1 MB pages addressed by (page, position) longs, so it
+ * can grow past 2 GB; the bytes of one row never straddle two pages.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Paged heap, checked field lengths, incremental longest row
+ */
+public class ColumnarMessageStore implements MessageArchive {
+
+    // Flag column markers besides MessageFlag.code()
+    private static final byte NO_FLAG = -1;
+    private static final byte DELETED = -2;
+
+    // ID column marker for IDs that are not plain digits
+    private static final byte TEXT_ID = -1;
+
+    // Longest digit string stored as a long (18 digits always fit)
+    private static final int MAX_NUMERIC_ID_DIGITS = 18;
+
+    // Hash and text ID lengths are short columns
+    private static final int MAX_FIELD_BYTES = Short.MAX_VALUE;
+    // A row's bytes share one page, which is a single byte array
+    private static final int MAX_CONTENT_BYTES = Integer.MAX_VALUE - 8 - 2 * MAX_FIELD_BYTES;
+
+    private static final int PAGE_BYTES = 1 << 20;
+
+    private int rows;
+    private int live;
+
+    // ==================== COLUMNS ====================
+    private byte[] flags = new byte[16];
+    private long[] numericIds = new long[16];
+    private byte[] idDigits = new byte[16];        // digit count (keeps leading zeros) or TEXT_ID
+    private int[] recipientCodes = new int[16];
+    private short[] senderCodes = new short[16];
+    private long[] heapAddresses = new long[16];   // page << 32 | position of [hash][text id][content]
+    private short[] hashLengths = new short[16];
+    private short[] textIdLengths = new short[16];
+    private int[] contentLengths = new int[16];
+    private int[] nextSameRecipient = new int[16]; // previous row for the same recipient, -1 at the end
+
+    // Packed UTF-8 bytes of every hash, non-numeric ID and content
+    private byte[][] pages = new byte[4][];
+    private int pageCount;
+    private int pageFill;
+    private long heapBytes;
+
+    // ==================== DICTIONARIES ====================
+    private final List<String> recipients = new ArrayList<>();
+    private final Map<String, Integer> recipientDictionary = new HashMap<>();
+    private final List<String> senders = new ArrayList<>();
+    private final Map<String, Short> senderDictionary = new HashMap<>();
+
+    // Normalized recipient key -> newest row, rows chained through nextSameRecipient
+    private final Map<Object, Integer> recipientHeads = new HashMap<>();
+
+    // ==================== INDEXES ====================
+    private final RowHashIndex hashIndex = new RowHashIndex();
+    private final RowHashIndex idIndex = new RowHashIndex();
+
+    private final int[] flagCounts = new int[MessageFlag.values().length];
+
+    private final LongestRows longestRows = new LongestRows(new LongestRows.Rows() {
+        @Override
+        public int count() {
+            return rows;
+        }
+
+        @Override
+        public boolean matches(int row, MessageFlag flag) {
+            return matchesFlag(row, flag);
+        }
+
+        @Override
+        public int contentBytes(int row) {
+            return contentLengths[row];
+        }
+
+        @Override
+        public int contentChars(int row) {
+            return new Row(row).getMessage().length();
+        }
+    });
+
+    @Override
+    public String getName() {
+        return "columnar";
+    }
+
+    @Override
+    public synchronized void add(MessageManager.Message msg) {
+        // Encode before touching any column, so a refused message leaves the store as it was
+        byte[] hashBytes = ArchiveRow.fieldBytes(msg.getMessageHash(), "hash", MAX_FIELD_BYTES);
+        byte[] contentBytes = ArchiveRow.fieldBytes(msg.getMessage(), "content", MAX_CONTENT_BYTES);
+        String id = msg.getMessageID();
+        boolean numericId = isNumericId(id);
+        byte[] textIdBytes = numericId ? new byte[0] : ArchiveRow.fieldBytes(id, "ID", MAX_FIELD_BYTES);
+
+        removeRow(findRow(msg.getMessageHash()));
+        ensureCapacity(rows + 1);
+        int row = rows++;
+
+        if (numericId) {
+            numericIds[row] = Long.parseLong(id);
+            idDigits[row] = (byte) id.length();
+        } else {
+            idDigits[row] = TEXT_ID;
+        }
+
+        hashLengths[row] = (short) hashBytes.length;
+        textIdLengths[row] = (short) textIdBytes.length;
+        contentLengths[row] = contentBytes.length;
+        heapAddresses[row] = appendToHeap(hashBytes, textIdBytes, contentBytes);
+
+        MessageFlag flag = msg.getFlagValue();
+        flags[row] = flag != null ? flag.code() : NO_FLAG;
+        if (flag != null) {
+            flagCounts[flag.ordinal()]++;
+        }
+        senderCodes[row] = senderCode(msg.getSender());
+        recipientCodes[row] = recipientCode(msg.getRecipient());
+
+        Object groupKey = PhoneNumbers.recipientGroup(msg.getRecipient());
+        Integer head = recipientHeads.put(groupKey, row);
+        nextSameRecipient[row] = head != null ? head : -1;
+
+        hashIndex.insert(msg.getMessageHash(), row);
+        idIndex.insert(id, row);
+        longestRows.added(row, flag, msg.getMessage() != null ? msg.getMessage().length() : 0);
+        live++;
+    }
+
+    @Override
+    public synchronized MessageManager.Message findByHash(String hash) {
+        int row = findRow(hash);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public synchronized MessageManager.Message findByID(String id) {
+        int row = idIndex.find(id, this::idMatches);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public synchronized List<MessageManager.Message> findByRecipient(String recipient) {
+        Integer head = recipientHeads.get(PhoneNumbers.recipientGroup(recipient));
+        if (head == null) {
+            return Collections.emptyList();
+        }
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (int row = head; row >= 0; row = nextSameRecipient[row]) {
+            if (flags[row] != DELETED) {
+                result.add(new Row(row));
+            }
+        }
+        // The chain runs newest first
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public synchronized void forEach(MessageFlag flag, Consumer<MessageManager.Message> action) {
+        Row cursor = new Row(0);
+        for (int row = 0; row < rows; row++) {
+            if (matchesFlag(row, flag)) {
+                cursor.row = row;
+                action.accept(cursor);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int count(MessageFlag flag) {
+        return flag == null ? live : flagCounts[flag.ordinal()];
+    }
+
+    @Override
+    public synchronized MessageManager.Message longest(MessageFlag flag) {
+        int row = longestRows.longest(flag);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public synchronized boolean remove(String hash) {
+        return removeRow(findRow(hash));
+    }
+
+    @Override
+    public synchronized long estimatedHeapBytes() {
+        long columns = (long) flags.length * (1 + 8 + 1 + 4 + 2 + 8 + 2 + 2 + 4 + 4);
+        long dictionaries = 64L * (recipients.size() + senders.size() + recipientHeads.size());
+        return columns + heapBytes + dictionaries
+                + hashIndex.estimatedHeapBytes() + idIndex.estimatedHeapBytes();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private int findRow(String hash) {
+        return hashIndex.find(hash, this::hashMatches);
+    }
+
+    private boolean removeRow(int row) {
+        if (row < 0 || flags[row] == DELETED) {
+            return false;
+        }
+        Row view = new Row(row);
+        hashIndex.remove(view.getMessageHash(), row);
+        idIndex.remove(view.getMessageID(), row);
+        if (flags[row] != NO_FLAG) {
+            flagCounts[flags[row]]--;
+        }
+        flags[row] = DELETED;
+        longestRows.removed(row);
+        live--;
+        return true;
+    }
+
+    private boolean matchesFlag(int row, MessageFlag flag) {
+        return flags[row] != DELETED && (flag == null || flags[row] == flag.code());
+    }
+
+    private boolean hashMatches(int row, byte[] key) {
+        return flags[row] != DELETED && heapEquals(heapAddresses[row], hashLengths[row], key);
+    }
+
+    private boolean idMatches(int row, byte[] key) {
+        if (flags[row] == DELETED) {
+            return false;
+        }
+        if (idDigits[row] == TEXT_ID) {
+            return heapEquals(heapAddresses[row] + hashLengths[row], textIdLengths[row], key);
+        }
+        return Arrays.equals(RowHashIndex.keyBytes(numericIdText(row)), key);
+    }
+
+    // Adding to an address moves within its page, which holds the whole row
+    private boolean heapEquals(long address, int length, byte[] key) {
+        int position = (int) address;
+        return length == key.length
+                && Arrays.equals(pages[(int) (address >>> 32)], position, position + length, key, 0, length);
+    }
+
+    private String heapString(long address, int length) {
+        return new String(pages[(int) (address >>> 32)], (int) address, length, StandardCharsets.UTF_8);
+    }
+
+    private String numericIdText(int row) {
+        String digits = Long.toString(numericIds[row]);
+        int padding = idDigits[row] - digits.length();
+        return padding > 0 ? "0".repeat(padding) + digits : digits;
+    }
+
+    private static boolean isNumericId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_NUMERIC_ID_DIGITS) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int recipientCode(String recipient) {
+        Integer code = recipientDictionary.get(recipient);
+        if (code == null) {
+            code = recipients.size();
+            recipients.add(recipient);
+            recipientDictionary.put(recipient, code);
+        }
+        return code;
+    }
+
+    private short senderCode(String sender) {
+        Short code = senderDictionary.get(sender);
+        if (code == null) {
+            if (senders.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct senders for the columnar store");
+            }
+            code = (short) senders.size();
+            senders.add(sender);
+            senderDictionary.put(sender, code);
+        }
+        return code;
+    }
+
+    /**
+     * Copies the fields of one row next to each other into the heap
+     * @return address of the first field
+     */
+    private long appendToHeap(byte[]... fields) {
+        int length = 0;
+        for (byte[] field : fields) {
+            length += field.length;
+        }
+        if (pageCount == 0 || (long) pageFill + length > PAGE_BYTES) {
+            // Rows larger than a page get a page of their own
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = new byte[Math.max(PAGE_BYTES, length)];
+            pageFill = 0;
+            heapBytes += pages[pageCount - 1].length;
+        }
+        long address = (long) (pageCount - 1) << 32 | pageFill;
+        byte[] page = pages[pageCount - 1];
+        for (byte[] field : fields) {
+            System.arraycopy(field, 0, page, pageFill, field.length);
+            pageFill += field.length;
+        }
+        return address;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= flags.length) {
+            return;
+        }
+        int capacity = Math.max(needed, flags.length * 2);
+        flags = Arrays.copyOf(flags, capacity);
+        numericIds = Arrays.copyOf(numericIds, capacity);
+        idDigits = Arrays.copyOf(idDigits, capacity);
+        recipientCodes = Arrays.copyOf(recipientCodes, capacity);
+        senderCodes = Arrays.copyOf(senderCodes, capacity);
+        heapAddresses = Arrays.copyOf(heapAddresses, capacity);
+        hashLengths = Arrays.copyOf(hashLengths, capacity);
+        textIdLengths = Arrays.copyOf(textIdLengths, capacity);
+        contentLengths = Arrays.copyOf(contentLengths, capacity);
+        nextSameRecipient = Arrays.copyOf(nextSameRecipient, capacity);
+    }
+
+    /**
+     * Flyweight view of one row; every getter decodes straight from the columns
+     */
+    private final class Row extends ArchiveRow {
+        Row(int row) {
+            super(row);
+        }
+
+        @Override
+        String field(int field) {
+            switch (field) {
+                case HASH_FIELD:
+                    return heapString(heapAddresses[row], hashLengths[row]);
+                case ID_FIELD:
+                    if (idDigits[row] == TEXT_ID) {
+                        return heapString(heapAddresses[row] + hashLengths[row], textIdLengths[row]);
+                    }
+                    return numericIdText(row);
+                case RECIPIENT_FIELD:
+                    return recipients.get(recipientCodes[row]);
+                case SENDER_FIELD:
+                    return senders.get(senderCodes[row]);
+                default:
+                    return heapString(heapAddresses[row] + hashLengths[row] + textIdLengths[row],
+                            contentLengths[row]);
+            }
+        }
+
+        @Override
+        byte flagCode() {
+            return flags[row];
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Inverted full-text index over message content
+ * Every message is split into lower-case words and listed in the posting
+ * list of each word, so a word search only touches the messages that
+ * contain it instead of scanning every message
+ *
+ * Posting lists are keyed by insertion sequence, so results come back in
+ * insertion order. Terms are kept sorted, which makes a prefix query a
+ * range walk over the term dictionary.
+ *
+ * Query syntax used by query():
+ * - "dinner time"      messages containing both words (AND)
+ * - "cake OR dinner"   messages containing either word
+ * - "din*"             any word starting with "din"
+ *
+ * In concurrent mode empty posting lists are left in place, for the same
+ * reason as in LengthIndex.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Saved and restored posting lists
+ */
+public class ContentIndex {
+    private final boolean concurrent;
+
+    // Term -> messages containing it, ordered by insertion sequence
+    private final NavigableMap<String, Map<Long, MessageManager.Message>> postings;
+
+    /**
+     * Creates a single-threaded index
+     */
+    public ContentIndex() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent true to allow concurrent writers and lock-free readers
+     */
+    public ContentIndex(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.postings = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+    }
+
+    /**
+     * Adds a message under every word of its content
+     * @param seq insertion sequence number assigned by the repository
+     * @param msg message to index
+     */
+    public void add(long seq, MessageManager.Message msg) {
+        for (String term : tokenize(msg.getMessage())) {
+            postings.computeIfAbsent(term, t -> OrderedMultimap.orderedMap(concurrent)).put(seq, msg);
+        }
+    }
+
+    /**
+     * Removes a message from the posting list of every word of its content
+     * @param seq insertion sequence number of the message
+     * @param msg message to remove
+     */
+    public void remove(long seq, MessageManager.Message msg) {
+        for (String term : tokenize(msg.getMessage())) {
+            Map<Long, MessageManager.Message> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(seq);
+            if (!concurrent && posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * @param term single word, any case
+     * @return read-only messages containing the word in insertion order
+     */
+    public Collection<MessageManager.Message> find(String term) {
+        Map<Long, MessageManager.Message> posting = postings.get(normalize(term));
+        return posting == null ? Collections.emptyList() : Collections.unmodifiableCollection(posting.values());
+    }
+
+    /**
+     * Messages containing every word; walks the shortest posting list only
+     * @param terms words that must all appear
+     * @return matching messages in insertion order
+     */
+    public List<MessageManager.Message> findAll(String... terms) {
+        List<Map<Long, MessageManager.Message>> lists = new ArrayList<>();
+        for (String term : terms) {
+            lists.add(postings.getOrDefault(normalize(term), Collections.emptyMap()));
+        }
+        return intersect(lists);
+    }
+
+    /**
+     * @param terms words of which at least one must appear
+     * @return matching messages in insertion order
+     */
+    public List<MessageManager.Message> findAny(String... terms) {
+        Map<Long, MessageManager.Message> merged = new TreeMap<>();
+        for (String term : terms) {
+            merged.putAll(postings.getOrDefault(normalize(term), Collections.emptyMap()));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * @param prefix start of a word, any case
+     * @return messages containing a word with that prefix, in insertion order
+     */
+    public List<MessageManager.Message> findPrefix(String prefix) {
+        return new ArrayList<>(prefixPostings(normalize(prefix)).values());
+    }
+
+    /**
+     * Runs a query written in the syntax described on the class
+     * @param expression words, optional OR keywords and trailing * for prefixes
+     * @return matching messages in insertion order, empty for a blank query
+     */
+    public List<MessageManager.Message> query(String expression) {
+        List<String> clauses = clauses(expression);
+        if (clauses.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Map<Long, MessageManager.Message>> lists = new ArrayList<>();
+        for (String clause : clauses) {
+            lists.add(clause.endsWith("*")
+                    ? prefixPostings(normalize(clause.substring(0, clause.length() - 1)))
+                    : postings.getOrDefault(normalize(clause), Collections.emptyMap()));
+        }
+
+        if (!isDisjunction(expression)) {
+            return intersect(lists);
+        }
+        Map<Long, MessageManager.Message> merged = new TreeMap<>();
+        for (Map<Long, MessageManager.Message> list : lists) {
+            merged.putAll(list);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Checks a single text against a query without the index
+     * Used for messages held outside the repository, such as the archive tier
+     * @param expression query in the syntax described on the class
+     * @param content text to test
+     * @return true if the text matches
+     */
+    public static boolean matches(String expression, String content) {
+        List<String> clauses = clauses(expression);
+        if (clauses.isEmpty()) {
+            return false;
+        }
+        Set<String> words = tokenize(content);
+        boolean any = isDisjunction(expression);
+        for (String clause : clauses) {
+            boolean hit = clause.endsWith("*")
+                    ? containsPrefix(words, normalize(clause.substring(0, clause.length() - 1)))
+                    : words.contains(normalize(clause));
+            if (hit && any) {
+                return true;
+            }
+            if (!hit && !any) {
+                return false;
+            }
+        }
+        return !any;
+    }
+
+    /**
+     * @return number of distinct words indexed
+     */
+    public int termCount() {
+        return postings.size();
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Visits every non-empty posting list in term order, for MessageIndexFile
+     * @param action receives each term with its messages keyed by insertion sequence
+     */
+    void forEachPosting(BiConsumer<String, Map<Long, MessageManager.Message>> action) {
+        postings.forEach((term, posting) -> {
+            if (!posting.isEmpty()) {
+                action.accept(term, posting);
+            }
+        });
+    }
+
+    /**
+     * Installs a saved posting list without tokenizing any content again
+     * @param term word the list was saved under
+     * @param posting messages in insertion order
+     */
+    void restorePosting(String term, Map<Long, MessageManager.Message> posting) {
+        postings.put(term, posting);
+    }
+
+    /**
+     * Splits text into distinct lower-case words of letters and digits
+     * "It is dinner time!" becomes [it, is, dinner, time]
+     * @param text content to split, may be null
+     * @return words in order of first appearance
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // ==================== INTERNALS ====================
+
+    // Query words without the OR keywords
+    private static List<String> clauses(String expression) {
+        List<String> clauses = new ArrayList<>();
+        for (String word : words(expression)) {
+            if (!word.equals("OR")) {
+                clauses.add(word);
+            }
+        }
+        return clauses;
+    }
+
+    private static boolean isDisjunction(String expression) {
+        for (String word : words(expression)) {
+            if (word.equals("OR")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] words(String expression) {
+        String trimmed = expression == null ? "" : expression.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    private static String normalize(String term) {
+        return term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Merges the posting lists of every term starting with the prefix
+     */
+    private Map<Long, MessageManager.Message> prefixPostings(String prefix) {
+        Map<Long, MessageManager.Message> merged = new TreeMap<>();
+        if (prefix.isEmpty()) {
+            return merged;
+        }
+        for (Map<Long, MessageManager.Message> posting
+                : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            merged.putAll(posting);
+        }
+        return merged;
+    }
+
+    private static boolean containsPrefix(Set<String> words, String prefix) {
+        if (prefix.isEmpty()) {
+            return false;
+        }
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Intersects posting lists by walking the shortest one and probing the others
+     * Result order follows the shortest list, which is insertion order
+     */
+    private static List<MessageManager.Message> intersect(List<Map<Long, MessageManager.Message>> lists) {
+        if (lists.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lists.sort(Comparator.comparingInt(Map::size));
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (Map.Entry<Long, MessageManager.Message> entry : lists.get(0).entrySet()) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).containsKey(entry.getKey());
+            }
+            if (inAll) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MessageStore kept in one message file, as messages.json always was
+ * The file format follows the extension through MessageFiles: JSON, JSON Lines
+ * or the binary format. Messages are held in memory and the whole file is
+ * rewritten (to a temporary file, then moved into place) on every change,
+ * or only on flush() when auto-flush is off.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Pluggable storage backends
+ */
+public class FileMessageStore implements MessageStore {
+
+    private final File file;
+    private final boolean autoFlush;
+
+    // hash -> message, in file order
+    private final Map<String, MessageManager.Message> messages = new LinkedHashMap<>();
+    private boolean dirty;
+
+    /**
+     * Opens a message file, reading any messages it already holds
+     * @param path file to use; ".msgb" selects the binary format, ".ndjson" / ".jsonl" JSON Lines
+     * @param autoFlush true to rewrite the file on every change, false to wait for flush()
+     * @throws IOException if an existing file cannot be read
+     */
+    public FileMessageStore(String path, boolean autoFlush) throws IOException {
+        this.file = new File(path);
+        this.autoFlush = autoFlush;
+        if (file.exists() && file.length() > 0) {
+            MessageFiles.readManagerMessages(path, msg -> messages.put(String.valueOf(msg.getMessageHash()), msg));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return MessageFiles.isBinary(file.getName()) ? "binary" : "json";
+    }
+
+    /**
+     * @return the message file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void putAll(Collection<? extends MessageManager.Message> batch) throws IOException {
+        for (MessageManager.Message msg : batch) {
+            messages.put(String.valueOf(msg.getMessageHash()), msg);
+        }
+        changed();
+    }
+
+    @Override
+    public synchronized boolean remove(String hash) throws IOException {
+        if (messages.remove(String.valueOf(hash)) == null) {
+            return false;
+        }
+        changed();
+        return true;
+    }
+
+    @Override
+    public synchronized MessageManager.Message get(String hash) {
+        return messages.get(String.valueOf(hash));
+    }
+
+    @Override
+    public long loadAll(Consumer<MessageManager.Message> sink) {
+        List<MessageManager.Message> copy;
+        synchronized (this) {
+            copy = new ArrayList<>(messages.values());
+        }
+        copy.forEach(sink);
+        return copy.size();
+    }
+
+    @Override
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        // The temporary name keeps the extension, which selects the format
+        File temp = File.createTempFile("store", extensionOf(file.getName()), parent);
+        try {
+            MessageFiles.writeManagerMessages(temp.getPath(), messages.values());
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+        dirty = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void changed() throws IOException {
+        dirty = true;
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    private static String extensionOf(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot) : ".json";
+    }
+}
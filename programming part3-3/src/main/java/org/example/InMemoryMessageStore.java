@@ -0,0 +1,68 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MessageStore that keeps messages in memory only
+ * Used for tests and as the baseline in the storage benchmark
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Pluggable storage backends
+ */
+public class InMemoryMessageStore implements MessageStore {
+
+    // hash -> message, in insertion order
+    private final Map<String, MessageManager.Message> messages = new LinkedHashMap<>();
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public synchronized void putAll(Collection<? extends MessageManager.Message> batch) {
+        for (MessageManager.Message msg : batch) {
+            messages.put(String.valueOf(msg.getMessageHash()), msg);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String hash) {
+        return messages.remove(String.valueOf(hash)) != null;
+    }
+
+    @Override
+    public synchronized MessageManager.Message get(String hash) {
+        return messages.get(String.valueOf(hash));
+    }
+
+    @Override
+    public long loadAll(Consumer<MessageManager.Message> sink) {
+        List<MessageManager.Message> copy;
+        synchronized (this) {
+            copy = new ArrayList<>(messages.values());
+        }
+        copy.forEach(sink);
+        return copy.size();
+    }
+
+    @Override
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to write
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,139 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sorted index of messages by content length
+ * Kept up to date on every insert and delete by MessageRepository, so the
+ * longest message, top-K and length-range queries never walk the whole store
+ *
+ * Messages of equal length stay in insertion order, so "longest" returns
+ * the earliest of the longest messages, as the original scan did.
+ *
+ * In concurrent mode empty length buckets are left in place: removing them
+ * could race with a writer adding to the same bucket. There is at most one
+ * bucket per distinct length, so the leftovers stay small and reads skip them.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Incrementally maintained length index
+ */
+public class LengthIndex {
+    private final boolean concurrent;
+
+    // Content length -> messages of that length ordered by insertion sequence
+    private final NavigableMap<Integer, Map<Long, MessageManager.Message>> byLength;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Creates a single-threaded index
+     */
+    public LengthIndex() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent true to allow concurrent writers and lock-free readers
+     */
+    public LengthIndex(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.byLength = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+    }
+
+    /**
+     * Adds a message, O(log n)
+     * @param seq insertion sequence number assigned by the repository
+     * @param msg message to index
+     */
+    public void add(long seq, MessageManager.Message msg) {
+        byLength.computeIfAbsent(lengthOf(msg), length -> OrderedMultimap.orderedMap(concurrent)).put(seq, msg);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Removes a message, O(log n)
+     * @param seq insertion sequence number of the message
+     * @param msg message to remove
+     */
+    public void remove(long seq, MessageManager.Message msg) {
+        int length = lengthOf(msg);
+        Map<Long, MessageManager.Message> bucket = byLength.get(length);
+        if (bucket == null || bucket.remove(seq) == null) {
+            return;
+        }
+        size.decrementAndGet();
+        if (!concurrent && bucket.isEmpty()) {
+            byLength.remove(length);
+        }
+    }
+
+    /**
+     * @return the longest message, or null if the index is empty
+     */
+    public MessageManager.Message longest() {
+        // Normally the first bucket wins; only concurrent mode can leave empty ones to skip
+        for (Map<Long, MessageManager.Message> bucket : byLength.descendingMap().values()) {
+            for (MessageManager.Message msg : bucket.values()) {
+                return msg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the k longest messages, longest first
+     * Costs O(log n + k) because it stops after k messages
+     * @param k maximum number of messages to return
+     * @return up to k messages, longest first
+     */
+    public List<MessageManager.Message> topK(int k) {
+        List<MessageManager.Message> result = new ArrayList<>(Math.max(0, Math.min(k, size())));
+        for (Map<Long, MessageManager.Message> bucket : byLength.descendingMap().values()) {
+            for (MessageManager.Message msg : bucket.values()) {
+                if (result.size() >= k) {
+                    return result;
+                }
+                result.add(msg);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns every message whose length is within [minLength, maxLength]
+     * Costs O(log n + matches)
+     * @param minLength shortest length to include
+     * @param maxLength longest length to include
+     * @return matching messages, shortest first
+     */
+    public List<MessageManager.Message> range(int minLength, int maxLength) {
+        if (minLength > maxLength) {
+            return Collections.emptyList();
+        }
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (Map<Long, MessageManager.Message> bucket : byLength.subMap(minLength, true, maxLength, true).values()) {
+            result.addAll(bucket.values());
+        }
+        return result;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        byLength.clear();
+        size.set(0);
+    }
+
+    private static int lengthOf(MessageManager.Message msg) {
+        return msg.getMessage() != null ? msg.getMessage().length() : 0;
+    }
+}
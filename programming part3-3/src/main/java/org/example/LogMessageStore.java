@@ -0,0 +1,168 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MessageStore backed by a binary checkpoint and an append-only journal
+ * Every change is one short journal line (see MessageJournal) instead of a
+ * file rewrite; once checkpointInterval entries build up, the messages are
+ * written to a MessageCheckpoint and the journal is emptied. Opening the
+ * store loads the checkpoint and replays only the journal after it.
+ *
+ * Directory layout:
+ *   messages.ckpt      last checkpoint
+ *   messages.journal   changes since that checkpoint
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Pluggable storage backends
+ */
+public class LogMessageStore implements MessageStore {
+
+    /** Default journal entries between checkpoints */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+
+    private final File checkpointFile;
+    private final MessageJournal journal;
+    private final long checkpointInterval;
+
+    // hash -> message, in insertion order
+    private final Map<String, MessageManager.Message> messages = new LinkedHashMap<>();
+    private long checkpointLsn;
+
+    /**
+     * Opens or creates a store, replaying any journal written after the last checkpoint
+     * @param directory store directory, created if needed
+     * @param policy when journal entries are forced to disk
+     * @param checkpointInterval journal entries between checkpoints
+     * @throws IOException if the checkpoint or journal cannot be read
+     */
+    public LogMessageStore(String directory, MessageLog.SyncPolicy policy, long checkpointInterval) throws IOException {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create store directory " + directory);
+        }
+        this.checkpointFile = new File(dir, "messages.ckpt");
+        this.checkpointInterval = checkpointInterval;
+        if (checkpointFile.exists()) {
+            checkpointLsn = MessageCheckpoint.read(checkpointFile.getPath(),
+                    msg -> messages.put(String.valueOf(msg.getMessageHash()), msg)).getLsn();
+        }
+        this.journal = MessageJournal.recover(new File(dir, "messages.journal").getPath(), checkpointLsn, policy, this::apply);
+    }
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public synchronized void putAll(Collection<? extends MessageManager.Message> batch) throws IOException {
+        for (MessageManager.Message msg : batch) {
+            journal.add(msg);
+            messages.put(String.valueOf(msg.getMessageHash()), msg);
+        }
+        checkpointIfDue();
+    }
+
+    @Override
+    public synchronized boolean remove(String hash) throws IOException {
+        if (!messages.containsKey(String.valueOf(hash))) {
+            return false;
+        }
+        journal.remove(hash);
+        messages.remove(String.valueOf(hash));
+        checkpointIfDue();
+        return true;
+    }
+
+    @Override
+    public synchronized MessageManager.Message get(String hash) {
+        return messages.get(String.valueOf(hash));
+    }
+
+    @Override
+    public long loadAll(Consumer<MessageManager.Message> sink) {
+        List<MessageManager.Message> copy;
+        synchronized (this) {
+            copy = new ArrayList<>(messages.values());
+        }
+        copy.forEach(sink);
+        return copy.size();
+    }
+
+    @Override
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        journal.sync();
+    }
+
+    /**
+     * Writes a checkpoint of every message and empties the journal
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        long lsn = journal.lastLsn();
+        MessageCheckpoint.write(checkpointFile.getPath(), lsn, messages.values());
+        journal.truncate();
+        checkpointLsn = lsn;
+    }
+
+    /**
+     * Checkpoints so the next open has nothing to replay, then closes the journal
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (journal.lastLsn() > checkpointLsn) {
+                checkpoint();
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    private void checkpointIfDue() throws IOException {
+        if (journal.lastLsn() - checkpointLsn >= checkpointInterval) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Repeats one replayed journal entry on the in-memory map
+     */
+    private void apply(MessageJournal.Entry entry) {
+        switch (entry.getOp()) {
+            case ADD:
+                messages.put(String.valueOf(entry.getMessage().getMessageHash()), entry.getMessage());
+                break;
+            case REMOVE:
+                messages.remove(String.valueOf(entry.getHash()));
+                break;
+            case FLAG:
+                MessageManager.Message msg = messages.get(String.valueOf(entry.getHash()));
+                if (msg != null) {
+                    msg.setFlagValue(entry.getFlag());
+                }
+                break;
+            case CLEAR:
+                messages.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal operation " + entry.getOp());
+        }
+    }
+}
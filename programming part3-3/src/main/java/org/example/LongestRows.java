@@ -0,0 +1,116 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Longest row per flag for the writable archive stores
+ * Kept up to date as rows are added, so longest() does not walk the archive:
+ * adding a row is O(1), and so is every query until the longest row of a
+ * flag is removed. Only then is that one flag rescanned, on its next query.
+ *
+ * Lengths are in characters, like LengthIndex. Rows are numbered in insertion
+ * order, so on equal lengths the earlier row stays the longest.
+ *
+ * Not thread-safe; the owning store synchronizes.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Incremental longest row for archive stores
+ */
+final class LongestRows {
+
+    /**
+     * Read access to the rows of the owning store, used to rescan one flag
+     */
+    interface Rows {
+        /** @return number of rows, deleted ones included */
+        int count();
+
+        /** @return true if the row is live and has the flag, or any flag when flag is null */
+        boolean matches(int row, MessageFlag flag);
+
+        /** @return UTF-8 length of the content, never less than its length in characters */
+        int contentBytes(int row);
+
+        /** @return length of the content in characters */
+        int contentChars(int row);
+    }
+
+    private static final int NONE = -1;
+    private static final int STALE = -2;
+
+    private final Rows rows;
+    // Indexed by flag ordinal, the last slot covers every flag
+    private final int[] longest = new int[MessageFlag.values().length + 1];
+    private final int[] lengths = new int[longest.length];
+
+    LongestRows(Rows rows) {
+        this.rows = rows;
+        clear();
+    }
+
+    /**
+     * Forgets every row
+     */
+    void clear() {
+        Arrays.fill(longest, NONE);
+        Arrays.fill(lengths, -1);
+    }
+
+    /**
+     * Records a new row, which must have the highest row number so far
+     */
+    void added(int row, MessageFlag flag, int chars) {
+        offer(longest.length - 1, row, chars);
+        if (flag != null) {
+            offer(flag.ordinal(), row, chars);
+        }
+    }
+
+    /**
+     * Records that a row was deleted
+     */
+    void removed(int row) {
+        for (int slot = 0; slot < longest.length; slot++) {
+            if (longest[slot] == row) {
+                longest[slot] = STALE;
+            }
+        }
+    }
+
+    /**
+     * @param flag flag to restrict to, or null for every row
+     * @return the longest live row with that flag, or -1
+     */
+    int longest(MessageFlag flag) {
+        int slot = flag != null ? flag.ordinal() : longest.length - 1;
+        if (longest[slot] == STALE) {
+            rescan(slot, flag);
+        }
+        return longest[slot];
+    }
+
+    private void offer(int slot, int row, int chars) {
+        // A stale slot is rescanned in full anyway
+        if (longest[slot] != STALE && chars > lengths[slot]) {
+            longest[slot] = row;
+            lengths[slot] = chars;
+        }
+    }
+
+    private void rescan(int slot, MessageFlag flag) {
+        int best = NONE;
+        int bestLength = -1;
+        for (int row = 0, count = rows.count(); row < count; row++) {
+            // The byte length bounds the character length, so most rows are never decoded
+            if (rows.matches(row, flag) && rows.contentBytes(row) > bestLength) {
+                int length = rows.contentChars(row);
+                if (length > bestLength) {
+                    best = row;
+                    bestLength = length;
+                }
+            }
+        }
+        longest[slot] = best;
+        lengths[slot] = bestLength;
+    }
+}
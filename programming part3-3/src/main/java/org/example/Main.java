@@ -27,6 +27,8 @@ public class Main {
      * @param args command line arguments (not used)
      */
     public static void main(String[] args) {
+        // Message history loads in the background while the user registers and logs in
+        Message.startLoading();
         displayWelcomeMessage();
 
         boolean exitProgram = false;
@@ -0,0 +1,691 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Read-only message archive served straight from a memory-mapped file
+ * Nothing is deserialized on open: the file is mapped with FileChannel.map
+ * and every lookup reads the on-disk tables and records in place, so the
+ * operating system only faults in the pages a query touches.
+ *
+ * File layout (all numbers big-endian):
+ *   header     magic "MSGA", version, region shift, row count, live count,
+ *              flag counts, longest rows and the position of every section
+ *   records    [hash len:2][id len:2][recipient len:2][sender len:2][content len:4][UTF-8 bytes]
+ *   flags      one byte per row, so flag filters never touch the records
+ *   offsets    one long per row, the record position
+ *   next       one int per row, the next row for the same recipient or -1
+ *   hash, id   open-addressing tables of [key hash:4][row + 1:4] slots
+ *   recipients open-addressing table of [group hash:4][first row + 1:4] slots
+ *
+ * The file is mapped in regions of 2^shift bytes; the writer pads so that no
+ * record or table entry crosses a region boundary, which lets files grow past
+ * the 2 GB limit of a single mapping.
+ *
+ * Build a file with write(), then open() it and attach it to MessageManager.
+ * add() and remove() throw UnsupportedOperationException. Reads need no
+ * locking; the mapping is released when the archive is garbage collected.
+ * write() builds a temporary file and moves it into place, so an archive
+ * still mapping the old file keeps reading it undisturbed.
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Atomic rewrite
+ */
+public class MappedMessageArchive implements MessageArchive {
+
+    /** Current archive file version */
+    public static final int FORMAT_VERSION = 1;
+
+    // Default mapping region: 1 GB
+    static final int DEFAULT_REGION_SHIFT = 30;
+
+    private static final byte[] MAGIC = {'M', 'S', 'G', 'A'};
+    private static final int HEADER_BYTES = 160;
+    private static final int RECORD_HEADER_BYTES = 2 + 2 + 2 + 2 + 4;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+    private static final int MAX_FLAGS = 8;
+
+    // Flag byte markers besides MessageFlag.code()
+    private static final byte NO_FLAG = -1;
+    private static final byte REPLACED = -2;
+
+    // Header positions
+    private static final int H_VERSION = 4;
+    private static final int H_REGION_SHIFT = 8;
+    private static final int H_ROWS = 12;
+    private static final int H_LIVE = 16;
+    private static final int H_FLAG_COUNTS = 20;
+    private static final int H_LONGEST = H_FLAG_COUNTS + 4 * MAX_FLAGS;
+    private static final int H_CAPACITIES = H_LONGEST + 4 * (MAX_FLAGS + 1);
+    private static final int H_SECTIONS = H_CAPACITIES + 4 * 3;
+
+    private final String name;
+    private final ByteBuffer[] regions;
+    private final int regionShift;
+    private final long regionMask;
+
+    private final int rows;
+    private final int live;
+    private final int[] flagCounts = new int[MAX_FLAGS];
+    // Longest row for every flag by ordinal, then for all flags
+    private final int[] longest = new int[MAX_FLAGS + 1];
+
+    private final int hashCapacity;
+    private final int idCapacity;
+    private final int recipientCapacity;
+    private final long flagsStart;
+    private final long offsetsStart;
+    private final long nextStart;
+    private final long hashStart;
+    private final long idStart;
+    private final long recipientStart;
+
+    private MappedMessageArchive(String name, ByteBuffer[] regions, int regionShift) throws IOException {
+        this.name = name;
+        this.regions = regions;
+        this.regionShift = regionShift;
+        this.regionMask = (1L << regionShift) - 1;
+
+        rows = getInt(H_ROWS);
+        live = getInt(H_LIVE);
+        for (int i = 0; i < MAX_FLAGS; i++) {
+            flagCounts[i] = getInt(H_FLAG_COUNTS + 4 * i);
+        }
+        for (int i = 0; i <= MAX_FLAGS; i++) {
+            longest[i] = getInt(H_LONGEST + 4 * i);
+        }
+        hashCapacity = getInt(H_CAPACITIES);
+        idCapacity = getInt(H_CAPACITIES + 4);
+        recipientCapacity = getInt(H_CAPACITIES + 8);
+        flagsStart = getLong(H_SECTIONS);
+        offsetsStart = getLong(H_SECTIONS + 8);
+        nextStart = getLong(H_SECTIONS + 16);
+        hashStart = getLong(H_SECTIONS + 24);
+        idStart = getLong(H_SECTIONS + 32);
+        recipientStart = getLong(H_SECTIONS + 40);
+
+        if (rows < 0 || live < 0 || live > rows
+                || Integer.bitCount(hashCapacity) != 1 || Integer.bitCount(idCapacity) != 1
+                || Integer.bitCount(recipientCapacity) != 1) {
+            throw new IOException("Corrupt archive header in " + name);
+        }
+    }
+
+    // ==================== OPENING ====================
+
+    /**
+     * Maps an archive file read-only; only the header is read here
+     * @param path file built by write()
+     * @return the archive, ready to attach to MessageManager
+     * @throws IOException if the file cannot be mapped or is not an archive
+     */
+    public static MappedMessageArchive open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a message archive: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a message archive: " + path);
+            }
+            int version = header.getInt(H_VERSION);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported message archive version " + version);
+            }
+            int shift = header.getInt(H_REGION_SHIFT);
+            if (shift < 8 || shift > DEFAULT_REGION_SHIFT) {
+                throw new IOException("Corrupt archive header in " + path);
+            }
+
+            // The mappings stay valid after the channel is closed
+            long regionBytes = 1L << shift;
+            ByteBuffer[] regions = new ByteBuffer[(int) ((size + regionBytes - 1) >>> shift)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = (long) i << shift;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionBytes, size - start));
+            }
+            return new MappedMessageArchive(new File(path).getName(), regions, shift);
+        }
+    }
+
+    // ==================== QUERIES ====================
+
+    @Override
+    public String getName() {
+        return "mapped " + name;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always; rebuild the file with write()
+     */
+    @Override
+    public void add(MessageManager.Message msg) {
+        throw new UnsupportedOperationException("The mapped archive " + name + " is read-only");
+    }
+
+    @Override
+    public MessageManager.Message findByHash(String hash) {
+        int row = findRow(hashStart, hashCapacity, hash, ArchiveRow.HASH_FIELD);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public MessageManager.Message findByID(String id) {
+        int row = findRow(idStart, idCapacity, id, ArchiveRow.ID_FIELD);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public List<MessageManager.Message> findByRecipient(String recipient) {
+        Object group = PhoneNumbers.recipientGroup(recipient);
+        int hash = group.hashCode();
+        int mask = recipientCapacity - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            long slot = recipientStart + 8L * i;
+            int entry = getInt(slot + 4);
+            if (entry == 0) {
+                return Collections.emptyList();
+            }
+            if (getInt(slot) == hash && group.equals(
+                    PhoneNumbers.recipientGroup(fieldString(entry - 1, ArchiveRow.RECIPIENT_FIELD)))) {
+                // The chain is written oldest first
+                List<MessageManager.Message> result = new ArrayList<>();
+                for (int row = entry - 1; row >= 0; row = getInt(nextStart + 4L * row)) {
+                    result.add(new Row(row));
+                }
+                return result;
+            }
+        }
+    }
+
+    @Override
+    public void forEach(MessageFlag flag, Consumer<MessageManager.Message> action) {
+        Row cursor = new Row(0);
+        for (int row = 0; row < rows; row++) {
+            if (matchesFlag(row, flag)) {
+                cursor.row = row;
+                action.accept(cursor);
+            }
+        }
+    }
+
+    @Override
+    public int count(MessageFlag flag) {
+        return flag == null ? live : flagCounts[flag.ordinal()];
+    }
+
+    @Override
+    public MessageManager.Message longest(MessageFlag flag) {
+        int row = longest[flag == null ? MAX_FLAGS : flag.ordinal()];
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always; rebuild the file with write()
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean remove(String hash) {
+        throw new UnsupportedOperationException("The mapped archive " + name + " is read-only");
+    }
+
+    @Override
+    public long estimatedHeapBytes() {
+        // Only the region handles live on the heap; everything else is the page cache
+        return 128L + 64L * regions.length;
+    }
+
+    /**
+     * @return size of the mapped file in bytes
+     */
+    public long mappedBytes() {
+        long total = 0;
+        for (ByteBuffer region : regions) {
+            total += region.capacity();
+        }
+        return total;
+    }
+
+    // ==================== RECORD ACCESS ====================
+
+    private ByteBuffer regionOf(long position) {
+        return regions[(int) (position >>> regionShift)];
+    }
+
+    private int offsetIn(long position) {
+        return (int) (position & regionMask);
+    }
+
+    private byte getByte(long position) {
+        return regionOf(position).get(offsetIn(position));
+    }
+
+    private int getInt(long position) {
+        return regionOf(position).getInt(offsetIn(position));
+    }
+
+    private long getLong(long position) {
+        return regionOf(position).getLong(offsetIn(position));
+    }
+
+    private byte flagByte(int row) {
+        return getByte(flagsStart + row);
+    }
+
+    private long recordOf(int row) {
+        return getLong(offsetsStart + 8L * row);
+    }
+
+    private int fieldLength(long record, int field) {
+        ByteBuffer region = regionOf(record);
+        int offset = offsetIn(record);
+        if (field == ArchiveRow.CONTENT_FIELD) {
+            return region.getInt(offset + 8);
+        }
+        return region.getShort(offset + 2 * field) & 0xFFFF;
+    }
+
+    private long fieldOffset(long record, int field) {
+        long offset = record + RECORD_HEADER_BYTES;
+        for (int i = 0; i < field; i++) {
+            offset += fieldLength(record, i);
+        }
+        return offset;
+    }
+
+    private String fieldString(int row, int field) {
+        long record = recordOf(row);
+        byte[] bytes = new byte[fieldLength(record, field)];
+        long offset = fieldOffset(record, field);
+        regionOf(offset).get(offsetIn(offset), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean fieldEquals(int row, int field, byte[] key) {
+        long record = recordOf(row);
+        if (fieldLength(record, field) != key.length) {
+            return false;
+        }
+        long position = fieldOffset(record, field);
+        ByteBuffer region = regionOf(position);
+        int offset = offsetIn(position);
+        for (int i = 0; i < key.length; i++) {
+            if (region.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesFlag(int row, MessageFlag flag) {
+        byte code = flagByte(row);
+        return code != REPLACED && (flag == null || code == flag.code());
+    }
+
+    /**
+     * Probes an on-disk key table; touches only the slots and the candidate records
+     */
+    private int findRow(long tableStart, int capacity, String key, int field) {
+        int hash = hashOf(key);
+        byte[] keyBytes = RowHashIndex.keyBytes(key);
+        int mask = capacity - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            long slot = tableStart + 8L * i;
+            int entry = getInt(slot + 4);
+            if (entry == 0) {
+                return -1;
+            }
+            if (getInt(slot) == hash && fieldEquals(entry - 1, field, keyBytes)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    // ==================== WRITING ====================
+
+    /**
+     * Builds an archive file from messages
+     * A later message with the same hash replaces an earlier one, as with add()
+     * @param path file to create or replace; written as path + ".tmp" and then moved
+     * @param messages messages in archive order
+     * @return number of messages in the archive
+     * @throws IOException if the file cannot be written
+     */
+    public static int write(String path, Iterable<? extends MessageManager.Message> messages) throws IOException {
+        return write(path, messages, DEFAULT_REGION_SHIFT);
+    }
+
+    /**
+     * @param regionShift log2 of the mapping region size; small values let tests cross regions
+     */
+    static int write(String path, Iterable<? extends MessageManager.Message> messages, int regionShift)
+            throws IOException {
+        ArchiveBuilder builder = new ArchiveBuilder(regionShift);
+        File temp = new File(path + ".tmp");
+        // Truncating the target in place would pull the pages out from under a live mapping
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            builder.writeAll(out, messages);
+            out.flush();
+
+            ByteBuffer header = builder.header();
+            FileChannel channel = file.getChannel();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // On disk before it replaces the old archive
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), new File(path).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return builder.live;
+    }
+
+    /**
+     * Collects the row tables in memory while the records stream to disk
+     */
+    private static final class ArchiveBuilder {
+        private final int regionShift;
+        private final long regionBytes;
+        private long position;
+
+        private int rows;
+        private int live;
+        private long[] offsets = new long[16];
+        private byte[] flags = new byte[16];
+        private int[] contentChars = new int[16];
+        private final List<String> hashes = new ArrayList<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<Object> groups = new ArrayList<>();
+        private final Map<String, Integer> rowByHash = new HashMap<>();
+        private final int[] flagCounts = new int[MAX_FLAGS];
+
+        private int hashCapacity;
+        private int idCapacity;
+        private int recipientCapacity;
+        private final long[] sections = new long[6];
+        private final int[] longest = new int[MAX_FLAGS + 1];
+
+        ArchiveBuilder(int regionShift) {
+            this.regionShift = regionShift;
+            this.regionBytes = 1L << regionShift;
+        }
+
+        void writeAll(DataOutputStream out, Iterable<? extends MessageManager.Message> messages) throws IOException {
+            out.write(new byte[HEADER_BYTES]);
+            position = HEADER_BYTES;
+            for (MessageManager.Message msg : messages) {
+                writeRecord(out, msg);
+            }
+
+            // flags
+            alignTo(out, 8);
+            sections[0] = position;
+            out.write(flags, 0, rows);
+            position += rows;
+
+            // offsets
+            alignTo(out, 8);
+            sections[1] = position;
+            for (int row = 0; row < rows; row++) {
+                out.writeLong(offsets[row]);
+            }
+            position += 8L * rows;
+
+            // next, built from the recipient groups in row order
+            int[] next = new int[rows];
+            Map<Object, int[]> chains = new HashMap<>();
+            for (int row = 0; row < rows; row++) {
+                next[row] = -1;
+                if (flags[row] == REPLACED) {
+                    continue;
+                }
+                int[] chain = chains.get(groups.get(row));
+                if (chain == null) {
+                    chains.put(groups.get(row), new int[] {row, row});
+                } else {
+                    next[chain[1]] = row;
+                    chain[1] = row;
+                }
+            }
+            alignTo(out, 8);
+            sections[2] = position;
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(next[row]);
+            }
+            position += 4L * rows;
+
+            hashCapacity = tableCapacity(live);
+            sections[3] = writeTable(out, hashCapacity, hashes);
+            idCapacity = tableCapacity(live);
+            sections[4] = writeTable(out, idCapacity, ids);
+
+            recipientCapacity = tableCapacity(chains.size());
+            int[] slots = new int[recipientCapacity * 2];
+            for (int row = 0; row < rows; row++) {
+                Object group = groups.get(row);
+                int[] chain = flags[row] == REPLACED ? null : chains.get(group);
+                if (chain != null && chain[0] == row) {
+                    place(slots, group.hashCode(), row);
+                }
+            }
+            sections[5] = writeSlots(out, slots);
+
+            findLongest();
+        }
+
+        private void writeRecord(DataOutputStream out, MessageManager.Message msg) throws IOException {
+            byte[] hash = ArchiveRow.fieldBytes(msg.getMessageHash(), "hash", MAX_FIELD_BYTES);
+            byte[] id = ArchiveRow.fieldBytes(msg.getMessageID(), "ID", MAX_FIELD_BYTES);
+            byte[] recipient = ArchiveRow.fieldBytes(msg.getRecipient(), "recipient", MAX_FIELD_BYTES);
+            byte[] sender = ArchiveRow.fieldBytes(msg.getSender(), "sender", MAX_FIELD_BYTES);
+            byte[] content = RowHashIndex.keyBytes(msg.getMessage());
+
+            long size = (long) RECORD_HEADER_BYTES + hash.length + id.length + recipient.length
+                    + sender.length + content.length;
+            if (size > regionBytes) {
+                throw new IllegalArgumentException("Message " + msg.getMessageHash() + " is too large for the archive");
+            }
+            // Records never cross a mapping region
+            if ((position & (regionBytes - 1)) + size > regionBytes) {
+                pad(out, regionBytes - (position & (regionBytes - 1)));
+            }
+
+            ensureCapacity(rows + 1);
+            int row = rows++;
+            offsets[row] = position;
+            MessageFlag flag = msg.getFlagValue();
+            flags[row] = flag != null ? flag.code() : NO_FLAG;
+            contentChars[row] = msg.getMessage() != null ? msg.getMessage().length() : 0;
+            hashes.add(msg.getMessageHash());
+            ids.add(msg.getMessageID());
+            groups.add(PhoneNumbers.recipientGroup(msg.getRecipient()));
+
+            Integer replaced = rowByHash.put(String.valueOf(msg.getMessageHash()), row);
+            if (replaced != null) {
+                byte old = flags[replaced];
+                if (old != NO_FLAG) {
+                    flagCounts[old]--;
+                }
+                flags[replaced] = REPLACED;
+                live--;
+            }
+            if (flag != null) {
+                flagCounts[flag.ordinal()]++;
+            }
+            live++;
+
+            out.writeShort(hash.length);
+            out.writeShort(id.length);
+            out.writeShort(recipient.length);
+            out.writeShort(sender.length);
+            out.writeInt(content.length);
+            out.write(hash);
+            out.write(id);
+            out.write(recipient);
+            out.write(sender);
+            out.write(content);
+            position += size;
+        }
+
+        private long writeTable(DataOutputStream out, int capacity, List<String> keys) throws IOException {
+            int[] slots = new int[capacity * 2];
+            // Row order keeps the first row with a duplicate key in front, as RowHashIndex does
+            for (int row = 0; row < rows; row++) {
+                if (flags[row] != REPLACED) {
+                    place(slots, hashOf(keys.get(row)), row);
+                }
+            }
+            return writeSlots(out, slots);
+        }
+
+        private long writeSlots(DataOutputStream out, int[] slots) throws IOException {
+            alignTo(out, 8);
+            long start = position;
+            for (int slot : slots) {
+                out.writeInt(slot);
+            }
+            position += 4L * slots.length;
+            return start;
+        }
+
+        private void findLongest() {
+            Arrays.fill(longest, -1);
+            int[] lengths = new int[MAX_FLAGS + 1];
+            for (int row = 0; row < rows; row++) {
+                byte code = flags[row];
+                if (code == REPLACED) {
+                    continue;
+                }
+                // Strictly longer only, so the earliest row wins ties
+                if (longest[MAX_FLAGS] < 0 || contentChars[row] > lengths[MAX_FLAGS]) {
+                    longest[MAX_FLAGS] = row;
+                    lengths[MAX_FLAGS] = contentChars[row];
+                }
+                if (code >= 0 && (longest[code] < 0 || contentChars[row] > lengths[code])) {
+                    longest[code] = row;
+                    lengths[code] = contentChars[row];
+                }
+            }
+        }
+
+        ByteBuffer header() {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.put(MAGIC);
+            header.putInt(H_VERSION, FORMAT_VERSION);
+            header.putInt(H_REGION_SHIFT, regionShift);
+            header.putInt(H_ROWS, rows);
+            header.putInt(H_LIVE, live);
+            for (int i = 0; i < MAX_FLAGS; i++) {
+                header.putInt(H_FLAG_COUNTS + 4 * i, flagCounts[i]);
+            }
+            for (int i = 0; i <= MAX_FLAGS; i++) {
+                header.putInt(H_LONGEST + 4 * i, longest[i]);
+            }
+            header.putInt(H_CAPACITIES, hashCapacity);
+            header.putInt(H_CAPACITIES + 4, idCapacity);
+            header.putInt(H_CAPACITIES + 8, recipientCapacity);
+            for (int i = 0; i < sections.length; i++) {
+                header.putLong(H_SECTIONS + 8 * i, sections[i]);
+            }
+            header.clear();
+            return header;
+        }
+
+        // Table entries are 4 or 8 bytes, so 8-byte alignment keeps them inside one region
+        private void alignTo(DataOutputStream out, int alignment) throws IOException {
+            pad(out, (alignment - (position % alignment)) % alignment);
+        }
+
+        private void pad(DataOutputStream out, long bytes) throws IOException {
+            for (long i = 0; i < bytes; i++) {
+                out.write(0);
+            }
+            position += bytes;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= offsets.length) {
+                return;
+            }
+            int capacity = Math.max(needed, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            contentChars = Arrays.copyOf(contentChars, capacity);
+        }
+
+        // Keeps the load at or below one half, with at least one empty slot
+        private static int tableCapacity(int entries) {
+            return Math.max(2, Integer.highestOneBit(Math.max(1, entries * 2 - 1)) << 1);
+        }
+
+        private static void place(int[] slots, int hash, int row) {
+            int mask = slots.length / 2 - 1;
+            int i = mix(hash) & mask;
+            while (slots[2 * i + 1] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[2 * i] = hash;
+            slots[2 * i + 1] = row + 1;
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private static int hashOf(String key) {
+        return key != null ? key.hashCode() : 0;
+    }
+
+    // Same spreading as RowHashIndex, so sequential keys do not cluster
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Flyweight view of one mapped record; every getter decodes from the mapping
+     */
+    private final class Row extends ArchiveRow {
+        Row(int row) {
+            super(row);
+        }
+
+        @Override
+        String field(int field) {
+            return fieldString(row, field);
+        }
+
+        @Override
+        byte flagCode() {
+            return flagByte(row);
+        }
+    }
+}
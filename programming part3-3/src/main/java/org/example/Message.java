@@ -1,25 +1,34 @@
 package org.example;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import java.io.FileWriter;
-import java.io.FileReader;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import java.io.File;
-import java.lang.reflect.Type;
-import com.google.gson.reflect.TypeToken;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.swing.JOptionPane;
 
 /**
  * Handles message creation, validation, storage and management
  * Implements all messaging functionality as per specifications
- * Uses Gson for JSON serialization instead of Jackson
+ * Uses Gson for JSON serialization instead of Jackson, through the
+ * reflection-free adapter registered in MessageJson
+ * Sends and stores are appended to a write-ahead log (see MessageLog);
+ * the JSON files are compacted snapshots written every SNAPSHOT_INTERVAL entries.
+ * Snapshots can also use the binary format of MessageFiles (setSnapshotFormat)
+ * The history is loaded lazily on a background thread (startLoading);
+ * validation and ID/hash generation never wait for it, history queries do
  *
  * @author Heloisa Campos
- * @version 4.4 - FIXED: JOptionPane implementation for message menu
+ * @version 4.9 - Log entries carry their list position, so replay skips what a snapshot covers
  */
 public class Message {
     // Instance variables for message data
@@ -34,8 +43,24 @@ public class Message {
     private static List<Message> sentMessages = new ArrayList<>();
     private static List<Message> storedMessages = new ArrayList<>();
 
-    // JSON serialization setup with Gson
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    // Background load of the snapshot and log; null until started
+    private static CompletableFuture<Void> history;
+
+    // Write-ahead log: one appended line per send or store
+    private static final String LOG_FILE = "messages.log";
+    // Log entries between JSON snapshots
+    private static final int SNAPSHOT_INTERVAL = 1000;
+
+    // Log settings, changeable with configureLog()
+    private static MessageLog.SyncPolicy logPolicy = MessageLog.SyncPolicy.GROUP;
+    private static int logGroupSize = 32;
+    private static long logGroupWindowMillis = 50;
+
+    // Opened on the first append
+    private static MessageLog log;
+
+    // Snapshot file format, picked by extension: ".json" or MessageFiles.BINARY_EXTENSION
+    private static String snapshotExtension = ".json";
 
     /**
      * Constructor to create a new message with all required fields
@@ -176,9 +201,10 @@ public class Message {
 
         switch (choice) {
             case "1 - Send Message":
+                awaitHistory();
                 sentMessages.add(this);
                 totalMessagesSent++;
-                saveMessagesToJSON();
+                appendToLog("sent", this);
                 JOptionPane.showMessageDialog(null,
                         "Message successfully sent!",
                         "Success",
@@ -198,8 +224,9 @@ public class Message {
                 }
 
             case "3 - Store Message":
+                awaitHistory();
                 storedMessages.add(this);
-                saveMessagesToJSON();
+                appendToLog("stored", this);
                 JOptionPane.showMessageDialog(null,
                         "Message successfully stored!",
                         "Success",
@@ -216,8 +243,9 @@ public class Message {
      * Used for messages that should be sent later
      */
     public void storeMessage() {
+        awaitHistory();
         storedMessages.add(this);
-        saveMessagesToJSON();
+        appendToLog("stored", this);
         JOptionPane.showMessageDialog(null,
                 "Message successfully stored!",
                 "Success",
@@ -229,6 +257,7 @@ public class Message {
      * @return formatted message history
      */
     public static String printMessages() {
+        awaitHistory();
         if (sentMessages.isEmpty()) {
             return "No messages sent yet.";
         }
@@ -250,18 +279,74 @@ public class Message {
      * @return number of sent messages
      */
     public static int returnTotalMessages() {
+        awaitHistory();
         return totalMessagesSent;
     }
 
     /**
-     * Saves sent and stored messages to JSON files for persistence
+     * Appends one send or store to the write-ahead log
+     * Writes a JSON snapshot once SNAPSHOT_INTERVAL entries have built up
+     * @param list "sent" or "stored"
+     * @param message message added to that list
+     */
+    private static synchronized void appendToLog(String list, Message message) {
+        try {
+            if (log == null) {
+                log = new MessageLog(LOG_FILE, logPolicy, logGroupSize, logGroupWindowMillis);
+            }
+            // Appended right after the add, so the list size is the message's position
+            log.append(list, ("sent".equals(list) ? sentMessages : storedMessages).size(), message);
+            if (log.entryCount() >= SNAPSHOT_INTERVAL) {
+                saveMessagesToJSON();
+            }
+        } catch (IOException e) {
+            System.err.println("Error appending to message log: " + e.getMessage());
+            // Fall back to a full snapshot so the message is not lost
+            saveMessagesToJSON();
+        }
+    }
+
+    /**
+     * Changes how the message log forces appends to disk
+     * Takes effect for the next append
+     * @param policy ALWAYS, GROUP or NEVER
+     * @param groupSize appends per fsync with GROUP
+     * @param groupWindowMillis longest time an append stays unsynced with GROUP;
+     *                          a crash can lose the appends of that window
+     */
+    public static synchronized void configureLog(MessageLog.SyncPolicy policy, int groupSize, long groupWindowMillis) {
+        if (groupSize < 1 || groupWindowMillis < 1) {
+            throw new IllegalArgumentException("Group size and window must be positive");
+        }
+        closeLog();
+        logPolicy = policy;
+        logGroupSize = groupSize;
+        logGroupWindowMillis = groupWindowMillis;
+    }
+
+    private static synchronized void closeLog() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing message log: " + e.getMessage());
+            }
+            log = null;
+        }
+    }
+
+    /**
+     * Writes a compacted snapshot of sent and stored messages to the JSON files,
+     * then empties the log whose entries the snapshot now covers
+     * Each file is written to a temporary file first and moved into place
      * Uses Gson for JSON serialization instead of Jackson
      */
-    private static void saveMessagesToJSON() {
+    private static synchronized void saveMessagesToJSON() {
+        awaitHistory();
         try {
             // Create directories if they don't exist
-            File sentFile = new File("sent_messages.json");
-            File storedFile = new File("stored_messages.json");
+            File sentFile = snapshotFile("sent_messages");
+            File storedFile = snapshotFile("stored_messages");
 
             if (sentFile.getParentFile() != null) {
                 sentFile.getParentFile().mkdirs();
@@ -271,14 +356,16 @@ public class Message {
             }
 
             // Write messages to JSON files using Gson
-            try (FileWriter sentWriter = new FileWriter(sentFile)) {
-                gson.toJson(sentMessages, sentWriter);
-            }
-            try (FileWriter storedWriter = new FileWriter(storedFile)) {
-                gson.toJson(storedMessages, storedWriter);
+            writeSnapshot(sentFile, sentMessages);
+            writeSnapshot(storedFile, storedMessages);
+            if (log != null) {
+                log.truncate();
+            } else {
+                new File(LOG_FILE).delete();
             }
 
-            System.out.println("Messages saved to JSON files successfully.");
+            System.out.println("Messages saved to " + (MessageFiles.isBinary(snapshotExtension) ? "binary" : "JSON")
+                    + " files successfully.");
         } catch (IOException e) {
             System.err.println("Error saving messages to JSON files: " + e.getMessage());
             JOptionPane.showMessageDialog(null,
@@ -289,19 +376,49 @@ public class Message {
     }
 
     /**
-     * Loads sent messages from JSON file
+     * Replaces a snapshot file atomically so a crash never leaves half a file
+     */
+    private static void writeSnapshot(File target, List<Message> messages) throws IOException {
+        // The temporary name keeps the extension, which selects the format
+        File temp = new File(target.getPath().replace(snapshotExtension, ".tmp" + snapshotExtension));
+        MessageFiles.writeMessages(temp.getPath(), messages);
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Switches the snapshot files between JSON and the compact binary format
+     * Existing snapshots in the other format are not converted; call saveAllMessages()
+     * after switching to write one in the new format
+     * @param extension ".json" or MessageFiles.BINARY_EXTENSION (".msgb")
+     */
+    public static synchronized void setSnapshotFormat(String extension) {
+        if (!".json".equals(extension) && !MessageFiles.BINARY_EXTENSION.equals(extension)) {
+            throw new IllegalArgumentException("Unsupported snapshot format: " + extension);
+        }
+        snapshotExtension = extension;
+    }
+
+    private static File snapshotFile(String name) {
+        return new File(name + snapshotExtension);
+    }
+
+    /**
+     * Loads sent messages from the snapshot file
      * @return list of sent messages or empty list if error
      */
     public static List<Message> loadSentMessagesFromJSON() {
-        File file = new File("sent_messages.json");
+        File file = snapshotFile("sent_messages");
         if (!file.exists()) {
             return new ArrayList<>();
         }
 
-        try (FileReader reader = new FileReader(file)) {
-            Type listType = new TypeToken<List<Message>>(){}.getType();
-            List<Message> loadedMessages = gson.fromJson(reader, listType);
-            return loadedMessages != null ? loadedMessages : new ArrayList<>();
+        try {
+            return MessageFiles.readMessages(file.getPath());
         } catch (IOException e) {
             System.err.println("Error loading sent messages: " + e.getMessage());
             return new ArrayList<>();
@@ -309,19 +426,17 @@ public class Message {
     }
 
     /**
-     * Loads stored messages from JSON file
+     * Loads stored messages from the snapshot file
      * @return list of stored messages or empty list if error
      */
     public static List<Message> loadStoredMessagesFromJSON() {
-        File file = new File("stored_messages.json");
+        File file = snapshotFile("stored_messages");
         if (!file.exists()) {
             return new ArrayList<>();
         }
 
-        try (FileReader reader = new FileReader(file)) {
-            Type listType = new TypeToken<List<Message>>(){}.getType();
-            List<Message> loadedMessages = gson.fromJson(reader, listType);
-            return loadedMessages != null ? loadedMessages : new ArrayList<>();
+        try {
+            return MessageFiles.readMessages(file.getPath());
         } catch (IOException e) {
             System.err.println("Error loading stored messages: " + e.getMessage());
             return new ArrayList<>();
@@ -363,11 +478,22 @@ public class Message {
         return messageNumber;
     }
 
+    /**
+     * Fields as stored, null where the getters show "N/A"
+     * Lets MessageFiles keep missing fields missing, as the JSON adapter does
+     * @return messageID, messageHash, recipient and messageContent, in that order
+     */
+    String[] storedFields() {
+        return new String[] {messageID, messageHash, recipient, messageContent};
+    }
+
     public static List<Message> getSentMessages() {
+        awaitHistory();
         return new ArrayList<>(sentMessages);
     }
 
     public static List<Message> getStoredMessages() {
+        awaitHistory();
         return new ArrayList<>(storedMessages);
     }
 
@@ -398,40 +524,190 @@ public class Message {
      * Used for testing purposes
      */
     public static void resetMessageCount() {
+        // A load still in flight would otherwise refill the lists afterwards
+        waitForLoad(currentLoad());
         totalMessagesSent = 0;
         sentMessages.clear();
         storedMessages.clear();
+        markLoaded();
 
-        // Clean up JSON files
+        // Clean up JSON files and the message log
         try {
-            File sentFile = new File("sent_messages.json");
-            File storedFile = new File("stored_messages.json");
-            if (sentFile.exists()) sentFile.delete();
-            if (storedFile.exists()) storedFile.delete();
+            closeLog();
+            File logFile = new File(LOG_FILE);
+            for (String extension : new String[] {".json", MessageFiles.BINARY_EXTENSION}) {
+                File sentFile = new File("sent_messages" + extension);
+                File storedFile = new File("stored_messages" + extension);
+                if (sentFile.exists()) sentFile.delete();
+                if (storedFile.exists()) storedFile.delete();
+            }
+            if (logFile.exists()) logFile.delete();
         } catch (Exception e) {
             System.err.println("Error cleaning up JSON files: " + e.getMessage());
         }
     }
 
     /**
-     * Initialize messages from JSON files on startup
+     * Loads the message history now, on the calling thread
+     * Loads the last snapshot, then replays the log entries written after it
      */
     public static void initializeFromJSON() {
-        sentMessages = loadSentMessagesFromJSON();
-        storedMessages = loadStoredMessagesFromJSON();
-        totalMessagesSent = sentMessages.size();
+        waitForLoad(currentLoad());
+        loadHistory();
+        markLoaded();
+    }
+
+    // ==================== LAZY LOADING ====================
+
+    /**
+     * Starts loading the message history on a background thread, once
+     * Call early, e.g. before login, so the history is ready when first needed
+     * @return future completed when the history is loaded
+     */
+    public static synchronized CompletableFuture<Void> startLoading() {
+        if (history == null) {
+            history = CompletableFuture.runAsync(Message::loadHistory, task -> {
+                Thread thread = new Thread(task, "message-history-loader");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        return history;
+    }
+
+    /**
+     * @return true once the history is loaded; never blocks or starts a load
+     */
+    public static synchronized boolean isHistoryLoaded() {
+        return history != null && history.isDone();
+    }
+
+    /**
+     * Blocks until the history is loaded, starting the load if needed
+     * Only called by methods that read or extend the history
+     */
+    private static void awaitHistory() {
+        waitForLoad(startLoading());
+    }
+
+    /**
+     * Drops the in-memory history so the next history query reloads it from disk
+     * Used for testing purposes
+     */
+    static void discardHistory() {
+        waitForLoad(currentLoad());
+        synchronized (Message.class) {
+            sentMessages = new ArrayList<>();
+            storedMessages = new ArrayList<>();
+            totalMessagesSent = 0;
+            history = null;
+        }
+    }
+
+    private static void waitForLoad(CompletableFuture<Void> load) {
+        if (load == null) {
+            return;
+        }
+        try {
+            load.join();
+        } catch (CompletionException e) {
+            System.err.println("Error loading message history: " + e.getCause());
+        }
+    }
+
+    private static synchronized CompletableFuture<Void> currentLoad() {
+        return history;
+    }
+
+    private static synchronized void markLoaded() {
+        history = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Reads the snapshot and replays the log into new lists, then publishes them
+     * Never takes the class lock, so a synchronized caller can wait for it
+     * The future's completion makes the lists visible to every waiting thread
+     */
+    private static void loadHistory() {
+        List<Message> sent = loadSentMessagesFromJSON();
+        List<Message> stored = loadStoredMessagesFromJSON();
+        int sentCovered = sent.size();
+        int storedCovered = stored.size();
+        try {
+            // Entries the snapshots already hold are skipped, even if the log outlived them
+            MessageLog.replay(LOG_FILE, list -> "sent".equals(list) ? sentCovered : storedCovered,
+                    (list, message) -> ("sent".equals(list) ? sent : stored).add(message));
+        } catch (IOException e) {
+            System.err.println("Error replaying message log: " + e.getMessage());
+        }
+        sentMessages = sent;
+        storedMessages = stored;
+        totalMessagesSent = sent.size();
     }
 
     /**
      * Manual save method that can be called externally
+     * Writes a full snapshot and empties the message log
      */
     public static void saveAllMessages() {
         saveMessagesToJSON();
     }
 
-    // Static initializer to load messages on class load
-    static {
-        initializeFromJSON();
+    // ==================== JSON ADAPTER ====================
+
+    /**
+     * Streams a Message to and from JSON without reflection; shared through MessageJson
+     * Reads the fields directly so missing values stay null instead of "N/A"
+     */
+    static final class JsonAdapter extends TypeAdapter<Message> {
+
+        @Override
+        public void write(JsonWriter out, Message msg) throws IOException {
+            if (msg == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("messageID").value(msg.messageID);
+            out.name("messageHash").value(msg.messageHash);
+            out.name("recipient").value(msg.recipient);
+            out.name("messageContent").value(msg.messageContent);
+            out.name("messageNumber").value(msg.messageNumber);
+            out.endObject();
+        }
+
+        @Override
+        public Message read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Message msg = new Message();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "messageID":
+                        msg.messageID = MessageJson.readString(in);
+                        break;
+                    case "messageHash":
+                        msg.messageHash = MessageJson.readString(in);
+                        break;
+                    case "recipient":
+                        msg.recipient = MessageJson.readString(in);
+                        break;
+                    case "messageContent":
+                        msg.messageContent = MessageJson.readString(in);
+                        break;
+                    case "messageNumber":
+                        msg.messageNumber = MessageJson.readInt(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return msg;
+        }
     }
 
     @Override
@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compact secondary tier for messages that are read far more often than changed
+ * MessageManager moves messages out of the in-memory repository into an archive
+ * with archiveMessages(), and its searches and reports read through to it
+ *
+ * Archives hand out MessageManager.Message flyweight views instead of real
+ * objects. A view returned by a find method is safe to keep; the view passed
+ * to forEach is reused for every row and must not be kept after the callback.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Read-only check
+ */
+public interface MessageArchive {
+
+    /**
+     * @return short name shown in statistics, e.g. "columnar"
+     */
+    String getName();
+
+    /**
+     * Appends a message to the archive, replacing any archived message with the same hash
+     * @param msg message to copy into the archive
+     * @throws UnsupportedOperationException if the archive is read-only
+     */
+    void add(MessageManager.Message msg);
+
+    /**
+     * @param hash message hash to look up
+     * @return a view of the archived message, or null
+     */
+    MessageManager.Message findByHash(String hash);
+
+    /**
+     * @param id message ID to look up
+     * @return a view of the first archived message with that ID, or null
+     */
+    MessageManager.Message findByID(String id);
+
+    /**
+     * @param recipient phone number in any supported spelling
+     * @return views of every archived message for that recipient, oldest first
+     */
+    List<MessageManager.Message> findByRecipient(String recipient);
+
+    /**
+     * Visits every archived message with a flag, oldest first
+     * @param flag flag to visit, or null for every message
+     * @param action callback receiving a reused flyweight view
+     */
+    void forEach(MessageFlag flag, Consumer<MessageManager.Message> action);
+
+    /**
+     * @param flag flag to count, or null for every message
+     * @return number of archived messages with that flag
+     */
+    int count(MessageFlag flag);
+
+    /**
+     * @param flag flag to restrict to, or null for every message
+     * @return a view of the longest archived message, earliest first on ties, or null
+     */
+    MessageManager.Message longest(MessageFlag flag);
+
+    /**
+     * @return true if add() and remove() throw UnsupportedOperationException
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Removes a message from the archive
+     * @param hash hash of the message to remove
+     * @return true if a message was removed
+     * @throws UnsupportedOperationException if the archive is read-only
+     */
+    boolean remove(String hash);
+
+    /**
+     * @return approximate heap bytes held by the archive
+     */
+    long estimatedHeapBytes();
+}
@@ -0,0 +1,155 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Point-in-time copy of the MessageManager repository, paired with MessageJournal
+ *
+ * File layout:
+ *   header  "MSGK" magic, version byte, covered LSN (long), message count (int), CRC32 of the above (int)
+ *   body    the messages in repository order, in the block-checked binary format of MessageFiles
+ *
+ * Messages are stored in insertion order, so rebuilding the repository from
+ * them gives every view and index the same order as before the restart.
+ * A checkpoint is written to a temporary file and moved into place, so a crash
+ * while writing leaves the previous checkpoint intact.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Repository checkpoints
+ */
+public final class MessageCheckpoint {
+
+    /** Current checkpoint format version */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'M', 'S', 'G', 'K'};
+
+    /**
+     * What a checkpoint covers
+     */
+    public static final class Header {
+        private final long lsn;
+        private final int count;
+
+        Header(long lsn, int count) {
+            this.lsn = lsn;
+            this.count = count;
+        }
+
+        /** @return the last journal LSN whose change is included */
+        public long getLsn() {
+            return lsn;
+        }
+
+        /** @return number of messages in the checkpoint */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private MessageCheckpoint() {
+        // Utility class
+    }
+
+    /**
+     * Writes a checkpoint and moves it over any previous one
+     * @param path checkpoint file
+     * @param lsn last journal LSN reflected in the messages
+     * @param messages repository contents in insertion order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String path, long lsn, Collection<MessageManager.Message> messages) throws IOException {
+        File target = new File(path);
+        File temp = new File(path + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.write(MAGIC);
+            header.writeByte(FORMAT_VERSION);
+            header.writeLong(lsn);
+            header.writeInt(messages.size());
+            header.writeInt(headerCrc(lsn, messages.size()));
+            header.flush();
+            // Closes the file stream once the last block is out
+            MessageFiles.writeManagerMessages(file, messages);
+        }
+        // On disk before it replaces the old checkpoint
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads only the header of a checkpoint
+     * @param path checkpoint file
+     * @return the covered LSN and message count
+     * @throws IOException if the file is missing or not a valid checkpoint
+     */
+    public static Header readHeader(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            return readHeader(in);
+        }
+    }
+
+    /**
+     * Streams every message of a checkpoint in repository order
+     * @param path checkpoint file
+     * @param sink receives each message
+     * @return the covered LSN and message count
+     * @throws IOException if the file is missing, corrupt or has fewer messages than its header says
+     */
+    public static Header read(String path, Consumer<MessageManager.Message> sink) throws IOException {
+        try (InputStream file = new BufferedInputStream(new FileInputStream(path), 64 * 1024)) {
+            Header header = readHeader(new DataInputStream(file));
+            long read = MessageFiles.readManagerMessages(file, sink);
+            if (read != header.count) {
+                throw new IOException("Checkpoint holds " + read + " messages, header says " + header.count);
+            }
+            return header;
+        }
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a message checkpoint");
+        }
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+        long lsn = in.readLong();
+        int count = in.readInt();
+        if (in.readInt() != headerCrc(lsn, count) || count < 0) {
+            throw new IOException("Corrupt checkpoint header");
+        }
+        return new Header(lsn, count);
+    }
+
+    private static int headerCrc(long lsn, int count) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (lsn >>> shift));
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(count >>> shift);
+        }
+        return (int) crc.getValue();
+    }
+}
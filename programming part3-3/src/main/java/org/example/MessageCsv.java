@@ -0,0 +1,729 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * CSV files of MessageManager messages, in the column order of TEST_DATA:
+ *   Hash,ID,Recipient,Message,Flag
+ *
+ * Written files start with that header line and follow RFC 4180: a field is
+ * quoted when it holds a comma, a quote, a line break or outer spaces, and a
+ * quote inside it is doubled. A missing value is an empty field and an empty
+ * string is "", so both survive a round trip. Files are always UTF-8.
+ *
+ * Reading accepts the header in any column order, extra columns, a UTF-8 byte
+ * order mark and LF, CRLF or CR line ends; without a header the columns are
+ * taken in the order above. Quotes may only open a field, as RFC 4180 says.
+ * The parser is a hand-written state machine over a char buffer, no regex.
+ *
+ * readFileInChunks() splits a large file into byte ranges parsed in parallel.
+ * A first parallel pass counts quotes and line breaks per range; their running
+ * parity tells every range whether it starts inside a quoted field, so each
+ * range can find its first record boundary on its own. Batches reach the sink
+ * in file order on the calling thread, and only a few ranges are parsed ahead.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Chunked reading of CR-only files; a lone CR counts as a line break everywhere
+ */
+public final class MessageCsv {
+
+    /** Extension that selects the CSV format */
+    public static final String EXTENSION = ".csv";
+
+    /** Header written on export, also the column order assumed for files without one */
+    public static final List<String> COLUMNS = List.of("Hash", "ID", "Recipient", "Message", "Flag");
+
+    // Smallest byte range worth a parse task of its own
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private MessageCsv() {
+        // Utility class
+    }
+
+    /**
+     * @param path file name
+     * @return true if the CSV format is used for that file
+     */
+    public static boolean isCsv(String path) {
+        return path != null && path.toLowerCase().endsWith(EXTENSION);
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Writes the header line and one line per message
+     * @param writer destination; flushed but not closed
+     * @param messages messages to write
+     * @return number of messages written
+     * @throws IOException if the write fails
+     */
+    public static long write(Writer writer, Iterable<? extends MessageManager.Message> messages) throws IOException {
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            writer.write(i == 0 ? "" : ",");
+            writer.write(COLUMNS.get(i));
+        }
+        writer.write("\r\n");
+        long records = 0;
+        for (MessageManager.Message msg : messages) {
+            if (msg == null) {
+                continue;
+            }
+            writeField(writer, msg.getMessageHash());
+            writer.write(',');
+            writeField(writer, msg.getMessageID());
+            writer.write(',');
+            writeField(writer, msg.getRecipient());
+            writer.write(',');
+            writeField(writer, msg.getMessage());
+            writer.write(',');
+            writeField(writer, msg.getFlag());
+            writer.write("\r\n");
+            records++;
+        }
+        writer.flush();
+        return records;
+    }
+
+    /**
+     * Writes messages to a CSV file, replacing it
+     * @param path destination file
+     * @param messages messages to write
+     * @return number of messages written
+     * @throws IOException if the file cannot be written
+     */
+    public static long writeFile(String path, Iterable<? extends MessageManager.Message> messages) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            return write(writer, messages);
+        }
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                // Write up to and including the quote, then the quote again
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        if (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== IMPORT ====================
+
+    /**
+     * Reads every record of a CSV stream on the calling thread
+     * @param reader source; not closed
+     * @param sink receives each message in file order
+     * @return number of messages read
+     * @throws IOException if the input cannot be read or is not valid CSV of messages
+     */
+    public static long read(Reader reader, Consumer<MessageManager.Message> sink) throws IOException {
+        Parser parser = new Parser(reader, 1);
+        List<String> fields = new ArrayList<>();
+        if (!parser.next(fields)) {
+            return 0;
+        }
+        stripBom(fields);
+        Columns columns = Columns.fromHeader(fields);
+        long records = 0;
+        if (columns == null) {
+            columns = Columns.DEFAULT;
+            sink.accept(columns.toMessage(fields, parser.recordLine()));
+            records++;
+        }
+        while (parser.next(fields)) {
+            sink.accept(columns.toMessage(fields, parser.recordLine()));
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Reads every record of a CSV file on the calling thread, one record at a time
+     * @param path source file
+     * @param sink receives each message in file order
+     * @return number of messages read
+     * @throws IOException if the file cannot be read or is not valid CSV of messages
+     */
+    public static long readFile(String path, Consumer<MessageManager.Message> sink) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+            return read(reader, sink);
+        }
+    }
+
+    /**
+     * Reads a CSV file as byte ranges parsed in parallel on the common ForkJoinPool
+     * Small files make a single range, parsed on the calling thread.
+     * @param path source file
+     * @param parallelism ranges parsed at the same time; 1 parses one range after another
+     * @param batches receives the messages of each range, in file order, on the calling thread
+     * @return number of messages read
+     * @throws IOException if the file cannot be read or is not valid CSV of messages
+     */
+    public static long readFileInChunks(String path, int parallelism,
+                                        Consumer<List<MessageManager.Message>> batches) throws IOException {
+        return readFileInChunks(path, parallelism, 0, batches);
+    }
+
+    /**
+     * readFileInChunks() with a set range size
+     * @param chunkBytes bytes per range, or 0 to size the ranges from the file and the parallelism
+     */
+    static long readFileInChunks(String path, int parallelism, long chunkBytes,
+                                 Consumer<List<MessageManager.Message>> batches) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Blank lines before the first record are skipped, as the streaming reader does
+            long[] skipped = skipLineBreaks(channel, startsWithBom(channel) ? BOM.length : 0, size);
+            long begin = skipped[0];
+
+            // The first record decides whether there is a header
+            long headerEnd = recordBoundary(channel, begin, false, size)[0];
+            List<String> first = new ArrayList<>();
+            Parser head = new Parser(new StringReader(
+                    new String(readRange(channel, begin, headerEnd), StandardCharsets.UTF_8)), 1);
+            if (!head.next(first)) {
+                return 0;
+            }
+            Columns header = Columns.fromHeader(first);
+            Columns columns = header != null ? header : Columns.DEFAULT;
+            long dataStart = header != null ? headerEnd : begin;
+            long dataLine = 1 + skipped[1] + (header != null ? head.lineBreaks() : 0);
+
+            if (chunkBytes <= 0) {
+                chunkBytes = Math.max(MIN_CHUNK_BYTES, (size - dataStart) / (parallelism * 4L) + 1);
+            }
+            int chunks = (int) Math.max(1, (size - dataStart + chunkBytes - 1) / chunkBytes);
+            long[] starts = new long[chunks + 1];
+            for (int i = 0; i < chunks; i++) {
+                starts[i] = dataStart + i * chunkBytes;
+            }
+            starts[chunks] = size;
+
+            // Pass 1: quotes and line breaks before each range, counted in parallel
+            long[][] counts = new long[chunks][];
+            runAll(chunks, parallelism, i -> counts[i] = countQuotesAndLines(channel, starts[i], starts[i + 1]));
+            boolean[] quotedAt = new boolean[chunks + 1];
+            long[] lineAt = new long[chunks + 1];
+            lineAt[0] = dataLine;
+            for (int i = 0; i < chunks; i++) {
+                quotedAt[i + 1] = quotedAt[i] ^ (counts[i][0] & 1) == 1;
+                lineAt[i + 1] = lineAt[i] + counts[i][1];
+            }
+
+            // Pass 2: each range parses from its first record boundary to the next range's
+            ChunkParser parser = (i) -> {
+                long[] from = i == 0 ? new long[] {dataStart, 0}
+                        : recordBoundary(channel, starts[i], quotedAt[i], size);
+                long to = i + 1 == chunks ? size : recordBoundary(channel, starts[i + 1], quotedAt[i + 1], size)[0];
+                List<MessageManager.Message> batch = new ArrayList<>();
+                if (from[0] < to) {
+                    Parser records = new Parser(new InputStreamReader(new ByteArrayInputStream(
+                            readRange(channel, from[0], to)), StandardCharsets.UTF_8), lineAt[i] + from[1]);
+                    List<String> fields = new ArrayList<>();
+                    while (records.next(fields)) {
+                        batch.add(columns.toMessage(fields, records.recordLine()));
+                    }
+                }
+                return batch;
+            };
+
+            long records = 0;
+            Deque<ForkJoinTask<List<MessageManager.Message>>> ahead = new ArrayDeque<>();
+            int next = 0;
+            while (next < chunks || !ahead.isEmpty()) {
+                while (next < chunks && ahead.size() < parallelism) {
+                    int chunk = next++;
+                    ahead.add(start(parallelism, () -> parser.parse(chunk)));
+                }
+                List<MessageManager.Message> batch = join(ahead.poll());
+                records += batch.size();
+                batches.accept(batch);
+            }
+            return records;
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private interface ChunkParser {
+        List<MessageManager.Message> parse(int chunk) throws IOException;
+    }
+
+    private interface ChunkTask {
+        void run(int chunk) throws IOException;
+    }
+
+    /**
+     * Runs one task per range, at most parallelism at a time, and waits for all of them
+     */
+    private static void runAll(int chunks, int parallelism, ChunkTask task) throws IOException {
+        Deque<ForkJoinTask<Object>> running = new ArrayDeque<>();
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            if (running.size() == parallelism) {
+                join(running.poll());
+            }
+            running.add(start(parallelism, () -> {
+                task.run(chunk);
+                return null;
+            }));
+        }
+        while (!running.isEmpty()) {
+            join(running.poll());
+        }
+    }
+
+    /**
+     * Runs a task on the common pool, or right here when parsing one range at a time
+     */
+    private static <T> ForkJoinTask<T> start(int parallelism, Callable<T> work) {
+        if (parallelism > 1) {
+            return ForkJoinPool.commonPool().submit(work);
+        }
+        ForkJoinTask<T> task = ForkJoinTask.adapt(work);
+        task.quietlyInvoke();
+        return task;
+    }
+
+    /**
+     * Waits for a task and unwraps its IOException
+     */
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading CSV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("CSV parse failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * @return {quote bytes, line breaks} in [from, to); CR, LF and CRLF are one break each, as the parser counts them
+     */
+    private static long[] countQuotesAndLines(FileChannel channel, long from, long to) throws IOException {
+        long quotes = 0;
+        long lines = 0;
+        int previous = byteBefore(channel, from);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        for (long position = from; position < to; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(bytes.length, to - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                // None of these bytes can occur inside a multi-byte UTF-8 character
+                if (bytes[i] == '"') {
+                    quotes++;
+                } else if (isLineBreak(previous, bytes[i])) {
+                    lines++;
+                }
+                previous = bytes[i];
+            }
+            position += read;
+        }
+        return new long[] {quotes, lines};
+    }
+
+    /**
+     * Finds the first record start at or after a position
+     * @param quoted true if the position lies inside a quoted field
+     * @return {position after the first line end outside quotes, or the file size; line breaks passed}
+     */
+    private static long[] recordBoundary(FileChannel channel, long from, boolean quoted, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        byte[] bytes = buffer.array();
+        long lines = 0;
+        int previous = byteBefore(channel, from);
+        // A CR outside quotes ends the record, together with an LF right after it
+        long afterCr = -1;
+        for (long position = from; position < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (afterCr >= 0) {
+                    return new long[] {bytes[i] == '\n' ? afterCr + 1 : afterCr, lines};
+                }
+                if (bytes[i] == '"') {
+                    quoted = !quoted;
+                } else if (isLineBreak(previous, bytes[i])) {
+                    lines++;
+                    if (!quoted && bytes[i] == '\r') {
+                        afterCr = position + i + 1;
+                    } else if (!quoted) {
+                        return new long[] {position + i + 1, lines};
+                    }
+                }
+                previous = bytes[i];
+            }
+            position += read;
+        }
+        return new long[] {afterCr >= 0 ? afterCr : size, lines};
+    }
+
+    /**
+     * @return {first position at or after from that is not a line break, line breaks passed}
+     */
+    private static long[] skipLineBreaks(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        byte[] bytes = buffer.array();
+        long lines = 0;
+        int previous = byteBefore(channel, from);
+        for (long position = from; position < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != '\n' && bytes[i] != '\r') {
+                    return new long[] {position + i, lines};
+                }
+                if (isLineBreak(previous, bytes[i])) {
+                    lines++;
+                }
+                previous = bytes[i];
+            }
+            position += read;
+        }
+        return new long[] {size, lines};
+    }
+
+    /**
+     * @return true if b starts a line break: a CR, or an LF that does not finish a CRLF
+     */
+    private static boolean isLineBreak(int previous, byte b) {
+        return b == '\r' || b == '\n' && previous != '\r';
+    }
+
+    /**
+     * @return the byte before a position, or -1 at the start of the file
+     */
+    private static int byteBefore(FileChannel channel, long position) throws IOException {
+        if (position == 0) {
+            return -1;
+        }
+        ByteBuffer one = ByteBuffer.allocate(1);
+        return channel.read(one, position - 1) == 1 ? one.get(0) : -1;
+    }
+
+    private static byte[] readRange(FileChannel channel, long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE - 8) {
+            throw new IOException("CSV record range too large: " + (to - from) + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                throw new IOException("CSV file shrank while it was being read");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static boolean startsWithBom(FileChannel channel) throws IOException {
+        ByteBuffer start = ByteBuffer.allocate(BOM.length);
+        channel.read(start, 0);
+        return start.position() == BOM.length && Arrays.equals(start.array(), BOM);
+    }
+
+    private static void stripBom(List<String> fields) {
+        String first = fields.get(0);
+        if (first != null && first.startsWith("\uFEFF")) {
+            fields.set(0, first.length() == 1 ? null : first.substring(1));
+        }
+    }
+
+    /**
+     * Where each message field sits in a record
+     */
+    private static final class Columns {
+        static final Columns DEFAULT = new Columns(new int[] {0, 1, 2, 3, 4}, COLUMNS.size());
+
+        // Record positions of Hash, ID, Recipient, Message, Flag; -1 when absent
+        private final int[] positions;
+        private final int width;
+
+        private Columns(int[] positions, int width) {
+            this.positions = positions;
+            this.width = width;
+        }
+
+        /**
+         * @return the layout named by a header record, or null if the record is data
+         */
+        static Columns fromHeader(List<String> fields) {
+            int[] positions = new int[COLUMNS.size()];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i) != null ? fields.get(i).trim() : "";
+                for (int column = 0; column < COLUMNS.size(); column++) {
+                    if (COLUMNS.get(column).equalsIgnoreCase(name) && positions[column] < 0) {
+                        positions[column] = i;
+                    }
+                }
+            }
+            // A data record would need a hash equal to the word "Hash" to look like this
+            return positions[0] >= 0 ? new Columns(positions, fields.size()) : null;
+        }
+
+        MessageManager.Message toMessage(List<String> fields, long line) throws IOException {
+            if (fields.size() != width) {
+                throw new IOException("Record on line " + line + " has " + fields.size()
+                        + " fields, expected " + width);
+            }
+            return new MessageManager.Message(field(fields, 0), field(fields, 1), field(fields, 2),
+                    field(fields, 3), MessageFlag.fromLabel(field(fields, 4)));
+        }
+
+        private String field(List<String> fields, int column) {
+            return positions[column] >= 0 ? fields.get(positions[column]) : null;
+        }
+    }
+
+    /**
+     * RFC 4180 record reader: fields are split by hand over a char buffer
+     * Unquoted fields are cut straight out of the buffer when they fit in it.
+     */
+    private static final class Parser {
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder field = new StringBuilder();
+        private int pos;
+        private int limit;
+        private long line;
+        private long recordLine;
+        private final long firstLine;
+
+        /**
+         * @param in source of characters
+         * @param firstLine line number of the first character, for error messages
+         */
+        Parser(Reader in, long firstLine) {
+            this.in = in;
+            this.line = firstLine;
+            this.firstLine = firstLine;
+        }
+
+        /** @return line on which the last record read starts */
+        long recordLine() {
+            return recordLine;
+        }
+
+        /** @return line breaks consumed so far */
+        long lineBreaks() {
+            return line - firstLine;
+        }
+
+        /**
+         * Reads the next record, skipping blank lines
+         * @param fields cleared, then filled with the record's fields; null for an empty unquoted field
+         * @return false at the end of the input
+         */
+        boolean next(List<String> fields) throws IOException {
+            fields.clear();
+            int c = read();
+            while (c == '\n' || c == '\r') {
+                endOfLine(c);
+                c = read();
+            }
+            if (c < 0) {
+                return false;
+            }
+            recordLine = line;
+            while (true) {
+                if (c == '"') {
+                    c = quoted();
+                    fields.add(field.toString());
+                    if (c != ',' && c != '\n' && c != '\r' && c >= 0) {
+                        throw new IOException("Unexpected '" + (char) c + "' after a closing quote on line " + line);
+                    }
+                } else if (c == ',' || c == '\n' || c == '\r' || c < 0) {
+                    fields.add(null);
+                } else {
+                    c = unquoted(c, fields);
+                }
+                if (c != ',') {
+                    if (c >= 0) {
+                        endOfLine(c);
+                    }
+                    return true;
+                }
+                c = read();
+            }
+        }
+
+        /**
+         * Reads a quoted field into the builder, the opening quote already consumed
+         * @return the character after the closing quote
+         */
+        private int quoted() throws IOException {
+            long opened = line;
+            field.setLength(0);
+            while (true) {
+                if (pos == limit && !fill()) {
+                    throw new IOException("Quoted field opened on line " + opened + " is never closed");
+                }
+                int start = pos;
+                while (pos < limit && buffer[pos] != '"') {
+                    // Line breaks inside the field count as outside it: CR, LF or CRLF
+                    if (buffer[pos] == '\r' || buffer[pos] == '\n' && previous(start) != '\r') {
+                        line++;
+                    }
+                    pos++;
+                }
+                field.append(buffer, start, pos - start);
+                if (pos == limit) {
+                    continue;
+                }
+                pos++;
+                int c = read();
+                if (c != '"') {
+                    return c;
+                }
+                // A doubled quote stands for one quote
+                field.append('"');
+            }
+        }
+
+        /**
+         * @return the character before pos inside the quoted field being read, or 0 at its start
+         */
+        private char previous(int start) {
+            if (pos > start) {
+                return buffer[pos - 1];
+            }
+            return field.length() > 0 ? field.charAt(field.length() - 1) : 0;
+        }
+
+        /**
+         * Reads an unquoted field starting with c and adds it
+         * @return the delimiter that ended it, or -1
+         */
+        private int unquoted(int c, List<String> fields) throws IOException {
+            int start = pos - 1;
+            while (pos < limit && !isDelimiter(buffer[pos])) {
+                pos++;
+            }
+            if (pos < limit) {
+                fields.add(checked(new String(buffer, start, pos - start)));
+                return buffer[pos++];
+            }
+            // The field runs past the buffer: collect it piece by piece
+            field.setLength(0);
+            field.append(buffer, start, pos - start);
+            c = read();
+            while (c >= 0 && !isDelimiter((char) c)) {
+                field.append((char) c);
+                c = read();
+            }
+            fields.add(checked(field.toString()));
+            return c;
+        }
+
+        private String checked(String value) throws IOException {
+            if (value.indexOf('"') >= 0) {
+                throw new IOException("Quote inside an unquoted field on line " + line);
+            }
+            return value;
+        }
+
+        /**
+         * Finishes a line end whose first character was c, treating CRLF as one
+         */
+        private void endOfLine(int c) throws IOException {
+            if (c == '\r' && (pos < limit || fill()) && buffer[pos] == '\n') {
+                pos++;
+            }
+            line++;
+        }
+
+        private static boolean isDelimiter(char c) {
+            return c == ',' || c == '\n' || c == '\r';
+        }
+
+        private int read() throws IOException {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            return buffer[pos++];
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            pos = 0;
+            limit = read;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Imports every message file of a directory in parallel on a ForkJoinPool
+ * The file list is split in halves until one task holds one file; each task
+ * parses its file into its own map, and the halves are merged as the tasks
+ * join, so no two threads ever write to the same structure. Only the merged
+ * result reaches the sink, from the calling thread, in one pass.
+ *
+ * Duplicates are deterministic whatever order the files finish in: files are
+ * taken in name order and a later record replaces an earlier one with the same
+ * hash, exactly as if the files had been loaded one by one.
+ *
+ * JSON, JSON Lines, CSV and ".msgb" files are read through MessageFiles; other files are ignored.
+ * A file that fails to parse is reported and left out without stopping the rest.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - CSV files
+ */
+public class MessageDirectoryImporter {
+
+    /**
+     * Outcome of importing one file
+     */
+    public static final class FileResult {
+        private final File file;
+        private final long records;
+        private final long nanos;
+        private final String error;
+
+        FileResult(File file, long records, long nanos, String error) {
+            this.file = file;
+            this.records = records;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /** @return records parsed from the file, 0 if it failed */
+        public long getRecords() {
+            return records;
+        }
+
+        /** @return time spent parsing this file on its worker thread */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** @return the parse error, or null if the file was imported */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        /** @return records parsed per second of worker time */
+        public double recordsPerSecond() {
+            return nanos > 0 ? records / (nanos / 1_000_000_000.0) : 0;
+        }
+
+        /** @return megabytes parsed per second of worker time */
+        public double megabytesPerSecond() {
+            return nanos > 0 ? file.length() / (1024.0 * 1024.0) / (nanos / 1_000_000_000.0) : 0;
+        }
+    }
+
+    /**
+     * Outcome of importing a whole directory
+     */
+    public static final class Result {
+        private final List<FileResult> files;
+        private final long records;
+        private final int messages;
+        private final long elapsedNanos;
+
+        Result(List<FileResult> files, long records, int messages, long elapsedNanos) {
+            this.files = Collections.unmodifiableList(files);
+            this.records = records;
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** @return one result per file, in name order */
+        public List<FileResult> getFiles() {
+            return files;
+        }
+
+        /** @return records parsed across all files */
+        public long getRecords() {
+            return records;
+        }
+
+        /** @return distinct messages handed to the sink */
+        public int getMessages() {
+            return messages;
+        }
+
+        /** @return records replaced by a later record with the same hash */
+        public long getDuplicates() {
+            return records - messages;
+        }
+
+        public int getFailedFiles() {
+            int failed = 0;
+            for (FileResult file : files) {
+                if (file.isFailed()) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+
+        /** @return wall-clock time of the whole import, merge included */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an importer that runs on the common ForkJoinPool
+     */
+    public MessageDirectoryImporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool the parse tasks run on
+     */
+    public MessageDirectoryImporter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Lists the files an import would read
+     * @param directoryPath directory to scan, not recursive
+     * @return JSON, JSON Lines, CSV and ".msgb" files sorted by name
+     * @throws IOException if the path is not a readable directory
+     */
+    public static List<File> listMessageFiles(String directoryPath) throws IOException {
+        File[] files = new File(directoryPath).listFiles(file -> file.isFile()
+                && (file.getName().endsWith(".json") || MessageFiles.isBinary(file.getName())
+                        || MessageNdjson.isNdjson(file.getName()) || MessageCsv.isCsv(file.getName())));
+        if (files == null) {
+            throw new IOException("Not a readable directory: " + directoryPath);
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Imports every message file of a directory
+     * @param directoryPath directory to scan, not recursive
+     * @param sink receives each distinct message once, in merge order, on the calling thread
+     * @return per-file and total figures
+     * @throws IOException if the path is not a readable directory
+     */
+    public Result importDirectory(String directoryPath, Consumer<MessageManager.Message> sink) throws IOException {
+        List<File> files = listMessageFiles(directoryPath);
+        long begin = System.nanoTime();
+        if (files.isEmpty()) {
+            return new Result(new ArrayList<>(), 0, 0, System.nanoTime() - begin);
+        }
+
+        Batch merged = pool.invoke(new ParseTask(files, 0, files.size()));
+        merged.messages.values().forEach(sink);
+        return new Result(merged.files, merged.records, merged.messages.size(), System.nanoTime() - begin);
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Messages and figures owned by one task; never shared until its task has joined
+     */
+    private static final class Batch {
+        // Hash -> message in load order; a later record moves its hash to the end
+        final LinkedHashMap<String, MessageManager.Message> messages = new LinkedHashMap<>();
+        final List<FileResult> files = new ArrayList<>();
+        long records;
+
+        void put(MessageManager.Message msg) {
+            String hash = msg.getMessageHash() != null ? msg.getMessageHash() : "";
+            // Remove first so the replacement takes the later position, as MessageRepository.add does
+            messages.remove(hash);
+            messages.put(hash, msg);
+        }
+
+        /**
+         * Appends a batch covering later files; its records win on equal hashes
+         */
+        Batch merge(Batch later) {
+            for (Map.Entry<String, MessageManager.Message> entry : later.messages.entrySet()) {
+                messages.remove(entry.getKey());
+                messages.put(entry.getKey(), entry.getValue());
+            }
+            files.addAll(later.files);
+            records += later.records;
+            return this;
+        }
+    }
+
+    /**
+     * Parses files[from, to), splitting in halves until one file is left
+     */
+    private static final class ParseTask extends RecursiveTask<Batch> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final int from;
+        private final int to;
+
+        ParseTask(List<File> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Batch compute() {
+            if (to - from == 1) {
+                return parse(files.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            ParseTask earlier = new ParseTask(files, from, middle);
+            earlier.fork();
+            Batch later = new ParseTask(files, middle, to).compute();
+            return earlier.join().merge(later);
+        }
+
+        private static Batch parse(File file) {
+            Batch batch = new Batch();
+            long begin = System.nanoTime();
+            try {
+                long records = MessageFiles.readManagerMessages(file.getPath(), batch::put);
+                batch.records = records;
+                batch.files.add(new FileResult(file, records, System.nanoTime() - begin, null));
+            } catch (IOException | RuntimeException e) {
+                // Leave the whole file out so a half-read file never reaches the arrays
+                batch.messages.clear();
+                batch.files.add(new FileResult(file, 0, System.nanoTime() - begin, e.getMessage()));
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches a message file and reports what changed in it record by record
+ * A WatchService on the parent directory wakes the watcher when the file is
+ * written, created or replaced by a rename. The file is then parsed again and
+ * compared with the previous version through a 64-bit fingerprint per message
+ * hash, so the listener only hears about inserted, updated and deleted records.
+ *
+ * Parsing is still a pass over the whole file, but the listener (and whatever
+ * indexes it maintains) does work proportional to the change. A version that
+ * fails to parse, e.g. one caught half written, is skipped until the next
+ * change. A deleted file is treated as "not there yet" rather than as empty.
+ *
+ * A version is read once, when its identity, size or modification time is new.
+ * Watch events only wake the watcher early; the same check also runs every
+ * FALLBACK_MILLIS, for file systems that do not deliver events.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - File-watch driven incremental reload
+ */
+public final class MessageFileWatcher implements Closeable {
+
+    /** Longest wait between checks when no watch event arrives */
+    public static final long FALLBACK_MILLIS = 250;
+
+    // Quiet time after an event before reading, so a burst of writes is read once
+    private static final long SETTLE_MILLIS = 20;
+
+    /**
+     * Receives the record-level changes, on the watcher thread
+     */
+    public interface Listener {
+        /** @param msg message whose hash was not in the previous version */
+        void onInsert(MessageManager.Message msg);
+
+        /** @param msg new version of a message whose details changed */
+        void onUpdate(MessageManager.Message msg);
+
+        /** @param hash hash of a message no longer in the file */
+        void onDelete(String hash);
+    }
+
+    /**
+     * Changes found by one reload
+     */
+    public static final class Diff {
+        private final int inserted;
+        private final int updated;
+        private final int deleted;
+        private final int records;
+        private final long nanos;
+
+        Diff(int inserted, int updated, int deleted, int records, long nanos) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+            this.records = records;
+            this.nanos = nanos;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        /** @return distinct messages in the new version of the file */
+        public int getRecords() {
+            return records;
+        }
+
+        /** @return time spent parsing, diffing and notifying */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** @return true if the reload changed nothing */
+        public boolean isEmpty() {
+            return inserted == 0 && updated == 0 && deleted == 0;
+        }
+    }
+
+    private final File file;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    // Fingerprint of every message in the last version read, by hash
+    private Map<String, Long> fingerprints = new HashMap<>();
+    // Identity, size and modification time of the last version looked at, parsed or not
+    private Object seenKey;
+    private long seenLength = -1;
+    private long seenModified = -1;
+    // False only while the starting version is read with notifyExisting off
+    private boolean notifyInserts;
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failedReloads = new AtomicLong();
+    private volatile Diff lastDiff;
+    private volatile boolean running = true;
+    private volatile RuntimeException failure;
+
+    private MessageFileWatcher(String path, Listener listener, boolean notifyExisting) throws IOException {
+        this.file = new File(path).getAbsoluteFile();
+        this.listener = listener;
+        this.notifyInserts = notifyExisting;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            file.getParentFile().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "message-watch-" + file.getName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching a message file in any format MessageFiles reads
+     * The current version is read before this returns, so changes made after it are never missed
+     * @param path file to watch; it may not exist yet
+     * @param listener receives every change on the watcher thread
+     * @param notifyExisting true to report the records already in the file as inserts,
+     *                       false to take them as the starting point
+     * @return the running watcher; close it to stop
+     * @throws IOException if the directory cannot be watched
+     */
+    public static MessageFileWatcher watch(String path, Listener listener, boolean notifyExisting) throws IOException {
+        MessageFileWatcher watcher = new MessageFileWatcher(path, listener, notifyExisting);
+        watcher.check();
+        // A file created later is new data, whatever the starting point was
+        watcher.notifyInserts = true;
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /** @return versions of the file read and compared so far, the first one included */
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    /** @return versions skipped because they could not be parsed */
+    public long getFailedReloads() {
+        return failedReloads.get();
+    }
+
+    /** @return changes found by the last successful reload, or null before the first */
+    public Diff getLastDiff() {
+        return lastDiff;
+    }
+
+    /** @return true until closed or stopped by a listener failure */
+    public boolean isRunning() {
+        return running && thread.isAlive();
+    }
+
+    /** @return the exception that stopped the listener, or null */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Waits until at least the given number of reloads have been applied
+     * @param count reloads to wait for, counting the first read
+     * @param timeoutMillis longest wait
+     * @return true if the count was reached
+     */
+    public boolean awaitReloads(long count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (reloads.get() < count) {
+            if (System.nanoTime() >= deadline || !isRunning()) {
+                return reloads.get() >= count;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Stops watching and waits for the watcher thread to finish
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                WatchKey key = watchService.poll(FALLBACK_MILLIS, TimeUnit.MILLISECONDS);
+                boolean touched = key != null && drain(key);
+                if (touched) {
+                    // Let a burst of writes finish before reading
+                    for (key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS); key != null;
+                         key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) {
+                        drain(key);
+                    }
+                }
+                check();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * @return true if any event was about the watched file
+     */
+    private boolean drain(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && file.getName().equals(context.toString()))) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+
+    /**
+     * Reloads the file if it was replaced or its size or modification time moved
+     * Events only wake the watcher early; the same version is never read twice
+     */
+    private void check() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            failedReloads.incrementAndGet();
+            return;
+        }
+        Object key = attributes.fileKey();
+        long length = attributes.size();
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        if (Objects.equals(key, seenKey) && length == seenLength && modified == seenModified) {
+            return;
+        }
+        seenKey = key;
+        seenLength = length;
+        seenModified = modified;
+        reload();
+    }
+
+    /**
+     * Parses the file, compares it with the previous version and notifies the listener
+     * Only records whose fingerprint moved are kept while parsing
+     */
+    private void reload() {
+        long begin = System.nanoTime();
+        Map<String, Long> previous = fingerprints;
+        Map<String, Long> current = new HashMap<>(Math.max(16, previous.size() * 4 / 3 + 16));
+        Map<String, MessageManager.Message> changed = new LinkedHashMap<>();
+        try {
+            MessageFiles.readManagerMessages(file.getPath(), msg -> {
+                String hash = hashKey(msg.getMessageHash());
+                long fingerprint = fingerprint(msg);
+                Long earlier = current.put(hash, fingerprint);
+                Long before = earlier != null ? earlier : previous.get(hash);
+                // A later record with the same hash replaces an earlier one, as on a normal load
+                if (before == null || before != fingerprint) {
+                    changed.put(hash, msg);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            failedReloads.incrementAndGet();
+            return;
+        }
+
+        int inserted = 0;
+        int updated = 0;
+        for (Map.Entry<String, MessageManager.Message> entry : changed.entrySet()) {
+            Long before = previous.get(entry.getKey());
+            if (before == null) {
+                inserted++;
+                if (notifyInserts) {
+                    listener.onInsert(entry.getValue());
+                }
+            } else if (!before.equals(current.get(entry.getKey()))) {
+                updated++;
+                listener.onUpdate(entry.getValue());
+            }
+        }
+        int deleted = 0;
+        for (String hash : previous.keySet()) {
+            if (!current.containsKey(hash)) {
+                deleted++;
+                listener.onDelete(hash);
+            }
+        }
+
+        fingerprints = current;
+        lastDiff = new Diff(inserted, updated, deleted, current.size(), System.nanoTime() - begin);
+        reloads.incrementAndGet();
+    }
+
+    /**
+     * FNV-1a over every field of a message, with a separator so field boundaries count
+     */
+    static long fingerprint(MessageManager.Message msg) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, msg.getMessageHash());
+        hash = mix(hash, msg.getMessageID());
+        hash = mix(hash, msg.getRecipient());
+        hash = mix(hash, msg.getMessage());
+        hash = mix(hash, msg.getFlag());
+        return mix(hash, msg.getSender());
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // Distinguishes null from "" and ends the field
+        hash ^= value != null ? 0x1F : 0x1E;
+        return hash * 0x100000001b3L;
+    }
+
+    private static String hashKey(String hash) {
+        return hash != null ? hash : "";
+    }
+}
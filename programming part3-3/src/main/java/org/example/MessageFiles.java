@@ -0,0 +1,456 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes message files, choosing the format by file extension
+ * - ".msgb": compact binary format described below
+ * - ".ndjson" / ".jsonl": one JSON object per line, see MessageNdjson
+ * - ".csv": MessageManager messages only, see MessageCsv
+ * - anything else: JSON through the MessageJson adapters, as before
+ *
+ * Binary format, version 1:
+ *   header  "MSGB" magic, version byte, record kind byte (1 = Message, 2 = MessageManager.Message)
+ *   blocks  [record count:int][payload length:int][payload][CRC32 of payload:int], repeated
+ *   end     a record count of 0
+ * Inside a payload, strings are a varint of (UTF-8 length + 1), 0 meaning null,
+ * followed by the bytes; numbers are varints. A block whose CRC does not match
+ * fails the read with an IOException naming the block.
+ *
+ * A block holds at most RECORDS_PER_BLOCK records and MAX_BLOCK_BYTES of
+ * payload; a header claiming more is rejected as corrupt before anything is
+ * allocated, and so is a payload with bytes left over after its records.
+ *
+ * @author Heloisa Campos
+ * @version 1.3 - Bounded blocks, nulls kept in Part 2 records
+ */
+public final class MessageFiles {
+
+    /** Extension that selects the binary format */
+    public static final String BINARY_EXTENSION = ".msgb";
+
+    /** Current binary format version */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'M', 'S', 'G', 'B'};
+    private static final byte KIND_MESSAGE = 1;
+    private static final byte KIND_MANAGER_MESSAGE = 2;
+
+    // Records per block; a block is checked and decoded as one unit
+    private static final int RECORDS_PER_BLOCK = 1024;
+    // A block is closed early once its payload reaches this size
+    private static final int BLOCK_FLUSH_BYTES = 1 << 20;
+    // Largest payload a reader accepts, so a corrupt length cannot exhaust memory
+    private static final int MAX_BLOCK_BYTES = 64 << 20;
+    private static final int MAX_RECORD_BYTES = MAX_BLOCK_BYTES - BLOCK_FLUSH_BYTES;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private MessageFiles() {
+        // Utility class
+    }
+
+    /**
+     * @param path file name
+     * @return true if the binary format is used for that file
+     */
+    public static boolean isBinary(String path) {
+        return path != null && path.toLowerCase().endsWith(BINARY_EXTENSION);
+    }
+
+    // ==================== PART 2 MESSAGES ====================
+
+    /**
+     * Writes Part 2 messages in the format chosen by the file extension
+     * @param path destination file
+     * @param messages messages to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeMessages(String path, List<Message> messages) throws IOException {
+        if (MessageNdjson.isNdjson(path)) {
+            MessageNdjson.writeFile(path, messages, MessageJson.MESSAGE_ADAPTER, false);
+            return;
+        }
+        if (!isBinary(path)) {
+            try (FileWriter writer = new FileWriter(path)) {
+                MessageJson.writeArray(writer, messages, MessageJson.MESSAGE_ADAPTER, true);
+            }
+            return;
+        }
+        try (BinaryWriter<Message> writer = new BinaryWriter<>(new FileOutputStream(path), KIND_MESSAGE, MessageFiles::encodeMessage)) {
+            for (Message msg : messages) {
+                writer.write(msg);
+            }
+        }
+    }
+
+    /**
+     * Reads Part 2 messages in the format chosen by the file extension
+     * @param path source file
+     * @return messages in file order, empty for an empty JSON file
+     * @throws IOException if the file cannot be read or a binary block is corrupt
+     */
+    public static List<Message> readMessages(String path) throws IOException {
+        if (MessageNdjson.isNdjson(path)) {
+            List<Message> messages = new ArrayList<>();
+            MessageNdjson.readFile(path, MessageJson.MESSAGE_ADAPTER, messages::add);
+            return messages;
+        }
+        if (!isBinary(path)) {
+            try (FileReader reader = new FileReader(path)) {
+                return MessageJson.readMessages(reader);
+            }
+        }
+        List<Message> messages = new ArrayList<>();
+        try (InputStream in = new FileInputStream(path)) {
+            readBinary(in, KIND_MESSAGE, MessageFiles::decodeMessage, messages::add);
+        }
+        return messages;
+    }
+
+    // ==================== PART 3 MESSAGES ====================
+
+    /**
+     * Writes MessageManager messages in the format chosen by the file extension
+     * @param path destination file
+     * @param messages messages to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeManagerMessages(String path, Iterable<MessageManager.Message> messages) throws IOException {
+        if (MessageCsv.isCsv(path)) {
+            MessageCsv.writeFile(path, messages);
+            return;
+        }
+        if (MessageNdjson.isNdjson(path)) {
+            MessageNdjson.writeFile(path, messages, MessageJson.MANAGER_MESSAGE_ADAPTER, false);
+            return;
+        }
+        if (!isBinary(path)) {
+            try (FileWriter writer = new FileWriter(path)) {
+                MessageJson.writeArray(writer, messages, MessageJson.MANAGER_MESSAGE_ADAPTER, true);
+            }
+            return;
+        }
+        writeManagerMessages(new FileOutputStream(path), messages);
+    }
+
+    /**
+     * Streams MessageManager messages from a file, one record at a time
+     * JSON files go through MessageJsonImporter
+     * @param path source file
+     * @param sink receives each message in file order
+     * @return number of messages read
+     * @throws IOException if the file cannot be read or a binary block is corrupt
+     */
+    public static long readManagerMessages(String path, Consumer<MessageManager.Message> sink) throws IOException {
+        if (MessageCsv.isCsv(path)) {
+            return MessageCsv.readFile(path, sink);
+        }
+        if (MessageNdjson.isNdjson(path)) {
+            return MessageNdjson.readFile(path, MessageJson.MANAGER_MESSAGE_ADAPTER, sink);
+        }
+        if (!isBinary(path)) {
+            return new MessageJsonImporter(sink).importFile(path);
+        }
+        try (InputStream in = new FileInputStream(path)) {
+            return readManagerMessages(in, sink);
+        }
+    }
+
+    /**
+     * Writes MessageManager messages in the binary format to a stream, e.g. after a file header
+     * @param target destination; closed when done
+     * @param messages messages to write
+     * @throws IOException if the write fails
+     */
+    static void writeManagerMessages(OutputStream target, Iterable<MessageManager.Message> messages) throws IOException {
+        try (BinaryWriter<MessageManager.Message> writer = new BinaryWriter<>(target,
+                KIND_MANAGER_MESSAGE, MessageFiles::encodeManagerMessage)) {
+            for (MessageManager.Message msg : messages) {
+                writer.write(msg);
+            }
+        }
+    }
+
+    /**
+     * Streams MessageManager messages in the binary format from a stream; not closed
+     * @param source stream positioned at the binary header
+     * @param sink receives each message in stream order
+     * @return number of messages read
+     * @throws IOException if the stream is not in the binary format or a block is corrupt
+     */
+    static long readManagerMessages(InputStream source, Consumer<MessageManager.Message> sink) throws IOException {
+        return readBinary(source, KIND_MANAGER_MESSAGE, MessageFiles::decodeManagerMessage, sink);
+    }
+
+    // ==================== RECORD CODECS ====================
+
+    private interface Encoder<T> {
+        void encode(BlockBuffer out, T record);
+    }
+
+    private interface Decoder<T> {
+        T decode(BlockReader in) throws IOException;
+    }
+
+    private static void encodeMessage(BlockBuffer out, Message msg) {
+        // Raw fields, not the getters, so null comes back as null rather than "N/A"
+        for (String field : msg.storedFields()) {
+            out.string(field);
+        }
+        out.varint(msg.getMessageNumber());
+    }
+
+    private static Message decodeMessage(BlockReader in) throws IOException {
+        Message msg = new Message();
+        msg.setMessageID(in.string());
+        msg.setMessageHash(in.string());
+        msg.setRecipient(in.string());
+        msg.setMessageContent(in.string());
+        msg.setMessageNumber(in.varint());
+        return msg;
+    }
+
+    private static void encodeManagerMessage(BlockBuffer out, MessageManager.Message msg) {
+        out.string(msg.getMessageHash());
+        out.string(msg.getMessageID());
+        out.string(msg.getRecipient());
+        out.string(msg.getMessage());
+        MessageFlag flag = msg.getFlagValue();
+        out.varint(flag != null ? flag.code() + 1 : 0);
+        out.string(msg.getSender());
+    }
+
+    private static MessageManager.Message decodeManagerMessage(BlockReader in) throws IOException {
+        String hash = in.string();
+        String id = in.string();
+        String recipient = in.string();
+        String message = in.string();
+        int flagCode = in.varint();
+        if (flagCode > MessageFlag.values().length) {
+            throw new IOException("Unknown message flag code " + (flagCode - 1));
+        }
+        MessageManager.Message msg = new MessageManager.Message(hash, id, recipient, message,
+                flagCode == 0 ? null : MessageFlag.fromCode((byte) (flagCode - 1)));
+        msg.setSender(in.string());
+        return msg;
+    }
+
+    // ==================== BINARY WRITER ====================
+
+    /**
+     * Buffers records into CRC-checked blocks
+     */
+    private static final class BinaryWriter<T> implements Closeable {
+        private final OutputStream out;
+        private final Encoder<T> encoder;
+        private final BlockBuffer block = new BlockBuffer();
+        private final CRC32 crc = new CRC32();
+        private int records;
+
+        BinaryWriter(OutputStream target, byte kind, Encoder<T> encoder) throws IOException {
+            this.out = new BufferedOutputStream(target, BUFFER_BYTES);
+            this.encoder = encoder;
+            out.write(MAGIC);
+            out.write(FORMAT_VERSION);
+            out.write(kind);
+        }
+
+        void write(T record) throws IOException {
+            int start = block.size;
+            encoder.encode(block, record);
+            // Less than BLOCK_FLUSH_BYTES came before it, so the block stays within MAX_BLOCK_BYTES
+            if (block.size - start > MAX_RECORD_BYTES) {
+                int length = block.size - start;
+                block.size = start;
+                throw new IOException("Record is " + length + " bytes, the binary format holds at most "
+                        + MAX_RECORD_BYTES);
+            }
+            if (++records == RECORDS_PER_BLOCK || block.size >= BLOCK_FLUSH_BYTES) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (records == 0) {
+                return;
+            }
+            crc.reset();
+            crc.update(block.bytes, 0, block.size);
+            writeInt(records);
+            writeInt(block.size);
+            out.write(block.bytes, 0, block.size);
+            writeInt((int) crc.getValue());
+            block.size = 0;
+            records = 0;
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+                writeInt(0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Growable byte buffer for one block payload
+     */
+    private static final class BlockBuffer {
+        byte[] bytes = new byte[BUFFER_BYTES];
+        int size;
+
+        void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    // ==================== BINARY READER ====================
+
+    private static <T> long readBinary(InputStream source, byte kind, Decoder<T> decoder, Consumer<T> sink)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, BUFFER_BYTES));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary message file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary message file version " + version);
+        }
+        int fileKind = in.readByte();
+        if (fileKind != kind) {
+            throw new IOException("Binary file holds record kind " + fileKind + ", expected " + kind);
+        }
+
+        CRC32 crc = new CRC32();
+        BlockReader block = new BlockReader();
+        long total = 0;
+        for (int blockNumber = 1; ; blockNumber++) {
+            int records;
+            try {
+                records = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("Binary message file is truncated before block " + blockNumber, e);
+            }
+            if (records == 0) {
+                return total;
+            }
+            int length = in.readInt();
+            if (records < 0 || records > RECORDS_PER_BLOCK || length < 0 || length > MAX_BLOCK_BYTES) {
+                throw new IOException("Corrupt header in block " + blockNumber);
+            }
+            block.load(in, length);
+            int expected = in.readInt();
+            crc.reset();
+            crc.update(block.bytes, 0, length);
+            if ((int) crc.getValue() != expected) {
+                throw new IOException("CRC mismatch in block " + blockNumber);
+            }
+            for (int i = 0; i < records; i++) {
+                sink.accept(decoder.decode(block));
+            }
+            if (block.position != block.limit) {
+                throw new IOException("Block " + blockNumber + " has " + (block.limit - block.position)
+                        + " bytes after its " + records + " records");
+            }
+            total += records;
+        }
+    }
+
+    /**
+     * Decodes fields from one verified block payload
+     */
+    private static final class BlockReader {
+        byte[] bytes = new byte[BUFFER_BYTES];
+        int position;
+        int limit;
+
+        void load(DataInputStream in, int length) throws IOException {
+            if (length > bytes.length) {
+                bytes = new byte[length];
+            }
+            in.readFully(bytes, 0, length);
+            position = 0;
+            limit = length;
+        }
+
+        int varint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= limit) {
+                    throw new IOException("Record runs past the end of its block");
+                }
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String string() throws IOException {
+            int length = varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > limit - position) {
+                throw new IOException("String runs past the end of its block");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
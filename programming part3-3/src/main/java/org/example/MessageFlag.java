@@ -0,0 +1,77 @@
+package org.example;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Status flag of a MessageManager message
+ * Replaces the free-text "Sent" / "Stored" / "Disregarded" strings so inserts
+ * no longer lower-case and switch on a string, and partitions can live in an EnumMap
+ *
+ * The JSON spelling stays "Sent", "Stored" and "Disregarded".
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Enum flags for flag-partitioned storage
+ */
+public enum MessageFlag {
+    @SerializedName(value = "Sent", alternate = {"sent", "SENT"})
+    SENT("Sent"),
+
+    @SerializedName(value = "Stored", alternate = {"stored", "STORED"})
+    STORED("Stored"),
+
+    @SerializedName(value = "Disregarded", alternate = {"disregarded", "DISREGARDED"})
+    DISREGARDED("Disregarded");
+
+    // Cached because values() clones the array on every call
+    private static final MessageFlag[] BY_CODE = values();
+
+    private final String label;
+
+    MessageFlag(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return display label, e.g. "Sent"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return compact one-byte code for this flag
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * @param code value returned by code()
+     * @return the matching flag
+     */
+    public static MessageFlag fromCode(byte code) {
+        return BY_CODE[code];
+    }
+
+    /**
+     * Parses a flag label case-insensitively
+     * @param label "Sent", "Stored" or "Disregarded" in any case
+     * @return the matching flag, or null for a missing or unknown label
+     */
+    public static MessageFlag fromLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        for (MessageFlag flag : BY_CODE) {
+            if (flag.label.equalsIgnoreCase(label)) {
+                return flag;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
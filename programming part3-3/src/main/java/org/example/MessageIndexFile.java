@@ -0,0 +1,310 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Side file holding the secondary indexes of a MessageRepository, saved next
+ * to the MessageCheckpoint it belongs to
+ *
+ * Rebuilding the repository from a checkpoint normalizes every recipient and
+ * tokenizes every message again. This file keeps the result instead: each
+ * ID, recipient and content bucket is saved as its key plus the ordinals of
+ * its messages, so a warm start installs every bucket whole. Indexes keyed
+ * directly by a record field (hash, insertion order, flag, length) are filled
+ * in the same pass that places the checkpoint records.
+ *
+ * File layout (all numbers big-endian):
+ *   header   magic "MSGX", version byte, covered LSN (long), message count (int)
+ *   sections IDs, phone numbers, other recipients, content terms; each one is
+ *            [bucket count:4] then per bucket [key][ordinal count:4][ordinal:4]...
+ *            keys are [length:4][UTF-8 bytes], phone numbers a normalized long
+ *   trailer  CRC32 of everything before it (int)
+ *
+ * An ordinal is the message's position in the checkpoint. The file is only
+ * used when its LSN and count match the checkpoint being loaded and the CRC
+ * holds; otherwise the caller rebuilds the indexes from the messages.
+ * Reading maps the file with FileChannel.map and walks it once.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Persisted secondary indexes
+ */
+public final class MessageIndexFile {
+
+    /** Current index file version */
+    public static final int FORMAT_VERSION = 1;
+
+    /** Suffix appended to the checkpoint path to name its index file */
+    public static final String SUFFIX = ".idx";
+
+    private static final byte[] MAGIC = {'M', 'S', 'G', 'X'};
+    private static final int HEADER_BYTES = MAGIC.length + 1 + 8 + 4;
+
+    private MessageIndexFile() {
+        // Utility class
+    }
+
+    /**
+     * @param checkpointPath checkpoint the index belongs to
+     * @return the path of its index file
+     */
+    public static String pathFor(String checkpointPath) {
+        return checkpointPath + SUFFIX;
+    }
+
+    /**
+     * Saves the secondary indexes of a repository and moves the file over any previous one
+     * Writers must be held off until it returns, as for MessageCheckpoint.write
+     * @param path index file
+     * @param lsn LSN of the checkpoint written from the same repository state
+     * @param repository repository to save
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String path, long lsn, MessageRepository repository) throws IOException {
+        long[] seqs = repository.sequences();
+        File target = new File(path);
+        File temp = new File(path + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SectionWriter out = new SectionWriter(channel, seqs);
+            out.ensure(HEADER_BYTES);
+            out.buffer.put(MAGIC).put((byte) FORMAT_VERSION).putLong(lsn).putInt(seqs.length);
+
+            out.section(repository.idIndex()::forEachBucket, out::putText);
+            out.section(repository.recipientIndex()::forEachNumber, out::putLong);
+            out.section(repository.recipientIndex()::forEachRawText, out::putText);
+            out.section(repository.contentIndex()::forEachPosting, out::putText);
+            out.finish();
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rebuilds a repository from checkpoint messages and their saved indexes
+     * @param path index file
+     * @param lsn LSN of the checkpoint the messages came from
+     * @param messages checkpoint messages in order
+     * @param concurrent true for a repository that accepts concurrent writers
+     * @return the fully indexed repository
+     * @throws IOException if the file is missing, corrupt, or belongs to another checkpoint
+     */
+    public static MessageRepository load(String path, long lsn, List<MessageManager.Message> messages,
+                                         boolean concurrent) throws IOException {
+        ByteBuffer in = map(path);
+        CRC32 crc = new CRC32();
+        ByteBuffer covered = in.duplicate();
+        covered.limit(in.limit() - 4);
+        crc.update(covered);
+        if (in.getInt(in.limit() - 4) != (int) crc.getValue()) {
+            throw new IOException("Index file checksum mismatch");
+        }
+        in.limit(in.limit() - 4);
+
+        byte[] magic = new byte[MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a message index file");
+        }
+        int version = in.get() & 0xFF;
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported index version " + version);
+        }
+        long savedLsn = in.getLong();
+        int count = in.getInt();
+        if (savedLsn != lsn || count != messages.size()) {
+            throw new IOException("Index file is for LSN " + savedLsn + " with " + count
+                    + " messages, checkpoint has LSN " + lsn + " with " + messages.size());
+        }
+
+        MessageRepository restored;
+        try {
+            Long[] seqs = new Long[count];
+            for (int i = 0; i < count; i++) {
+                // Sequence numbers start at 1, so message i gets i + 1
+                seqs[i] = i + 1L;
+            }
+            restored = MessageRepository.withMessages(concurrent, messages, seqs);
+            BucketReader reader = new BucketReader(in, messages, seqs, concurrent);
+            RecipientIndex recipients = restored.recipientIndex();
+            reader.section(() -> readText(in), restored.idIndex()::putBucket);
+            reader.section(in::getLong, recipients::restoreNumber);
+            reader.section(() -> readText(in), recipients::restoreRawText);
+            reader.section(() -> readText(in), restored.contentIndex()::restorePosting);
+        } catch (RuntimeException e) {
+            // Out-of-range ordinals, duplicate hashes and truncated sections all mean a bad file
+            throw new IOException("Corrupt index file: " + e, e);
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Corrupt index file: " + in.remaining() + " unexpected trailing bytes");
+        }
+        return restored;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private static ByteBuffer map(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 4) {
+                throw new IOException("Index file is truncated");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Index file is too large to map in one piece");
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private static String readText(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface KeyWriter<K> {
+        void write(K key) throws IOException;
+    }
+
+    private interface BucketSource<K> {
+        void forEach(BiConsumer<K, Map<Long, MessageManager.Message>> action);
+    }
+
+    /**
+     * Writes sections through one buffer, checksumming each full buffer as it goes out
+     */
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final long[] seqs;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private final CRC32 crc = new CRC32();
+
+        SectionWriter(FileChannel channel, long[] seqs) {
+            this.channel = channel;
+            this.seqs = seqs;
+        }
+
+        /**
+         * Writes one section, turning the sequence numbers of each bucket into ordinals
+         */
+        <K> void section(BucketSource<K> source, KeyWriter<K> keys) throws IOException {
+            // Bucket count goes first, so count before writing
+            int[] buckets = new int[1];
+            source.forEach((key, bucket) -> buckets[0]++);
+            putInt(buckets[0]);
+            try {
+                source.forEach((key, bucket) -> {
+                    try {
+                        keys.write(key);
+                        putInt(bucket.size());
+                        for (Long seq : bucket.keySet()) {
+                            int ordinal = Arrays.binarySearch(seqs, seq);
+                            if (ordinal < 0) {
+                                throw new IOException("Index bucket refers to a message that is not stored");
+                            }
+                            putInt(ordinal);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putText(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        /**
+         * Writes what is buffered followed by the CRC trailer
+         */
+        void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads one section, turning ordinals back into buckets keyed by sequence number
+     */
+    private static final class BucketReader {
+        private final ByteBuffer in;
+        private final List<MessageManager.Message> messages;
+        private final Long[] seqs;
+        private final boolean concurrent;
+
+        BucketReader(ByteBuffer in, List<MessageManager.Message> messages, Long[] seqs, boolean concurrent) {
+            this.in = in;
+            this.messages = messages;
+            this.seqs = seqs;
+            this.concurrent = concurrent;
+        }
+
+        <K> void section(Supplier<K> keys,
+                         BiConsumer<K, Map<Long, MessageManager.Message>> install) {
+            int buckets = in.getInt();
+            for (int b = 0; b < buckets; b++) {
+                K key = keys.get();
+                int size = in.getInt();
+                Map<Long, MessageManager.Message> bucket = OrderedMultimap.orderedMap(concurrent, size);
+                for (int i = 0; i < size; i++) {
+                    int ordinal = in.getInt();
+                    bucket.put(seqs[ordinal], messages.get(ordinal));
+                }
+                install.accept(key, bucket);
+            }
+        }
+    }
+}
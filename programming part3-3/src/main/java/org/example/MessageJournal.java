@@ -0,0 +1,318 @@
+package org.example;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Redo journal for the MessageManager repository
+ * Every add, remove, flag change and clear is appended as one JSON line
+ * carrying a log sequence number (LSN) before it is applied. A checkpoint
+ * (see MessageCheckpoint) records the LSN it covers, so recovery loads the
+ * checkpoint and replays only the entries after it.
+ *
+ * Line format:
+ *   {"lsn":7,"op":"add","message":{...}}
+ *   {"lsn":8,"op":"remove","hash":"H1"}
+ *   {"lsn":9,"op":"flag","hash":"H2","flag":"Sent"}
+ *   {"lsn":10,"op":"clear"}
+ *
+ * Appends go through MessageLog, so the same sync policies apply. A torn
+ * last line left by a crash is cut off when the journal is recovered, so new
+ * entries never land behind it.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Repository redo journal
+ */
+public class MessageJournal implements Closeable {
+
+    /**
+     * Kind of change recorded by an entry
+     */
+    public enum Op { ADD, REMOVE, FLAG, CLEAR }
+
+    /**
+     * One decoded journal entry
+     */
+    public static final class Entry {
+        private final long lsn;
+        private final Op op;
+        private final MessageManager.Message message;
+        private final String hash;
+        private final MessageFlag flag;
+
+        Entry(long lsn, Op op, MessageManager.Message message, String hash, MessageFlag flag) {
+            this.lsn = lsn;
+            this.op = op;
+            this.message = message;
+            this.hash = hash;
+            this.flag = flag;
+        }
+
+        public long getLsn() {
+            return lsn;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        /** @return the added message, or null for other operations */
+        public MessageManager.Message getMessage() {
+            return message;
+        }
+
+        /** @return the hash removed or re-flagged, or null for add and clear */
+        public String getHash() {
+            return hash;
+        }
+
+        /** @return the new flag of a flag change, or null */
+        public MessageFlag getFlag() {
+            return flag;
+        }
+
+        /**
+         * Repeats the change on a repository
+         * @param repository repository being rebuilt
+         */
+        public void applyTo(MessageRepository repository) {
+            switch (op) {
+                case ADD:
+                    repository.add(message);
+                    break;
+                case REMOVE:
+                    repository.remove(hash);
+                    break;
+                case FLAG:
+                    repository.changeFlag(hash, flag);
+                    break;
+                case CLEAR:
+                    repository.clear();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown journal operation " + op);
+            }
+        }
+    }
+
+    private final MessageLog log;
+    private long lastLsn;
+    private long replayed;
+
+    private MessageJournal(MessageLog log, long lastLsn, long replayed) {
+        this.log = log;
+        this.lastLsn = lastLsn;
+        this.replayed = replayed;
+    }
+
+    /**
+     * Opens a journal for appends after replaying the entries a checkpoint does not cover
+     * A torn last line is cut off before the journal is reopened.
+     * @param path journal file; created if missing
+     * @param afterLsn LSN covered by the loaded checkpoint, 0 without one
+     * @param policy when appends are forced to disk
+     * @param replay receives every complete entry with an LSN above afterLsn, in order
+     * @return the open journal, continuing from the highest LSN seen
+     * @throws IOException if the file cannot be read or opened
+     */
+    public static MessageJournal recover(String path, long afterLsn, MessageLog.SyncPolicy policy,
+                                         Consumer<Entry> replay) throws IOException {
+        File file = new File(path);
+        long lastLsn = afterLsn;
+        long replayed = 0;
+        if (file.exists()) {
+            long[] state = {afterLsn, 0};
+            long validBytes = scan(file, entry -> {
+                state[0] = Math.max(state[0], entry.lsn);
+                if (entry.lsn > afterLsn) {
+                    replay.accept(entry);
+                    state[1]++;
+                }
+            });
+            lastLsn = state[0];
+            replayed = state[1];
+            if (validBytes < file.length()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                    channel.force(true);
+                }
+            }
+        }
+        return new MessageJournal(new MessageLog(path, policy, 32, 50), lastLsn, replayed);
+    }
+
+    /**
+     * @return LSN of the last entry appended or recovered
+     */
+    public synchronized long lastLsn() {
+        return lastLsn;
+    }
+
+    /**
+     * @return entries replayed when the journal was recovered
+     */
+    public long replayedEntries() {
+        return replayed;
+    }
+
+    /**
+     * @return entries in the file: replayed ones plus those appended since, reset by truncate()
+     */
+    public synchronized long entryCount() {
+        return replayed + log.entryCount();
+    }
+
+    public synchronized long add(MessageManager.Message msg) throws IOException {
+        return append(Op.ADD, msg, null, null);
+    }
+
+    public synchronized long remove(String hash) throws IOException {
+        return append(Op.REMOVE, null, hash, null);
+    }
+
+    public synchronized long changeFlag(String hash, MessageFlag flag) throws IOException {
+        return append(Op.FLAG, null, hash, flag);
+    }
+
+    public synchronized long clear() throws IOException {
+        return append(Op.CLEAR, null, null, null);
+    }
+
+    /**
+     * Empties the file once a checkpoint covers every entry; LSNs keep counting up
+     * @throws IOException if the file cannot be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        log.truncate();
+        replayed = 0;
+    }
+
+    /**
+     * Forces every appended entry to disk
+     * @throws IOException if the fsync fails
+     */
+    public synchronized void sync() throws IOException {
+        log.sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    // ==================== LINE FORMAT ====================
+
+    private long append(Op op, MessageManager.Message msg, String hash, MessageFlag flag) throws IOException {
+        long lsn = lastLsn + 1;
+        log.appendLine(encode(new Entry(lsn, op, msg, hash, flag)));
+        lastLsn = lsn;
+        return lsn;
+    }
+
+    private static String encode(Entry entry) throws IOException {
+        StringWriter line = new StringWriter(128);
+        JsonWriter out = MessageJson.GSON.newJsonWriter(line);
+        out.beginObject();
+        out.name("lsn").value(entry.lsn);
+        out.name("op").value(entry.op.name().toLowerCase());
+        if (entry.message != null) {
+            out.name("message");
+            MessageJson.MANAGER_MESSAGE_ADAPTER.write(out, entry.message);
+        }
+        if (entry.hash != null) {
+            out.name("hash").value(entry.hash);
+        }
+        if (entry.flag != null) {
+            out.name("flag").value(entry.flag.getLabel());
+        }
+        out.endObject();
+        out.flush();
+        return line.toString();
+    }
+
+    private static Entry decode(String line) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(line));
+        long lsn = -1;
+        Op op = null;
+        MessageManager.Message msg = null;
+        String hash = null;
+        MessageFlag flag = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "lsn":
+                    lsn = in.nextLong();
+                    break;
+                case "op":
+                    op = Op.valueOf(in.nextString().toUpperCase());
+                    break;
+                case "message":
+                    msg = MessageJson.MANAGER_MESSAGE_ADAPTER.read(in);
+                    break;
+                case "hash":
+                    hash = MessageJson.readString(in);
+                    break;
+                case "flag":
+                    flag = MessageFlag.fromLabel(MessageJson.readString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (in.peek() != JsonToken.END_DOCUMENT || lsn < 0 || op == null
+                || (op == Op.ADD && msg == null) || (op == Op.FLAG && flag == null)) {
+            throw new IOException("Incomplete journal entry");
+        }
+        return new Entry(lsn, op, msg, hash, flag);
+    }
+
+    /**
+     * Decodes every complete line, stopping at the first one that is torn or unreadable
+     * @return bytes up to and including the last good line
+     */
+    private static long scan(File file, Consumer<Entry> handler) throws IOException {
+        long valid = 0;
+        byte[] line = new byte[256];
+        int length = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                if (b != '\n') {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = (byte) b;
+                    continue;
+                }
+                if (length > 0) {
+                    Entry entry;
+                    try {
+                        entry = decode(new String(line, 0, length, StandardCharsets.UTF_8));
+                    } catch (IOException | RuntimeException e) {
+                        // Nothing after a damaged entry was acknowledged
+                        return valid;
+                    }
+                    handler.accept(entry);
+                }
+                valid += length + 1;
+                length = 0;
+            }
+        }
+        // A last line without its newline is a torn write
+        return valid;
+    }
+}
@@ -0,0 +1,210 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared Gson setup for both message models
+ * Hand-written TypeAdapters replace Gson's reflective binding, so reading or
+ * writing a message is a straight run of JsonReader / JsonWriter calls with
+ * no field lookups, no TypeToken and no new Gson instance per call.
+ *
+ * The JSON is the same as the reflective binding produced: same field
+ * names, null fields left out, flags spelled "Sent" / "Stored" / "Disregarded".
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Reflection-free message JSON
+ */
+public final class MessageJson {
+
+    /** Adapter for the Part 2 Message model */
+    public static final TypeAdapter<Message> MESSAGE_ADAPTER = new Message.JsonAdapter();
+
+    /** Adapter for MessageManager.Message, archive views included */
+    public static final TypeAdapter<MessageManager.Message> MANAGER_MESSAGE_ADAPTER = new ManagerMessageAdapter();
+
+    /** Compact Gson with both adapters registered */
+    public static final Gson GSON = builder().create();
+
+    /** Pretty-printing Gson with both adapters registered, used for the snapshot files */
+    public static final Gson PRETTY_GSON = builder().setPrettyPrinting().create();
+
+    private MessageJson() {
+        // Utility class
+    }
+
+    private static GsonBuilder builder() {
+        // Hierarchy adapters so archive flyweight views use the getters too
+        return new GsonBuilder()
+                .registerTypeHierarchyAdapter(Message.class, MESSAGE_ADAPTER)
+                .registerTypeHierarchyAdapter(MessageManager.Message.class, MANAGER_MESSAGE_ADAPTER);
+    }
+
+    // ==================== ARRAYS ====================
+
+    /**
+     * Reads a JSON array of Part 2 messages
+     * @param reader source; not closed
+     * @return messages in file order, empty for empty input or "null"
+     * @throws IOException if the input is not a JSON array of messages
+     */
+    public static List<Message> readMessages(Reader reader) throws IOException {
+        List<Message> messages = new ArrayList<>();
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        try {
+            if (in.peek() == JsonToken.NULL) {
+                return messages;
+            }
+        } catch (EOFException e) {
+            // Empty file
+            return messages;
+        }
+        try {
+            in.beginArray();
+            while (in.hasNext()) {
+                Message msg = MESSAGE_ADAPTER.read(in);
+                if (msg != null) {
+                    messages.add(msg);
+                }
+            }
+            in.endArray();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid message JSON: " + e.getMessage(), e);
+        }
+        return messages;
+    }
+
+    /**
+     * Writes values as one JSON array, streaming each through its adapter
+     * @param writer destination; flushed but not closed
+     * @param values values to write
+     * @param adapter MESSAGE_ADAPTER or MANAGER_MESSAGE_ADAPTER
+     * @param pretty true for the indented snapshot layout
+     * @throws IOException if the write fails
+     */
+    public static <T> void writeArray(Writer writer, Iterable<? extends T> values, TypeAdapter<T> adapter,
+                                      boolean pretty) throws IOException {
+        JsonWriter out = (pretty ? PRETTY_GSON : GSON).newJsonWriter(writer);
+        out.beginArray();
+        for (T value : values) {
+            adapter.write(out, value);
+        }
+        out.endArray();
+        out.flush();
+    }
+
+    // ==================== FIELD HELPERS ====================
+
+    /**
+     * Reads a string field the way Gson's built-in adapter does: null stays null,
+     * numbers and booleans are taken as their text
+     */
+    static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads an int field; null leaves the default of 0, as reflective binding did
+     */
+    static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    // ==================== MANAGER MESSAGE ADAPTER ====================
+
+    /**
+     * Streams a MessageManager.Message through its getters, so archive views serialize their own data
+     * A missing sender keeps the constructor default "System"
+     */
+    private static final class ManagerMessageAdapter extends TypeAdapter<MessageManager.Message> {
+
+        @Override
+        public void write(JsonWriter out, MessageManager.Message msg) throws IOException {
+            if (msg == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("messageHash").value(msg.getMessageHash());
+            out.name("messageID").value(msg.getMessageID());
+            out.name("recipient").value(msg.getRecipient());
+            out.name("message").value(msg.getMessage());
+            out.name("flag").value(msg.getFlag());
+            out.name("sender").value(msg.getSender());
+            out.endObject();
+        }
+
+        @Override
+        public MessageManager.Message read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String hash = null;
+            String id = null;
+            String recipient = null;
+            String message = null;
+            MessageFlag flag = null;
+            String sender = null;
+            boolean hasSender = false;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "messageHash":
+                        hash = readString(in);
+                        break;
+                    case "messageID":
+                        id = readString(in);
+                        break;
+                    case "recipient":
+                        recipient = readString(in);
+                        break;
+                    case "message":
+                        message = readString(in);
+                        break;
+                    case "flag":
+                        // Unknown labels become null, as with the reflective enum binding
+                        flag = MessageFlag.fromLabel(readString(in));
+                        break;
+                    case "sender":
+                        sender = readString(in);
+                        hasSender = true;
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            MessageManager.Message msg = new MessageManager.Message(hash, id, recipient, message, flag);
+            if (hasSender) {
+                msg.setSender(sender);
+            }
+            return msg;
+        }
+    }
+}
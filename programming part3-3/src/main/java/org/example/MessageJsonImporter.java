@@ -0,0 +1,274 @@
+package org.example;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Streaming importer for JSON arrays of MessageManager.Message records
+ * Reads the file with Gson's JsonReader and hands each record to a sink as
+ * soon as it is parsed, so memory stays flat whatever the file size
+ * (the old path bound the whole array into a List first)
+ *
+ * With workers set, parsing and indexing run on different threads joined by
+ * a bounded queue. When the queue is full the parser blocks, which keeps a
+ * slow sink from letting parsed records pile up in memory.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Streaming JSON import
+ */
+public class MessageJsonImporter {
+
+    /**
+     * Receives progress updates while an import runs
+     */
+    public interface ProgressListener {
+        /**
+         * @param records records imported so far
+         * @param bytesRead bytes of input consumed so far
+         * @param totalBytes input size, or -1 if unknown
+         */
+        void onProgress(long records, long bytesRead, long totalBytes);
+    }
+
+    // Marks the end of the stream for the worker threads
+    private static final MessageManager.Message END = new MessageManager.Message(null, null, null, null, (MessageFlag) null);
+
+    private final Consumer<MessageManager.Message> sink;
+    private ProgressListener listener;
+    private long progressInterval = 100_000;
+    private int workers;
+    private int queueCapacity = 1024;
+
+    /**
+     * @param sink receives every parsed message, e.g. MessageManager::addMessageToArrays
+     */
+    public MessageJsonImporter(Consumer<MessageManager.Message> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @param listener called every progressInterval records and once at the end
+     * @param progressInterval records between updates
+     * @return this importer
+     */
+    public MessageJsonImporter withProgress(ProgressListener listener, long progressInterval) {
+        if (progressInterval <= 0) {
+            throw new IllegalArgumentException("Progress interval must be positive");
+        }
+        this.listener = listener;
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    /**
+     * Hands records to worker threads through a bounded queue
+     * Only useful when the sink is thread-safe, e.g. a concurrent repository
+     * @param workers indexing threads, 0 to index on the parsing thread
+     * @param queueCapacity records allowed between parser and workers
+     * @return this importer
+     */
+    public MessageJsonImporter withWorkers(int workers, int queueCapacity) {
+        if (workers < 0 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Workers must be 0 or more and the queue at least 1");
+        }
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Imports every record of a JSON file
+     * @param filePath file holding a JSON array of messages
+     * @return number of records imported, 0 for an empty file or "null"
+     * @throws IOException if the file cannot be read or is not a JSON array of messages
+     */
+    public long importFile(String filePath) throws IOException {
+        File file = new File(filePath);
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            return importFrom(new InputStreamReader(in, StandardCharsets.UTF_8), in, file.length());
+        }
+    }
+
+    /**
+     * Imports every record from a reader; the reader is not closed
+     * @param reader source of a JSON array of messages
+     * @return number of records imported
+     * @throws IOException if the input is not a JSON array of messages
+     */
+    public long importFrom(Reader reader) throws IOException {
+        return importFrom(reader, null, -1);
+    }
+
+    // ==================== INTERNALS ====================
+
+    private long importFrom(Reader reader, CountingInputStream counter, long totalBytes) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.setLenient(true);
+        JsonToken first;
+        try {
+            first = json.peek();
+        } catch (EOFException e) {
+            // Empty file
+            return 0;
+        }
+        if (first == JsonToken.NULL) {
+            return 0;
+        }
+
+        Pipeline pipeline = workers > 0 ? new Pipeline() : null;
+        long records = 0;
+        try {
+            json.beginArray();
+            while (json.hasNext()) {
+                MessageManager.Message msg = MessageJson.MANAGER_MESSAGE_ADAPTER.read(json);
+                if (msg == null) {
+                    // A literal null in the array
+                    continue;
+                }
+                if (pipeline != null) {
+                    pipeline.put(msg);
+                } else {
+                    sink.accept(msg);
+                }
+                records++;
+                if (listener != null && records % progressInterval == 0) {
+                    listener.onProgress(records, counter != null ? counter.count : -1, totalBytes);
+                }
+            }
+            json.endArray();
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid message JSON after " + records + " records: " + e.getMessage(), e);
+        } finally {
+            if (pipeline != null) {
+                pipeline.finish();
+            }
+        }
+
+        if (listener != null) {
+            listener.onProgress(records, counter != null ? counter.count : -1, totalBytes);
+        }
+        return records;
+    }
+
+    /**
+     * Bounded hand-off from the parsing thread to the worker threads
+     */
+    private final class Pipeline {
+        private final BlockingQueue<MessageManager.Message> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final List<Thread> threads = new ArrayList<>();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Pipeline() {
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(this::drain, "json-import-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+
+        // Blocks while the queue is full: this is the backpressure on the parser
+        void put(MessageManager.Message msg) throws IOException {
+            rethrow();
+            try {
+                queue.put(msg);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            }
+        }
+
+        void finish() throws IOException {
+            try {
+                for (int i = 0; i < threads.size(); i++) {
+                    queue.put(END);
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            }
+            rethrow();
+        }
+
+        private void drain() {
+            try {
+                for (MessageManager.Message msg = queue.take(); msg != END; msg = queue.take()) {
+                    // After a failure keep taking records so the parser never blocks
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        sink.accept(msg);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void rethrow() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Counts bytes consumed so progress can be shown as a share of the file
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
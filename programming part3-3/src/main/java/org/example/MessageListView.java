@@ -0,0 +1,67 @@
+package org.example;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Read-only List view over a live collection owned by MessageRepository
+ * Lets MessageManager keep exposing its public List fields while the
+ * data itself lives in hash-keyed maps
+ *
+ * Iteration, size() and contains() go straight to the backing collection.
+ * get(index) walks the collection, so callers should prefer iteration.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Live views for the hash-indexed store
+ */
+class MessageListView<E> extends AbstractList<E> {
+    private final Collection<E> backing;
+
+    /**
+     * Creates a view over the given collection
+     * @param backing live collection to expose, never copied
+     */
+    MessageListView(Collection<E> backing) {
+        this.backing = backing;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= backing.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + backing.size());
+        }
+        Iterator<E> iterator = backing.iterator();
+        for (int i = 0; i < index; i++) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return backing.contains(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> delegate = backing.iterator();
+        // Wrap so remove() cannot bypass the repository
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return delegate.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,296 @@
+package org.example;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Append-only write-ahead log for the Part 2 Message lists
+ * Each send or store appends one JSON line instead of rewriting both JSON
+ * files, so the cost of a send no longer grows with the message history.
+ * The JSON files become snapshots: after a snapshot is written the log is
+ * truncated, and on startup the snapshot is loaded and the log replayed.
+ *
+ * Line format: {"list":"sent","seq":12,"message":{...}}
+ *
+ * seq is the message's position in its list (1 for the first message). A
+ * snapshot of a list with n messages covers every entry of that list with
+ * seq up to n, so a crash after a snapshot but before the truncate, or
+ * between the snapshots of two lists, never replays a message twice.
+ * Lines without seq (0) are always replayed.
+ *
+ * Sync policies:
+ * - ALWAYS: fsync after every append (safest, slowest)
+ * - GROUP:  fsync once per group of appends or time window, whichever comes
+ *           first. append() returns before the fsync, so appends made in the
+ *           last window can be lost on a crash even though they returned
+ * - NEVER:  leave flushing to the operating system
+ *
+ * A torn last line left by a crash is ignored on replay.
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Snapshot coverage sequence, GROUP durability spelled out
+ */
+public class MessageLog implements Closeable {
+
+    /**
+     * When appended lines are forced to disk
+     */
+    public enum SyncPolicy { ALWAYS, GROUP, NEVER }
+
+    /**
+     * Receives every entry found on replay
+     */
+    public interface EntryHandler {
+        /**
+         * @param list "sent" or "stored"
+         * @param msg message appended to that list
+         */
+        void onEntry(String list, Message msg);
+    }
+
+    private final FileChannel channel;
+    private final SyncPolicy policy;
+    private final int groupSize;
+    private final ScheduledExecutorService syncTimer;
+
+    // Appends written but not yet forced to disk
+    private int unsynced;
+    // Appends since the log was last truncated
+    private long entries;
+
+    /**
+     * Opens or creates a log, appending after any existing entries
+     * @param path log file
+     * @param policy when appends are forced to disk
+     * @param groupSize appends per fsync with GROUP
+     * @param groupWindowMillis longest time an appended line stays unsynced with GROUP
+     * @throws IOException if the file cannot be opened
+     */
+    public MessageLog(String path, SyncPolicy policy, int groupSize, long groupWindowMillis) throws IOException {
+        if (groupSize < 1 || groupWindowMillis < 1) {
+            throw new IllegalArgumentException("Group size and window must be positive");
+        }
+        this.channel = FileChannel.open(new File(path).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.policy = policy;
+        this.groupSize = groupSize;
+
+        if (policy == SyncPolicy.GROUP) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "message-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncTimer.scheduleWithFixedDelay(this::syncQuietly, groupWindowMillis, groupWindowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncTimer = null;
+        }
+    }
+
+    /**
+     * Appends one entry without a sequence, so replay never skips it
+     * @param list "sent" or "stored"
+     * @param msg message added to that list
+     * @throws IOException if the write or fsync fails
+     */
+    public synchronized void append(String list, Message msg) throws IOException {
+        append(list, 0, msg);
+    }
+
+    /**
+     * Appends one entry; a single write of one short line
+     * With GROUP the line may not be on disk yet when this returns
+     * @param list "sent" or "stored"
+     * @param sequence position of the message in its list, counting from 1
+     * @param msg message added to that list
+     * @throws IOException if the write or fsync fails
+     */
+    public synchronized void append(String list, long sequence, Message msg) throws IOException {
+        appendLine(encode(list, sequence, msg));
+    }
+
+    /**
+     * Appends one pre-encoded line under this log's sync policy
+     * Lets other logs (see MessageJournal) share the file handling and batched fsync
+     * @param text line without its newline
+     * @throws IOException if the write or fsync fails
+     */
+    synchronized void appendLine(String text) throws IOException {
+        byte[] line = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        entries++;
+        unsynced++;
+
+        if (policy == SyncPolicy.ALWAYS || (policy == SyncPolicy.GROUP && unsynced >= groupSize)) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces every appended line to disk
+     * @throws IOException if the fsync fails
+     */
+    public synchronized void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Empties the log once its entries are covered by a snapshot
+     * @throws IOException if the file cannot be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        unsynced = 0;
+        entries = 0;
+    }
+
+    /**
+     * @return entries appended since the log was opened or last truncated
+     */
+    public synchronized long entryCount() {
+        return entries;
+    }
+
+    /**
+     * Syncs and closes the log
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncTimer != null) {
+            syncTimer.shutdownNow();
+        }
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * Replays every complete entry of a log file in append order
+     * @param path log file; a missing file replays nothing
+     * @param handler receives each entry
+     * @return number of entries replayed
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(String path, EntryHandler handler) throws IOException {
+        return replay(path, list -> 0, handler);
+    }
+
+    /**
+     * Replays the entries of a log file that a snapshot does not already cover
+     * @param path log file; a missing file replays nothing
+     * @param covered number of messages the snapshot holds for a list
+     * @param handler receives each entry with a sequence above that number
+     * @return number of entries replayed
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(String path, ToLongFunction<String> covered, EntryHandler handler) throws IOException {
+        File file = new File(path);
+        if (!file.exists()) {
+            return 0;
+        }
+        long count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] list = new String[1];
+                long[] sequence = new long[1];
+                Message msg;
+                try {
+                    msg = decode(line, list, sequence);
+                } catch (IOException | IllegalStateException | NumberFormatException e) {
+                    // Torn write from a crash: nothing after it was acknowledged
+                    break;
+                }
+                if (msg != null && (sequence[0] <= 0 || sequence[0] > covered.applyAsLong(list[0]))) {
+                    handler.onEntry(list[0], msg);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // ==================== LINE FORMAT ====================
+
+    private static String encode(String list, long sequence, Message msg) throws IOException {
+        StringWriter line = new StringWriter(128);
+        JsonWriter out = new JsonWriter(line);
+        out.beginObject();
+        out.name("list").value(list);
+        if (sequence > 0) {
+            out.name("seq").value(sequence);
+        }
+        out.name("message");
+        MessageJson.MESSAGE_ADAPTER.write(out, msg);
+        out.endObject();
+        out.flush();
+        return line.toString();
+    }
+
+    /**
+     * @param list receives the list name in element 0
+     * @param sequence receives the sequence in element 0, 0 if the line has none
+     * @return the logged message, or null for a line without one
+     */
+    private static Message decode(String line, String[] list, long[] sequence) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(line));
+        Message msg = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "list":
+                    list[0] = MessageJson.readString(in);
+                    break;
+                case "seq":
+                    sequence[0] = in.nextLong();
+                    break;
+                case "message":
+                    msg = MessageJson.MESSAGE_ADAPTER.read(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (in.peek() != JsonToken.END_DOCUMENT) {
+            throw new IOException("Trailing data in log line");
+        }
+        return msg;
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Error syncing message log: " + e.getMessage());
+        }
+    }
+}
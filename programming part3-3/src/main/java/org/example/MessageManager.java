@@ -1,13 +1,18 @@
 package org.example;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.io.FileReader;
+import java.io.File;
 import java.io.FileWriter;
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
 import java.util.Scanner;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 /**
  * MESSAGE MANAGEMENT SYSTEM - PART 3
  * Student: Heloisa da Costa Campos
@@ -31,13 +36,20 @@ public class MessageManager {
         private String messageID;      // For message searching
         private String recipient;      // Recipient phone number
         private String message;        // Message content
-        private String flag;           // Status: "Sent", "Stored", "Disregarded"
+        private volatile MessageFlag flag; // Status: Sent, Stored, Disregarded (null if unknown)
         private String sender = "System"; // Default sender as per requirements
 
         /**
          * Constructor to initialize message with all required fields
          */
         public Message(String hash, String id, String recip, String msg, String flg) {
+            this(hash, id, recip, msg, MessageFlag.fromLabel(flg));
+        }
+
+        /**
+         * Constructor taking the flag as an enum value
+         */
+        public Message(String hash, String id, String recip, String msg, MessageFlag flg) {
             this.messageHash = hash;
             this.messageID = id;
             this.recipient = recip;
@@ -50,48 +62,118 @@ public class MessageManager {
         public String getMessageID() { return messageID; }
         public String getRecipient() { return recipient; }
         public String getMessage() { return message; }
-        public String getFlag() { return flag; }
+        public String getFlag() { return flag != null ? flag.getLabel() : null; }
+        public MessageFlag getFlagValue() { return flag; }
         public String getSender() { return sender; }
 
+        // Package-private: flag changes must go through MessageRepository to keep partitions consistent
+        void setFlagValue(MessageFlag flag) { this.flag = flag; }
+
+        // Package-private: used when decoding binary message files
+        void setSender(String sender) { this.sender = sender; }
+
         @Override
         public String toString() {
+            // Uses the getters so archive flyweight views print their own data
             return String.format("Message[Hash: %s, ID: %s, To: %s, Content: %s]",
-                    messageHash, messageID, recipient, message);
+                    getMessageHash(), getMessageID(), getRecipient(), getMessage());
         }
     }
 
     // ==================== ARRAY DECLARATIONS ====================
     // All arrays as specified in Part 3 requirements
+    // Each array is a live, read-only view over the hash-indexed repository
+
+    /**
+     * Primary store holding every message keyed by hash and ID
+     * Replaced by a concurrent repository when enableConcurrentMode() is called,
+     * and by a single-threaded one again on disableConcurrentMode()
+     */
+    private static volatile MessageRepository repository = new MessageRepository();
 
     /**
      * Array: Contains ALL messages in the system for comprehensive management
      */
-    public static List<Message> allMessages = new ArrayList<>();
+    public static List<Message> allMessages = new MessageListView<>(repository.messages());
 
     /**
      * Array: Contains only messages with "Sent" flag
      */
-    public static List<Message> sentMessages = new ArrayList<>();
+    public static List<Message> sentMessages = new MessageListView<>(repository.flagged(MessageFlag.SENT));
 
     /**
      * Array: Contains only messages with "Disregarded" flag
      */
-    public static List<Message> disregardedMessages = new ArrayList<>();
+    public static List<Message> disregardedMessages = new MessageListView<>(repository.flagged(MessageFlag.DISREGARDED));
 
     /**
      * Array: Contains only messages with "Stored" flag (loaded from JSON)
      */
-    public static List<Message> storedMessages = new ArrayList<>();
+    public static List<Message> storedMessages = new MessageListView<>(repository.flagged(MessageFlag.STORED));
 
     /**
      * Array: Contains all message hashes for quick lookup and deletion
      */
-    public static List<String> messageHashes = new ArrayList<>();
+    public static List<String> messageHashes = new MessageListView<>(repository.hashes());
 
     /**
      * Array: Contains all message IDs for searching functionality
      */
-    public static List<String> messageIDs = new ArrayList<>();
+    public static List<String> messageIDs = new MessageListView<>(repository.ids());
+
+    /**
+     * Optional compact tier (e.g. ColumnarMessageStore) holding archived messages
+     * Searches and reports read through to it; null when nothing is archived
+     */
+    private static volatile MessageArchive archive;
+
+    /**
+     * Optional storage backend chosen by configuration (see MessageStores);
+     * when attached, deletes and flag changes are written through to it
+     */
+    private static volatile MessageStore store;
+
+    /**
+     * Background reader tailing a JSON Lines file; null when not following
+     */
+    private static volatile MessageNdjson.Follower follower;
+
+    /**
+     * Watcher applying outside edits of a message file; null when not watching
+     */
+    private static volatile MessageFileWatcher watcher;
+
+    /**
+     * Redo journal of every change to the arrays; null when recovery is not enabled
+     * See openJournal(): changes are journaled first, then applied
+     */
+    private static volatile MessageJournal journal;
+
+    // Checkpoint paired with the open journal
+    private static volatile String checkpointPath;
+
+    // Journal entries between automatic checkpoints
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static volatile long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    // LSN covered by the last checkpoint written or loaded
+    private static volatile long checkpointLsn;
+
+    // Whether the last openJournal() loaded the index file instead of rebuilding
+    private static volatile boolean restoredSavedIndexes;
+
+    // Smallest duplicate filter, and the share of new hashes it may wrongly report as known
+    private static final long MIN_FILTER_KEYS = 1 << 16;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Bloom filter over every message hash in the arrays and the archive
+     * Loads skip the exact duplicate check for records it reports as new
+     */
+    private static volatile BloomFilter knownHashes = new BloomFilter(MIN_FILTER_KEYS, FILTER_FALSE_POSITIVE_RATE);
+
+    // Records between progress lines when importing JSON
+    private static final long IMPORT_PROGRESS_INTERVAL = 100_000;
 
     // Scanner for user input
     private static final Scanner scanner = new Scanner(System.in);
@@ -141,26 +223,180 @@ public class MessageManager {
 
     /**
      * Helper method to add a message to all relevant arrays based on its flag
-     * Ensures data consistency across all parallel arrays
-     */
-    private static void addMessageToArrays(Message msg) {
-        // Add to main collections
-        allMessages.add(msg);
-        messageHashes.add(msg.getMessageHash());
-        messageIDs.add(msg.getMessageID());
-
-        // Add to flag-specific arrays based on message status
-        switch(msg.getFlag().toLowerCase()) {
-            case "sent":
-                sentMessages.add(msg);
-                break;
-            case "stored":
-                storedMessages.add(msg);
-                break;
-            case "disregarded":
-                disregardedMessages.add(msg);
-                break;
+     * The repository updates every array view in one step, so they stay consistent
+     * A message with an existing hash replaces the previous one
+     * Safe to call from several ingest threads once concurrent mode is enabled
+     */
+    public static void addMessageToArrays(Message msg) {
+        addToArrays(msg);
+    }
+
+    /**
+     * @return false if the journal could not record the add, which is then not applied
+     */
+    private static boolean addToArrays(Message msg) {
+        BloomFilter filter = knownHashes;
+        filter.add(hashKey(msg.getMessageHash()));
+        boolean added = journaled(current -> current.add(msg), () -> {
+            repository.add(msg);
+            return true;
+        }, false);
+        if (filter.isSaturated()) {
+            growHashFilter(filter);
+        }
+        return added;
+    }
+
+    /**
+     * Adds a loaded message unless the same message is already in the arrays or the archive
+     * Loading a file twice therefore changes nothing the second time. A known hash
+     * whose details differ still replaces the old message, as a newer copy would;
+     * an archived one leaves the archive for the arrays. The one exception is a
+     * read-only (mapped) archive, which cannot give up its copy, so that copy stays.
+     * @param msg Message read from a file
+     * @return true if the message was added or updated, false if it was a duplicate,
+     *         held by a read-only archive or could not be journaled
+     */
+    public static boolean importMessage(Message msg) {
+        String hash = msg.getMessageHash();
+        // Most records in a fresh file are certainly new and skip the exact check
+        if (knownHashes.mightContain(hashKey(hash))) {
+            Message existing = repository.findByHash(hash);
+            if (existing != null) {
+                if (sameMessage(existing, msg)) {
+                    return false;
+                }
+            } else if (!releaseFromArchive(msg)) {
+                return false;
+            }
+        }
+        return addToArrays(msg);
+    }
+
+    /**
+     * Drops the archived copy of a message about to be loaded with different details
+     * @return false if the archive keeps its copy: the same message, a read-only archive
+     *         or a removal the journal refused
+     */
+    private static boolean releaseFromArchive(Message msg) {
+        String hash = msg.getMessageHash();
+        MessageArchive current = archive;
+        Message archived = current != null ? current.findByHash(hash) : null;
+        if (archived == null) {
+            return true;
         }
+        if (sameMessage(archived, msg) || current.isReadOnly()) {
+            return false;
+        }
+        return journaled(redo -> redo.remove(hash), () -> current.remove(hash), false);
+    }
+
+    /**
+     * Sink for loaders that adds through importMessage and counts the duplicates it skips
+     */
+    private static Consumer<Message> importSink(LongAdder duplicates) {
+        return msg -> {
+            if (!importMessage(msg)) {
+                duplicates.increment();
+            }
+        };
+    }
+
+    private static boolean sameMessage(Message a, Message b) {
+        return Objects.equals(a.getMessageID(), b.getMessageID())
+                && Objects.equals(a.getRecipient(), b.getRecipient())
+                && Objects.equals(a.getMessage(), b.getMessage())
+                && a.getFlagValue() == b.getFlagValue()
+                && Objects.equals(a.getSender(), b.getSender());
+    }
+
+    /**
+     * Refills the duplicate filter from the arrays and the archive, sized for twice their contents
+     * Needed after clears, removals into a new repository and once the filter fills up.
+     * A message added while the filter is rebuilt may be missed; loading it again
+     * then just replaces it instead of being skipped.
+     */
+    private static synchronized void rebuildHashFilter() {
+        MessageArchive current = archive;
+        long keys = repository.size() + (current != null ? current.count(null) : 0);
+        BloomFilter filter = new BloomFilter(Math.max(MIN_FILTER_KEYS, keys * 2), FILTER_FALSE_POSITIVE_RATE);
+        for (Message msg : repository.messages()) {
+            filter.add(hashKey(msg.getMessageHash()));
+        }
+        if (current != null) {
+            current.forEach(null, row -> filter.add(hashKey(row.getMessageHash())));
+        }
+        knownHashes = filter;
+    }
+
+    /**
+     * Rebuilds a full filter once, however many adders noticed it filled up
+     */
+    private static synchronized void growHashFilter(BloomFilter full) {
+        if (knownHashes == full) {
+            rebuildHashFilter();
+        }
+    }
+
+    private static String hashKey(String hash) {
+        return hash != null ? hash : "";
+    }
+
+    /**
+     * Removes a message from every array view, journaling the removal
+     * @return the removed message, or null if the hash was unknown
+     */
+    private static Message removeFromArrays(String hash) {
+        return journaled(current -> current.remove(hash), () -> repository.remove(hash), null);
+    }
+
+    /**
+     * Switches to a thread-safe repository so several ingest threads can add
+     * and delete messages while reports run; existing messages are carried over
+     * Call before starting the worker threads
+     */
+    public static synchronized void enableConcurrentMode() {
+        switchRepository(true);
+    }
+
+    /**
+     * Switches back to the single-threaded repository; existing messages are carried over
+     * Call after the worker threads have finished
+     */
+    public static synchronized void disableConcurrentMode() {
+        switchRepository(false);
+    }
+
+    /**
+     * @return true if the arrays are backed by the thread-safe repository
+     */
+    public static boolean isConcurrentMode() {
+        return repository.isConcurrent();
+    }
+
+    private static void switchRepository(boolean concurrent) {
+        if (repository.isConcurrent() == concurrent) {
+            return;
+        }
+        MessageRepository switched = new MessageRepository(concurrent);
+        for (Message msg : repository.messages()) {
+            switched.add(msg);
+        }
+        bindArrays(switched);
+    }
+
+    /**
+     * Points every public array view at the given repository
+     */
+    private static void bindArrays(MessageRepository target) {
+        allMessages = new MessageListView<>(target.messages());
+        sentMessages = new MessageListView<>(target.flagged(MessageFlag.SENT));
+        disregardedMessages = new MessageListView<>(target.flagged(MessageFlag.DISREGARDED));
+        storedMessages = new MessageListView<>(target.flagged(MessageFlag.STORED));
+        messageHashes = new MessageListView<>(target.hashes());
+        messageIDs = new MessageListView<>(target.ids());
+        repository = target;
+        rebuildHashFilter();
     }
 
     /**
@@ -168,12 +404,11 @@ public class MessageManager {
      * Useful for testing and reinitialization
      */
     private static void clearAllArrays() {
-        allMessages.clear();
-        sentMessages.clear();
-        disregardedMessages.clear();
-        storedMessages.clear();
-        messageHashes.clear();
-        messageIDs.clear();
+        journaled(MessageJournal::clear, () -> {
+            repository.clear();
+            return null;
+        }, null);
+        rebuildHashFilter();
     }
 
     /**
@@ -188,6 +423,512 @@ public class MessageManager {
         System.out.println("   • Disregarded Messages: " + disregardedMessages.size());
         System.out.println("   • Message Hashes: " + messageHashes.size());
         System.out.println("   • Message IDs: " + messageIDs.size());
+
+        MessageArchive current = archive;
+        if (current != null) {
+            System.out.println("   • Archived Messages (" + current.getName() + "): " + current.count(null)
+                    + " (~" + current.estimatedHeapBytes() / 1024 + " KB heap)");
+        }
+    }
+
+    // ==================== ARCHIVE TIER ====================
+
+    /**
+     * Moves every message with a flag out of the arrays into a compact archive
+     * The archive is attached, so searches and reports keep finding the messages
+     * @param flag Status of the messages to archive, e.g. STORED
+     * @param target Archive to move them into; any other attached archive is
+     *               copied into it first, then replaced by it
+     * @return number of messages archived
+     */
+    public static int archiveMessages(MessageFlag flag, MessageArchive target) {
+        MessageArchive current = archive;
+        if (current != null && current != target) {
+            // Carry the earlier archive over, or its messages would be dropped with it
+            current.forEach(null, target::add);
+        }
+
+        // Copy first: removing while iterating the live partition is not allowed
+        List<Message> toArchive = new ArrayList<>(repository.flagged(flag));
+        moveToArchive(() -> {
+            archive = target;
+            for (Message msg : toArchive) {
+                target.add(msg);
+                repository.remove(msg.getMessageHash());
+            }
+        });
+        rebuildHashFilter();
+
+        System.out.println("🗄️  Archived " + toArchive.size() + " " + flag.getLabel().toLowerCase()
+                + " message(s) into the " + target.getName() + " archive");
+        return toArchive.size();
+    }
+
+    /**
+     * Moves every message with a flag out of the arrays into a memory-mapped archive file
+     * The file is written once and then queried in place. It also holds every message
+     * of the attached archive, which it then replaces
+     * @param flag Status of the messages to archive, e.g. SENT
+     * @param filePath Archive file to create or overwrite
+     * @return number of messages archived, or -1 if the file could not be written
+     */
+    public static int archiveMessagesToFile(MessageFlag flag, String filePath) {
+        List<Message> toArchive = new ArrayList<>(repository.flagged(flag));
+        List<Message> contents = archivedCopies();
+        contents.addAll(toArchive);
+        MappedMessageArchive mapped;
+        try {
+            MappedMessageArchive.write(filePath, contents);
+            mapped = MappedMessageArchive.open(filePath);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("❌ Error writing archive file: " + e.getMessage());
+            return -1;
+        }
+        moveToArchive(() -> {
+            archive = mapped;
+            for (Message msg : toArchive) {
+                repository.remove(msg.getMessageHash());
+            }
+        });
+        rebuildHashFilter();
+
+        System.out.println("🗄️  Archived " + toArchive.size() + " " + flag.getLabel().toLowerCase()
+                + " message(s) into " + filePath);
+        return toArchive.size();
+    }
+
+    /**
+     * Maps an archive file built by archiveMessagesToFile and attaches it
+     * Only the header is read; records are faulted in as queries touch them.
+     * Refused while an in-memory archive holds messages, which replacing it would lose;
+     * archiveMessagesToFile writes those into a file first
+     * @param filePath Archive file to open
+     * @return true if the archive was attached
+     */
+    public static boolean openArchive(String filePath) {
+        MessageArchive current = archive;
+        if (current != null && !(current instanceof MappedMessageArchive) && current.count(null) > 0) {
+            System.out.println("❌ The " + current.getName() + " archive holds " + current.count(null)
+                    + " message(s) only in memory; archive them to a file before opening another");
+            return false;
+        }
+        try {
+            MappedMessageArchive mapped = MappedMessageArchive.open(filePath);
+            attachArchive(mapped);
+            System.out.println("✅ Opened " + mapped.getName() + " archive with " + mapped.count(null) + " message(s)");
+            return true;
+        } catch (IOException e) {
+            System.out.println("❌ Error opening archive file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Moves messages between the arrays and the archive where no checkpoint sees half the move
+     * Moves are not journaled: checkpoints hold the archived messages too, so a
+     * recovery puts them back in the arrays instead of replaying them as removals
+     */
+    private static void moveToArchive(Runnable move) {
+        MessageJournal current = journal;
+        if (current == null) {
+            move.run();
+            return;
+        }
+        synchronized (current) {
+            move.run();
+        }
+    }
+
+    /**
+     * Attaches an archive so searches and reports read through to it
+     * @param target Archive to attach, or null to detach the current one
+     */
+    public static void attachArchive(MessageArchive target) {
+        archive = target;
+        rebuildHashFilter();
+    }
+
+    /**
+     * @return The attached archive, or null
+     */
+    public static MessageArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Copies every message out of the attached archive
+     * @return the copies in archive order, empty without an archive
+     */
+    private static List<Message> archivedCopies() {
+        List<Message> copies = new ArrayList<>();
+        MessageArchive current = archive;
+        if (current != null) {
+            // forEach reuses its view, so keep a copy
+            current.forEach(null, row -> copies.add(copyOf(row)));
+        }
+        return copies;
+    }
+
+    /**
+     * @return A standalone copy of a message, e.g. of an archive row view
+     */
+    private static Message copyOf(Message row) {
+        Message copy = new Message(row.getMessageHash(), row.getMessageID(),
+                row.getRecipient(), row.getMessage(), row.getFlagValue());
+        copy.setSender(row.getSender());
+        return copy;
+    }
+
+    /**
+     * @return Number of archived messages with a flag, 0 without an archive
+     */
+    private static int archivedCount(MessageFlag flag) {
+        MessageArchive current = archive;
+        return current != null ? current.count(flag) : 0;
+    }
+
+    // ==================== CHECKPOINT AND JOURNAL ====================
+
+    /**
+     * Rebuilds the arrays from a checkpoint plus the journal entries written after it,
+     * then journals every later change so the next start can do the same
+     * Only the journal tail is replayed, so recovery time depends on the checkpoint
+     * interval rather than on the size of the message history
+     * With neither file on disk the current arrays are kept and checkpointed instead
+     * @param checkpointFile Checkpoint to load and rewrite; may not exist yet
+     * @param journalFile Journal to replay and append to; created if missing
+     * @param policy When journal entries are forced to disk
+     * @return number of messages recovered, or -1 if the files could not be read
+     */
+    public static synchronized long openJournal(String checkpointFile, String journalFile, MessageLog.SyncPolicy policy) {
+        closeJournal();
+        long begin = System.nanoTime();
+        boolean fresh = !new File(checkpointFile).exists() && new File(journalFile).length() == 0;
+        boolean concurrent = repository.isConcurrent();
+        MessageRepository recovered;
+        MessageJournal opened;
+        long coveredLsn = 0;
+        restoredSavedIndexes = false;
+        try {
+            if (fresh) {
+                recovered = repository;
+            } else if (new File(checkpointFile).exists()) {
+                List<Message> saved = new ArrayList<>(MessageCheckpoint.readHeader(checkpointFile).getCount());
+                coveredLsn = MessageCheckpoint.read(checkpointFile, saved::add).getLsn();
+                recovered = indexCheckpoint(checkpointFile, coveredLsn, saved, concurrent);
+            } else {
+                recovered = new MessageRepository(concurrent);
+            }
+            MessageRepository target = recovered;
+            opened = MessageJournal.recover(journalFile, coveredLsn, policy, entry -> entry.applyTo(target));
+        } catch (IOException e) {
+            System.out.println("❌ Error recovering messages: " + e.getMessage());
+            return -1;
+        }
+
+        if (!fresh) {
+            leaveOutArchived(recovered);
+        }
+        bindArrays(recovered);
+        checkpointPath = checkpointFile;
+        checkpointLsn = coveredLsn;
+        journal = opened;
+        if (fresh) {
+            checkpoint();
+        }
+        System.out.printf("✅ Recovered %d messages (checkpoint LSN %d, %d journal entries replayed, indexes %s) in %.1f ms%n",
+                recovered.size(), coveredLsn, opened.replayedEntries(), restoredSavedIndexes ? "loaded" : "rebuilt",
+                (System.nanoTime() - begin) / 1_000_000.0);
+        return recovered.size();
+    }
+
+    /**
+     * Drops recovered messages that the attached archive still holds
+     * Checkpoints carry archived messages for a restart without the archive; while
+     * it stays attached they belong to it, and keeping both would count them twice
+     */
+    private static void leaveOutArchived(MessageRepository recovered) {
+        MessageArchive current = archive;
+        if (current != null) {
+            current.forEach(null, row -> recovered.remove(row.getMessageHash()));
+        }
+    }
+
+    /**
+     * Indexes checkpoint messages, from the index file saved with the checkpoint when it matches
+     * Falls back to indexing every message again when the file is missing, stale or corrupt
+     */
+    private static MessageRepository indexCheckpoint(String checkpointFile, long lsn, List<Message> saved,
+                                                     boolean concurrent) {
+        String indexFile = MessageIndexFile.pathFor(checkpointFile);
+        if (new File(indexFile).exists()) {
+            try {
+                MessageRepository restored = MessageIndexFile.load(indexFile, lsn, saved, concurrent);
+                restoredSavedIndexes = true;
+                return restored;
+            } catch (IOException e) {
+                System.out.println("⚠️  Saved indexes not used, rebuilding: " + e.getMessage());
+            }
+        }
+        MessageRepository rebuilt = new MessageRepository(concurrent);
+        saved.forEach(rebuilt::add);
+        return rebuilt;
+    }
+
+    /**
+     * @return true if the last openJournal() loaded the saved indexes instead of rebuilding them
+     */
+    public static boolean restoredSavedIndexes() {
+        return restoredSavedIndexes;
+    }
+
+    /**
+     * Writes a checkpoint of the arrays and the archive, then empties the journal it covers
+     * Changes wait while the checkpoint is written, so it matches its LSN exactly.
+     * Archived messages come back into the arrays on recovery
+     * @return true if the checkpoint was written
+     */
+    public static boolean checkpoint() {
+        MessageJournal current = journal;
+        if (current == null) {
+            System.out.println("❌ No journal open");
+            return false;
+        }
+        synchronized (current) {
+            long lsn = current.lastLsn();
+            List<Message> messages = new ArrayList<>(repository.messages());
+            List<Message> archived = archivedCopies();
+            messages.addAll(archived);
+            try {
+                MessageCheckpoint.write(checkpointPath, lsn, messages);
+                if (archived.isEmpty()) {
+                    saveIndexes(lsn);
+                } else {
+                    // Saved indexes cover the arrays only, so they would not match this checkpoint
+                    new File(MessageIndexFile.pathFor(checkpointPath)).delete();
+                }
+                current.truncate();
+            } catch (IOException e) {
+                System.out.println("❌ Error writing checkpoint: " + e.getMessage());
+                return false;
+            }
+            checkpointLsn = lsn;
+        }
+        return true;
+    }
+
+    /**
+     * Saves the indexes next to the checkpoint just written, so the next start can skip rebuilding them
+     * A failure only costs that rebuild, so it is reported and the checkpoint still counts
+     */
+    private static void saveIndexes(long lsn) {
+        try {
+            MessageIndexFile.write(MessageIndexFile.pathFor(checkpointPath), lsn, repository);
+        } catch (IOException e) {
+            System.out.println("⚠️  Indexes not saved, the next start rebuilds them: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a final checkpoint and stops journaling changes
+     * The next openJournal() then has no journal entries to replay
+     */
+    public static void closeJournal() {
+        closeJournal(true);
+    }
+
+    /**
+     * Stops journaling changes
+     * @param writeCheckpoint false to leave the journal tail for the next openJournal() to replay
+     */
+    public static synchronized void closeJournal(boolean writeCheckpoint) {
+        MessageJournal current = journal;
+        if (current == null) {
+            return;
+        }
+        if (writeCheckpoint) {
+            checkpoint();
+        }
+        journal = null;
+        try {
+            current.close();
+        } catch (IOException e) {
+            System.out.println("⚠️  Journal not closed cleanly: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The open journal, or null
+     */
+    public static MessageJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets how many journal entries build up before a checkpoint is written
+     * @param entries Entries between checkpoints; bounds what recovery replays
+     */
+    public static void setCheckpointInterval(long entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        checkpointInterval = entries;
+    }
+
+    /**
+     * Journals a change before applying it, then checkpoints once enough entries built up
+     * Journaled changes are applied one at a time so replay sees them in LSN order.
+     * A change the journal could not record is not applied, or recovery would lose it
+     * @param unapplied result to return when the change was not applied
+     */
+    private static <T> T journaled(JournalWrite write, Supplier<T> change, T unapplied) {
+        MessageJournal current = journal;
+        if (current == null) {
+            return change.get();
+        }
+        T result;
+        boolean due;
+        synchronized (current) {
+            try {
+                write.apply(current);
+            } catch (IOException e) {
+                System.out.println("❌ Change not applied, the journal could not record it: " + e.getMessage());
+                return unapplied;
+            }
+            result = change.get();
+            due = current.lastLsn() - checkpointLsn >= checkpointInterval;
+        }
+        if (due) {
+            checkpoint();
+        }
+        return result;
+    }
+
+    private interface JournalWrite {
+        void apply(MessageJournal journal) throws IOException;
+    }
+
+    // ==================== STORAGE BACKEND ====================
+
+    /**
+     * Opens the storage backend described by the settings and attaches it
+     * The previously attached backend, if any, is closed first
+     * @param config Settings read by MessageStores.open, e.g. type=log, path=data
+     * @return the attached store, or null if it could not be opened
+     */
+    public static synchronized MessageStore openStore(Properties config) {
+        try {
+            MessageStore opened = MessageStores.open(config);
+            useStore(opened);
+            System.out.println("✅ Opened " + opened.getName() + " store with " + opened.size() + " message(s)");
+            return opened;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("❌ Error opening message store: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Attaches a storage backend, closing the one attached before
+     * @param next Store to attach, or null to detach and close the current one
+     */
+    public static synchronized void useStore(MessageStore next) {
+        MessageStore previous = store;
+        store = next;
+        if (previous != null && previous != next) {
+            try {
+                previous.close();
+            } catch (IOException e) {
+                System.out.println("⚠️  Previous message store not closed cleanly: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The attached storage backend, or null
+     */
+    public static MessageStore getStore() {
+        return store;
+    }
+
+    /**
+     * Writes every message in the arrays and the archive to the attached backend and flushes it
+     * @return number of messages written, or -1 on failure
+     */
+    public static int saveMessagesToStore() {
+        MessageStore current = store;
+        if (current == null) {
+            System.out.println("❌ No message store attached");
+            return -1;
+        }
+        try {
+            List<Message> messages = new ArrayList<>(allMessages);
+            messages.addAll(archivedCopies());
+            current.putAll(messages);
+            current.flush();
+            System.out.println("✅ Saved " + messages.size() + " message(s) to the " + current.getName() + " store");
+            return messages.size();
+        } catch (IOException e) {
+            System.out.println("❌ Error saving to the message store: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Loads every message of the attached backend into the arrays
+     * Messages already in the arrays or the archive are skipped
+     * @return number of messages added or updated, or -1 on failure
+     */
+    public static long loadMessagesFromStore() {
+        MessageStore current = store;
+        if (current == null) {
+            System.out.println("❌ No message store attached");
+            return -1;
+        }
+        LongAdder duplicates = new LongAdder();
+        try {
+            long loaded = current.loadAll(importSink(duplicates));
+            long added = loaded - duplicates.sum();
+            System.out.println("✅ Loaded " + added + " message(s) from the " + current.getName() + " store"
+                    + skippedNote(duplicates.sum()));
+            return added;
+        } catch (IOException e) {
+            System.out.println("❌ Error loading the message store: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Writes one mutation through to the attached backend, if any
+     */
+    private static void writeThroughToStore(StoreMutation mutation) {
+        MessageStore current = store;
+        if (current == null) {
+            return;
+        }
+        try {
+            mutation.apply(current);
+        } catch (IOException e) {
+            System.out.println("⚠️  Message store not updated: " + e.getMessage());
+        }
+    }
+
+    private interface StoreMutation {
+        void apply(MessageStore store) throws IOException;
+    }
+
+    /**
+     * Visits the sent messages in the arrays first, then any archived ones
+     * Archived rows arrive as reused flyweight views
+     */
+    private static void forEachSentMessage(Consumer<Message> action) {
+        for (Message msg : sentMessages) {
+            action.accept(msg);
+        }
+        MessageArchive current = archive;
+        if (current != null) {
+            current.forEach(MessageFlag.SENT, action);
+        }
     }
 
     // ==================== REQUIRED FUNCTIONALITIES ====================
@@ -197,23 +938,29 @@ public class MessageManager {
      * Shows only sent messages with their sender and recipient information
      */
     public static void displayAllSentMessages() {
-        System.out.println("\n" + "=".repeat(60));
-        System.out.println("FUNCTIONALITY 2a: SENDER & RECIPIENT OF ALL SENT MESSAGES");
-        System.out.println("=".repeat(60));
-        System.out.printf("%-12s %-20s %-30s\n", "Sender", "Recipient", "Message Preview");
-        System.out.println("-".repeat(60));
+        try (ReportWriter out = ReportWriter.toConsole()) {
+            writeSentMessagesReport(out);
+        }
+    }
 
-        if (sentMessages.isEmpty()) {
-            System.out.println("No sent messages found.");
+    /**
+     * Writes the FUNCTIONALITY 2a table to any report sink
+     * @param out Destination, e.g. ReportWriter.toFile(...) or a StringWriter in tests
+     */
+    public static void writeSentMessagesReport(ReportWriter out) {
+        out.line("").rule('=', 60);
+        out.line("FUNCTIONALITY 2a: SENDER & RECIPIENT OF ALL SENT MESSAGES");
+        out.rule('=', 60);
+        out.cell("Sender", 12).cell("Recipient", 20).lastCell("Message Preview", 30);
+        out.rule('-', 60);
+
+        if (sentMessages.isEmpty() && archivedCount(MessageFlag.SENT) == 0) {
+            out.line("No sent messages found.");
             return;
         }
 
-        for (Message msg : sentMessages) {
-            String preview = msg.getMessage().length() > 25 ?
-                    msg.getMessage().substring(0, 25) + "..." : msg.getMessage();
-            System.out.printf("%-12s %-20s %-30s\n",
-                    msg.getSender(), msg.getRecipient(), preview);
-        }
+        forEachSentMessage(msg -> out.cell(msg.getSender(), 12).cell(msg.getRecipient(), 20)
+                .lastPreviewCell(msg.getMessage(), 25, 30));
     }
 
     /**
@@ -225,20 +972,19 @@ public class MessageManager {
         System.out.println("FUNCTIONALITY 2b: LONGEST SENT MESSAGE");
         System.out.println("=".repeat(60));
 
-        if (sentMessages.isEmpty()) {
+        if (sentMessages.isEmpty() && archivedCount(MessageFlag.SENT) == 0) {
             System.out.println("No sent messages available.");
             return;
         }
 
-        Message longestMessage = null;
-        int maxLength = 0;
+        // Read straight from the sorted length index instead of walking every sent message
+        Message longestMessage = repository.longest(MessageFlag.SENT);
 
-        // Find the longest message by comparing lengths
-        for (Message msg : sentMessages) {
-            if (msg.getMessage().length() > maxLength) {
-                maxLength = msg.getMessage().length();
-                longestMessage = msg;
-            }
+        MessageArchive current = archive;
+        Message longestArchived = current != null ? current.longest(MessageFlag.SENT) : null;
+        if (longestArchived != null && (longestMessage == null
+                || longestArchived.getMessage().length() > longestMessage.getMessage().length())) {
+            longestMessage = longestArchived;
         }
 
         if (longestMessage != null) {
@@ -251,6 +997,27 @@ public class MessageManager {
         }
     }
 
+    /**
+     * Finds the longest messages with a given flag using the length index
+     * @param flag Status to restrict to, or null for all messages
+     * @param k Maximum number of messages to return
+     * @return Up to k messages, longest first
+     */
+    public static List<Message> findLongestMessages(MessageFlag flag, int k) {
+        return repository.topLongest(flag, k);
+    }
+
+    /**
+     * Finds messages whose length falls in a range, e.g. everything over 160 chars
+     * @param flag Status to restrict to, or null for all messages
+     * @param minLength Shortest length to include
+     * @param maxLength Longest length to include
+     * @return Matching messages, shortest first
+     */
+    public static List<Message> findMessagesByLength(MessageFlag flag, int minLength, int maxLength) {
+        return repository.findByLength(flag, minLength, maxLength);
+    }
+
     /**
      * FUNCTIONALITY 2c: Search for message by ID and display details
      * @param messageID The ID to search for in all messages
@@ -260,21 +1027,21 @@ public class MessageManager {
         System.out.println("FUNCTIONALITY 2c: SEARCH BY MESSAGE ID: " + messageID);
         System.out.println("=".repeat(60));
 
-        boolean found = false;
-        for (Message msg : allMessages) {
-            if (msg.getMessageID().equals(messageID)) {
-                System.out.println("✅ MESSAGE FOUND:");
-                System.out.println("   • Recipient: " + msg.getRecipient());
-                System.out.println("   • Message: " + msg.getMessage());
-                System.out.println("   • Status: " + msg.getFlag());
-                System.out.println("   • Hash: " + msg.getMessageHash());
-                System.out.println("   • Sender: " + msg.getSender());
-                found = true;
-                break;
-            }
+        // Constant-time lookup through the ID index, then the archive
+        Message msg = repository.findByID(messageID);
+        MessageArchive current = archive;
+        if (msg == null && current != null) {
+            msg = current.findByID(messageID);
         }
 
-        if (!found) {
+        if (msg != null) {
+            System.out.println("✅ MESSAGE FOUND:");
+            System.out.println("   • Recipient: " + msg.getRecipient());
+            System.out.println("   • Message: " + msg.getMessage());
+            System.out.println("   • Status: " + msg.getFlag());
+            System.out.println("   • Hash: " + msg.getMessageHash());
+            System.out.println("   • Sender: " + msg.getSender());
+        } else {
             System.out.println("❌ No message found with ID: " + messageID);
         }
     }
@@ -288,12 +1055,15 @@ public class MessageManager {
         System.out.println("FUNCTIONALITY 2d: MESSAGES FOR RECIPIENT: " + recipient);
         System.out.println("=".repeat(60));
 
-        List<Message> recipientMessages = new ArrayList<>();
-
-        // Search through all messages for the specified recipient
-        for (Message msg : allMessages) {
-            if (msg.getRecipient().equals(recipient)) {
-                recipientMessages.add(msg);
+        // Single lookup in the recipient index, "0838884567" and "+27838884567" match
+        Collection<Message> recipientMessages = repository.findByRecipient(recipient);
+        MessageArchive current = archive;
+        if (current != null) {
+            List<Message> archived = current.findByRecipient(recipient);
+            if (!archived.isEmpty()) {
+                List<Message> combined = new ArrayList<>(recipientMessages);
+                combined.addAll(archived);
+                recipientMessages = combined;
             }
         }
 
@@ -303,10 +1073,93 @@ public class MessageManager {
         }
 
         System.out.println("📨 Found " + recipientMessages.size() + " message(s) for " + recipient + ":");
-        for (int i = 0; i < recipientMessages.size(); i++) {
-            Message msg = recipientMessages.get(i);
-            System.out.println((i + 1) + ". \"" + msg.getMessage() + "\" [" + msg.getFlag() + "]");
+        int position = 1;
+        for (Message msg : recipientMessages) {
+            System.out.println(position++ + ". \"" + msg.getMessage() + "\" [" + msg.getFlag() + "]");
+        }
+    }
+
+    /**
+     * Lists every message sent to numbers starting with a prefix, e.g. "+2783"
+     * Uses the recipient prefix trie; archived messages are checked one by one
+     * @param prefix Partial number in any supported spelling ("+2783", "083")
+     * @return Matching messages, indexed ones first
+     */
+    public static List<Message> searchMessagesByRecipientPrefix(String prefix) {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("MESSAGES FOR RECIPIENT PREFIX: " + prefix);
+        System.out.println("=".repeat(60));
+
+        List<Message> matches = new ArrayList<>(repository.findByRecipientPrefix(prefix));
+        String digits = PhoneNumbers.normalizePrefix(prefix);
+        MessageArchive current = archive;
+        if (current != null && digits != null) {
+            current.forEach(null, row -> {
+                long key = PhoneNumbers.normalize(row.getRecipient());
+                if (key != PhoneNumbers.INVALID && Long.toString(key).startsWith(digits)) {
+                    matches.add(copyOf(row));
+                }
+            });
+        }
+
+        if (matches.isEmpty()) {
+            System.out.println("No messages found for recipient prefix: " + prefix);
+            return matches;
+        }
+
+        System.out.println("📨 Found " + matches.size() + " message(s) for numbers starting with " + prefix + ":");
+        int position = 1;
+        for (Message msg : matches) {
+            System.out.println(position++ + ". " + msg.getRecipient() + ": \"" + msg.getMessage()
+                    + "\" [" + msg.getFlag() + "]");
+        }
+        return matches;
+    }
+
+    /**
+     * Autocompletes a partially typed recipient number from the numbers already messaged
+     * @param prefix Partial number in any supported spelling
+     * @param limit Maximum number of suggestions
+     * @return Known numbers in "+27..." form, ascending
+     */
+    public static List<String> suggestRecipients(String prefix, int limit) {
+        return repository.suggestRecipients(prefix, limit);
+    }
+
+    /**
+     * Searches message content by keyword through the full-text index
+     * Archived messages are checked one by one, as the archive has no word index
+     * @param query words (AND), "OR" between words, or a trailing * for prefixes,
+     *              e.g. "dinner time", "cake OR dinner", "din*"
+     * @return Matching messages, indexed ones first, each group in insertion order
+     */
+    public static List<Message> searchMessagesByKeyword(String query) {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("KEYWORD SEARCH: " + query);
+        System.out.println("=".repeat(60));
+
+        List<Message> matches = new ArrayList<>(repository.findByContent(query));
+        MessageArchive current = archive;
+        if (current != null) {
+            current.forEach(null, row -> {
+                if (ContentIndex.matches(query, row.getMessage())) {
+                    matches.add(copyOf(row));
+                }
+            });
+        }
+
+        if (matches.isEmpty()) {
+            System.out.println("No messages found matching: " + query);
+            return matches;
+        }
+
+        System.out.println("🔎 Found " + matches.size() + " message(s):");
+        int position = 1;
+        for (Message msg : matches) {
+            System.out.println(position++ + ". \"" + msg.getMessage() + "\" to " + msg.getRecipient()
+                    + " [" + msg.getFlag() + "]");
         }
+        return matches;
     }
 
     /**
@@ -318,70 +1171,154 @@ public class MessageManager {
         System.out.println("FUNCTIONALITY 2e: DELETE MESSAGE BY HASH: " + hash);
         System.out.println("=".repeat(60));
 
-        Message messageToDelete = null;
-
-        // Find the message with the specified hash
-        for (Message msg : allMessages) {
-            if (msg.getMessageHash().equals(hash)) {
-                messageToDelete = msg;
-                break;
-            }
-        }
-
+        Message messageToDelete = deleteMessage(hash);
         if (messageToDelete != null) {
-            // Remove from all arrays to maintain consistency
-            allMessages.remove(messageToDelete);
-            sentMessages.remove(messageToDelete);
-            storedMessages.remove(messageToDelete);
-            disregardedMessages.remove(messageToDelete);
-            messageHashes.remove(hash);
-            messageIDs.remove(messageToDelete.getMessageID());
-
             System.out.println("✅ MESSAGE SUCCESSFULLY DELETED:");
             System.out.println("   • Message: " + messageToDelete.getMessage());
             System.out.println("   • Recipient: " + messageToDelete.getRecipient());
             System.out.println("   • Hash: " + hash);
             System.out.println("   • Status: " + messageToDelete.getFlag());
-        } else {
+        } else if (repository.findByHash(hash) == null && archivedCopy(hash) == null) {
+            // Otherwise deleteMessage already said why the message stays
             System.out.println("❌ No message found with hash: " + hash);
         }
     }
 
+    /**
+     * Deletes a message from the arrays or the archive and from every attached store
+     * The one delete path, shared by the menu and the file watcher
+     * @param hash Hash of the message to delete
+     * @return the deleted message, or null if it was not found or could not be deleted
+     */
+    private static Message deleteMessage(String hash) {
+        // Constant-time removal from the repository updates every array view
+        Message deleted = removeFromArrays(hash);
+        if (deleted == null && repository.findByHash(hash) != null) {
+            // The journal refused the removal, so the message stays
+            return null;
+        }
+
+        MessageArchive current = archive;
+        if (deleted == null && current != null) {
+            Message archived = current.findByHash(hash);
+            if (archived == null) {
+                return null;
+            }
+            if (current.isReadOnly()) {
+                System.out.println("⚠️  Message " + hash + " is in a read-only archive and cannot be deleted");
+                return null;
+            }
+            // Copy the details out before the archive row is dropped
+            Message copy = copyOf(archived);
+            // Checkpoints hold archived messages, so the removal is journaled like any other
+            if (!journaled(redo -> redo.remove(hash), () -> current.remove(hash), false)) {
+                return null;
+            }
+            deleted = copy;
+        }
+
+        if (deleted != null) {
+            writeThroughToStore(store -> store.remove(hash));
+        }
+        return deleted;
+    }
+
+    /**
+     * @return The archived message with a hash, or null
+     */
+    private static Message archivedCopy(String hash) {
+        MessageArchive current = archive;
+        return current != null ? current.findByHash(hash) : null;
+    }
+
+    /**
+     * Changes the flag of a message, e.g. when a stored message is finally sent
+     * Moves the message between partitions in constant time
+     * @param hash The message hash identifying the message
+     * @param flag The new status for the message
+     * @return true if the message was found and updated
+     */
+    public static boolean changeMessageFlag(String hash, MessageFlag flag) {
+        if (!journaled(current -> current.changeFlag(hash, flag), () -> repository.changeFlag(hash, flag), false)) {
+            return false;
+        }
+        Message changed = repository.findByHash(hash);
+        if (changed != null) {
+            writeThroughToStore(store -> store.put(changed));
+        }
+        return true;
+    }
+
     /**
      * FUNCTIONALITY 2f: Display full report of all sent messages
      * Shows comprehensive details including hash, recipient, and message
      */
     public static void displayFullReport() {
-        System.out.println("\n" + "=".repeat(90));
-        System.out.println("FUNCTIONALITY 2f: COMPREHENSIVE SENT MESSAGES REPORT");
-        System.out.println("=".repeat(90));
-        System.out.printf("%-10s %-12s %-18s %-45s\n",
-                "Hash", "Message ID", "Recipient", "Message");
-        System.out.println("-".repeat(90));
-
-        if (sentMessages.isEmpty()) {
-            System.out.println("No sent messages to display in report.");
+        try (ReportWriter out = ReportWriter.toConsole()) {
+            writeFullReport(out, 1, 0);
+        }
+    }
+
+    /**
+     * Writes the FUNCTIONALITY 2f report, or one page of it, to any report sink
+     * @param out Destination, e.g. ReportWriter.toFile(...) or a StringWriter in tests
+     * @param page Page to write, starting at 1
+     * @param pageSize Rows per page, 0 or less for the whole report
+     */
+    public static void writeFullReport(ReportWriter out, int page, int pageSize) {
+        out.line("").rule('=', 90);
+        out.line("FUNCTIONALITY 2f: COMPREHENSIVE SENT MESSAGES REPORT");
+        out.rule('=', 90);
+        out.cell("Hash", 10).cell("Message ID", 12).cell("Recipient", 18).lastCell("Message", 45);
+        out.rule('-', 90);
+
+        int total = sentMessages.size() + archivedCount(MessageFlag.SENT);
+        if (total == 0) {
+            out.line("No sent messages to display in report.");
             return;
         }
 
-        // Display all sent messages in formatted report
-        for (Message msg : sentMessages) {
-            String messagePreview = msg.getMessage().length() > 40 ?
-                    msg.getMessage().substring(0, 40) + "..." : msg.getMessage();
-            System.out.printf("%-10s %-12s %-18s %-45s\n",
-                    msg.getMessageHash(),
-                    msg.getMessageID(),
-                    msg.getRecipient(),
-                    messagePreview);
+        // Rows outside the requested page are counted but not formatted
+        long first = pageSize > 0 ? (long) (Math.max(page, 1) - 1) * pageSize : 0;
+        long last = pageSize > 0 ? first + pageSize : Long.MAX_VALUE;
+        long[] row = {0};
+
+        // Display all sent messages in formatted report, archived ones included
+        forEachSentMessage(msg -> {
+            if (row[0] >= first && row[0] < last) {
+                out.cell(msg.getMessageHash(), 10).cell(msg.getMessageID(), 12)
+                        .cell(msg.getRecipient(), 18).lastPreviewCell(msg.getMessage(), 40, 45);
+            }
+            row[0]++;
+        });
+        out.rule('=', 90);
+        out.line("Total sent messages: " + total);
+        if (pageSize > 0) {
+            out.line("Page " + Math.max(page, 1) + " of " + ((total + pageSize - 1) / pageSize));
+        }
+    }
+
+    /**
+     * Writes the full sent messages report to a file through a buffered stream
+     * @param filePath File to create or overwrite
+     * @return true if the report was written
+     */
+    public static boolean exportFullReport(String filePath) {
+        try (ReportWriter out = ReportWriter.toFile(filePath)) {
+            writeFullReport(out, 1, 0);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("❌ Error writing report: " + e.getMessage());
+            return false;
         }
-        System.out.println("=".repeat(90));
-        System.out.println("Total sent messages: " + sentMessages.size());
+        System.out.println("✅ Report written to " + filePath);
+        return true;
     }
 
     // ==================== JSON INTEGRATION ====================
 
     /**
      * Loads stored messages from a JSON file using Gson library
+     * Loading is idempotent: messages already in the arrays are skipped, see importMessage()
      * ChatGPT Assistance: JSON file reading implementation
      * @param filePath Path to the JSON file containing stored messages
      */
@@ -390,16 +1327,36 @@ public class MessageManager {
         System.out.println("JSON INTEGRATION: LOADING STORED MESSAGES FROM FILE");
         System.out.println("=".repeat(60));
 
+        LongAdder duplicates = new LongAdder();
         try {
-            Gson gson = new Gson();
-            Type messageListType = new TypeToken<List<Message>>(){}.getType();
-            List<Message> loadedMessages = gson.fromJson(new FileReader(filePath), messageListType);
+            if (new File(filePath).isDirectory()) {
+                // A directory of nightly drops: every file is parsed in parallel
+                loadMessagesFromDirectory(filePath);
+                return;
+            }
+            if (MessageCsv.isCsv(filePath)) {
+                loadMessagesFromCsv(filePath);
+                return;
+            }
+            if (MessageFiles.isBinary(filePath) || MessageNdjson.isNdjson(filePath)) {
+                // Binary files are block-checked, line files parsed a line at a time, both straight into the arrays
+                long loaded = MessageFiles.readManagerMessages(filePath, importSink(duplicates));
+                System.out.println("✅ Successfully loaded " + loaded + " messages from "
+                        + (MessageFiles.isBinary(filePath) ? "binary" : "JSON Lines") + " file"
+                        + skippedNote(duplicates.sum()));
+                return;
+            }
 
-            if (loadedMessages != null && !loadedMessages.isEmpty()) {
-                for (Message msg : loadedMessages) {
-                    addMessageToArrays(msg);
-                }
-                System.out.println("✅ Successfully loaded " + loadedMessages.size() + " messages from JSON file");
+            // Streams one record at a time into the arrays instead of binding the whole file first
+            MessageJsonImporter importer = new MessageJsonImporter(importSink(duplicates))
+                    .withProgress(MessageManager::printImportProgress, IMPORT_PROGRESS_INTERVAL);
+            if (repository.isConcurrent()) {
+                importer.withWorkers(Runtime.getRuntime().availableProcessors(), 4096);
+            }
+            long loaded = importer.importFile(filePath);
+
+            if (loaded > 0) {
+                System.out.println("✅ Successfully loaded " + loaded + " messages from JSON file" + skippedNote(duplicates.sum()));
             } else {
                 System.out.println("⚠️  JSON file is empty or contains no messages");
                 System.out.println("💡 Creating sample JSON file for demonstration...");
@@ -413,13 +1370,210 @@ public class MessageManager {
         }
     }
 
+    /**
+     * Loads every JSON and ".msgb" file of a directory, parsing the files in parallel
+     * Files are merged in name order, so a message hash found in several files
+     * always ends up with the record from the last file, however the threads finish
+     * @param directoryPath directory holding the message files
+     * @return the import figures, or null if the directory could not be read
+     */
+    public static MessageDirectoryImporter.Result loadMessagesFromDirectory(String directoryPath) {
+        MessageDirectoryImporter.Result result;
+        LongAdder skipped = new LongAdder();
+        try {
+            result = new MessageDirectoryImporter().importDirectory(directoryPath, importSink(skipped));
+        } catch (IOException e) {
+            System.out.println("❌ Error loading directory: " + e.getMessage());
+            return null;
+        }
+
+        for (MessageDirectoryImporter.FileResult file : result.getFiles()) {
+            if (file.isFailed()) {
+                System.out.println("❌ " + file.getFile().getName() + ": " + file.getError());
+            } else {
+                System.out.printf("   • %s: %d messages in %.1f ms (%.0f messages/sec, %.1f MB/sec)%n",
+                        file.getFile().getName(), file.getRecords(), file.getNanos() / 1_000_000.0,
+                        file.recordsPerSecond(), file.megabytesPerSecond());
+            }
+        }
+        System.out.printf("✅ Loaded %d messages from %d files in %.1f ms (%d duplicates replaced)%n",
+                result.getMessages(), result.getFiles().size() - result.getFailedFiles(),
+                result.getElapsedNanos() / 1_000_000.0, result.getDuplicates());
+        if (skipped.sum() > 0) {
+            System.out.println("   • " + skipped.sum() + " messages were already loaded and were skipped");
+        }
+        if (result.getFailedFiles() > 0) {
+            System.out.println("⚠️  " + result.getFailedFiles() + " files could not be read and were skipped");
+        }
+        return result;
+    }
+
+    /**
+     * Loads a CSV export with the columns Hash, ID, Recipient, Message, Flag
+     * Large files are parsed in chunks on every core; each chunk's messages then
+     * go through importMessage() in file order as one batch
+     * @param filePath CSV file to read
+     * @return number of messages added or updated, or -1 if the file could not be read
+     */
+    public static long loadMessagesFromCsv(String filePath) {
+        LongAdder duplicates = new LongAdder();
+        long[] added = new long[1];
+        long begin = System.nanoTime();
+        long records;
+        try {
+            records = MessageCsv.readFileInChunks(filePath, Runtime.getRuntime().availableProcessors(), batch -> {
+                for (Message msg : batch) {
+                    if (importMessage(msg)) {
+                        added[0]++;
+                    } else {
+                        duplicates.increment();
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("❌ Error loading CSV file: " + e.getMessage());
+            return -1;
+        }
+        double millis = (System.nanoTime() - begin) / 1_000_000.0;
+        System.out.printf("✅ Successfully loaded %d messages from CSV file in %.1f ms (%.0f messages/sec)%s%n",
+                records, millis, millis > 0 ? records * 1000 / millis : 0.0, skippedNote(duplicates.sum()));
+        return added[0];
+    }
+
+    /**
+     * Keeps adding messages appended to a JSON Lines file until stopFollowing() is called
+     * Switches to the concurrent repository first, since the follower thread
+     * adds messages while the menu keeps reading them
+     * @param filePath ".ndjson" or ".jsonl" file, which may not exist yet
+     * @param fromStart true to load the lines already in the file first
+     * @return the running follower
+     */
+    public static synchronized MessageNdjson.Follower followMessagesFile(String filePath, boolean fromStart) {
+        stopFollowing();
+        enableConcurrentMode();
+        follower = MessageNdjson.follow(filePath, MessageManager::importMessage, fromStart,
+                MessageNdjson.DEFAULT_POLL_MILLIS);
+        System.out.println("👀 Following " + filePath + " for new messages");
+        return follower;
+    }
+
+    /**
+     * Stops the JSON Lines follower, if one is running
+     * @return messages the follower added, or 0 if none was running
+     */
+    public static synchronized long stopFollowing() {
+        MessageNdjson.Follower current = follower;
+        if (current == null) {
+            return 0;
+        }
+        current.close();
+        follower = null;
+        if (current.getFailure() != null) {
+            System.out.println("❌ Following stopped early: " + current.getFailure().getMessage());
+        }
+        System.out.println("⏹️  Stopped following after " + current.getRecords() + " messages"
+                + (current.getMalformedLines() > 0 ? " (" + current.getMalformedLines() + " malformed lines skipped)" : ""));
+        return current.getRecords();
+    }
+
+    /**
+     * Keeps the arrays in step with a message file edited outside the program
+     * Each time the file changes only the inserted, updated and deleted records
+     * are applied, until stopWatching() is called. Switches to the concurrent
+     * repository first, since the watcher thread changes the arrays.
+     * @param filePath File to watch, e.g. "messages.json"; may not exist yet
+     * @param loadExisting true to load the messages already in the file first
+     * @return the running watcher, or null if the file could not be watched
+     */
+    public static synchronized MessageFileWatcher watchMessagesFile(String filePath, boolean loadExisting) {
+        stopWatching();
+        enableConcurrentMode();
+        try {
+            watcher = MessageFileWatcher.watch(filePath, new MessageFileWatcher.Listener() {
+                @Override
+                public void onInsert(Message msg) {
+                    importMessage(msg);
+                }
+
+                @Override
+                public void onUpdate(Message msg) {
+                    importMessage(msg);
+                }
+
+                @Override
+                public void onDelete(String hash) {
+                    deleteMessage(hash);
+                }
+            }, loadExisting);
+        } catch (IOException e) {
+            System.out.println("❌ Error watching " + filePath + ": " + e.getMessage());
+            return null;
+        }
+        System.out.println("👀 Watching " + filePath + " for changes");
+        return watcher;
+    }
+
+    /**
+     * Stops the file watcher, if one is running
+     * @return reloads the watcher applied, or 0 if none was running
+     */
+    public static synchronized long stopWatching() {
+        MessageFileWatcher current = watcher;
+        if (current == null) {
+            return 0;
+        }
+        current.close();
+        watcher = null;
+        System.out.println("⏹️  Stopped watching after " + current.getReloads() + " reloads"
+                + (current.getFailedReloads() > 0 ? " (" + current.getFailedReloads() + " unreadable versions skipped)" : ""));
+        return current.getReloads();
+    }
+
+    /**
+     * Saves every message, archived ones included, in the format chosen by the extension
+     * ".msgb" writes the compact binary format of MessageFiles, ".ndjson" / ".jsonl"
+     * one JSON object per line, ".csv" a CSV table, anything else a JSON array
+     * @param filePath File to create or overwrite
+     * @return true if the file was written
+     */
+    public static boolean saveMessagesToFile(String filePath) {
+        List<Message> messages = new ArrayList<>(allMessages);
+        messages.addAll(archivedCopies());
+
+        try {
+            MessageFiles.writeManagerMessages(filePath, messages);
+        } catch (IOException e) {
+            System.out.println("❌ Error saving messages: " + e.getMessage());
+            return false;
+        }
+        System.out.println("✅ Saved " + messages.size() + " messages to " + filePath);
+        return true;
+    }
+
+    /**
+     * @return " (N already loaded, skipped)" when a load skipped duplicates, "" otherwise
+     */
+    private static String skippedNote(long duplicates) {
+        return duplicates > 0 ? " (" + duplicates + " already loaded, skipped)" : "";
+    }
+
+    /**
+     * Prints import progress for large files; small files finish before the first update
+     */
+    private static void printImportProgress(long records, long bytesRead, long totalBytes) {
+        if (records < IMPORT_PROGRESS_INTERVAL) {
+            return;
+        }
+        String share = totalBytes > 0 && bytesRead >= 0 ? " (" + (bytesRead * 100 / totalBytes) + "%)" : "";
+        System.out.println("⏳ Imported " + records + " messages" + share);
+    }
+
     /**
      * Creates a sample JSON file with demonstration messages
      * Ensures the system works even if no external JSON exists initially
      */
     private static void createSampleJSONFile() {
         try {
-            Gson gson = new Gson();
             List<Message> sampleMessages = new ArrayList<>();
 
             // Add sample stored messages for demonstration
@@ -430,7 +1584,7 @@ public class MessageManager {
 
             // Write to JSON file
             try (FileWriter writer = new FileWriter("messages.json")) {
-                gson.toJson(sampleMessages, writer);
+                MessageJson.GSON.toJson(sampleMessages, writer);
             }
 
             System.out.println("📁 Sample JSON file 'messages.json' created with " +
@@ -462,9 +1616,13 @@ public class MessageManager {
         System.out.println("7. Display Full Report");
         System.out.println("8. Load Messages from JSON");
         System.out.println("9. Display Array Statistics");
+        System.out.println("10. Search Messages by Keyword");
+        System.out.println("11. Search Messages by Recipient Prefix");
+        System.out.println("12. Export Full Report to File");
+        System.out.println("13. Open Message Archive File");
         System.out.println("0. Exit");
         System.out.println("=".repeat(50));
-        System.out.print("Enter your choice (0-9): ");
+        System.out.print("Enter your choice (0-13): ");
     }
 
     /**
@@ -507,11 +1665,35 @@ public class MessageManager {
             case 9:
                 printArrayStatistics();
                 break;
+            case 10:
+                System.out.print("Enter keywords (e.g. dinner time, cake OR dinner, din*): ");
+                String query = scanner.nextLine();
+                searchMessagesByKeyword(query);
+                break;
+            case 11:
+                System.out.print("Enter number prefix (e.g. +2783): ");
+                String prefix = scanner.nextLine();
+                List<String> suggestions = suggestRecipients(prefix, 5);
+                if (!suggestions.isEmpty()) {
+                    System.out.println("💡 Known numbers: " + String.join(", ", suggestions));
+                }
+                searchMessagesByRecipientPrefix(prefix);
+                break;
+            case 12:
+                System.out.print("Enter report file name (e.g. report.txt): ");
+                String reportFile = scanner.nextLine();
+                exportFullReport(reportFile);
+                break;
+            case 13:
+                System.out.print("Enter archive file name (e.g. sent.msga): ");
+                String archiveFile = scanner.nextLine();
+                openArchive(archiveFile);
+                break;
             case 0:
                 System.out.println("Exiting Message Management System. Goodbye!");
                 return false;
             default:
-                System.out.println("Invalid choice! Please enter 0-9.");
+                System.out.println("Invalid choice! Please enter 0-13.");
         }
         return true;
     }
@@ -538,7 +1720,7 @@ public class MessageManager {
                 int choice = Integer.parseInt(scanner.nextLine());
                 continueRunning = handleMenuChoice(choice);
             } catch (NumberFormatException e) {
-                System.out.println("❌ Invalid input! Please enter a number 0-9.");
+                System.out.println("❌ Invalid input! Please enter a number 0-13.");
             }
 
             if (continueRunning) {
@@ -0,0 +1,465 @@
+package org.example;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * JSON Lines (NDJSON) files for both message models: one compact JSON object per line
+ * Unlike the JSON array in messages.json, a line file can be appended to and
+ * read while another process is still writing it, so it suits feeds.
+ *
+ * Lines use the same field names as the MessageJson adapters. Blank lines and
+ * "null" lines are skipped. Files are always UTF-8.
+ *
+ * follow() tails a line file: a background thread reads whatever has been
+ * appended since its last look, holds back an unfinished last line until its
+ * newline arrives, and hands each complete record to a sink. Memory stays at
+ * one read buffer plus the longest line seen. When the path is rotated to a
+ * new file (a different file key, i.e. inode), the rest of the old file is
+ * read and the new one is followed from its start.
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Read errors kept as the follower's failure
+ */
+public final class MessageNdjson {
+
+    /** Extension that selects the JSON Lines format */
+    public static final String EXTENSION = ".ndjson";
+
+    /** Alternative extension accepted for JSON Lines files */
+    public static final String JSONL_EXTENSION = ".jsonl";
+
+    /** Default wait between looks at a followed file that has no new data */
+    public static final long DEFAULT_POLL_MILLIS = 2;
+
+    private MessageNdjson() {
+        // Utility class
+    }
+
+    /**
+     * @param path file name
+     * @return true if the JSON Lines format is used for that file
+     */
+    public static boolean isNdjson(String path) {
+        if (path == null) {
+            return false;
+        }
+        String lower = path.toLowerCase();
+        return lower.endsWith(EXTENSION) || lower.endsWith(JSONL_EXTENSION);
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Writes one line per value
+     * @param writer destination; flushed but not closed
+     * @param values values to write
+     * @param adapter MessageJson.MESSAGE_ADAPTER or MessageJson.MANAGER_MESSAGE_ADAPTER
+     * @return number of lines written
+     * @throws IOException if the write fails
+     */
+    public static <T> long writeLines(Writer writer, Iterable<? extends T> values, TypeAdapter<T> adapter) throws IOException {
+        // JsonWriter writes straight through, so the newline can go to the same writer
+        JsonWriter out = MessageJson.GSON.newJsonWriter(writer);
+        out.setLenient(true);
+        long lines = 0;
+        for (T value : values) {
+            if (value == null) {
+                continue;
+            }
+            adapter.write(out, value);
+            writer.write('\n');
+            lines++;
+        }
+        writer.flush();
+        return lines;
+    }
+
+    /**
+     * Writes values to a line file
+     * @param path destination file
+     * @param values values to write
+     * @param adapter MessageJson.MESSAGE_ADAPTER or MessageJson.MANAGER_MESSAGE_ADAPTER
+     * @param append true to add to the end of an existing file, false to replace it
+     * @return number of lines written
+     * @throws IOException if the file cannot be written
+     */
+    public static <T> long writeFile(String path, Iterable<? extends T> values, TypeAdapter<T> adapter,
+                                     boolean append) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(path, append), StandardCharsets.UTF_8), 64 * 1024)) {
+            return writeLines(writer, values, adapter);
+        }
+    }
+
+    // ==================== IMPORT ====================
+
+    /**
+     * Reads every line of a line stream
+     * @param reader source; not closed
+     * @param adapter MessageJson.MESSAGE_ADAPTER or MessageJson.MANAGER_MESSAGE_ADAPTER
+     * @param sink receives each record in line order
+     * @return number of records read
+     * @throws IOException if the input cannot be read or a line is not a message object
+     */
+    public static <T> long readLines(Reader reader, TypeAdapter<T> adapter, Consumer<? super T> sink) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+        long records = 0;
+        long number = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            number++;
+            T value = parseLine(line, adapter, number);
+            if (value != null) {
+                sink.accept(value);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads every line of a line file
+     * @param path source file
+     * @param adapter MessageJson.MESSAGE_ADAPTER or MessageJson.MANAGER_MESSAGE_ADAPTER
+     * @param sink receives each record in line order
+     * @return number of records read
+     * @throws IOException if the file cannot be read or a line is not a message object
+     */
+    public static <T> long readFile(String path, TypeAdapter<T> adapter, Consumer<? super T> sink) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+            return readLines(reader, adapter, sink);
+        }
+    }
+
+    /**
+     * @return the record on the line, or null for a blank or "null" line
+     */
+    private static <T> T parseLine(String line, TypeAdapter<T> adapter, long number) throws IOException {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            JsonReader in = new JsonReader(new StringReader(line));
+            if (in.peek() != JsonToken.BEGIN_OBJECT && in.peek() != JsonToken.NULL) {
+                throw new IOException("Line " + number + " is not a JSON object");
+            }
+            T value = adapter.read(in);
+            if (in.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Trailing data on line " + number);
+            }
+            return value;
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid JSON on line " + number + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== TAIL-FOLLOW ====================
+
+    /**
+     * Starts following a line file of MessageManager messages
+     * The file may not exist yet; following starts once it appears.
+     * If the file shrinks (truncated in place) or the path is replaced by another
+     * file (rotated), reading starts again from the top of the current file.
+     * @param path file to follow
+     * @param sink receives each new record on the follower thread
+     * @param fromStart true to read the existing lines first, false to skip to the current end;
+     *                  a line the writer had only half written by then is skipped whole
+     * @param pollMillis wait between looks when there is no new data
+     * @return the running follower; close it to stop
+     */
+    public static Follower follow(String path, Consumer<MessageManager.Message> sink, boolean fromStart, long pollMillis) {
+        if (pollMillis <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive");
+        }
+        Follower follower = new Follower(path, sink, fromStart, pollMillis);
+        follower.thread.start();
+        return follower;
+    }
+
+    /**
+     * Background reader that keeps handing newly appended lines to a sink
+     */
+    public static final class Follower implements Closeable {
+        private final File file;
+        private final Consumer<MessageManager.Message> sink;
+        private final long pollNanos;
+        private final Thread thread;
+
+        // Read buffer and the unfinished tail line, both reused for the whole run
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private byte[] line = new byte[256];
+        private int lineLength;
+
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong malformed = new AtomicLong();
+        private volatile long position;
+        private volatile boolean running = true;
+        private volatile Exception failure;
+        private long lineNumber;
+
+        // File key of the open channel, compared on each idle poll to notice rotation
+        private Object openedKey;
+        // Started mid-line: the first newline only ends the line the writer was on
+        private boolean skipPartialLine;
+
+        private Follower(String path, Consumer<MessageManager.Message> sink, boolean fromStart, long pollMillis) {
+            this.file = new File(path);
+            this.sink = sink;
+            this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+            // Taken now, not on the follower thread, so nothing appended after follow() returns is skipped
+            this.position = fromStart ? 0 : file.length();
+            this.skipPartialLine = position > 0;
+            this.thread = new Thread(this::run, "ndjson-follow-" + file.getName());
+            this.thread.setDaemon(true);
+        }
+
+        /** @return records handed to the sink so far */
+        public long getRecords() {
+            return records.get();
+        }
+
+        /** @return lines skipped because they were not a valid message object */
+        public long getMalformedLines() {
+            return malformed.get();
+        }
+
+        /** @return bytes of the file consumed so far, unfinished line included */
+        public long getPosition() {
+            return position;
+        }
+
+        /** @return true until closed or stopped by a sink failure or a read error */
+        public boolean isRunning() {
+            return running && thread.isAlive();
+        }
+
+        /** @return the sink failure or read error that stopped the follower, or null */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        /**
+         * Waits until at least the given number of records have reached the sink
+         * @param count records to wait for
+         * @param timeoutMillis longest wait
+         * @return true if the count was reached
+         */
+        public boolean awaitRecords(long count, long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (records.get() < count) {
+                if (System.nanoTime() >= deadline || !isRunning()) {
+                    return records.get() >= count;
+                }
+                Thread.sleep(1);
+            }
+            return true;
+        }
+
+        /**
+         * Stops following and waits for the follower thread to finish
+         */
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            FileChannel channel = null;
+            try {
+                while (running) {
+                    if (channel == null) {
+                        channel = open();
+                        if (channel == null) {
+                            LockSupport.parkNanos(pollNanos);
+                            continue;
+                        }
+                    }
+                    if (!poll(channel)) {
+                        if (rotated()) {
+                            // Whatever the writer appended before switching files comes first
+                            poll(channel);
+                            finishFile();
+                            channel.close();
+                            channel = null;
+                            continue;
+                        }
+                        LockSupport.parkNanos(pollNanos);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                running = false;
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        // Nothing left to release
+                    }
+                }
+            }
+        }
+
+        private FileChannel open() throws IOException {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // Not created yet, or between a rename and its replacement
+                return null;
+            }
+            openedKey = fileKey();
+            if (skipPartialLine) {
+                // Started right after a newline: nothing to skip
+                ByteBuffer previous = ByteBuffer.allocate(1);
+                skipPartialLine = channel.read(previous, position - 1) == 1 && previous.get(0) != '\n';
+            }
+            return channel;
+        }
+
+        /**
+         * @return the file key of the path now (inode and device where available),
+         *         its creation time where there is no key, or null if it is missing
+         */
+        private Object fileKey() throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return true once the path names a different file than the open channel
+         */
+        private boolean rotated() throws IOException {
+            Object current = fileKey();
+            // A missing path is a rotation in progress; keep the old file until the new one appears
+            return current != null && !current.equals(openedKey);
+        }
+
+        /**
+         * Ends the old file after a rotation; its unfinished last line will never be completed
+         */
+        private void finishFile() {
+            if (lineLength > 0) {
+                deliver(line, 0, lineLength);
+            }
+            position = 0;
+            lineLength = 0;
+            lineNumber = 0;
+            skipPartialLine = false;
+        }
+
+        /**
+         * Reads what has been appended since the last call
+         * @return true if any bytes were read
+         */
+        private boolean poll(FileChannel channel) throws IOException {
+            long size = channel.size();
+            if (size < position) {
+                // Truncated in place: start again from the top
+                position = 0;
+                lineLength = 0;
+                lineNumber = 0;
+                skipPartialLine = false;
+            }
+            boolean read = false;
+            while (running) {
+                buffer.clear();
+                int n = channel.read(buffer, position);
+                if (n <= 0) {
+                    break;
+                }
+                read = true;
+                position += n;
+                scan(buffer.array(), n);
+            }
+            return read;
+        }
+
+        /**
+         * Splits the bytes into lines; the tail after the last newline waits for the next read
+         */
+        private void scan(byte[] bytes, int length) {
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] == '\n') {
+                    if (lineLength == 0) {
+                        deliver(bytes, start, i - start);
+                    } else {
+                        keep(bytes, start, i - start);
+                        deliver(line, 0, lineLength);
+                        lineLength = 0;
+                    }
+                    start = i + 1;
+                }
+            }
+            keep(bytes, start, length - start);
+        }
+
+        private void keep(byte[] bytes, int offset, int length) {
+            if (lineLength + length > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+            }
+            System.arraycopy(bytes, offset, line, lineLength, length);
+            lineLength += length;
+        }
+
+        private void deliver(byte[] bytes, int offset, int length) {
+            if (skipPartialLine) {
+                // The rest of a line written before following started
+                skipPartialLine = false;
+                return;
+            }
+            lineNumber++;
+            MessageManager.Message msg;
+            try {
+                msg = parseLine(new String(bytes, offset, length, StandardCharsets.UTF_8),
+                        MessageJson.MANAGER_MESSAGE_ADAPTER, lineNumber);
+            } catch (IOException e) {
+                // A feed keeps going past one bad line
+                malformed.incrementAndGet();
+                return;
+            }
+            if (msg != null) {
+                sink.accept(msg);
+                records.incrementAndGet();
+            }
+        }
+    }
+}
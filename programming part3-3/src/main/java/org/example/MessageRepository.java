@@ -0,0 +1,539 @@
+package org.example;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * In-memory primary store behind MessageManager
+ * Keeps messages in hash- and ID-keyed maps so lookups and deletes
+ * run in constant time instead of scanning every array
+ *
+ * The message hash is the primary key: adding a message whose hash is
+ * already present replaces the old entry everywhere.
+ *
+ * In concurrent mode every index uses ConcurrentHashMap/ConcurrentSkipListMap
+ * and writers lock only the stripe owning the message hash, so ingest threads
+ * on different hashes run in parallel and readers never block.
+ *
+ * @author Heloisa Campos
+ * @version 1.3 - Restore from saved indexes
+ */
+public class MessageRepository {
+
+    // A message together with the sequence number that orders it in every view
+    private static final class Slot {
+        final long seq;
+        final MessageManager.Message msg;
+
+        Slot(long seq, MessageManager.Message msg) {
+            this.seq = seq;
+            this.msg = msg;
+        }
+    }
+
+    private final boolean concurrent;
+
+    // Monotonic insertion counter, gives every view its order
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Striped write locks, only used in concurrent mode
+    private final ReentrantLock[] stripes;
+
+    // Primary store: hash -> slot
+    private final Map<String, Slot> byHash;
+
+    // Every message ordered by insertion sequence, backs allMessages
+    private final Map<Long, MessageManager.Message> ordered;
+
+    // Secondary key: ID -> messages (IDs are not guaranteed unique, first one wins)
+    private final OrderedMultimap<String> byID;
+
+    // Flag partitions: flag -> messages ordered by insertion sequence
+    private final Map<MessageFlag, Map<Long, MessageManager.Message>> byFlag = new EnumMap<>(MessageFlag.class);
+
+    // Partition sizes, kept separately because ConcurrentSkipListMap.size() is a full walk
+    private final Map<MessageFlag, AtomicInteger> flagCounts = new EnumMap<>(MessageFlag.class);
+
+    // Recipient multimap keyed by normalized phone number
+    private final RecipientIndex byRecipient;
+
+    // Sorted content-length indexes: one over everything, one per flag
+    private final LengthIndex byLength;
+    private final Map<MessageFlag, LengthIndex> byLengthPerFlag = new EnumMap<>(MessageFlag.class);
+
+    // Inverted word index over message content
+    private final ContentIndex byContent;
+
+    /**
+     * Creates an empty single-threaded repository
+     */
+    public MessageRepository() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty repository
+     * @param concurrent true to allow concurrent writers with striped locking
+     */
+    public MessageRepository(boolean concurrent) {
+        this(concurrent, 0);
+    }
+
+    /**
+     * @param concurrent true to allow concurrent writers with striped locking
+     * @param expectedSize messages the hash index is sized for up front
+     */
+    private MessageRepository(boolean concurrent, int expectedSize) {
+        this.concurrent = concurrent;
+        this.byHash = concurrent ? new ConcurrentHashMap<>(Math.max(16, expectedSize))
+                : new HashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+        this.ordered = OrderedMultimap.orderedMap(concurrent);
+        this.byID = new OrderedMultimap<>(concurrent);
+        this.byRecipient = new RecipientIndex(concurrent);
+        this.byLength = new LengthIndex(concurrent);
+        this.byContent = new ContentIndex(concurrent);
+        for (MessageFlag flag : MessageFlag.values()) {
+            byFlag.put(flag, OrderedMultimap.orderedMap(concurrent));
+            flagCounts.put(flag, new AtomicInteger());
+            byLengthPerFlag.put(flag, new LengthIndex(concurrent));
+        }
+
+        if (concurrent) {
+            // Power of two so the stripe is a cheap mask of the hash code
+            int wanted = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+            int count = Integer.highestOneBit(wanted * 2 - 1);
+            stripes = new ReentrantLock[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+        } else {
+            stripes = null;
+        }
+    }
+
+    /**
+     * @return true if this repository accepts concurrent writers
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Adds a message to the store and every index
+     * @param msg message to add
+     * @return the message previously stored under the same hash, or null
+     */
+    public MessageManager.Message add(MessageManager.Message msg) {
+        String hash = key(msg.getMessageHash());
+        ReentrantLock lock = lockFor(hash);
+        try {
+            Slot previous = unlink(hash);
+            long seq = sequence.incrementAndGet();
+
+            byHash.put(hash, new Slot(seq, msg));
+            ordered.put(seq, msg);
+            byID.put(key(msg.getMessageID()), seq, msg);
+            if (msg.getFlagValue() != null) {
+                byFlag.get(msg.getFlagValue()).put(seq, msg);
+                flagCounts.get(msg.getFlagValue()).incrementAndGet();
+                byLengthPerFlag.get(msg.getFlagValue()).add(seq, msg);
+            }
+            byRecipient.add(seq, msg);
+            byLength.add(seq, msg);
+            byContent.add(seq, msg);
+            return previous != null ? previous.msg : null;
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * Removes a message by hash from the store and every index
+     * @param hash hash of the message to remove
+     * @return the removed message, or null if no message has that hash
+     */
+    public MessageManager.Message remove(String hash) {
+        ReentrantLock lock = lockFor(key(hash));
+        try {
+            Slot removed = unlink(key(hash));
+            return removed != null ? removed.msg : null;
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * Moves a message to another flag partition in constant time
+     * The message keeps its original position in insertion order
+     * @param hash hash of the message to update
+     * @param flag new flag, or null to take it out of every partition
+     * @return true if a message with that hash exists
+     */
+    public boolean changeFlag(String hash, MessageFlag flag) {
+        ReentrantLock lock = lockFor(key(hash));
+        try {
+            Slot slot = byHash.get(key(hash));
+            if (slot == null) {
+                return false;
+            }
+            MessageFlag current = slot.msg.getFlagValue();
+            if (current == flag) {
+                return true;
+            }
+
+            if (current != null) {
+                byFlag.get(current).remove(slot.seq);
+                flagCounts.get(current).decrementAndGet();
+                byLengthPerFlag.get(current).remove(slot.seq, slot.msg);
+            }
+            slot.msg.setFlagValue(flag);
+            if (flag != null) {
+                byFlag.get(flag).put(slot.seq, slot.msg);
+                flagCounts.get(flag).incrementAndGet();
+                byLengthPerFlag.get(flag).add(slot.seq, slot.msg);
+            }
+            return true;
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * @param flag flag to count
+     * @return number of messages carrying that flag, without scanning
+     */
+    public int count(MessageFlag flag) {
+        return flagCounts.get(flag).get();
+    }
+
+    /**
+     * @param hash message hash to look up
+     * @return the message with that hash, or null
+     */
+    public MessageManager.Message findByHash(String hash) {
+        Slot slot = byHash.get(key(hash));
+        return slot != null ? slot.msg : null;
+    }
+
+    /**
+     * @param id message ID to look up
+     * @return the first message added with that ID, or null
+     */
+    public MessageManager.Message findByID(String id) {
+        return byID.first(key(id));
+    }
+
+    /**
+     * @param recipient phone number in any supported spelling
+     * @return read-only messages sent to that number in insertion order
+     */
+    public Collection<MessageManager.Message> findByRecipient(String recipient) {
+        return byRecipient.find(recipient);
+    }
+
+    /**
+     * @param prefix partial number in any supported spelling, e.g. "+2783"
+     * @return number of messages sent to numbers with that prefix, O(prefix length)
+     */
+    public int countByRecipientPrefix(String prefix) {
+        return byRecipient.countByPrefix(prefix);
+    }
+
+    /**
+     * @param prefix partial number in any supported spelling
+     * @return messages grouped by number in ascending order, each group in insertion order
+     */
+    public List<MessageManager.Message> findByRecipientPrefix(String prefix) {
+        return byRecipient.findByPrefix(prefix);
+    }
+
+    /**
+     * @param prefix partial number in any supported spelling
+     * @param limit maximum suggestions to return
+     * @return known recipient numbers with that prefix in "+27..." form
+     */
+    public List<String> suggestRecipients(String prefix, int limit) {
+        return byRecipient.suggest(prefix, limit);
+    }
+
+    /**
+     * @param flag flag to restrict to, or null for every message
+     * @return the longest message, earliest first on ties, or null if none
+     */
+    public MessageManager.Message longest(MessageFlag flag) {
+        return lengthIndex(flag).longest();
+    }
+
+    /**
+     * @param flag flag to restrict to, or null for every message
+     * @param k maximum number of messages to return
+     * @return up to k messages, longest first
+     */
+    public List<MessageManager.Message> topLongest(MessageFlag flag, int k) {
+        return lengthIndex(flag).topK(k);
+    }
+
+    /**
+     * @param flag flag to restrict to, or null for every message
+     * @param minLength shortest content length to include
+     * @param maxLength longest content length to include
+     * @return matching messages, shortest first
+     */
+    public List<MessageManager.Message> findByLength(MessageFlag flag, int minLength, int maxLength) {
+        return lengthIndex(flag).range(minLength, maxLength);
+    }
+
+    /**
+     * Full-text search over message content through the inverted index
+     * @param query words (AND), "OR" between words, or a trailing * for prefixes
+     * @return matching messages in insertion order
+     * @see ContentIndex
+     */
+    public List<MessageManager.Message> findByContent(String query) {
+        return byContent.query(query);
+    }
+
+    /**
+     * @param hash message hash to check
+     * @return true if a message with that hash is stored
+     */
+    public boolean containsHash(String hash) {
+        return byHash.containsKey(key(hash));
+    }
+
+    public int size() {
+        return byHash.size();
+    }
+
+    /**
+     * Removes every message and resets all indexes
+     * Not atomic with respect to concurrent writers
+     */
+    public void clear() {
+        byHash.clear();
+        ordered.clear();
+        byID.clear();
+        for (MessageFlag flag : MessageFlag.values()) {
+            byFlag.get(flag).clear();
+            flagCounts.get(flag).set(0);
+            byLengthPerFlag.get(flag).clear();
+        }
+        byRecipient.clear();
+        byLength.clear();
+        byContent.clear();
+    }
+
+    // ==================== LIVE VIEWS ====================
+
+    /**
+     * @return live, read-only view of all messages in insertion order
+     */
+    public Collection<MessageManager.Message> messages() {
+        return countedView(ordered.values(), byHash::size);
+    }
+
+    /**
+     * @return live, read-only view of all message hashes in insertion order
+     */
+    public Collection<String> hashes() {
+        return mappedView(MessageManager.Message::getMessageHash, byHash::containsKey);
+    }
+
+    /**
+     * @return live, read-only view of the ID of every message in insertion order
+     */
+    public Collection<String> ids() {
+        return mappedView(MessageManager.Message::getMessageID, byID::containsKey);
+    }
+
+    /**
+     * Iterating the view costs time proportional to the partition, not the whole store
+     * @param flag flag whose partition to expose
+     * @return live, read-only view of the messages carrying that flag
+     */
+    public Collection<MessageManager.Message> flagged(MessageFlag flag) {
+        AtomicInteger count = flagCounts.get(flag);
+        return countedView(byFlag.get(flag).values(), count::get);
+    }
+
+    // ==================== SAVED INDEXES ====================
+
+    /**
+     * Creates a repository holding saved messages, with only the indexes keyed
+     * directly by record fields filled in: hash, insertion order, flag and length.
+     * MessageIndexFile then installs the saved ID, recipient and content buckets.
+     * @param concurrent true to allow concurrent writers once restored
+     * @param messages messages in insertion order
+     * @param seqs sequence number of each message, boxed once and shared by every index
+     * @return the repository, still without ID, recipient and content entries
+     * @throws IllegalArgumentException if two messages share a hash
+     */
+    static MessageRepository withMessages(boolean concurrent, List<MessageManager.Message> messages, Long[] seqs) {
+        MessageRepository restored = new MessageRepository(concurrent, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            MessageManager.Message msg = messages.get(i);
+            Long seq = seqs[i];
+            if (restored.byHash.put(key(msg.getMessageHash()), new Slot(seq, msg)) != null) {
+                throw new IllegalArgumentException("Duplicate message hash " + msg.getMessageHash());
+            }
+            restored.ordered.put(seq, msg);
+            if (msg.getFlagValue() != null) {
+                restored.byFlag.get(msg.getFlagValue()).put(seq, msg);
+                restored.flagCounts.get(msg.getFlagValue()).incrementAndGet();
+                restored.byLengthPerFlag.get(msg.getFlagValue()).add(seq, msg);
+            }
+            restored.byLength.add(seq, msg);
+        }
+        restored.sequence.set(messages.isEmpty() ? 0 : seqs[messages.size() - 1]);
+        return restored;
+    }
+
+    /**
+     * Sequence numbers in insertion order; a message's position in this array is
+     * the ordinal MessageIndexFile saves for it. Writers must be held off meanwhile.
+     * @return one sequence number per message
+     */
+    long[] sequences() {
+        long[] seqs = new long[byHash.size()];
+        int count = 0;
+        for (Long seq : ordered.keySet()) {
+            if (count == seqs.length) {
+                seqs = Arrays.copyOf(seqs, count * 2 + 1);
+            }
+            seqs[count++] = seq;
+        }
+        return count == seqs.length ? seqs : Arrays.copyOf(seqs, count);
+    }
+
+    OrderedMultimap<String> idIndex() {
+        return byID;
+    }
+
+    RecipientIndex recipientIndex() {
+        return byRecipient;
+    }
+
+    ContentIndex contentIndex() {
+        return byContent;
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Removes a slot from every index, caller must hold the hash stripe
+     */
+    private Slot unlink(String hash) {
+        Slot slot = byHash.remove(hash);
+        if (slot == null) {
+            return null;
+        }
+        MessageManager.Message msg = slot.msg;
+
+        ordered.remove(slot.seq);
+        byID.remove(key(msg.getMessageID()), slot.seq);
+        if (msg.getFlagValue() != null) {
+            byFlag.get(msg.getFlagValue()).remove(slot.seq);
+            flagCounts.get(msg.getFlagValue()).decrementAndGet();
+            byLengthPerFlag.get(msg.getFlagValue()).remove(slot.seq, msg);
+        }
+        byRecipient.remove(slot.seq, msg);
+        byLength.remove(slot.seq, msg);
+        byContent.remove(slot.seq, msg);
+        return slot;
+    }
+
+    private LengthIndex lengthIndex(MessageFlag flag) {
+        return flag == null ? byLength : byLengthPerFlag.get(flag);
+    }
+
+    /**
+     * Builds a view that maps each message to one of its keys
+     */
+    private Collection<String> mappedView(Function<MessageManager.Message, String> field,
+                                          Predicate<String> contains) {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<MessageManager.Message> messages = ordered.values().iterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return messages.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return field.apply(messages.next());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return byHash.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && contains.test((String) o);
+            }
+        };
+    }
+
+    /**
+     * Wraps a collection as a read-only view whose size comes from a counter
+     */
+    private static Collection<MessageManager.Message> countedView(Collection<MessageManager.Message> values,
+                                                                   IntSupplier size) {
+        Collection<MessageManager.Message> readOnly = Collections.unmodifiableCollection(values);
+        return new AbstractCollection<MessageManager.Message>() {
+            @Override
+            public Iterator<MessageManager.Message> iterator() {
+                return readOnly.iterator();
+            }
+
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+        };
+    }
+
+    /**
+     * Locks the stripe owning a hash, or does nothing in single-threaded mode
+     */
+    private ReentrantLock lockFor(String hash) {
+        if (stripes == null) {
+            return null;
+        }
+        int h = hash.hashCode();
+        ReentrantLock lock = stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+        lock.lock();
+        return lock;
+    }
+
+    private static void unlock(ReentrantLock lock) {
+        if (lock != null) {
+            lock.unlock();
+        }
+    }
+
+    // Concurrent maps reject null keys, so missing hashes and IDs are stored as ""
+    private static String key(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Persistence backend for MessageManager messages, keyed by message hash
+ * MessageManager talks to this interface only, and MessageStores picks the
+ * implementation from configuration:
+ * - "memory":  InMemoryMessageStore, nothing written to disk
+ * - "json":    FileMessageStore, one JSON (or JSON Lines) file rewritten on change
+ * - "binary":  FileMessageStore with the block-checked binary format
+ * - "log":     LogMessageStore, checkpoint plus append-only journal
+ * - "sharded": ShardedMessageStore, shard files indexed by a manifest
+ *
+ * Further backends plug in through a Provider listed in
+ * META-INF/services/org.example.MessageStore$Provider.
+ *
+ * Part 2's Message keeps its own write-ahead log and JSON files (see MessageLog)
+ * and does not go through a MessageStore.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Sole write-through path of MessageManager
+ */
+public interface MessageStore extends Closeable {
+
+    /**
+     * Creates stores of one type from configuration
+     */
+    interface Provider {
+        /**
+         * @return the value of the "type" setting that selects this provider
+         */
+        String getType();
+
+        /**
+         * Opens or creates a store
+         * @param config settings such as "path"; see MessageStores
+         * @return the open store
+         * @throws IOException if existing data cannot be read
+         */
+        MessageStore open(Properties config) throws IOException;
+    }
+
+    /**
+     * @return short backend name shown in statistics and benchmarks
+     */
+    String getName();
+
+    /**
+     * Adds messages, replacing stored messages with the same hash
+     * @param messages messages to store
+     * @throws IOException if the store cannot be written
+     */
+    void putAll(Collection<? extends MessageManager.Message> messages) throws IOException;
+
+    /**
+     * Adds one message, replacing a stored message with the same hash
+     * @param msg message to store
+     * @throws IOException if the store cannot be written
+     */
+    default void put(MessageManager.Message msg) throws IOException {
+        putAll(List.of(msg));
+    }
+
+    /**
+     * @param hash hash of the message to remove
+     * @return true if a message was removed
+     * @throws IOException if the store cannot be written
+     */
+    boolean remove(String hash) throws IOException;
+
+    /**
+     * @param hash message hash to look up
+     * @return the stored message, or null
+     * @throws IOException if the store cannot be read
+     */
+    MessageManager.Message get(String hash) throws IOException;
+
+    /**
+     * Streams every stored message, oldest first
+     * @param sink receives each message
+     * @return number of messages delivered
+     * @throws IOException if the store cannot be read
+     */
+    long loadAll(Consumer<MessageManager.Message> sink) throws IOException;
+
+    /**
+     * @return number of stored messages
+     */
+    int size();
+
+    /**
+     * Forces every change made so far to durable storage
+     * @throws IOException if the write fails
+     */
+    void flush() throws IOException;
+}
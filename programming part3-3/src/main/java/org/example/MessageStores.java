@@ -0,0 +1,131 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+
+/**
+ * Opens the MessageStore chosen by configuration
+ *
+ * Settings (all optional):
+ *   type                 memory | json | binary | log | sharded, default json
+ *   path                 file or directory of the store, default per type below
+ *   autoFlush            json / binary: rewrite the file on every change, default true
+ *   sync                 log: ALWAYS | GROUP | NEVER, default GROUP
+ *   checkpointInterval   log: journal entries between checkpoints, default 10000
+ *   buckets              sharded: recipient buckets of a new store, default 16
+ *   format               sharded: shard file extension, ".json" or ".msgb"
+ *
+ * Default paths: json "messages.json", binary "messages.msgb", log and
+ * sharded the directories "message-log" and "message-shards".
+ *
+ * From the command line the same settings are read as system properties
+ * with a "message.store." prefix, e.g. -Dmessage.store.type=log
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Pluggable storage backends
+ */
+public final class MessageStores {
+
+    /** System property prefix read by fromSystemProperties() */
+    public static final String PROPERTY_PREFIX = "message.store.";
+
+    private static final Map<String, MessageStore.Provider> BUILT_IN = new LinkedHashMap<>();
+
+    static {
+        register("memory", config -> new InMemoryMessageStore());
+        register("json", config -> new FileMessageStore(config.getProperty("path", "messages.json"),
+                Boolean.parseBoolean(config.getProperty("autoFlush", "true"))));
+        register("binary", config -> new FileMessageStore(
+                config.getProperty("path", "messages" + MessageFiles.BINARY_EXTENSION),
+                Boolean.parseBoolean(config.getProperty("autoFlush", "true"))));
+        register("log", config -> new LogMessageStore(config.getProperty("path", "message-log"),
+                MessageLog.SyncPolicy.valueOf(config.getProperty("sync", "GROUP").toUpperCase(Locale.ROOT)),
+                Long.parseLong(config.getProperty("checkpointInterval",
+                        String.valueOf(LogMessageStore.DEFAULT_CHECKPOINT_INTERVAL)))));
+        register("sharded", config -> ShardedMessageStore.open(config.getProperty("path", "message-shards"),
+                Integer.parseInt(config.getProperty("buckets", String.valueOf(ShardedMessageStore.DEFAULT_BUCKETS))),
+                ShardedMessageStore.DEFAULT_WINDOW_MILLIS, config.getProperty("format", ".json")));
+    }
+
+    private MessageStores() {
+        // Utility class
+    }
+
+    private static void register(String type, Opener opener) {
+        BUILT_IN.put(type, new MessageStore.Provider() {
+            @Override
+            public String getType() {
+                return type;
+            }
+
+            @Override
+            public MessageStore open(Properties config) throws IOException {
+                return opener.open(config);
+            }
+        });
+    }
+
+    private interface Opener {
+        MessageStore open(Properties config) throws IOException;
+    }
+
+    /**
+     * Opens the store described by the settings
+     * Built-in types are tried first, then providers found through ServiceLoader
+     * @param config settings listed above
+     * @return the open store
+     * @throws IOException if the store's existing data cannot be read
+     * @throws IllegalArgumentException if the type is unknown or a setting is invalid
+     */
+    public static MessageStore open(Properties config) throws IOException {
+        String type = config.getProperty("type", "json").trim().toLowerCase(Locale.ROOT);
+        MessageStore.Provider provider = BUILT_IN.get(type);
+        if (provider == null) {
+            for (MessageStore.Provider candidate : ServiceLoader.load(MessageStore.Provider.class)) {
+                if (type.equalsIgnoreCase(candidate.getType())) {
+                    provider = candidate;
+                    break;
+                }
+            }
+        }
+        if (provider == null) {
+            throw new IllegalArgumentException("Unknown message store type: " + type);
+        }
+        return provider.open(config);
+    }
+
+    /**
+     * Opens a store of one type with its default settings and the given path
+     * @param type memory, json, binary, log or sharded
+     * @param path file or directory of the store, or null for the default
+     * @return the open store
+     * @throws IOException if the store's existing data cannot be read
+     */
+    public static MessageStore open(String type, String path) throws IOException {
+        Properties config = new Properties();
+        config.setProperty("type", type);
+        if (path != null) {
+            config.setProperty("path", path);
+        }
+        return open(config);
+    }
+
+    /**
+     * Opens the store configured with "message.store.*" system properties
+     * @return the open store; a JSON file store when nothing is set
+     * @throws IOException if the store's existing data cannot be read
+     */
+    public static MessageStore fromSystemProperties() throws IOException {
+        Properties config = new Properties();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX)) {
+                config.setProperty(name.substring(PROPERTY_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return open(config);
+    }
+}
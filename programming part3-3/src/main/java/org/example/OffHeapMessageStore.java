@@ -0,0 +1,334 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Off-heap message store
+ * Message records live in direct ByteBuffer chunks outside the Java heap, so the
+ * garbage collector never scans them. Only small index structures stay on-heap:
+ * - one long address and one int recipient link per message
+ * - the hash and ID RowHashIndex tables
+ * - one entry per distinct recipient
+ *
+ * Record layout inside a chunk:
+ * [flag:1][hash len:2][id len:2][recipient len:2][sender len:2][content len:4][UTF-8 bytes]
+ *
+ * Deleted records are tombstoned in place; their space is not reused.
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Refused replacements keep the record they would replace
+ */
+public class OffHeapMessageStore implements MessageArchive {
+
+    // Default size of each direct buffer chunk
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private static final int HEADER_BYTES = 1 + 2 + 2 + 2 + 2 + 4;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+
+    // Flag byte markers besides MessageFlag.code()
+    private static final byte NO_FLAG = -1;
+    private static final byte DELETED = -2;
+
+    private final int chunkBytes;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private long offHeapBytes;
+
+    private int rows;
+    private int live;
+
+    // (chunk index << 32) | position of each record
+    private long[] addresses = new long[16];
+    // Previous row for the same recipient, -1 at the end
+    private int[] nextSameRecipient = new int[16];
+
+    // Normalized recipient key -> newest row
+    private final Map<Object, Integer> recipientHeads = new HashMap<>();
+
+    private final RowHashIndex hashIndex = new RowHashIndex();
+    private final RowHashIndex idIndex = new RowHashIndex();
+
+    private final int[] flagCounts = new int[MessageFlag.values().length];
+
+    private final LongestRows longestRows = new LongestRows(new LongestRows.Rows() {
+        @Override
+        public int count() {
+            return rows;
+        }
+
+        @Override
+        public boolean matches(int row, MessageFlag flag) {
+            return matchesFlag(row, flag);
+        }
+
+        @Override
+        public int contentBytes(int row) {
+            return fieldLength(row, ArchiveRow.CONTENT_FIELD);
+        }
+
+        @Override
+        public int contentChars(int row) {
+            return fieldString(row, ArchiveRow.CONTENT_FIELD).length();
+        }
+    });
+
+    public OffHeapMessageStore() {
+        this(DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param chunkBytes size of each direct buffer; larger records get a chunk of their own
+     */
+    public OffHeapMessageStore(int chunkBytes) {
+        if (chunkBytes < HEADER_BYTES) {
+            throw new IllegalArgumentException("Chunk size must be at least " + HEADER_BYTES + " bytes");
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    @Override
+    public String getName() {
+        return "off-heap";
+    }
+
+    @Override
+    public synchronized void add(MessageManager.Message msg) {
+        // Encode before removing a replaced record, so a refused message leaves the store as it was
+        byte[] hash = ArchiveRow.fieldBytes(msg.getMessageHash(), "hash", MAX_FIELD_BYTES);
+        byte[] id = ArchiveRow.fieldBytes(msg.getMessageID(), "ID", MAX_FIELD_BYTES);
+        byte[] recipient = ArchiveRow.fieldBytes(msg.getRecipient(), "recipient", MAX_FIELD_BYTES);
+        byte[] sender = ArchiveRow.fieldBytes(msg.getSender(), "sender", MAX_FIELD_BYTES);
+        byte[] content = RowHashIndex.keyBytes(msg.getMessage());
+
+        removeRow(findRow(msg.getMessageHash()));
+
+        int size = HEADER_BYTES + hash.length + id.length + recipient.length + sender.length + content.length;
+        ByteBuffer chunk = chunkFor(size);
+        int position = chunk.position();
+
+        MessageFlag flag = msg.getFlagValue();
+        chunk.put(flag != null ? flag.code() : NO_FLAG);
+        chunk.putShort((short) hash.length);
+        chunk.putShort((short) id.length);
+        chunk.putShort((short) recipient.length);
+        chunk.putShort((short) sender.length);
+        chunk.putInt(content.length);
+        chunk.put(hash).put(id).put(recipient).put(sender).put(content);
+
+        ensureCapacity(rows + 1);
+        int row = rows++;
+        addresses[row] = ((long) (chunks.size() - 1) << 32) | position;
+
+        Integer head = recipientHeads.put(PhoneNumbers.recipientGroup(msg.getRecipient()), row);
+        nextSameRecipient[row] = head != null ? head : -1;
+
+        hashIndex.insert(msg.getMessageHash(), row);
+        idIndex.insert(msg.getMessageID(), row);
+        if (flag != null) {
+            flagCounts[flag.ordinal()]++;
+        }
+        longestRows.added(row, flag, msg.getMessage() != null ? msg.getMessage().length() : 0);
+        live++;
+    }
+
+    @Override
+    public synchronized MessageManager.Message findByHash(String hash) {
+        int row = findRow(hash);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public synchronized MessageManager.Message findByID(String id) {
+        int row = idIndex.find(id, (candidate, key) -> fieldEquals(candidate, ArchiveRow.ID_FIELD, key));
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public synchronized List<MessageManager.Message> findByRecipient(String recipient) {
+        Integer head = recipientHeads.get(PhoneNumbers.recipientGroup(recipient));
+        if (head == null) {
+            return Collections.emptyList();
+        }
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (int row = head; row >= 0; row = nextSameRecipient[row]) {
+            if (flagByte(row) != DELETED) {
+                result.add(new Row(row));
+            }
+        }
+        // The chain runs newest first
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public synchronized void forEach(MessageFlag flag, Consumer<MessageManager.Message> action) {
+        Row cursor = new Row(0);
+        for (int row = 0; row < rows; row++) {
+            if (matchesFlag(row, flag)) {
+                cursor.row = row;
+                action.accept(cursor);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int count(MessageFlag flag) {
+        return flag == null ? live : flagCounts[flag.ordinal()];
+    }
+
+    @Override
+    public synchronized MessageManager.Message longest(MessageFlag flag) {
+        int row = longestRows.longest(flag);
+        return row >= 0 ? new Row(row) : null;
+    }
+
+    @Override
+    public synchronized boolean remove(String hash) {
+        return removeRow(findRow(hash));
+    }
+
+    @Override
+    public synchronized long estimatedHeapBytes() {
+        long arrays = (long) addresses.length * (8 + 4);
+        long buffers = 64L * chunks.size();
+        return arrays + buffers + 64L * recipientHeads.size()
+                + hashIndex.estimatedHeapBytes() + idIndex.estimatedHeapBytes();
+    }
+
+    /**
+     * @return direct memory reserved by the record chunks
+     */
+    public synchronized long offHeapBytes() {
+        return offHeapBytes;
+    }
+
+    // ==================== RECORD ACCESS ====================
+
+    private ByteBuffer chunkOf(int row) {
+        return chunks.get((int) (addresses[row] >>> 32));
+    }
+
+    private int positionOf(int row) {
+        return (int) addresses[row];
+    }
+
+    private byte flagByte(int row) {
+        return chunkOf(row).get(positionOf(row));
+    }
+
+    private int fieldLength(int row, int field) {
+        ByteBuffer chunk = chunkOf(row);
+        int position = positionOf(row);
+        if (field == ArchiveRow.CONTENT_FIELD) {
+            return chunk.getInt(position + 9);
+        }
+        return chunk.getShort(position + 1 + 2 * field) & 0xFFFF;
+    }
+
+    private int fieldOffset(int row, int field) {
+        int offset = positionOf(row) + HEADER_BYTES;
+        for (int i = 0; i < field; i++) {
+            offset += fieldLength(row, i);
+        }
+        return offset;
+    }
+
+    private String fieldString(int row, int field) {
+        byte[] bytes = new byte[fieldLength(row, field)];
+        chunkOf(row).get(fieldOffset(row, field), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean fieldEquals(int row, int field, byte[] key) {
+        if (flagByte(row) == DELETED || fieldLength(row, field) != key.length) {
+            return false;
+        }
+        ByteBuffer chunk = chunkOf(row);
+        int offset = fieldOffset(row, field);
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private int findRow(String hash) {
+        return hashIndex.find(hash, (candidate, key) -> fieldEquals(candidate, ArchiveRow.HASH_FIELD, key));
+    }
+
+    private boolean removeRow(int row) {
+        if (row < 0) {
+            return false;
+        }
+        byte flag = flagByte(row);
+        if (flag == DELETED) {
+            return false;
+        }
+        hashIndex.remove(fieldString(row, ArchiveRow.HASH_FIELD), row);
+        idIndex.remove(fieldString(row, ArchiveRow.ID_FIELD), row);
+        if (flag != NO_FLAG) {
+            flagCounts[flag]--;
+        }
+        chunkOf(row).put(positionOf(row), DELETED);
+        longestRows.removed(row);
+        live--;
+        return true;
+    }
+
+    private boolean matchesFlag(int row, MessageFlag flag) {
+        byte code = flagByte(row);
+        return code != DELETED && (flag == null || code == flag.code());
+    }
+
+    /**
+     * Returns a chunk with room for the record, allocating a new direct buffer if needed
+     */
+    private ByteBuffer chunkFor(int size) {
+        if (current == null || current.remaining() < size) {
+            current = ByteBuffer.allocateDirect(Math.max(chunkBytes, size));
+            chunks.add(current);
+            offHeapBytes += current.capacity();
+        }
+        return current;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= addresses.length) {
+            return;
+        }
+        int capacity = Math.max(needed, addresses.length * 2);
+        addresses = Arrays.copyOf(addresses, capacity);
+        nextSameRecipient = Arrays.copyOf(nextSameRecipient, capacity);
+    }
+
+    /**
+     * Flyweight view of one record; every getter decodes straight from direct memory
+     */
+    private final class Row extends ArchiveRow {
+        Row(int row) {
+            super(row);
+        }
+
+        @Override
+        String field(int field) {
+            return fieldString(row, field);
+        }
+
+        @Override
+        byte flagCode() {
+            return flagByte(row);
+        }
+    }
+}
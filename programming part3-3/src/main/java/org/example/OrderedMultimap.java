@@ -0,0 +1,143 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Multimap from an index key to messages, ordered by insertion sequence
+ * Shared building block for the ID and recipient indexes of MessageRepository
+ *
+ * In concurrent mode the buckets are ConcurrentHashMap/ConcurrentSkipListMap,
+ * so readers never lock and empty buckets are dropped atomically with compute().
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Whole-bucket access for saved indexes
+ */
+class OrderedMultimap<K> {
+    private final boolean concurrent;
+    private final Map<K, Map<Long, MessageManager.Message>> buckets;
+
+    /**
+     * @param concurrent true to use lock-free concurrent maps
+     */
+    OrderedMultimap(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.buckets = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Adds a message under a key
+     * @param key index key
+     * @param seq insertion sequence number assigned by the repository
+     * @param msg message to add
+     */
+    void put(K key, long seq, MessageManager.Message msg) {
+        buckets.compute(key, (k, bucket) -> {
+            Map<Long, MessageManager.Message> target = bucket != null ? bucket : orderedMap(concurrent);
+            target.put(seq, msg);
+            return target;
+        });
+    }
+
+    /**
+     * Removes a message from a key, dropping the bucket once it is empty
+     * @param key index key
+     * @param seq insertion sequence number of the message
+     * @return true if the message was stored under the key
+     */
+    boolean remove(K key, long seq) {
+        boolean[] removed = new boolean[1];
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            removed[0] = bucket.remove(seq) != null;
+            return bucket.isEmpty() ? null : bucket;
+        });
+        return removed[0];
+    }
+
+    /**
+     * @param key index key
+     * @return read-only messages for the key in insertion order
+     */
+    Collection<MessageManager.Message> get(K key) {
+        Map<Long, MessageManager.Message> bucket = buckets.get(key);
+        return bucket == null ? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+    }
+
+    /**
+     * @param key index key
+     * @return the earliest message stored under the key, or null
+     */
+    MessageManager.Message first(K key) {
+        Map<Long, MessageManager.Message> bucket = buckets.get(key);
+        if (bucket == null) {
+            return null;
+        }
+        for (MessageManager.Message msg : bucket.values()) {
+            return msg;
+        }
+        return null;
+    }
+
+    /**
+     * Visits every non-empty bucket, for saving the index
+     * @param action receives each key with its messages keyed by insertion sequence
+     */
+    void forEachBucket(BiConsumer<K, Map<Long, MessageManager.Message>> action) {
+        buckets.forEach((key, bucket) -> {
+            if (!bucket.isEmpty()) {
+                action.accept(key, bucket);
+            }
+        });
+    }
+
+    /**
+     * Installs a complete bucket, for restoring a saved index
+     * @param key index key not present yet
+     * @param bucket messages in insertion order, built with orderedMap()
+     */
+    void putBucket(K key, Map<Long, MessageManager.Message> bucket) {
+        buckets.put(key, bucket);
+    }
+
+    boolean containsKey(K key) {
+        return buckets.containsKey(key);
+    }
+
+    /**
+     * @return number of distinct keys
+     */
+    int keyCount() {
+        return buckets.size();
+    }
+
+    void clear() {
+        buckets.clear();
+    }
+
+    /**
+     * Creates an insertion-ordered map keyed by sequence number
+     * LinkedHashMap when single-threaded, ConcurrentSkipListMap otherwise
+     * (sequence numbers only grow, so key order is insertion order)
+     * @param concurrent true for a lock-free map
+     * @return new empty map
+     */
+    static Map<Long, MessageManager.Message> orderedMap(boolean concurrent) {
+        return concurrent ? new ConcurrentSkipListMap<>() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates an insertion-ordered map sized for a known number of messages
+     * @param concurrent true for a lock-free map
+     * @param expectedSize messages about to be added
+     * @return new empty map
+     */
+    static Map<Long, MessageManager.Message> orderedMap(boolean concurrent, int expectedSize) {
+        return concurrent ? new ConcurrentSkipListMap<>() : new LinkedHashMap<>((int) (expectedSize / 0.75f) + 1);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+/**
+ * Normalizes recipient phone numbers to E.164 digits packed into a long
+ * "0838884567", "+27838884567" and "0027 83 888 4567" all map to 27838884567
+ *
+ * Uses a hand-written character loop instead of regex because it runs
+ * on every insert, delete and recipient query.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Shared recipient grouping key
+ */
+public final class PhoneNumbers {
+
+    /** Returned when a number cannot be normalized */
+    public static final long INVALID = -1L;
+
+    /** Country code applied to national numbers starting with a single 0 */
+    public static final String DEFAULT_COUNTRY_CODE = "27";
+
+    // E.164 allows at most 15 digits, which always fits in a long
+    private static final int MAX_DIGITS = 15;
+
+    private PhoneNumbers() {
+        // Utility class
+    }
+
+    /**
+     * Normalizes a phone number to its E.164 digits
+     * Accepts "+27...", "0027..." and national "0..." spellings,
+     * ignoring spaces, dashes, dots and brackets
+     * @param raw phone number as typed
+     * @return E.164 digits as a long, or INVALID if the number cannot be parsed
+     */
+    public static long normalize(String raw) {
+        String digits = digitsOf(raw);
+        if (digits == null || digits.isEmpty() || digits.length() > MAX_DIGITS) {
+            return INVALID;
+        }
+        return Long.parseLong(digits);
+    }
+
+    /**
+     * Normalizes a partial number such as "+2783" or "083" to its E.164 digit prefix
+     * @param raw prefix as typed
+     * @return E.164 digit prefix, or null if it contains invalid characters
+     */
+    public static String normalizePrefix(String raw) {
+        String digits = digitsOf(raw);
+        return digits != null && digits.length() <= MAX_DIGITS ? digits : null;
+    }
+
+    /**
+     * Formats a normalized key back into "+27..." form
+     * @param key value returned by normalize
+     * @return international representation, or null for INVALID
+     */
+    public static String format(long key) {
+        return key == INVALID ? null : "+" + key;
+    }
+
+    /**
+     * Key that groups every spelling of one number together
+     * Used by stores that chain or bucket messages by recipient
+     * @param raw recipient as stored
+     * @return the normalized number as a Long, or the exact text if it is not a number
+     */
+    public static Object recipientGroup(String raw) {
+        long key = normalize(raw);
+        return key != INVALID ? (Object) key : (Object) String.valueOf(raw);
+    }
+
+    /**
+     * Strips formatting characters and resolves the international/national prefix
+     * @return E.164 digits, or null if an unexpected character is found
+     */
+    private static String digitsOf(String raw) {
+        if (raw == null) {
+            return null;
+        }
+
+        StringBuilder digits = new StringBuilder(MAX_DIGITS + 2);
+        boolean international = false;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == '+' && digits.length() == 0 && !international) {
+                international = true;
+            } else if (c != ' ' && c != '-' && c != '(' && c != ')' && c != '.') {
+                return null;
+            }
+        }
+
+        if (international) {
+            return digits.toString();
+        }
+        if (digits.length() >= 2 && digits.charAt(0) == '0' && digits.charAt(1) == '0') {
+            // "00" international dialling prefix
+            return digits.substring(2);
+        }
+        if (digits.length() >= 1 && digits.charAt(0) == '0') {
+            // National number: swap the trunk 0 for the country code
+            return DEFAULT_COUNTRY_CODE + digits.substring(1);
+        }
+        return digits.toString();
+    }
+}
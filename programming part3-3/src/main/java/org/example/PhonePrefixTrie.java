@@ -0,0 +1,149 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Digit trie over normalized E.164 recipient numbers
+ * Each node counts the messages sent to numbers below it, so
+ * "how many messages went to +2783..." is a walk down the prefix digits
+ * and nothing else
+ *
+ * Nodes are created with compare-and-set and never removed, so the same
+ * trie serves concurrent writers and lock-free readers. Numbers whose count
+ * drops to zero are skipped by every query. At most 15 nodes exist per
+ * distinct number ever seen.
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Bulk counts for restored indexes
+ */
+public class PhonePrefixTrie {
+
+    private static final class Node {
+        final AtomicReferenceArray<Node> children = new AtomicReferenceArray<>(10);
+        // Messages for every number in this subtree
+        final AtomicInteger subtreeCount = new AtomicInteger();
+        // Messages for the number ending exactly here
+        final AtomicInteger ownCount = new AtomicInteger();
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Counts one more message for a number
+     * @param key normalized number from PhoneNumbers.normalize
+     */
+    public void add(long key) {
+        add(key, 1);
+    }
+
+    /**
+     * Counts several messages for a number in one walk
+     * @param key normalized number from PhoneNumbers.normalize
+     * @param messages messages to count, e.g. a whole restored recipient bucket
+     */
+    public void add(long key, int messages) {
+        String digits = Long.toString(key);
+        Node node = root;
+        node.subtreeCount.addAndGet(messages);
+        for (int i = 0; i < digits.length(); i++) {
+            node = childOf(node, digits.charAt(i) - '0');
+            node.subtreeCount.addAndGet(messages);
+        }
+        node.ownCount.addAndGet(messages);
+    }
+
+    /**
+     * Counts one message less for a number
+     * @param key normalized number from PhoneNumbers.normalize
+     */
+    public void remove(long key) {
+        Node node = find(Long.toString(key));
+        if (node == null || node.ownCount.get() == 0) {
+            return;
+        }
+        node.ownCount.decrementAndGet();
+        String digits = Long.toString(key);
+        Node step = root;
+        step.subtreeCount.decrementAndGet();
+        for (int i = 0; i < digits.length(); i++) {
+            step = step.children.get(digits.charAt(i) - '0');
+            step.subtreeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * @param prefix E.164 digit prefix from PhoneNumbers.normalizePrefix
+     * @return number of messages sent to numbers starting with it, O(prefix length)
+     */
+    public int count(String prefix) {
+        Node node = find(prefix);
+        return node == null ? 0 : node.subtreeCount.get();
+    }
+
+    /**
+     * Lists the numbers under a prefix in ascending order
+     * Skips empty branches, so the cost is the prefix plus the numbers returned
+     * @param prefix E.164 digit prefix from PhoneNumbers.normalizePrefix
+     * @param limit maximum numbers to return
+     * @return normalized keys of the numbers that currently have messages
+     */
+    public List<Long> numbers(String prefix, int limit) {
+        List<Long> result = new ArrayList<>();
+        Node node = find(prefix);
+        if (node != null && limit > 0) {
+            collect(node, new StringBuilder(prefix), limit, result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes every number
+     * Not atomic with respect to concurrent writers
+     */
+    public void clear() {
+        for (int digit = 0; digit < 10; digit++) {
+            root.children.set(digit, null);
+        }
+        root.subtreeCount.set(0);
+        root.ownCount.set(0);
+    }
+
+    // ==================== INTERNALS ====================
+
+    private Node find(String prefix) {
+        if (prefix == null) {
+            return null;
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i) - '0');
+        }
+        return node;
+    }
+
+    private static Node childOf(Node node, int digit) {
+        Node child = node.children.get(digit);
+        if (child == null) {
+            node.children.compareAndSet(digit, null, new Node());
+            child = node.children.get(digit);
+        }
+        return child;
+    }
+
+    private static void collect(Node node, StringBuilder digits, int limit, List<Long> result) {
+        if (node.ownCount.get() > 0 && digits.length() > 0) {
+            result.add(Long.parseLong(digits.toString()));
+        }
+        for (int digit = 0; digit < 10 && result.size() < limit; digit++) {
+            Node child = node.children.get(digit);
+            if (child != null && child.subtreeCount.get() > 0) {
+                digits.append((char) ('0' + digit));
+                collect(child, digits, limit, result);
+                digits.setLength(digits.length() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Recipient multimap index used by MessageRepository
+ * Every number is stored under its normalized E.164 key (see PhoneNumbers),
+ * so different spellings of the same number share one conversation
+ *
+ * Numbers that cannot be normalized are still indexed by their exact text,
+ * but only normalized numbers take part in prefix queries.
+ *
+ * @author Heloisa Campos
+ * @version 1.3 - Saved and restored buckets
+ */
+public class RecipientIndex {
+
+    // Normalized E.164 key -> messages, insertion ordered
+    private final OrderedMultimap<Long> byNumber;
+
+    // Fallback for recipients that are not valid phone numbers
+    private final OrderedMultimap<String> byRawText;
+
+    // Digit trie over the normalized keys, for prefix queries
+    private final PhonePrefixTrie prefixes = new PhonePrefixTrie();
+
+    /**
+     * Creates a single-threaded index
+     */
+    public RecipientIndex() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent true to allow concurrent writers and lock-free readers
+     */
+    public RecipientIndex(boolean concurrent) {
+        byNumber = new OrderedMultimap<>(concurrent);
+        byRawText = new OrderedMultimap<>(concurrent);
+    }
+
+    /**
+     * Indexes a message under its recipient
+     * @param seq insertion sequence number assigned by the repository
+     * @param msg message to index
+     */
+    public void add(long seq, MessageManager.Message msg) {
+        long key = PhoneNumbers.normalize(msg.getRecipient());
+        if (key != PhoneNumbers.INVALID) {
+            byNumber.put(key, seq, msg);
+            prefixes.add(key);
+        } else {
+            byRawText.put(rawKey(msg.getRecipient()), seq, msg);
+        }
+    }
+
+    /**
+     * Removes a message from its recipient bucket
+     * @param seq insertion sequence number of the message
+     * @param msg message to remove
+     */
+    public void remove(long seq, MessageManager.Message msg) {
+        long key = PhoneNumbers.normalize(msg.getRecipient());
+        if (key != PhoneNumbers.INVALID) {
+            if (byNumber.remove(key, seq)) {
+                prefixes.remove(key);
+            }
+        } else {
+            byRawText.remove(rawKey(msg.getRecipient()), seq);
+        }
+    }
+
+    /**
+     * Finds every message sent to a recipient, whatever spelling was used
+     * @param recipient phone number in any supported format
+     * @return read-only messages for that recipient in insertion order
+     */
+    public Collection<MessageManager.Message> find(String recipient) {
+        long key = PhoneNumbers.normalize(recipient);
+        return key != PhoneNumbers.INVALID ? byNumber.get(key) : byRawText.get(rawKey(recipient));
+    }
+
+    /**
+     * @param key normalized E.164 key from PhoneNumbers.normalize
+     * @return read-only messages for that key in insertion order
+     */
+    public Collection<MessageManager.Message> find(long key) {
+        return byNumber.get(key);
+    }
+
+    /**
+     * @param prefix partial number in any supported spelling, e.g. "+2783" or "083"
+     * @return number of messages sent to numbers starting with it, O(prefix length)
+     */
+    public int countByPrefix(String prefix) {
+        return prefixes.count(PhoneNumbers.normalizePrefix(prefix));
+    }
+
+    /**
+     * Lists the messages sent to every number under a prefix
+     * @param prefix partial number in any supported spelling
+     * @return messages grouped by number in ascending order, each group in insertion order
+     */
+    public List<MessageManager.Message> findByPrefix(String prefix) {
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (long key : prefixes.numbers(PhoneNumbers.normalizePrefix(prefix), Integer.MAX_VALUE)) {
+            result.addAll(byNumber.get(key));
+        }
+        return result;
+    }
+
+    /**
+     * Autocompletes a partially typed number
+     * @param prefix partial number in any supported spelling
+     * @param limit maximum suggestions to return
+     * @return known numbers starting with the prefix in "+27..." form, ascending
+     */
+    public List<String> suggest(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        for (long key : prefixes.numbers(PhoneNumbers.normalizePrefix(prefix), limit)) {
+            result.add(PhoneNumbers.format(key));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of distinct recipients currently indexed
+     */
+    public int recipientCount() {
+        return byNumber.keyCount() + byRawText.keyCount();
+    }
+
+    public void clear() {
+        byNumber.clear();
+        byRawText.clear();
+        prefixes.clear();
+    }
+
+    /**
+     * Visits every bucket of normalized numbers, for MessageIndexFile
+     * @param action receives each normalized key with its messages keyed by insertion sequence
+     */
+    void forEachNumber(BiConsumer<Long, Map<Long, MessageManager.Message>> action) {
+        byNumber.forEachBucket(action);
+    }
+
+    /**
+     * Visits every bucket of recipients that are not phone numbers, for MessageIndexFile
+     * @param action receives each recipient text with its messages keyed by insertion sequence
+     */
+    void forEachRawText(BiConsumer<String, Map<Long, MessageManager.Message>> action) {
+        byRawText.forEachBucket(action);
+    }
+
+    /**
+     * Installs a saved bucket without normalizing any recipient again
+     * @param key normalized number the bucket was saved under
+     * @param bucket messages in insertion order
+     */
+    void restoreNumber(long key, Map<Long, MessageManager.Message> bucket) {
+        byNumber.putBucket(key, bucket);
+        prefixes.add(key, bucket.size());
+    }
+
+    /**
+     * Installs a saved bucket of a recipient that is not a phone number
+     * @param text recipient text the bucket was saved under
+     * @param bucket messages in insertion order
+     */
+    void restoreRawText(String text, Map<Long, MessageManager.Message> bucket) {
+        byRawText.putBucket(text, bucket);
+    }
+
+    // Concurrent maps reject null keys, so a missing recipient is indexed as ""
+    private static String rawKey(String recipient) {
+        return recipient != null ? recipient : "";
+    }
+}
@@ -0,0 +1,211 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buffered sink for the console reports of MessageManager
+ * Rows are written straight into a buffered Writer instead of one
+ * System.out.printf call per row, so a report can go to the console,
+ * a file or a StringWriter in a test with the same code
+ *
+ * Formatting is precomputed: padding comes from one shared run of spaces,
+ * separator rules are cached per width, and previews are written as a
+ * slice of the message instead of a new substring. The output matches
+ * printf("%-Ns") padding exactly.
+ *
+ * Write errors are rethrown as UncheckedIOException.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Streaming report sink
+ */
+public class ReportWriter implements Closeable {
+
+    // Buffer size for file and stream sinks
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    // Shared padding source, grown on demand
+    private static char[] spaces = new char[128];
+
+    static {
+        Arrays.fill(spaces, ' ');
+    }
+
+    private final Writer out;
+    private final boolean closeTarget;
+
+    // Cached separator rules, keyed by character and width
+    private final Map<Integer, String> cachedRules = new HashMap<>();
+
+    /**
+     * @param out destination; wrapped in a BufferedWriter unless it already is one
+     */
+    public ReportWriter(Writer out) {
+        this(out, true);
+    }
+
+    private ReportWriter(Writer out, boolean closeTarget) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_CHARS);
+        this.closeTarget = closeTarget;
+    }
+
+    /**
+     * @param stream destination, written as UTF-8
+     * @return a buffered report writer over the stream
+     */
+    public static ReportWriter of(OutputStream stream) {
+        return new ReportWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param filePath file to create or overwrite
+     * @return a buffered report writer over the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static ReportWriter toFile(String filePath) throws IOException {
+        return of(new FileOutputStream(filePath));
+    }
+
+    /**
+     * Writes to the current System.out in the platform charset, as println does
+     * close() flushes but leaves System.out open
+     * @return a buffered report writer over the console
+     */
+    public static ReportWriter toConsole() {
+        PrintStream console = System.out;
+        return new ReportWriter(new OutputStreamWriter(console, Charset.defaultCharset()), false);
+    }
+
+    // ==================== WRITING ====================
+
+    /**
+     * Writes text followed by a line separator, like println
+     */
+    public ReportWriter line(String text) {
+        return text(text).text(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes a rule of one character, like println("=".repeat(width))
+     */
+    public ReportWriter rule(char c, int width) {
+        return line(ruleOf(c, width));
+    }
+
+    /**
+     * Writes text without a line break
+     */
+    public ReportWriter text(String text) {
+        try {
+            out.write(String.valueOf(text));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a left-aligned cell, like printf("%-Ns ", value)
+     * @param value cell text, "null" when null as with printf
+     * @param width minimum width
+     */
+    public ReportWriter cell(String value, int width) {
+        return preview(value, Integer.MAX_VALUE, width).text(" ");
+    }
+
+    /**
+     * Writes the last cell of a row and ends the row with "\n", like printf("%-Ns\n", value)
+     */
+    public ReportWriter lastCell(String value, int width) {
+        return preview(value, Integer.MAX_VALUE, width).text("\n");
+    }
+
+    /**
+     * Writes the last cell as a preview, cut to maxChars plus "..." when longer
+     * @param value full text
+     * @param maxChars characters kept before the "..."
+     * @param width minimum width after cutting
+     */
+    public ReportWriter lastPreviewCell(String value, int maxChars, int width) {
+        return preview(value, maxChars, width).text("\n");
+    }
+
+    /**
+     * Flushes buffered rows to the destination
+     */
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes, and closes the destination unless it is the console
+     */
+    @Override
+    public void close() {
+        try {
+            if (closeTarget) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private ReportWriter preview(String value, int maxChars, int width) {
+        String text = String.valueOf(value);
+        try {
+            int written;
+            if (text.length() > maxChars) {
+                out.write(text, 0, maxChars);
+                out.write("...");
+                written = maxChars + 3;
+            } else {
+                out.write(text);
+                written = text.length();
+            }
+            pad(width - written);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    private void pad(int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        char[] source = spaces;
+        if (count > source.length) {
+            source = new char[Math.max(count, source.length * 2)];
+            Arrays.fill(source, ' ');
+            spaces = source;
+        }
+        out.write(source, 0, count);
+    }
+
+    private String ruleOf(char c, int width) {
+        return cachedRules.computeIfAbsent((c << 16) | width, key -> String.valueOf(c).repeat(width));
+    }
+}
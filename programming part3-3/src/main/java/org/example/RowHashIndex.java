@@ -0,0 +1,147 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from a string key to an int row number
+ * Used by the archive stores so a lookup needs two int arrays instead of
+ * a HashMap entry and a String per message
+ *
+ * The keys themselves are not stored: the owning store checks a candidate
+ * row against the key's UTF-8 bytes through a RowMatcher. Duplicate keys are
+ * allowed and find() returns the one inserted first.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Compact row index for archive stores
+ */
+final class RowHashIndex {
+
+    /**
+     * Checks whether a row holds the given key
+     */
+    interface RowMatcher {
+        boolean matches(int row, byte[] keyBytes);
+    }
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final double MAX_LOAD = 0.6;
+
+    // row + 1 per slot, EMPTY or DELETED otherwise
+    private int[] slots;
+    // Cached String.hashCode of each slot key, so probing rarely touches row data
+    private int[] hashes;
+    private int used;
+    private int live;
+
+    RowHashIndex() {
+        slots = new int[16];
+        hashes = new int[16];
+    }
+
+    /**
+     * Adds a key for a row; earlier rows with the same key keep priority
+     */
+    void insert(String key, int row) {
+        if (used + 1 > slots.length * MAX_LOAD) {
+            rehash(live * 2 + 1 > slots.length * MAX_LOAD ? slots.length * 2 : slots.length);
+        }
+        place(hashOf(key), row);
+        used++;
+        live++;
+    }
+
+    /**
+     * @return the first row inserted with the key, or -1
+     */
+    int find(String key, RowMatcher matcher) {
+        int hash = hashOf(key);
+        byte[] keyBytes = keyBytes(key);
+        int mask = slots.length - 1;
+        for (int i = mix(hash) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] != DELETED && hashes[i] == hash && matcher.matches(slots[i] - 1, keyBytes)) {
+                return slots[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the entry pointing at a specific row
+     * @return true if the entry was found
+     */
+    boolean remove(String key, int row) {
+        int hash = hashOf(key);
+        int mask = slots.length - 1;
+        for (int i = mix(hash) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == row + 1) {
+                slots[i] = DELETED;
+                live--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return live;
+    }
+
+    /**
+     * @return heap bytes held by the two slot arrays
+     */
+    long estimatedHeapBytes() {
+        return 8L * slots.length + 32;
+    }
+
+    static byte[] keyBytes(String key) {
+        return key != null ? key.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static int hashOf(String key) {
+        return key != null ? key.hashCode() : 0;
+    }
+
+    // Spreads String.hashCode so sequential keys like "M1", "M2" do not cluster
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void place(int hash, int row) {
+        int mask = slots.length - 1;
+        int i = mix(hash) & mask;
+        while (slots[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = row + 1;
+        hashes[i] = hash;
+    }
+
+    /**
+     * Rebuilds the table, dropping DELETED markers; keeps probe order so
+     * duplicates still come back in insertion order
+     */
+    private void rehash(int capacity) {
+        int[] oldSlots = slots;
+        int[] oldHashes = hashes;
+
+        // Live entries sorted by row keep "first inserted wins" for duplicates
+        long[] entries = new long[live];
+        int n = 0;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] > 0) {
+                entries[n++] = ((long) (oldSlots[i] - 1) << 32) | (oldHashes[i] & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(entries, 0, n);
+
+        slots = new int[capacity];
+        hashes = new int[capacity];
+        for (int i = 0; i < n; i++) {
+            place((int) entries[i], (int) (entries[i] >>> 32));
+        }
+        used = n;
+    }
+}
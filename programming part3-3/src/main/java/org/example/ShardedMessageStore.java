@@ -0,0 +1,532 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * On-disk message storage split into shards by recipient bucket and time window
+ * Instead of one messages.json that every load and save touches, each shard
+ * file holds the messages for one bucket of recipients written during one
+ * time window, and a manifest lists the shards. A query for one recipient reads
+ * only that recipient's bucket; a mutation rewrites only the shard holding
+ * the message.
+ *
+ * Neither message model carries a timestamp, so the time window is the one in
+ * which the message was first written to the store. Later updates keep the
+ * message in its original shard, unless its new recipient falls in another
+ * bucket: it then moves to that bucket's shard for the current window.
+ *
+ * Directory layout:
+ *   manifest.json        buckets, window length, file format and every shard
+ *   b03-w000123.json     messages of bucket 3 first written in window 123
+ *
+ * Shard files use MessageFiles, so ".msgb" selects the binary format.
+ * Every shard and the manifest are written to a temporary file and moved into place.
+ *
+ * As a MessageStore, lookups and removals by hash alone go through a
+ * hash -> recipient directory, built from one full read on first use.
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Messages move with their recipient's bucket
+ */
+public class ShardedMessageStore implements MessageStore {
+
+    /** Default number of recipient buckets */
+    public static final int DEFAULT_BUCKETS = 16;
+
+    /** Default time window: 30 days */
+    public static final long DEFAULT_WINDOW_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final int MANIFEST_VERSION = 1;
+
+    private static final Gson MANIFEST_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * Manifest file contents
+     */
+    private static final class Manifest {
+        int version = MANIFEST_VERSION;
+        int buckets;
+        long windowMillis;
+        String extension;
+        List<Shard> shards = new ArrayList<>();
+    }
+
+    /**
+     * One shard entry of the manifest
+     */
+    private static final class Shard {
+        int bucket;
+        long window;
+        String file;
+        int count;
+    }
+
+    private final File directory;
+    private final Manifest manifest;
+    private final LongSupplier clock;
+
+    // bucket -> shards of that bucket, oldest window first
+    private final Map<Integer, List<Shard>> shardsByBucket = new HashMap<>();
+
+    private long shardReads;
+    private long shardWrites;
+
+    // hash -> recipient, so a hash alone finds its bucket; null until first needed
+    private Map<String, String> recipientsByHash;
+
+    private ShardedMessageStore(File directory, Manifest manifest, LongSupplier clock) {
+        this.directory = directory;
+        this.manifest = manifest;
+        this.clock = clock;
+        for (Shard shard : manifest.shards) {
+            shardsByBucket.computeIfAbsent(shard.bucket, bucket -> new ArrayList<>()).add(shard);
+        }
+        shardsByBucket.values().forEach(list -> list.sort(Comparator.comparingLong(shard -> shard.window)));
+    }
+
+    /**
+     * Opens a store with the default layout: 16 buckets, 30-day windows, JSON shards
+     * @param directory store directory, created if needed
+     * @return the store
+     * @throws IOException if the directory or manifest cannot be read
+     */
+    public static ShardedMessageStore open(String directory) throws IOException {
+        return open(directory, DEFAULT_BUCKETS, DEFAULT_WINDOW_MILLIS, ".json");
+    }
+
+    /**
+     * Opens or creates a store
+     * An existing manifest keeps its own layout; the arguments only apply to a new store
+     * @param directory store directory, created if needed
+     * @param buckets number of recipient buckets
+     * @param windowMillis length of a time window
+     * @param extension shard file format, ".json" or MessageFiles.BINARY_EXTENSION
+     * @return the store
+     * @throws IOException if the directory or manifest cannot be read
+     */
+    public static ShardedMessageStore open(String directory, int buckets, long windowMillis, String extension)
+            throws IOException {
+        return open(directory, buckets, windowMillis, extension, System::currentTimeMillis);
+    }
+
+    static ShardedMessageStore open(String directory, int buckets, long windowMillis, String extension,
+                                    LongSupplier clock) throws IOException {
+        if (buckets < 1 || windowMillis < 1) {
+            throw new IllegalArgumentException("Buckets and window length must be positive");
+        }
+        if (!".json".equals(extension) && !MessageFiles.BINARY_EXTENSION.equals(extension)) {
+            throw new IllegalArgumentException("Unsupported shard format: " + extension);
+        }
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create shard directory " + directory);
+        }
+
+        File manifestFile = new File(dir, MANIFEST_FILE);
+        Manifest manifest;
+        if (manifestFile.exists()) {
+            try (Reader reader = new FileReader(manifestFile)) {
+                manifest = MANIFEST_GSON.fromJson(reader, Manifest.class);
+            } catch (JsonParseException e) {
+                throw new IOException("Invalid shard manifest: " + e.getMessage(), e);
+            }
+            if (manifest == null || manifest.version != MANIFEST_VERSION || manifest.buckets < 1
+                    || manifest.windowMillis < 1 || manifest.extension == null || manifest.shards == null) {
+                throw new IOException("Invalid shard manifest in " + directory);
+            }
+        } else {
+            manifest = new Manifest();
+            manifest.buckets = buckets;
+            manifest.windowMillis = windowMillis;
+            manifest.extension = extension;
+        }
+        return new ShardedMessageStore(dir, manifest, clock);
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Loads every message for one recipient, reading only that recipient's bucket
+     * @param recipient phone number in any supported spelling
+     * @return the recipient's messages, oldest window first
+     * @throws IOException if a shard cannot be read
+     */
+    public synchronized List<MessageManager.Message> loadRecipient(String recipient) throws IOException {
+        Object group = PhoneNumbers.recipientGroup(recipient);
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (Shard shard : shardsOf(bucketOf(recipient))) {
+            for (MessageManager.Message msg : readShard(shard)) {
+                if (group.equals(PhoneNumbers.recipientGroup(msg.getRecipient()))) {
+                    result.add(msg);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads the messages first written between two times, reading only the overlapping windows
+     * @param fromMillis start time, inclusive
+     * @param toMillis end time, exclusive
+     * @return the messages, oldest window first
+     * @throws IOException if a shard cannot be read
+     */
+    public synchronized List<MessageManager.Message> loadWindow(long fromMillis, long toMillis) throws IOException {
+        long first = windowOf(fromMillis);
+        long last = windowOf(toMillis - 1);
+        List<Shard> selected = new ArrayList<>();
+        for (Shard shard : manifest.shards) {
+            if (shard.window >= first && shard.window <= last) {
+                selected.add(shard);
+            }
+        }
+        return readAll(selected);
+    }
+
+    /**
+     * Loads every message in the store
+     * @return all messages, oldest window first
+     * @throws IOException if a shard cannot be read
+     */
+    public synchronized List<MessageManager.Message> loadAll() throws IOException {
+        return readAll(new ArrayList<>(manifest.shards));
+    }
+
+    // ==================== MUTATIONS ====================
+
+    /**
+     * Writes messages, replacing stored messages with the same hash in place
+     * New messages go to the shard of their bucket for the current window, and so
+     * do messages whose recipient changed bucket, after leaving the old one.
+     * Only the buckets of the given messages are read, and only changed shards are rewritten.
+     * @param messages messages to store
+     * @return number of new messages
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    public synchronized int put(Collection<? extends MessageManager.Message> messages) throws IOException {
+        // A stored copy in another bucket would never be replaced, so it leaves first
+        Map<String, String> stored = recipients();
+        int moved = 0;
+        for (MessageManager.Message msg : messages) {
+            String previous = stored.get(String.valueOf(msg.getMessageHash()));
+            if (previous != null && bucketOf(previous) != bucketOf(msg.getRecipient())
+                    && removeFromBucket(msg.getMessageHash(), bucketOf(previous))) {
+                moved++;
+            }
+        }
+
+        Map<Integer, List<MessageManager.Message>> byBucket = new LinkedHashMap<>();
+        for (MessageManager.Message msg : messages) {
+            byBucket.computeIfAbsent(bucketOf(msg.getRecipient()), bucket -> new ArrayList<>()).add(msg);
+        }
+
+        long window = windowOf(clock.getAsLong());
+        int added = 0;
+        for (Map.Entry<Integer, List<MessageManager.Message>> entry : byBucket.entrySet()) {
+            Map<String, MessageManager.Message> pending = new LinkedHashMap<>();
+            for (MessageManager.Message msg : entry.getValue()) {
+                pending.put(String.valueOf(msg.getMessageHash()), msg);
+            }
+
+            // Replace in the shards already holding a message
+            Shard current = null;
+            List<MessageManager.Message> currentRows = null;
+            boolean currentChanged = false;
+            for (Shard shard : shardsOf(entry.getKey())) {
+                List<MessageManager.Message> rows = readShard(shard);
+                boolean changed = false;
+                for (int i = 0; i < rows.size(); i++) {
+                    MessageManager.Message replacement = pending.remove(String.valueOf(rows.get(i).getMessageHash()));
+                    if (replacement != null) {
+                        rows.set(i, replacement);
+                        changed = true;
+                    }
+                }
+                if (shard.window == window) {
+                    current = shard;
+                    currentRows = rows;
+                    currentChanged = changed;
+                } else if (changed) {
+                    writeShard(shard, rows);
+                }
+            }
+
+            if (current == null && !pending.isEmpty()) {
+                current = newShard(entry.getKey(), window);
+                currentRows = new ArrayList<>();
+            }
+            if (current != null && (currentChanged || !pending.isEmpty())) {
+                added += pending.size();
+                currentRows.addAll(pending.values());
+                writeShard(current, currentRows);
+            }
+        }
+        saveManifest();
+        for (MessageManager.Message msg : messages) {
+            stored.put(String.valueOf(msg.getMessageHash()), msg.getRecipient());
+        }
+        return added - moved;
+    }
+
+    /**
+     * Removes a message, rewriting only the shard that held it
+     * @param hash hash of the message to remove
+     * @param recipient the message's recipient, which selects the bucket to search
+     * @return true if a message was removed
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    public synchronized boolean remove(String hash, String recipient) throws IOException {
+        if (!removeFromBucket(hash, bucketOf(recipient))) {
+            return false;
+        }
+        saveManifest();
+        if (recipientsByHash != null) {
+            recipientsByHash.remove(String.valueOf(hash));
+        }
+        return true;
+    }
+
+    // ==================== MESSAGE STORE ====================
+
+    @Override
+    public String getName() {
+        return "sharded";
+    }
+
+    @Override
+    public void putAll(Collection<? extends MessageManager.Message> messages) throws IOException {
+        put(messages);
+    }
+
+    /**
+     * Removes a message by hash, finding its bucket through the recipient directory
+     * @param hash hash of the message to remove
+     * @return true if a message was removed
+     * @throws IOException if a shard or the manifest cannot be read or written
+     */
+    @Override
+    public synchronized boolean remove(String hash) throws IOException {
+        String key = String.valueOf(hash);
+        if (!recipients().containsKey(key)) {
+            return false;
+        }
+        return remove(hash, recipientsByHash.get(key));
+    }
+
+    /**
+     * Looks a message up by hash, reading only its recipient's bucket
+     * @param hash message hash to look up
+     * @return the stored message, or null
+     * @throws IOException if a shard cannot be read
+     */
+    @Override
+    public synchronized MessageManager.Message get(String hash) throws IOException {
+        String key = String.valueOf(hash);
+        if (!recipients().containsKey(key)) {
+            return null;
+        }
+        for (Shard shard : shardsOf(bucketOf(recipientsByHash.get(key)))) {
+            for (MessageManager.Message msg : readShard(shard)) {
+                if (key.equals(String.valueOf(msg.getMessageHash()))) {
+                    return msg;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long loadAll(Consumer<MessageManager.Message> sink) throws IOException {
+        List<MessageManager.Message> all = loadAll();
+        all.forEach(sink);
+        return all.size();
+    }
+
+    @Override
+    public void flush() {
+        // Every mutation is already written through to its shard
+    }
+
+    @Override
+    public void close() {
+        // Nothing held open between mutations
+    }
+
+    private Map<String, String> recipients() throws IOException {
+        if (recipientsByHash == null) {
+            Map<String, String> found = new HashMap<>();
+            for (MessageManager.Message msg : loadAll()) {
+                found.put(String.valueOf(msg.getMessageHash()), msg.getRecipient());
+            }
+            recipientsByHash = found;
+        }
+        return recipientsByHash;
+    }
+
+    // ==================== STATISTICS ====================
+
+    /**
+     * @return number of shard files
+     */
+    public synchronized int shardCount() {
+        return manifest.shards.size();
+    }
+
+    /**
+     * @return number of messages in the store, from the manifest
+     */
+    public synchronized int size() {
+        int total = 0;
+        for (Shard shard : manifest.shards) {
+            total += shard.count;
+        }
+        return total;
+    }
+
+    /**
+     * @return shard files read since the store was opened
+     */
+    public synchronized long shardReads() {
+        return shardReads;
+    }
+
+    /**
+     * @return shard files written since the store was opened
+     */
+    public synchronized long shardWrites() {
+        return shardWrites;
+    }
+
+    /**
+     * @return number of recipient buckets
+     */
+    public int getBuckets() {
+        return manifest.buckets;
+    }
+
+    /**
+     * @param recipient phone number in any supported spelling
+     * @return the bucket the recipient's messages are stored in
+     */
+    public int bucketOf(String recipient) {
+        int hash = PhoneNumbers.recipientGroup(recipient).hashCode();
+        int h = hash * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), manifest.buckets);
+    }
+
+    // ==================== INTERNALS ====================
+
+    private long windowOf(long millis) {
+        return Math.floorDiv(millis, manifest.windowMillis);
+    }
+
+    private List<Shard> shardsOf(int bucket) {
+        return shardsByBucket.getOrDefault(bucket, List.of());
+    }
+
+    private Shard newShard(int bucket, long window) {
+        Shard shard = new Shard();
+        shard.bucket = bucket;
+        shard.window = window;
+        shard.file = String.format("b%02d-w%06d%s", bucket, window, manifest.extension);
+        manifest.shards.add(shard);
+        shardsByBucket.computeIfAbsent(bucket, key -> new ArrayList<>()).add(shard);
+        return shard;
+    }
+
+    /**
+     * Removes a message from the first shard of a bucket holding it; the manifest is left to the caller
+     * @return true if a message was removed
+     */
+    private boolean removeFromBucket(String hash, int bucket) throws IOException {
+        // Newest first: recent messages are the likeliest to change
+        List<Shard> shards = new ArrayList<>(shardsOf(bucket));
+        for (int s = shards.size() - 1; s >= 0; s--) {
+            Shard shard = shards.get(s);
+            List<MessageManager.Message> rows = readShard(shard);
+            if (rows.removeIf(msg -> String.valueOf(msg.getMessageHash()).equals(String.valueOf(hash)))) {
+                if (rows.isEmpty()) {
+                    dropShard(shard);
+                } else {
+                    writeShard(shard, rows);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void dropShard(Shard shard) {
+        manifest.shards.remove(shard);
+        shardsByBucket.get(shard.bucket).remove(shard);
+        new File(directory, shard.file).delete();
+    }
+
+    private List<MessageManager.Message> readAll(List<Shard> shards) throws IOException {
+        shards.sort(Comparator.comparingLong(shard -> shard.window));
+        List<MessageManager.Message> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            result.addAll(readShard(shard));
+        }
+        return result;
+    }
+
+    private List<MessageManager.Message> readShard(Shard shard) throws IOException {
+        File file = new File(directory, shard.file);
+        List<MessageManager.Message> rows = new ArrayList<>(shard.count);
+        if (file.exists()) {
+            MessageFiles.readManagerMessages(file.getPath(), rows::add);
+            shardReads++;
+        }
+        return rows;
+    }
+
+    private void writeShard(Shard shard, List<MessageManager.Message> rows) throws IOException {
+        File target = new File(directory, shard.file);
+        // The temporary name keeps the extension, which selects the format
+        File temp = new File(directory, shard.file.replace(manifest.extension, ".tmp" + manifest.extension));
+        MessageFiles.writeManagerMessages(temp.getPath(), rows);
+        moveIntoPlace(temp, target);
+        shard.count = rows.size();
+        shardWrites++;
+    }
+
+    private void saveManifest() throws IOException {
+        File target = new File(directory, MANIFEST_FILE);
+        File temp = new File(directory, MANIFEST_FILE + ".tmp");
+        try (Writer writer = new FileWriter(temp)) {
+            MANIFEST_GSON.toJson(manifest, writer);
+        }
+        moveIntoPlace(temp, target);
+    }
+
+    private static void moveIntoPlace(File temp, File target) throws IOException {
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar message store and the archive tier
+ * Checks that flyweight views decode every column correctly
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Shared fixtures
+ */
+public class ColumnarMessageStoreTest {
+    private ColumnarMessageStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new ColumnarMessageStore();
+        store.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        store.add(new MessageManager.Message("H2", "0012345678", "+27838884567", "Where are you? \u00dcn\u00efc\u00f6d\u00e9", "Stored"));
+        store.add(new MessageManager.Message("H4", "4567891234", "0838884567", "It is dinner time!", "Sent"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.attachArchive(null);
+    }
+
+    @Test
+    @DisplayName("Views decode every column, including numeric IDs with leading zeros")
+    public void testRoundTrip() {
+        MessageManager.Message view = store.findByHash("H2");
+
+        assertEquals("H2", view.getMessageHash());
+        assertEquals("0012345678", view.getMessageID());
+        assertEquals("+27838884567", view.getRecipient());
+        assertEquals("Where are you? \u00dcn\u00efc\u00f6d\u00e9", view.getMessage());
+        assertEquals(MessageFlag.STORED, view.getFlagValue());
+        assertEquals("System", view.getSender());
+        assertEquals("H4", store.findByID("4567891234").getMessageHash());
+        assertEquals("H1", store.findByID("M1").getMessageHash());
+    }
+
+    @Test
+    @DisplayName("Recipient lookup merges spellings and keeps insertion order")
+    public void testFindByRecipient() {
+        List<MessageManager.Message> found = store.findByRecipient("0838884567");
+
+        assertEquals(2, found.size());
+        assertEquals("H2", found.get(0).getMessageHash());
+        assertEquals("H4", found.get(1).getMessageHash());
+    }
+
+    @Test
+    @DisplayName("Remove and replace keep counts and indexes consistent")
+    public void testRemoveAndReplace() {
+        assertTrue(store.remove("H1"));
+        assertFalse(store.remove("H1"));
+        assertNull(store.findByHash("H1"));
+        assertNull(store.findByID("M1"));
+        assertEquals(1, store.count(MessageFlag.SENT));
+
+        store.add(new MessageManager.Message("H4", "M4", "0838884567", "Replaced", "Disregarded"));
+        assertEquals(2, store.count(null));
+        assertEquals(0, store.count(MessageFlag.SENT));
+        assertEquals("Replaced", store.findByHash("H4").getMessage());
+        assertEquals(2, store.findByRecipient("+27838884567").size());
+    }
+
+    @Test
+    @DisplayName("forEach visits a partition and longest scans only that flag")
+    public void testForEachAndLongest() {
+        List<String> hashes = new ArrayList<>();
+        store.forEach(MessageFlag.SENT, msg -> hashes.add(msg.getMessageHash()));
+
+        assertEquals(List.of("H1", "H4"), hashes);
+        assertEquals("H1", store.longest(MessageFlag.SENT).getMessageHash());
+        assertEquals("H2", store.longest(null).getMessageHash());
+    }
+
+    @Test
+    @DisplayName("Many rows grow the columns and stay searchable")
+    public void testGrowth() {
+        for (int i = 0; i < 10_000; i++) {
+            store.add(MessageFixtures.message(1, i));
+        }
+
+        assertEquals(10_003, store.count(null));
+        assertEquals("Benchmark message number 9876", store.findByHash("W1:9876").getMessage());
+        assertEquals("W1:42", store.findByID("ID1-42").getMessageHash());
+    }
+
+    @Test
+    @DisplayName("MessageManager reads through to archived messages")
+    public void testArchiveReadThrough() {
+        MessageManager.populateArrays();
+        int archived = MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+
+        assertEquals(2, archived);
+        assertEquals(3, MessageManager.allMessages.size());
+        assertEquals(0, MessageManager.storedMessages.size());
+        assertEquals(2, MessageManager.getArchive().count(MessageFlag.STORED));
+
+        MessageManager.deleteMessageByHash("H5");
+        assertEquals(1, MessageManager.getArchive().count(MessageFlag.STORED));
+    }
+
+    @Test
+    @DisplayName("Archiving twice keeps the messages of the first archive")
+    public void testArchiveTwice() {
+        MessageManager.populateArrays();
+        MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+        MessageManager.archiveMessages(MessageFlag.SENT, new OffHeapMessageStore());
+
+        MessageArchive archive = MessageManager.getArchive();
+        assertEquals(4, archive.count(null));
+        assertEquals("Ok, I am leaving without you.", archive.findByHash("H5").getMessage());
+        assertEquals(1, MessageManager.searchMessagesByKeyword("leaving").size());
+    }
+
+    @Test
+    @DisplayName("Oversized fields are refused without touching the store")
+    public void testOversizedField() {
+        String hash = "H".repeat(Short.MAX_VALUE + 1);
+        assertThrows(IllegalArgumentException.class, () -> store.add(
+                new MessageManager.Message(hash, "M9", "+27834557896", "Too long", "Sent")));
+        assertThrows(IllegalArgumentException.class, () -> store.add(
+                new MessageManager.Message("H1", hash, "+27834557896", "Too long", "Sent")));
+
+        assertEquals(3, store.count(null));
+        assertEquals("Did you get the cake?", store.findByHash("H1").getMessage());
+    }
+
+    @Test
+    @DisplayName("Rows larger than a heap page get a page of their own")
+    public void testLargeRows() {
+        String big = "x".repeat(3 << 20);
+        store.add(new MessageManager.Message("BIG", "M9", "+27834557896", big, "Stored"));
+        store.add(new MessageManager.Message("H9", "M10", "+27834557896", "After the big one", "Stored"));
+
+        assertEquals(big, store.findByHash("BIG").getMessage());
+        assertEquals("After the big one", store.findByHash("H9").getMessage());
+        assertEquals("BIG", store.longest(MessageFlag.STORED).getMessageHash());
+        assertTrue(store.remove("BIG"));
+        assertEquals("H2", store.longest(MessageFlag.STORED).getMessageHash());
+    }
+}
@@ -0,0 +1,168 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests for the concurrent MessageRepository
+ * Several ingest threads add and delete while reporting threads iterate,
+ * then every index must agree with the primary store
+ *
+ * Throughput scaling per core count is measured by BenchmarkRunner only;
+ * timing checks here would depend on the machine running the tests.
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Shared fixtures
+ */
+public class ConcurrentMessageRepositoryTest {
+    private static final int WRITERS = 4;
+    private static final int MESSAGES_PER_WRITER = 20_000;
+
+    private ExecutorService pool;
+    private boolean wasConcurrent;
+
+    @BeforeEach
+    public void setUp() {
+        wasConcurrent = MessageManager.isConcurrentMode();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (!wasConcurrent) {
+            MessageManager.disableConcurrentMode();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent ingest, delete and report keeps every index consistent")
+    public void testConcurrentIngestAndReport() throws Exception {
+        MessageRepository repository = new MessageRepository(true);
+        pool = Executors.newFixedThreadPool(WRITERS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        for (int t = 0; t < WRITERS; t++) {
+            final int writer = t;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < MESSAGES_PER_WRITER; i++) {
+                    repository.add(MessageFixtures.message(writer, i));
+                    // Delete every fourth message again straight away
+                    if (i % 4 == 0) {
+                        assertNotNull(repository.remove("W" + writer + ":" + i));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Reporting threads must never see a half-removed message or throw
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                start.await();
+                while (!writers.stream().allMatch(Future::isDone)) {
+                    for (MessageManager.Message msg : repository.flagged(MessageFlag.SENT)) {
+                        assertNotNull(msg.getMessage());
+                    }
+                    repository.findByRecipient("0830000007").size();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : writers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        for (Future<?> future : readers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        int expected = WRITERS * MESSAGES_PER_WRITER * 3 / 4;
+        assertEquals(expected, repository.size());
+        assertEquals(expected, repository.messages().size());
+
+        int walked = 0;
+        for (MessageManager.Message ignored : repository.messages()) {
+            walked++;
+        }
+        assertEquals(expected, walked, "Ordered view must match the primary store");
+
+        int partitioned = 0;
+        for (MessageFlag flag : MessageFlag.values()) {
+            int inPartition = 0;
+            for (MessageManager.Message msg : repository.flagged(flag)) {
+                assertEquals(flag, msg.getFlagValue());
+                inPartition++;
+            }
+            assertEquals(repository.count(flag), inPartition);
+            partitioned += inPartition;
+        }
+        assertEquals(expected, partitioned, "Flag partitions must cover every message");
+
+        int byRecipient = 0;
+        for (int r = 0; r < 1000; r++) {
+            byRecipient += repository.findByRecipient("+2783" + String.format("%07d", r)).size();
+        }
+        assertEquals(expected, byRecipient, "Recipient index must cover every message");
+        assertEquals(expected, repository.findByLength(null, 0, Integer.MAX_VALUE).size(),
+                "Length index must cover every message");
+    }
+
+    @Test
+    @DisplayName("Concurrent writers on the same hash leave exactly one entry")
+    public void testSameHashWriters() throws Exception {
+        MessageRepository repository = new MessageRepository(true);
+        pool = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> writers = new ArrayList<>();
+
+        for (int t = 0; t < WRITERS; t++) {
+            final String flag = t % 2 == 0 ? "Sent" : "Stored";
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    repository.add(new MessageManager.Message("SAME", "M" + i, "+27831234567", "x", flag));
+                }
+            }));
+        }
+        for (Future<?> future : writers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, repository.size());
+        assertEquals(1, repository.count(MessageFlag.SENT) + repository.count(MessageFlag.STORED));
+        assertEquals(1, repository.findByRecipient("+27831234567").size());
+    }
+
+    @Test
+    @DisplayName("MessageManager concurrent mode carries existing messages over")
+    public void testEnableConcurrentMode() {
+        MessageManager.populateArrays();
+        MessageManager.enableConcurrentMode();
+
+        assertEquals(5, MessageManager.allMessages.size());
+        assertEquals(2, MessageManager.sentMessages.size());
+        assertTrue(MessageManager.messageHashes.contains("H3"));
+
+        MessageManager.deleteMessageByHash("H1");
+        assertEquals(1, MessageManager.sentMessages.size());
+
+        MessageManager.disableConcurrentMode();
+        assertFalse(MessageManager.isConcurrentMode());
+        assertEquals(4, MessageManager.allMessages.size());
+        assertFalse(MessageManager.messageHashes.contains("H1"));
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the full-text content index
+ * Uses the five test messages from the requirements document
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Archived results keep their sender
+ */
+public class ContentIndexTest {
+    private MessageRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new MessageRepository();
+        repository.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        repository.add(new MessageManager.Message("H2", "M2", "+27838884567",
+                "Where are you? You are late! I have asked you to be on time.", "Stored"));
+        repository.add(new MessageManager.Message("H3", "M3", "+27834484567", "Yohoooo, I am at your gate.", "Disregarded"));
+        repository.add(new MessageManager.Message("H4", "M4", "0838884567", "It is dinner time!", "Sent"));
+        repository.add(new MessageManager.Message("H5", "M5", "+27838884567", "Ok, I am leaving without you.", "Stored"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.attachArchive(null);
+    }
+
+    @Test
+    @DisplayName("Tokenizer lower-cases words and drops punctuation")
+    public void testTokenize() {
+        assertEquals(List.of("it", "is", "dinner", "time"), new ArrayList<>(ContentIndex.tokenize("It is dinner time!")));
+        assertTrue(ContentIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Single words, AND, OR and prefix queries")
+    public void testQueries() {
+        assertEquals(List.of("H4"), hashes(repository.findByContent("Dinner")));
+        assertEquals(List.of("H2", "H4"), hashes(repository.findByContent("time")));
+        assertEquals(List.of("H4"), hashes(repository.findByContent("dinner time")));
+        assertEquals(List.of("H1", "H4"), hashes(repository.findByContent("cake OR dinner")));
+        assertEquals(List.of("H1", "H2", "H3", "H5"), hashes(repository.findByContent("you*")));
+        assertEquals(List.of("H3"), hashes(repository.findByContent("yoh*")));
+        assertTrue(repository.findByContent("pizza").isEmpty());
+        assertTrue(repository.findByContent("  ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deletes and replacements update the posting lists")
+    public void testIncrementalUpdates() {
+        repository.remove("H4");
+        assertTrue(repository.findByContent("dinner").isEmpty());
+        assertEquals(List.of("H2"), hashes(repository.findByContent("time")));
+
+        repository.add(new MessageManager.Message("H1", "M1", "+27834557896", "Dinner is cold", "Sent"));
+        assertTrue(repository.findByContent("cake").isEmpty());
+        assertEquals(List.of("H1"), hashes(repository.findByContent("dinner")));
+    }
+
+    @Test
+    @DisplayName("Concurrent mode answers the same queries")
+    public void testConcurrentMode() {
+        MessageRepository concurrent = new MessageRepository(true);
+        for (MessageManager.Message msg : repository.messages()) {
+            concurrent.add(msg);
+        }
+        concurrent.remove("H1");
+
+        assertEquals(List.of("H4"), hashes(concurrent.findByContent("cake OR dinner")));
+        assertEquals(List.of("H2", "H4"), hashes(concurrent.findByContent("tim*")));
+    }
+
+    @Test
+    @DisplayName("Keyword search in MessageManager includes archived messages")
+    public void testKeywordSearchWithArchive() {
+        MessageManager.populateArrays();
+        MessageManager.allMessages.get(1).setSender("Bob");
+        MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+
+        List<MessageManager.Message> time = MessageManager.searchMessagesByKeyword("time");
+        assertEquals(List.of("H4", "H2"), hashes(time));
+        assertEquals("Bob", time.get(1).getSender());
+        assertEquals(List.of("H3", "H5"), hashes(MessageManager.searchMessagesByKeyword("I am")));
+    }
+
+    private static List<String> hashes(List<MessageManager.Message> messages) {
+        List<String> result = new ArrayList<>();
+        for (MessageManager.Message msg : messages) {
+            result.add(msg.getMessageHash());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the memory-mapped message archive
+ * Uses a tiny region size so records and tables are spread over many mappings
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Shared fixtures and JUnit temporary directory
+ */
+public class MappedMessageArchiveTest {
+    @TempDir
+    File directory;
+    private File file;
+    private MappedMessageArchive archive;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = new File(directory, "archive.msga");
+        List<MessageManager.Message> messages = List.of(
+                new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"),
+                new MessageManager.Message("H2", "M2", "+27838884567", "Where are you? \u00dcn\u00efc\u00f6d\u00e9", "Stored"),
+                new MessageManager.Message("H4", "M4", "0838884567", "It is dinner time!", "Sent"));
+        MappedMessageArchive.write(file.getPath(), messages, 8);
+        archive = MappedMessageArchive.open(file.getPath());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.attachArchive(null);
+        archive = null;
+    }
+
+    @Test
+    @DisplayName("Records decode every field from the mapped file")
+    public void testRoundTrip() {
+        MessageManager.Message view = archive.findByID("M2");
+
+        assertEquals("H2", view.getMessageHash());
+        assertEquals("+27838884567", view.getRecipient());
+        assertEquals("Where are you? \u00dcn\u00efc\u00f6d\u00e9", view.getMessage());
+        assertEquals(MessageFlag.STORED, view.getFlagValue());
+        assertEquals("System", view.getSender());
+        assertNull(archive.findByHash("H3"));
+        assertEquals(file.length(), archive.mappedBytes());
+    }
+
+    @Test
+    @DisplayName("Counts, longest and recipient chains come from the file tables")
+    public void testQueries() {
+        assertEquals(3, archive.count(null));
+        assertEquals(2, archive.count(MessageFlag.SENT));
+        assertEquals(0, archive.count(MessageFlag.DISREGARDED));
+        assertEquals("H1", archive.longest(MessageFlag.SENT).getMessageHash());
+        assertNull(archive.longest(MessageFlag.DISREGARDED));
+
+        List<MessageManager.Message> chain = archive.findByRecipient("+27838884567");
+        assertEquals(2, chain.size());
+        assertEquals("H2", chain.get(0).getMessageHash());
+        assertEquals("H4", chain.get(1).getMessageHash());
+        assertTrue(archive.findByRecipient("+27830000000").isEmpty());
+
+        List<String> ids = new ArrayList<>();
+        archive.forEach(MessageFlag.SENT, msg -> ids.add(msg.getMessageID()));
+        assertEquals(List.of("M1", "M4"), ids);
+    }
+
+    @Test
+    @DisplayName("Thousands of records across many regions stay reachable")
+    public void testManyRegions() throws IOException {
+        List<MessageManager.Message> messages = MessageFixtures.messages(0, 5000);
+        assertEquals(5000, MappedMessageArchive.write(file.getPath(), messages, 8));
+        MappedMessageArchive many = MappedMessageArchive.open(file.getPath());
+
+        assertEquals(5000, many.count(null));
+        for (int i = 0; i < 5000; i += 37) {
+            assertEquals("Benchmark message number " + i, many.findByHash("W0:" + i).getMessage());
+            assertEquals("W0:" + i, many.findByID("ID0-" + i).getMessageHash());
+        }
+        assertEquals(5, many.findByRecipient("+27830000042").size());
+    }
+
+    @Test
+    @DisplayName("A later message with the same hash replaces the earlier one")
+    public void testReplaceOnWrite() throws IOException {
+        MappedMessageArchive.write(file.getPath(), List.of(
+                new MessageManager.Message("H1", "M1", "+27834557896", "Original", "Sent"),
+                new MessageManager.Message("H1", "M1", "+27834557896", "Replaced", "Stored")));
+        MappedMessageArchive replaced = MappedMessageArchive.open(file.getPath());
+
+        // The archive mapped before the rewrite still reads the old file
+        assertEquals("Did you get the cake?", archive.findByHash("H1").getMessage());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals(1, replaced.count(null));
+        assertEquals(0, replaced.count(MessageFlag.SENT));
+        assertEquals("Replaced", replaced.findByHash("H1").getMessage());
+        assertEquals(1, replaced.findByRecipient("0834557896").size());
+    }
+
+    @Test
+    @DisplayName("The archive is read-only and rejects other files")
+    public void testReadOnlyAndInvalidFile() throws IOException {
+        MessageManager.Message msg = new MessageManager.Message("H9", "M9", "+27831112222", "New", "Sent");
+        assertThrows(UnsupportedOperationException.class, () -> archive.add(msg));
+        assertThrows(UnsupportedOperationException.class, () -> archive.remove("H1"));
+
+        Files.writeString(file.toPath(), "[]");
+        assertThrows(IOException.class, () -> MappedMessageArchive.open(file.getPath()));
+    }
+
+    @Test
+    @DisplayName("MessageManager archives to a file and searches through it")
+    public void testArchiveToFile() {
+        MessageManager.populateArrays();
+        assertEquals(2, MessageManager.archiveMessagesToFile(MessageFlag.SENT, file.getPath()));
+
+        assertEquals(0, MessageManager.sentMessages.size());
+        assertEquals(2, MessageManager.getArchive().count(MessageFlag.SENT));
+        assertEquals("+27834557896", MessageManager.getArchive().findByHash(
+                MessageManager.getArchive().longest(MessageFlag.SENT).getMessageHash()).getRecipient());
+        assertDoesNotThrow(() -> MessageManager.deleteMessageByHash(
+                MessageManager.getArchive().longest(MessageFlag.SENT).getMessageHash()));
+        assertEquals(2, MessageManager.getArchive().count(MessageFlag.SENT));
+        assertTrue(MessageManager.openArchive(file.getPath()));
+    }
+
+    @Test
+    @DisplayName("Archiving to a file keeps an in-memory archive, and opening a file never drops one")
+    public void testArchiveToFileKeepsArchive() {
+        MessageManager.populateArrays();
+        MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+        assertFalse(MessageManager.openArchive(file.getPath()));
+        assertEquals("columnar", MessageManager.getArchive().getName());
+
+        assertEquals(2, MessageManager.archiveMessagesToFile(MessageFlag.SENT, file.getPath()));
+        MessageArchive mapped = MessageManager.getArchive();
+        assertEquals(4, mapped.count(null));
+        assertEquals("Ok, I am leaving without you.", mapped.findByHash("H5").getMessage());
+
+        // Again over the file that is mapped right now
+        assertEquals(1, MessageManager.archiveMessagesToFile(MessageFlag.DISREGARDED, file.getPath()));
+        assertEquals(5, MessageManager.getArchive().count(null));
+        assertEquals(4, mapped.count(null));
+        assertTrue(MessageManager.openArchive(file.getPath()));
+    }
+}
@@ -0,0 +1,185 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CSV import and export of MessageManager messages
+ * Awkward fields must survive a round trip, and the chunked parallel reader
+ * must return exactly what the streaming reader does, wherever ranges split
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - CR-only chunked reading, JUnit temporary directory
+ */
+public class MessageCsvTest {
+    @TempDir
+    File directory;
+
+    @BeforeEach
+    public void setUp() {
+        MessageManager.populateArrays();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.populateArrays();
+    }
+
+    private static List<MessageManager.Message> awkward() {
+        List<MessageManager.Message> rows = new ArrayList<>();
+        rows.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        rows.add(new MessageManager.Message("H2", "M2", "+27838884567", "Commas, \"quotes\" and\r\nline breaks", "Stored"));
+        rows.add(new MessageManager.Message("H3", null, "", " padded ", "Disregarded"));
+        rows.add(new MessageManager.Message("H4", "M4", "0838884567", "Ünïcödé ✅\nsecond line", (MessageFlag) null));
+        return rows;
+    }
+
+    private static String describe(MessageManager.Message msg) {
+        return msg.getMessageHash() + "|" + msg.getMessageID() + "|" + msg.getRecipient() + "|"
+                + msg.getMessage() + "|" + msg.getFlag();
+    }
+
+    private static List<String> describe(List<MessageManager.Message> messages) {
+        List<String> result = new ArrayList<>();
+        for (MessageManager.Message msg : messages) {
+            result.add(describe(msg));
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("Quotes, commas, line breaks, null and empty fields survive a round trip")
+    public void testRoundTrip() throws IOException {
+        StringWriter out = new StringWriter();
+        assertEquals(4, MessageCsv.write(out, awkward()));
+        assertTrue(out.toString().startsWith("Hash,ID,Recipient,Message,Flag\r\n"));
+        assertTrue(out.toString().contains("\"Commas, \"\"quotes\"\" and\r\nline breaks\""));
+
+        List<MessageManager.Message> read = new ArrayList<>();
+        assertEquals(4, MessageCsv.read(new StringReader(out.toString()), read::add));
+        assertEquals(describe(awkward()), describe(read));
+    }
+
+    @Test
+    @DisplayName("Header columns may come in any order, and files may have no header")
+    public void testHeaderMapping() throws IOException {
+        List<MessageManager.Message> read = new ArrayList<>();
+        MessageCsv.read(new StringReader("\uFEFFflag,Message,Extra,hash,ID,Recipient\n"
+                + "Sent,Hello,x,H1,M1,+27834557896\r\n\r\nStored,\"Bye\",y,H2,M2,+27838884567"), read::add);
+        assertEquals(List.of("H1|M1|+27834557896|Hello|Sent", "H2|M2|+27838884567|Bye|Stored"), describe(read));
+
+        read.clear();
+        MessageCsv.read(new StringReader("H1,M1,+27834557896,Hello,Sent\rH2,M2,+27838884567,Bye,Stored\r"), read::add);
+        assertEquals(List.of("H1|M1|+27834557896|Hello|Sent", "H2|M2|+27838884567|Bye|Stored"), describe(read));
+    }
+
+    @Test
+    @DisplayName("Malformed records are refused with their line number")
+    public void testMalformedInput() {
+        IOException stray = assertThrows(IOException.class, () -> MessageCsv.read(
+                new StringReader("Hash,ID,Recipient,Message,Flag\nH1,M1,+2783,\"Hi\"x,Sent\n"), msg -> { }));
+        assertTrue(stray.getMessage().contains("line 2"), stray.getMessage());
+        assertThrows(IOException.class, () -> MessageCsv.read(
+                new StringReader("H1,M1,+2783,\"never closed,Sent\n"), msg -> { }));
+        assertThrows(IOException.class, () -> MessageCsv.read(
+                new StringReader("H1,M1,+2783,5\" screen,Sent\n"), msg -> { }));
+        IOException width = assertThrows(IOException.class, () -> MessageCsv.read(
+                new StringReader("H1,M1,+2783,Hi,Sent\n\nH2,M2,+2783\n"), msg -> { }));
+        assertTrue(width.getMessage().contains("line 3"), width.getMessage());
+    }
+
+    @Test
+    @DisplayName("Chunked parallel reading matches the streaming reader at every split")
+    public void testChunkedMatchesStreaming() throws IOException {
+        List<MessageManager.Message> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(new MessageManager.Message("H" + i, "M" + i, "+2783000" + (i % 10),
+                    i % 7 == 0 ? "Line one\nline \"two\",\nline three " + i : "Message " + i,
+                    MessageFlag.fromCode((byte) (i % 3))));
+        }
+        String path = new File(directory, "messages.csv").getPath();
+        MessageCsv.writeFile(path, rows);
+
+        List<MessageManager.Message> streamed = new ArrayList<>();
+        MessageCsv.readFile(path, streamed::add);
+        assertEquals(describe(rows), describe(streamed));
+
+        // Small ranges make many of them start inside quoted, multi-line fields
+        for (long chunkBytes : new long[] {7, 64, 333, 1 << 20}) {
+            for (int parallelism : new int[] {1, 4}) {
+                List<MessageManager.Message> chunked = new ArrayList<>();
+                long records = MessageCsv.readFileInChunks(path, parallelism, chunkBytes, chunked::addAll);
+                assertEquals(300, records);
+                assertEquals(describe(rows), describe(chunked), chunkBytes + " bytes x " + parallelism);
+            }
+        }
+
+        // Line numbers in errors count from the start of the file, not of the range
+        Files.write(new File(path).toPath(), ("Hash,ID,Recipient,Message,Flag\n"
+                + "H1,M1,+2783,\"a\nb\",Sent\n".repeat(20) + "H2,M2\n").getBytes(StandardCharsets.UTF_8));
+        IOException error = assertThrows(IOException.class,
+                () -> MessageCsv.readFileInChunks(path, 4, 16, batch -> { }));
+        assertTrue(error.getMessage().contains("line 42"), error.getMessage());
+    }
+
+    @Test
+    @DisplayName("Chunked reading splits CR-only files into the same records as the streaming reader")
+    public void testChunkedCarriageReturnOnly() throws IOException {
+        StringBuilder csv = new StringBuilder("Hash,ID,Recipient,Message,Flag\r");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String content = i % 5 == 0 ? "Line one\rline two\r\nline " + i : "Message " + i;
+            csv.append('H').append(i).append(",M").append(i).append(",+27830000,")
+                    .append(i % 5 == 0 ? "\"" + content + "\"" : content).append(",Sent\r");
+            expected.add("H" + i + "|M" + i + "|+27830000|" + content + "|Sent");
+        }
+        File file = new File(directory, "classic-mac.csv");
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<MessageManager.Message> streamed = new ArrayList<>();
+        MessageCsv.readFile(file.getPath(), streamed::add);
+        assertEquals(expected, describe(streamed));
+        for (long chunkBytes : new long[] {5, 48, 1 << 20}) {
+            for (int parallelism : new int[] {1, 4}) {
+                List<MessageManager.Message> chunked = new ArrayList<>();
+                assertEquals(100, MessageCsv.readFileInChunks(file.getPath(), parallelism, chunkBytes, chunked::addAll));
+                assertEquals(expected, describe(chunked), chunkBytes + " bytes x " + parallelism);
+            }
+        }
+
+        // Lone CRs count as lines inside quoted fields too, in both readers
+        Files.write(file.toPath(), ("Hash,ID,Recipient,Message,Flag\r"
+                + "H1,M1,+2783,\"a\rb\",Sent\r".repeat(20) + "H2,M2\r").getBytes(StandardCharsets.UTF_8));
+        IOException streamError = assertThrows(IOException.class, () -> MessageCsv.readFile(file.getPath(), msg -> { }));
+        assertTrue(streamError.getMessage().contains("line 42"), streamError.getMessage());
+        IOException chunkError = assertThrows(IOException.class,
+                () -> MessageCsv.readFileInChunks(file.getPath(), 4, 16, batch -> { }));
+        assertTrue(chunkError.getMessage().contains("line 42"), chunkError.getMessage());
+    }
+
+    @Test
+    @DisplayName("MessageManager saves to and loads from CSV, skipping messages it already has")
+    public void testManagerLoad() {
+        String path = new File(directory, "export.csv").getPath();
+        int before = MessageManager.allMessages.size();
+        assertTrue(MessageManager.saveMessagesToFile(path));
+        assertEquals(0, MessageManager.loadMessagesFromCsv(path));
+
+        MessageManager.populateArrays();
+        MessageManager.deleteMessageByHash(MessageManager.messageHashes.get(0));
+        assertEquals(1, MessageManager.loadMessagesFromCsv(path));
+        assertEquals(before, MessageManager.allMessages.size());
+    }
+}
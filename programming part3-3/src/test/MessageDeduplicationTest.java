@@ -0,0 +1,131 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Bloom filter and idempotent message loads
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Shared fixtures and JUnit temporary directory
+ */
+public class MessageDeduplicationTest {
+    @TempDir
+    File directory;
+    private File file;
+
+    @BeforeEach
+    public void setUp() {
+        file = new File(directory, "stored.json");
+        MessageManager.populateArrays();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.attachArchive(null);
+        MessageManager.populateArrays();
+    }
+
+    @Test
+    @DisplayName("The filter never misses an added key and rarely reports an absent one")
+    public void testBloomFilterAccuracy() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("H" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("H" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("X" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False-positive rate too high: " + falsePositives);
+        assertFalse(filter.isSaturated());
+        filter.add("one more");
+        assertTrue(filter.isSaturated());
+    }
+
+    @Test
+    @DisplayName("Loading the same file twice adds its messages once")
+    public void testReloadIsIdempotent() throws IOException {
+        MessageFiles.writeManagerMessages(file.getPath(), MessageFixtures.messages(0, 2_000));
+
+        MessageManager.loadStoredMessagesFromJSON(file.getPath());
+        List<String> order = new ArrayList<>(MessageManager.messageHashes);
+        MessageManager.loadStoredMessagesFromJSON(file.getPath());
+
+        assertEquals(2_005, MessageManager.allMessages.size());
+        assertEquals(2_005, MessageManager.messageIDs.size());
+        assertEquals(order, new ArrayList<>(MessageManager.messageHashes));
+    }
+
+    @Test
+    @DisplayName("A known hash with new details replaces the old message")
+    public void testChangedRecordUpdates() {
+        assertFalse(MessageManager.importMessage(
+                new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent")));
+        assertTrue(MessageManager.importMessage(
+                new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Stored")));
+
+        assertEquals(5, MessageManager.allMessages.size());
+        assertEquals(3, MessageManager.storedMessages.size());
+    }
+
+    @Test
+    @DisplayName("Messages moved to the archive are not loaded back into the arrays")
+    public void testArchivedMessagesSkipped() throws IOException {
+        MessageFiles.writeManagerMessages(file.getPath(), new ArrayList<>(MessageManager.allMessages));
+        assertEquals(2, MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore()));
+
+        MessageManager.loadStoredMessagesFromJSON(file.getPath());
+
+        assertEquals(3, MessageManager.allMessages.size());
+        assertEquals(0, MessageManager.storedMessages.size());
+    }
+
+    @Test
+    @DisplayName("An archived hash with new details moves back to the arrays, unless the archive is read-only")
+    public void testChangedArchivedRecord() throws IOException {
+        assertEquals(2, MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore()));
+        assertTrue(MessageManager.importMessage(
+                new MessageManager.Message("H5", "M5", "+27838884567", "Ok, I am leaving without you.", "Sent")));
+
+        assertEquals(1, MessageManager.getArchive().count(null));
+        assertNull(MessageManager.getArchive().findByHash("H5"));
+        assertEquals(MessageFlag.SENT, MessageManager.allMessages.stream()
+                .filter(m -> m.getMessageHash().equals("H5")).findFirst().orElseThrow().getFlagValue());
+
+        // A mapped archive cannot drop its copy, so the archived details stay
+        File mapped = new File(directory, "archive.msga");
+        assertEquals(3, MessageManager.archiveMessagesToFile(MessageFlag.SENT, mapped.getPath()));
+        String archivedHash = MessageManager.getArchive().longest(MessageFlag.SENT).getMessageHash();
+        MessageManager.Message changed = new MessageManager.Message(archivedHash, "X", "+27830000000",
+                "Changed details", "Stored");
+        assertFalse(MessageManager.importMessage(changed));
+        assertNull(MessageManager.allMessages.stream()
+                .filter(m -> m.getMessageHash().equals(archivedHash)).findFirst().orElse(null));
+    }
+
+    @Test
+    @DisplayName("The filter grows past its initial size without losing duplicates")
+    public void testFilterGrows() {
+        for (MessageManager.Message msg : MessageFixtures.messages(1, 70_000)) {
+            assertTrue(MessageManager.importMessage(msg));
+        }
+        for (MessageManager.Message msg : MessageFixtures.messages(1, 70_000)) {
+            assertFalse(MessageManager.importMessage(msg));
+        }
+        assertEquals(70_005, MessageManager.allMessages.size());
+    }
+}
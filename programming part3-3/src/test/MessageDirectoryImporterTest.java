@@ -0,0 +1,130 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the parallel directory importer
+ * Runs on a dedicated pool so the tasks really spread over several threads
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Shared fixtures and JUnit temporary directory
+ */
+public class MessageDirectoryImporterTest {
+    @TempDir
+    File directory;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private void writeDrop(String name, int writer, int from, int to) throws IOException {
+        MessageFiles.writeManagerMessages(new File(directory, name).getPath(),
+                MessageFixtures.messages(writer, from, to));
+    }
+
+    @Test
+    @DisplayName("Every file is imported and reported in name order")
+    public void testImportsEveryFile() throws IOException {
+        for (int f = 0; f < 12; f++) {
+            writeDrop(String.format("drop-%02d.json", f), f, 0, 100);
+        }
+        writeDrop("drop-12.msgb", 12, 0, 100);
+        Files.writeString(new File(directory, "notes.txt").toPath(), "not a message file");
+
+        List<MessageManager.Message> received = new ArrayList<>();
+        MessageDirectoryImporter.Result result = new MessageDirectoryImporter(pool)
+                .importDirectory(directory.getPath(), received::add);
+
+        assertEquals(13, result.getFiles().size());
+        assertEquals("drop-00.json", result.getFiles().get(0).getFile().getName());
+        assertEquals("drop-12.msgb", result.getFiles().get(12).getFile().getName());
+        assertEquals(1300, result.getRecords());
+        assertEquals(1300, result.getMessages());
+        assertEquals(1300, received.size());
+        assertEquals("W0:0", received.get(0).getMessageHash());
+        assertEquals("W12:99", received.get(1299).getMessageHash());
+        for (MessageDirectoryImporter.FileResult file : result.getFiles()) {
+            assertEquals(100, file.getRecords());
+            assertTrue(file.recordsPerSecond() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("The last file in name order wins on duplicate hashes, every run")
+    public void testDeterministicDuplicates() throws IOException {
+        MessageFiles.writeManagerMessages(new File(directory, "a.json").getPath(), List.of(
+                new MessageManager.Message("H1", "M1", "+27834557896", "From a", MessageFlag.STORED),
+                new MessageManager.Message("H2", "M2", "+27838884567", "Only in a", MessageFlag.SENT)));
+        MessageFiles.writeManagerMessages(new File(directory, "b.json").getPath(), List.of(
+                new MessageManager.Message("H1", "M1", "+27834557896", "From b", MessageFlag.SENT)));
+        for (int f = 0; f < 8; f++) {
+            writeDrop("c" + f + ".json", 0, f * 10, f * 10 + 20);
+        }
+
+        for (int run = 0; run < 20; run++) {
+            MessageRepository repository = new MessageRepository();
+            MessageDirectoryImporter.Result result = new MessageDirectoryImporter(pool)
+                    .importDirectory(directory.getPath(), repository::add);
+
+            assertEquals(3 + 160, result.getRecords());
+            assertEquals(1 + 70, result.getDuplicates());
+            assertEquals("From b", repository.findByHash("H1").getMessage());
+            assertEquals(MessageFlag.SENT, repository.findByHash("H1").getFlagValue());
+            assertEquals(92, repository.size());
+        }
+    }
+
+    @Test
+    @DisplayName("A corrupt file is reported and left out entirely")
+    public void testFailedFileIsSkipped() throws IOException {
+        writeDrop("a.json", 0, 0, 50);
+        Files.writeString(new File(directory, "b.json").toPath(),
+                "[{\"messageHash\":\"X1\",\"flag\":\"Sent\"}, {\"messageHash\": ");
+        writeDrop("c.json", 1, 0, 50);
+
+        List<MessageManager.Message> received = new ArrayList<>();
+        MessageDirectoryImporter.Result result = new MessageDirectoryImporter(pool)
+                .importDirectory(directory.getPath(), received::add);
+
+        assertEquals(1, result.getFailedFiles());
+        assertTrue(result.getFiles().get(1).isFailed());
+        assertNotNull(result.getFiles().get(1).getError());
+        assertEquals(100, received.size());
+        assertTrue(received.stream().noneMatch(msg -> "X1".equals(msg.getMessageHash())));
+        assertThrows(IOException.class, () -> new MessageDirectoryImporter(pool)
+                .importDirectory(new File(directory, "missing").getPath(), received::add));
+    }
+
+    @Test
+    @DisplayName("MessageManager loads a directory passed to the JSON loader")
+    public void testManagerDirectoryLoad() throws IOException {
+        writeDrop("a.json", 0, 0, 30);
+        writeDrop("b.msgb", 1, 0, 30);
+
+        MessageManager.populateArrays();
+        MessageManager.loadStoredMessagesFromJSON(directory.getPath());
+
+        assertEquals(65, MessageManager.allMessages.size());
+        assertTrue(MessageManager.messageHashes.contains("W1:29"));
+        assertNotNull(MessageManager.loadMessagesFromDirectory(directory.getPath()));
+        assertEquals(65, MessageManager.allMessages.size());
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the file watcher and incremental reload
+ * Tests edit a real file and wait for the watcher thread to pick the change up
+ *
+ * @author Heloisa Campos
+ * @version 1.3 - Shared fixtures and JUnit temporary directory
+ */
+public class MessageFileWatcherTest {
+    @TempDir
+    File directory;
+    private File file;
+    private boolean wasConcurrent;
+
+    @BeforeEach
+    public void setUp() {
+        file = new File(directory, "messages.json");
+        wasConcurrent = MessageManager.isConcurrentMode();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.stopWatching();
+        // Watching switches MessageManager to concurrent mode
+        if (!wasConcurrent) {
+            MessageManager.disableConcurrentMode();
+        }
+        MessageManager.populateArrays();
+    }
+
+    /**
+     * Writes a new version next to the file and renames it over, as editors do
+     */
+    private void replace(List<MessageManager.Message> rows) throws IOException {
+        File temp = new File(directory, "messages.tmp.json");
+        MessageFiles.writeManagerMessages(temp.getPath(), rows);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    @DisplayName("Only inserted, updated and deleted records are reported")
+    public void testRecordLevelDiff() throws IOException, InterruptedException {
+        List<MessageManager.Message> rows = MessageFixtures.messages(0, 1_000);
+        MessageFiles.writeManagerMessages(file.getPath(), rows);
+        List<String> events = new ArrayList<>();
+        try (MessageFileWatcher watcher = MessageFileWatcher.watch(file.getPath(), new MessageFileWatcher.Listener() {
+            @Override
+            public void onInsert(MessageManager.Message msg) {
+                events.add("insert " + msg.getMessageHash());
+            }
+
+            @Override
+            public void onUpdate(MessageManager.Message msg) {
+                events.add("update " + msg.getMessageHash());
+            }
+
+            @Override
+            public void onDelete(String hash) {
+                events.add("delete " + hash);
+            }
+        }, false)) {
+            assertEquals(1, watcher.getReloads());
+            assertTrue(events.isEmpty());
+
+            rows.remove(10);
+            rows.set(20, new MessageManager.Message(rows.get(20).getMessageHash(), "edited", "+27830000001",
+                    "Edited outside", MessageFlag.SENT));
+            rows.add(new MessageManager.Message("NEW", "N1", "+27830000002", "Added outside", MessageFlag.STORED));
+            replace(rows);
+
+            assertTrue(watcher.awaitReloads(2, 5_000));
+            MessageFileWatcher.Diff diff = watcher.getLastDiff();
+            assertEquals(1, diff.getInserted());
+            assertEquals(1, diff.getUpdated());
+            assertEquals(1, diff.getDeleted());
+            assertEquals(1_000, diff.getRecords());
+            assertEquals(3, events.size());
+            assertTrue(events.contains("insert NEW"));
+            assertTrue(events.contains("update W0:21"));
+            assertTrue(events.contains("delete W0:10"));
+        }
+    }
+
+    @Test
+    @DisplayName("MessageManager applies outside edits to the arrays within a second")
+    public void testManagerTracksFile() throws IOException, InterruptedException {
+        MessageManager.populateArrays();
+        List<MessageManager.Message> rows = MessageFixtures.messages(0, 100);
+        MessageFiles.writeManagerMessages(file.getPath(), rows);
+        MessageFileWatcher watcher = MessageManager.watchMessagesFile(file.getPath(), true);
+        assertNotNull(watcher);
+        assertEquals(105, MessageManager.allMessages.size());
+
+        rows.remove(0);
+        rows.add(new MessageManager.Message("NEW", "N1", "+27830000002", "Added outside", MessageFlag.STORED));
+        long begin = System.nanoTime();
+        replace(rows);
+        assertTrue(watcher.awaitReloads(2, 1_000));
+        assertTrue(System.nanoTime() - begin < 1_000_000_000L);
+
+        assertEquals(105, MessageManager.allMessages.size());
+        assertFalse(MessageManager.messageHashes.contains("W0:0"));
+        assertTrue(MessageManager.messageHashes.contains("NEW"));
+        assertTrue(MessageManager.messageHashes.contains("H1"));
+    }
+
+    @Test
+    @DisplayName("Records deleted from the file are deleted from the attached store as well")
+    public void testDeleteWritesThrough() throws IOException, InterruptedException {
+        MessageManager.populateArrays();
+        Properties config = new Properties();
+        config.setProperty("type", "binary");
+        config.setProperty("path", new File(directory, "store.msgb").getPath());
+        assertNotNull(MessageManager.openStore(config));
+        try {
+            List<MessageManager.Message> rows = MessageFixtures.messages(0, 10);
+            MessageFiles.writeManagerMessages(file.getPath(), rows);
+            MessageFileWatcher watcher = MessageManager.watchMessagesFile(file.getPath(), true);
+            assertEquals(15, MessageManager.saveMessagesToStore());
+
+            rows.remove(0);
+            replace(rows);
+            assertTrue(watcher.awaitReloads(2, 5_000));
+
+            assertFalse(MessageManager.messageHashes.contains("W0:0"));
+            assertNull(MessageManager.getStore().get("W0:0"));
+            assertEquals(14, MessageManager.getStore().size());
+        } finally {
+            MessageManager.useStore(null);
+        }
+    }
+
+    @Test
+    @DisplayName("A half-written version is skipped and a file created later is loaded")
+    public void testUnreadableAndLateFile() throws IOException, InterruptedException {
+        MessageManager.populateArrays();
+        MessageFileWatcher watcher = MessageManager.watchMessagesFile(file.getPath(), false);
+        assertEquals(0, watcher.getReloads());
+
+        try (FileWriter out = new FileWriter(file)) {
+            out.write("[{\"messageHash\":\"X1\",\"mess");
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (watcher.getFailedReloads() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(watcher.getFailedReloads() > 0);
+        assertEquals(5, MessageManager.allMessages.size());
+
+        replace(MessageFixtures.messages(0, 3));
+        assertTrue(watcher.awaitReloads(1, 5_000));
+        assertEquals(8, MessageManager.allMessages.size());
+    }
+}
@@ -0,0 +1,182 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the binary message file format
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - JUnit temporary directory
+ */
+public class MessageFilesTest {
+    @TempDir
+    File directory;
+    private File file;
+
+    @Test
+    @DisplayName("Part 3 messages round-trip with null fields and Unicode text")
+    public void testManagerRoundTrip() throws IOException {
+        file = new File(directory, "messages" + MessageFiles.BINARY_EXTENSION);
+        List<MessageManager.Message> written = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            written.add(new MessageManager.Message("H" + i, "ID" + i, "+2783" + String.format("%07d", i),
+                    "Message " + i, MessageFlag.fromCode((byte) (i % 3))));
+        }
+        MessageManager.Message unusual = new MessageManager.Message("HU", null, "+27831234567",
+                "Caf\u00e9 \u2615 \ud83d\ude00", (MessageFlag) null);
+        unusual.setSender("Bob");
+        written.add(unusual);
+
+        MessageFiles.writeManagerMessages(file.getPath(), written);
+        List<MessageManager.Message> read = new ArrayList<>();
+        long count = MessageFiles.readManagerMessages(file.getPath(), read::add);
+
+        assertEquals(written.size(), count);
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i).getMessageHash(), read.get(i).getMessageHash());
+            assertEquals(written.get(i).getMessageID(), read.get(i).getMessageID());
+            assertEquals(written.get(i).getRecipient(), read.get(i).getRecipient());
+            assertEquals(written.get(i).getMessage(), read.get(i).getMessage());
+            assertEquals(written.get(i).getFlagValue(), read.get(i).getFlagValue());
+            assertEquals(written.get(i).getSender(), read.get(i).getSender());
+        }
+        assertNull(read.get(3000).getMessageID());
+        assertNull(read.get(3000).getFlagValue());
+    }
+
+    @Test
+    @DisplayName("Part 2 messages round-trip through the binary format")
+    public void testMessageRoundTrip() throws IOException {
+        file = new File(directory, "sent" + MessageFiles.BINARY_EXTENSION);
+        Message first = new Message("+27834557896", "Did you get the cake?", 1);
+        Message second = new Message("+27838884567", "Where are you? \u00e0 bient\u00f4t", 2);
+
+        MessageFiles.writeMessages(file.getPath(), List.of(first, second));
+        List<Message> read = MessageFiles.readMessages(file.getPath());
+
+        assertEquals(2, read.size());
+        assertEquals(first.getMessageID(), read.get(0).getMessageID());
+        assertEquals(first.getMessageHash(), read.get(0).getMessageHash());
+        assertEquals(second.getRecipient(), read.get(1).getRecipient());
+        assertEquals(second.getMessageContent(), read.get(1).getMessageContent());
+        assertEquals(2, read.get(1).getMessageNumber());
+    }
+
+    @Test
+    @DisplayName("Missing Part 2 fields stay null through the binary format")
+    public void testMessageNullFields() throws IOException {
+        file = new File(directory, "stored" + MessageFiles.BINARY_EXTENSION);
+        Message empty = new Message();
+        empty.setMessageNumber(7);
+
+        MessageFiles.writeMessages(file.getPath(), List.of(empty));
+        Message read = MessageFiles.readMessages(file.getPath()).get(0);
+
+        assertArrayEquals(new String[4], read.storedFields());
+        assertEquals("N/A", read.getMessageContent());
+        assertEquals(7, read.getMessageNumber());
+    }
+
+    @Test
+    @DisplayName("Block headers claiming too much, and leftover payload bytes, are rejected")
+    public void testCorruptBlockHeader() throws IOException {
+        file = new File(directory, "messages" + MessageFiles.BINARY_EXTENSION);
+        MessageFiles.writeManagerMessages(file.getPath(), List.of(
+                new MessageManager.Message("H1", "ID1", "+27834557896", "First", MessageFlag.SENT),
+                new MessageManager.Message("H2", "ID2", "+27834557896", "Second", MessageFlag.SENT)));
+
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // The record count is not covered by the CRC
+            raw.seek(6);
+            raw.writeInt(1);
+        }
+        IOException leftover = assertThrows(IOException.class,
+                () -> MessageFiles.readManagerMessages(file.getPath(), msg -> { }));
+        assertTrue(leftover.getMessage().contains("after its 1 records"), leftover.getMessage());
+
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(10);
+            raw.writeInt(Integer.MAX_VALUE);
+        }
+        IOException length = assertThrows(IOException.class,
+                () -> MessageFiles.readManagerMessages(file.getPath(), msg -> { }));
+        assertTrue(length.getMessage().contains("Corrupt header"), length.getMessage());
+    }
+
+    @Test
+    @DisplayName("A flipped byte fails the block CRC check")
+    public void testCorruptionDetected() throws IOException {
+        file = new File(directory, "messages" + MessageFiles.BINARY_EXTENSION);
+        MessageFiles.writeManagerMessages(file.getPath(), List.of(
+                new MessageManager.Message("H1", "ID1", "+27834557896", "Intact message", MessageFlag.SENT)));
+
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // Inside the first payload: header (6) + count (4) + length (4) + a few bytes
+            raw.seek(18);
+            int b = raw.read();
+            raw.seek(18);
+            raw.write(b ^ 0xFF);
+        }
+
+        IOException e = assertThrows(IOException.class,
+                () -> MessageFiles.readManagerMessages(file.getPath(), msg -> { }));
+        assertTrue(e.getMessage().contains("CRC"));
+    }
+
+    @Test
+    @DisplayName("Files of the wrong kind or without the magic are rejected")
+    public void testWrongFileRejected() throws IOException {
+        file = new File(directory, "sent" + MessageFiles.BINARY_EXTENSION);
+        MessageFiles.writeMessages(file.getPath(), List.of(new Message("+27834557896", "Part 2", 1)));
+        assertThrows(IOException.class, () -> MessageFiles.readManagerMessages(file.getPath(), msg -> { }));
+
+        Files.writeString(file.toPath(), "[]");
+        assertThrows(IOException.class, () -> MessageFiles.readMessages(file.getPath()));
+    }
+
+    @Test
+    @DisplayName("The extension chooses between JSON and binary")
+    public void testFormatByExtension() throws IOException {
+        assertTrue(MessageFiles.isBinary("stored.msgb"));
+        assertTrue(MessageFiles.isBinary("STORED.MSGB"));
+        assertFalse(MessageFiles.isBinary("stored.json"));
+        assertFalse(MessageFiles.isBinary(null));
+
+        file = new File(directory, "messages.json");
+        MessageFiles.writeManagerMessages(file.getPath(), List.of(
+                new MessageManager.Message("H1", "ID1", "+27834557896", "As JSON", MessageFlag.STORED)));
+        assertTrue(Files.readString(file.toPath()).trim().startsWith("["));
+
+        List<MessageManager.Message> read = new ArrayList<>();
+        MessageFiles.readManagerMessages(file.getPath(), read::add);
+        assertEquals("As JSON", read.get(0).getMessage());
+        assertEquals(MessageFlag.STORED, read.get(0).getFlagValue());
+    }
+
+    @Test
+    @DisplayName("MessageManager saves and loads binary files")
+    public void testManagerSaveAndLoad() throws IOException {
+        file = new File(directory, "stored" + MessageFiles.BINARY_EXTENSION);
+        MessageFiles.writeManagerMessages(file.getPath(), List.of(
+                new MessageManager.Message("BX", "BX1", "+27123456789", "Loaded from binary", MessageFlag.STORED)));
+
+        MessageManager.populateArrays();
+        MessageManager.loadStoredMessagesFromJSON(file.getPath());
+        assertEquals(3, MessageManager.storedMessages.size());
+        assertEquals(6, MessageManager.allMessages.size());
+
+        assertTrue(MessageManager.saveMessagesToFile(file.getPath()));
+        List<MessageManager.Message> saved = new ArrayList<>();
+        assertEquals(6, MessageFiles.readManagerMessages(file.getPath(), saved::add));
+        assertEquals("Loaded from binary", saved.get(5).getMessage());
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic messages shared by the unit tests
+ * Every field follows from the writer and the sequence number, so tests can
+ * name the message they expect: hash "W0:42", recipient "+27830000042"
+ * (a thousand recipients in turn) and the flags Sent, Stored, Disregarded in turn.
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Test fixtures
+ */
+final class MessageFixtures {
+
+    private MessageFixtures() {
+    }
+
+    /**
+     * @param writer number of the thread or file the message comes from
+     * @param i sequence number within that writer
+     * @return a new message
+     */
+    static MessageManager.Message message(int writer, int i) {
+        MessageFlag flag = MessageFlag.fromCode((byte) (i % 3));
+        String recipient = "+2783" + String.format("%07d", i % 1000);
+        return new MessageManager.Message("W" + writer + ":" + i, "ID" + writer + "-" + i,
+                recipient, "Benchmark message number " + i, flag);
+    }
+
+    /**
+     * @return messages from to (exclusive) of one writer
+     */
+    static List<MessageManager.Message> messages(int writer, int from, int to) {
+        List<MessageManager.Message> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(message(writer, i));
+        }
+        return rows;
+    }
+
+    /**
+     * @return the first count messages of one writer
+     */
+    static List<MessageManager.Message> messages(int writer, int count) {
+        return messages(writer, 0, count);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the lazy background loading of the message history
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Lazy history loading test coverage
+ */
+public class MessageHistoryLoadingTest {
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Message.resetMessageCount();
+        try (MessageLog log = new MessageLog("messages.log", MessageLog.SyncPolicy.ALWAYS, 1, 1)) {
+            log.append("sent", new Message("+27834557896", "Sent before restart", 1));
+            log.append("stored", new Message("+27838884567", "Stored before restart", 2));
+        }
+        Message.discardHistory();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Message.resetMessageCount();
+    }
+
+    @Test
+    @DisplayName("Validation and hashing never start the history load")
+    public void testValidationDoesNotLoad() {
+        Message msg = new Message("+27718693002", "Hi Mike, can you join us for dinner tonight", 0);
+
+        assertTrue(msg.checkMessageID());
+        assertEquals(1, msg.checkRecipientCell());
+        assertEquals("Message ready to send.", msg.validateMessageLength());
+        assertNotNull(msg.createMessageHash());
+        assertFalse(Message.isHistoryLoaded());
+    }
+
+    @Test
+    @DisplayName("startLoading loads in the background and completes its future")
+    public void testBackgroundLoad() throws Exception {
+        Message.startLoading().get(10, TimeUnit.SECONDS);
+
+        assertTrue(Message.isHistoryLoaded());
+        assertSame(Message.startLoading(), Message.startLoading());
+        assertEquals(1, Message.returnTotalMessages());
+        assertEquals("Stored before restart", Message.getStoredMessages().get(0).getMessageContent());
+    }
+
+    @Test
+    @DisplayName("A history query waits for the load it starts")
+    public void testQueryWaitsForLoad() {
+        assertEquals(1, Message.getSentMessages().size());
+        assertTrue(Message.isHistoryLoaded());
+        assertTrue(Message.printMessages().contains("Sent before restart"));
+    }
+}
@@ -0,0 +1,150 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the index file saved next to a repository checkpoint
+ * A repository restored from the file must answer every query exactly like
+ * the repository it was saved from, and keep working after later changes
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Shared fixtures and JUnit temporary directory
+ */
+public class MessageIndexFileTest {
+    @TempDir
+    File directory;
+    private String checkpointFile;
+    private String indexFile;
+
+    @BeforeEach
+    public void setUp() {
+        checkpointFile = new File(directory, "messages.ckpt").getPath();
+        indexFile = MessageIndexFile.pathFor(checkpointFile);
+        MessageManager.populateArrays();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.closeJournal();
+        MessageManager.populateArrays();
+    }
+
+    /**
+     * Repository with duplicate IDs, a recipient that is not a number, a gap left
+     * by a delete and a flag change, saved as checkpoint plus index file
+     */
+    private MessageRepository saveSample() throws IOException {
+        MessageRepository source = new MessageRepository();
+        source.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        source.add(new MessageManager.Message("H2", "M2", "+27838884567", "Where are you? You are late!", "Stored"));
+        source.add(new MessageManager.Message("H3", "M1", "0838884567", "It is dinner time!", "Sent"));
+        source.add(new MessageManager.Message("H4", "M4", "front desk", "Cake at the gate", "Disregarded"));
+        source.add(new MessageManager.Message("H5", "M5", "+27834484567", "Dinner is late", "Stored"));
+        source.remove("H2");
+        source.changeFlag("H5", MessageFlag.SENT);
+        MessageCheckpoint.write(checkpointFile, 7, source.messages());
+        MessageIndexFile.write(indexFile, 7, source);
+        return source;
+    }
+
+    private List<MessageManager.Message> readCheckpoint() throws IOException {
+        List<MessageManager.Message> saved = new ArrayList<>();
+        MessageCheckpoint.read(checkpointFile, saved::add);
+        return saved;
+    }
+
+    private static List<String> hashes(Iterable<MessageManager.Message> messages) {
+        List<String> result = new ArrayList<>();
+        for (MessageManager.Message msg : messages) {
+            result.add(msg.getMessageHash());
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("A restored repository answers like the one it was saved from")
+    public void testRoundTrip() throws IOException {
+        MessageRepository source = saveSample();
+        MessageRepository restored = MessageIndexFile.load(indexFile, 7, readCheckpoint(), false);
+
+        assertEquals(hashes(source.messages()), hashes(restored.messages()));
+        assertEquals(List.of("H1", "H3", "H5"), hashes(restored.flagged(MessageFlag.SENT)));
+        assertEquals(3, restored.count(MessageFlag.SENT));
+        assertEquals("H1", restored.findByID("M1").getMessageHash());
+        assertNull(restored.findByID("M2"));
+        assertEquals(hashes(source.findByRecipient("+27838884567")), hashes(restored.findByRecipient("083 888 4567")));
+        assertEquals(List.of("H4"), hashes(restored.findByRecipient("front desk")));
+        assertEquals(3, restored.countByRecipientPrefix("+2783"));
+        assertEquals(source.suggestRecipients("+2783", 10), restored.suggestRecipients("+2783", 10));
+        assertEquals(List.of("H1", "H4"), hashes(restored.findByContent("cake")));
+        assertEquals(List.of("H3", "H5"), hashes(restored.findByContent("din*")));
+        assertEquals(source.longest(null).getMessageHash(), restored.longest(null).getMessageHash());
+    }
+
+    @Test
+    @DisplayName("A restored repository keeps every index current through later changes")
+    public void testChangesAfterRestore() throws IOException {
+        saveSample();
+        MessageRepository restored = MessageIndexFile.load(indexFile, 7, readCheckpoint(), false);
+
+        restored.changeFlag("H3", MessageFlag.STORED);
+        restored.add(new MessageManager.Message("H6", "M6", "+27838884567", "Cake for dinner", "Stored"));
+        restored.remove("H1");
+
+        assertEquals(List.of("H3", "H4", "H5", "H6"), hashes(restored.messages()));
+        assertEquals(List.of("H4", "H6"), hashes(restored.findByContent("cake")));
+        assertEquals(List.of("H3", "H6"), hashes(restored.findByRecipient("+27838884567")));
+        assertEquals(List.of("H3", "H6"), hashes(restored.flagged(MessageFlag.STORED)));
+        assertEquals("H3", restored.findByID("M1").getMessageHash());
+        assertEquals(2, restored.countByRecipientPrefix("+2783888"));
+    }
+
+    @Test
+    @DisplayName("A corrupt or mismatched index file is refused")
+    public void testRejectsBadFiles() throws IOException {
+        saveSample();
+        List<MessageManager.Message> saved = readCheckpoint();
+        assertThrows(IOException.class, () -> MessageIndexFile.load(indexFile, 8, saved, false));
+        assertThrows(IOException.class, () -> MessageIndexFile.load(indexFile, 7, saved.subList(0, 3), false));
+
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 0x5A);
+        }
+        assertThrows(IOException.class, () -> MessageIndexFile.load(indexFile, 7, saved, false));
+    }
+
+    @Test
+    @DisplayName("MessageManager saves indexes with each checkpoint and loads them on the next start")
+    public void testManagerWarmStart() {
+        String journalFile = new File(directory, "messages.journal").getPath();
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER);
+        MessageManager.addMessageToArrays(new MessageManager.Message("H6", "M6", "+27830000006", "Warm start", "Sent"));
+        MessageManager.closeJournal();
+        assertTrue(new File(indexFile).exists());
+
+        MessageManager.populateArrays();
+        assertEquals(6, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertTrue(MessageManager.restoredSavedIndexes());
+        assertEquals(List.of("H6"), hashes(MessageManager.searchMessagesByKeyword("warm")));
+        MessageManager.closeJournal(false);
+
+        // Without a usable index file the indexes are rebuilt from the checkpoint
+        new File(indexFile).delete();
+        assertEquals(6, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertFalse(MessageManager.restoredSavedIndexes());
+        assertEquals(List.of("H6"), hashes(MessageManager.searchMessagesByKeyword("warm")));
+    }
+}
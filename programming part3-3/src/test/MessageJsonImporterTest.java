@@ -0,0 +1,113 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming JSON importer
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - JUnit temporary directory
+ */
+public class MessageJsonImporterTest {
+    @TempDir
+    File directory;
+    private File file;
+
+    @Test
+    @DisplayName("Records reach the sink one at a time in file order")
+    public void testImportFromReader() throws IOException {
+        List<MessageManager.Message> received = new ArrayList<>();
+        String json = "[{\"messageHash\":\"J1\",\"messageID\":\"1\",\"recipient\":\"+27123456789\","
+                + "\"message\":\"First\",\"flag\":\"Stored\"}, null,"
+                + "{\"messageHash\":\"J2\",\"messageID\":\"2\",\"recipient\":\"+27987654321\","
+                + "\"message\":\"Second\",\"flag\":\"sent\"}]";
+
+        long count = new MessageJsonImporter(received::add).importFrom(new StringReader(json));
+
+        assertEquals(2, count);
+        assertEquals("J1", received.get(0).getMessageHash());
+        assertEquals(MessageFlag.STORED, received.get(0).getFlagValue());
+        assertEquals(MessageFlag.SENT, received.get(1).getFlagValue());
+    }
+
+    @Test
+    @DisplayName("Empty input and null import nothing, malformed input fails")
+    public void testEmptyAndInvalidInput() {
+        MessageJsonImporter importer = new MessageJsonImporter(msg -> fail("No records expected"));
+
+        assertDoesNotThrow(() -> assertEquals(0, importer.importFrom(new StringReader(""))));
+        assertDoesNotThrow(() -> assertEquals(0, importer.importFrom(new StringReader("null"))));
+        assertThrows(IOException.class, () -> importer.importFrom(new StringReader("{\"not\":\"an array\"}")));
+    }
+
+    @Test
+    @DisplayName("Large files import through workers with progress updates")
+    public void testWorkersAndProgress() throws IOException {
+        file = new File(directory, "messages.json");
+        int total = 25_000;
+        try (Writer out = new FileWriter(file)) {
+            out.write("[");
+            for (int i = 0; i < total; i++) {
+                out.write((i > 0 ? "," : "") + "{\"messageHash\":\"H" + i + "\",\"messageID\":\"" + i
+                        + "\",\"recipient\":\"+2783" + (1000000 + i) + "\",\"message\":\"Message " + i
+                        + "\",\"flag\":\"Stored\"}");
+            }
+            out.write("]");
+        }
+
+        MessageRepository repository = new MessageRepository(true);
+        AtomicLong updates = new AtomicLong();
+        AtomicLong lastBytes = new AtomicLong();
+        long count = new MessageJsonImporter(repository::add)
+                .withProgress((records, bytes, size) -> {
+                    updates.incrementAndGet();
+                    lastBytes.set(bytes);
+                    assertEquals(file.length(), size);
+                }, 10_000)
+                .withWorkers(3, 16)
+                .importFile(file.getPath());
+
+        assertEquals(total, count);
+        assertEquals(total, repository.count(MessageFlag.STORED));
+        assertEquals("Message 24999", repository.findByHash("H24999").getMessage());
+        assertEquals(3, updates.get());
+        assertEquals(file.length(), lastBytes.get());
+    }
+
+    @Test
+    @DisplayName("A failing sink stops the import with its exception")
+    public void testSinkFailure() {
+        MessageJsonImporter importer = new MessageJsonImporter(msg -> {
+            throw new IllegalArgumentException("Rejected " + msg.getMessageHash());
+        }).withWorkers(2, 1);
+        String json = "[{\"messageHash\":\"J1\"},{\"messageHash\":\"J2\"},{\"messageHash\":\"J3\"}]";
+
+        assertThrows(IllegalArgumentException.class, () -> importer.importFrom(new StringReader(json)));
+    }
+
+    @Test
+    @DisplayName("MessageManager loads stored messages through the streaming path")
+    public void testManagerLoad() throws IOException {
+        file = new File(directory, "stored.json");
+        try (Writer out = new FileWriter(file)) {
+            out.write("[{\"messageHash\":\"JX\",\"messageID\":\"JX1\",\"recipient\":\"+27123456789\","
+                    + "\"message\":\"Streamed in\",\"flag\":\"Stored\"}]");
+        }
+        MessageManager.populateArrays();
+        MessageManager.loadStoredMessagesFromJSON(file.getPath());
+
+        assertEquals(3, MessageManager.storedMessages.size());
+        assertEquals(6, MessageManager.allMessages.size());
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the reflection-free message JSON adapters
+ * Checks the adapters against Gson's reflective binding in both directions
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Message JSON adapter test coverage
+ */
+public class MessageJsonTest {
+
+    @Test
+    @DisplayName("Part 2 messages match the reflective JSON in both directions")
+    public void testMessageCompatibility() throws IOException {
+        Message msg = new Message();
+        msg.setMessageID("0123456789");
+        msg.setMessageHash("01:1:HITONIGHT");
+        msg.setRecipient("+27718693002");
+        msg.setMessageContent("Hi \"Mike\" <b>tonight</b>");
+        msg.setMessageNumber(1);
+
+        String reflective = new Gson().toJson(msg);
+        assertEquals(reflective, MessageJson.GSON.toJson(msg));
+
+        Message parsed = MessageJson.GSON.fromJson(reflective, Message.class);
+        assertEquals("0123456789", parsed.getMessageID());
+        assertEquals("Hi \"Mike\" <b>tonight</b>", parsed.getMessageContent());
+        assertEquals(1, parsed.getMessageNumber());
+
+        // Missing fields stay null rather than "N/A", and nulls are left out
+        String sparse = MessageJson.GSON.toJson(new Message());
+        assertEquals("{\"messageNumber\":0}", sparse);
+        assertEquals(new Gson().toJson(new Message()), sparse);
+    }
+
+    @Test
+    @DisplayName("Manager messages match the reflective JSON and keep the flag spelling")
+    public void testManagerMessageCompatibility() {
+        MessageManager.Message msg = new MessageManager.Message("H1", "M1", "+27834557896",
+                "Did you get the cake?", MessageFlag.STORED);
+
+        String reflective = new Gson().toJson(msg);
+        assertEquals(reflective, MessageJson.GSON.toJson(msg));
+        assertTrue(reflective.contains("\"flag\":\"Stored\""));
+
+        MessageManager.Message parsed = MessageJson.GSON.fromJson(
+                "{\"messageHash\":\"H2\",\"flag\":\"SENT\",\"extra\":[1,2],\"recipient\":null}",
+                MessageManager.Message.class);
+        assertEquals("H2", parsed.getMessageHash());
+        assertEquals(MessageFlag.SENT, parsed.getFlagValue());
+        assertNull(parsed.getRecipient());
+        assertEquals("System", parsed.getSender());
+
+        assertNull(MessageJson.GSON.fromJson("{\"flag\":\"Lost\"}", MessageManager.Message.class).getFlagValue());
+    }
+
+    @Test
+    @DisplayName("Lists round-trip through writeArray and readMessages")
+    public void testArrays() throws IOException {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Message msg = new Message();
+            msg.setMessageID("ID" + i);
+            msg.setMessageNumber(i);
+            messages.add(msg);
+        }
+
+        StringWriter json = new StringWriter();
+        MessageJson.writeArray(json, messages, MessageJson.MESSAGE_ADAPTER, true);
+        List<Message> reflective = new Gson().fromJson(json.toString(), new TypeToken<List<Message>>(){}.getType());
+        List<Message> parsed = MessageJson.readMessages(new StringReader(json.toString()));
+
+        assertEquals(50, parsed.size());
+        assertEquals(50, reflective.size());
+        assertEquals("ID49", parsed.get(49).getMessageID());
+        assertEquals(49, reflective.get(49).getMessageNumber());
+
+        assertTrue(MessageJson.readMessages(new StringReader("")).isEmpty());
+        assertTrue(MessageJson.readMessages(new StringReader("null")).isEmpty());
+        assertThrows(IOException.class, () -> MessageJson.readMessages(new StringReader("{\"a\":1}")));
+    }
+
+    @Test
+    @DisplayName("Archive views serialize through their getters")
+    public void testArchiveViews() {
+        ColumnarMessageStore store = new ColumnarMessageStore();
+        store.add(new MessageManager.Message("H1", "M1", "+27834557896", "Archived text", MessageFlag.SENT));
+
+        String json = MessageJson.GSON.toJson(store.findByHash("H1"));
+        MessageManager.Message parsed = MessageJson.GSON.fromJson(json, MessageManager.Message.class);
+
+        assertEquals("Archived text", parsed.getMessage());
+        assertEquals(MessageFlag.SENT, parsed.getFlagValue());
+    }
+}
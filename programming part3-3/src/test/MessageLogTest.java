@@ -0,0 +1,138 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the append-only message log
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - JUnit temporary directory
+ */
+public class MessageLogTest {
+    @TempDir
+    File directory;
+    private File file;
+
+    @BeforeEach
+    public void setUp() {
+        file = new File(directory, "messages.log");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Message.resetMessageCount();
+    }
+
+    @Test
+    @DisplayName("Appended entries replay in order under every sync policy")
+    public void testAppendAndReplay() throws IOException {
+        for (MessageLog.SyncPolicy policy : MessageLog.SyncPolicy.values()) {
+            file.delete();
+            try (MessageLog log = new MessageLog(file.getPath(), policy, 2, 10)) {
+                log.append("sent", new Message("+27834557896", "Did you get the cake?", 1));
+                log.append("stored", new Message("+27838884567", "Where are you?", 2));
+                log.append("sent", new Message("0838884567", "It is dinner time!", 3));
+                assertEquals(3, log.entryCount());
+            }
+
+            List<String> replayed = new ArrayList<>();
+            long count = MessageLog.replay(file.getPath(),
+                    (list, msg) -> replayed.add(list + ":" + msg.getMessageContent()));
+
+            assertEquals(3, count);
+            assertEquals(List.of("sent:Did you get the cake?", "stored:Where are you?", "sent:It is dinner time!"), replayed);
+        }
+    }
+
+    @Test
+    @DisplayName("A torn last line is ignored and truncate empties the log")
+    public void testTornLineAndTruncate() throws IOException {
+        try (MessageLog log = new MessageLog(file.getPath(), MessageLog.SyncPolicy.ALWAYS, 1, 1)) {
+            log.append("sent", new Message("+27834557896", "Complete", 1));
+        }
+        try (FileWriter out = new FileWriter(file, true)) {
+            out.write("{\"list\":\"sent\",\"message\":{\"messageCont");
+        }
+        assertEquals(1, MessageLog.replay(file.getPath(), (list, msg) -> assertEquals("Complete", msg.getMessageContent())));
+
+        try (MessageLog log = new MessageLog(file.getPath(), MessageLog.SyncPolicy.NEVER, 1, 1)) {
+            log.truncate();
+            assertEquals(0, log.entryCount());
+        }
+        assertEquals(0, file.length());
+        assertEquals(0, MessageLog.replay("missing-" + file.getName(), (list, msg) -> fail("No entries expected")));
+    }
+
+    @Test
+    @DisplayName("Startup loads the snapshot and replays the log after it")
+    public void testMessageStartupReplay() throws IOException {
+        Message.resetMessageCount();
+        try (MessageLog log = new MessageLog("messages.log", MessageLog.SyncPolicy.ALWAYS, 1, 1)) {
+            log.append("sent", new Message("+27834557896", "Logged send", 1));
+            log.append("stored", new Message("+27838884567", "Logged store", 2));
+        }
+
+        Message.initializeFromJSON();
+        assertEquals(1, Message.returnTotalMessages());
+        assertEquals("Logged store", Message.getStoredMessages().get(0).getMessageContent());
+
+        // A snapshot covers the log, so the log is emptied
+        Message.saveAllMessages();
+        assertFalse(new File("messages.log").exists() && new File("messages.log").length() > 0);
+        Message.initializeFromJSON();
+        assertEquals(1, Message.returnTotalMessages());
+        assertEquals(1, Message.getStoredMessages().size());
+    }
+
+    @Test
+    @DisplayName("Entries a snapshot covers are not replayed again")
+    public void testReplaySkipsCoveredEntries() throws IOException {
+        try (MessageLog log = new MessageLog(file.getPath(), MessageLog.SyncPolicy.ALWAYS, 1, 1)) {
+            log.append("sent", 1, new Message("+27834557896", "First send", 1));
+            log.append("stored", 1, new Message("+27838884567", "First store", 2));
+            log.append("sent", 2, new Message("0838884567", "Second send", 3));
+            log.append("sent", new Message("0838884567", "Unnumbered", 4));
+        }
+
+        // As if the sent snapshot held one message and the stored snapshot none
+        List<String> replayed = new ArrayList<>();
+        MessageLog.replay(file.getPath(), list -> "sent".equals(list) ? 1 : 0,
+                (list, msg) -> replayed.add(list + ":" + msg.getMessageContent()));
+        assertEquals(List.of("stored:First store", "sent:Second send", "sent:Unnumbered"), replayed);
+    }
+
+    @Test
+    @DisplayName("A crash between the snapshot and the truncate does not duplicate messages")
+    public void testCrashBeforeTruncate() throws IOException {
+        Message.resetMessageCount();
+        try (MessageLog log = new MessageLog("messages.log", MessageLog.SyncPolicy.ALWAYS, 1, 1)) {
+            log.append("sent", 1, new Message("+27834557896", "Logged send", 1));
+            log.append("stored", 1, new Message("+27838884567", "Logged store", 2));
+        }
+        File saved = new File(file.getPath() + ".saved");
+        Files.copy(new File("messages.log").toPath(), saved.toPath());
+
+        Message.initializeFromJSON();
+        Message.saveAllMessages();
+        // Put the log back as it was before the truncate
+        Files.move(saved.toPath(), new File("messages.log").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        Message.discardHistory();
+        Message.initializeFromJSON();
+        assertEquals(1, Message.returnTotalMessages());
+        assertEquals(1, Message.getStoredMessages().size());
+    }
+}
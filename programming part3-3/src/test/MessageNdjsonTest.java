@@ -0,0 +1,223 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JSON Lines files and the tail-follow reader
+ * Follower tests append to a real file and wait for the lines to arrive
+ *
+ * @author Heloisa Campos
+ * @version 1.4 - Read errors
+ */
+public class MessageNdjsonTest {
+    @TempDir
+    File directory;
+    private File file;
+    private boolean wasConcurrent;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = new File(directory, "feed" + MessageNdjson.EXTENSION);
+        Files.createFile(file.toPath());
+        wasConcurrent = MessageManager.isConcurrentMode();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.stopFollowing();
+        // Following switches MessageManager to concurrent mode
+        if (!wasConcurrent) {
+            MessageManager.disableConcurrentMode();
+        }
+    }
+
+    private void append(String text) throws IOException {
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String line(String hash, String text) {
+        return "{\"messageHash\":\"" + hash + "\",\"messageID\":\"" + hash + "\",\"recipient\":\"+27834557896\","
+                + "\"message\":\"" + text + "\",\"flag\":\"Sent\"}\n";
+    }
+
+    @Test
+    @DisplayName("Both message models round-trip one object per line")
+    public void testRoundTrip() throws IOException {
+        List<MessageManager.Message> rows = MessageFixtures.messages(0, 100);
+        rows.get(3).setSender("Line\nbreak \u00e9");
+        MessageFiles.writeManagerMessages(file.getPath(), rows);
+
+        assertEquals(100, Files.readAllLines(file.toPath()).size());
+        List<MessageManager.Message> read = new ArrayList<>();
+        assertEquals(100, MessageFiles.readManagerMessages(file.getPath(), read::add));
+        assertEquals("W0:99", read.get(99).getMessageHash());
+        assertEquals("Line\nbreak \u00e9", read.get(3).getSender());
+        assertEquals(MessageFlag.fromCode((byte) 2), read.get(2).getFlagValue());
+
+        Message msg = new Message();
+        msg.setMessageID("0123456789");
+        msg.setMessageContent("Hi Mike");
+        msg.setMessageNumber(7);
+        File part2 = new File(directory, "part2" + MessageNdjson.JSONL_EXTENSION);
+        MessageFiles.writeMessages(part2.getPath(), List.of(msg, msg));
+        List<Message> messages = MessageFiles.readMessages(part2.getPath());
+        assertEquals(2, messages.size());
+        assertEquals(7, messages.get(1).getMessageNumber());
+    }
+
+    @Test
+    @DisplayName("Blank and null lines are skipped, bad lines name their line number")
+    public void testBlankAndInvalidLines() {
+        List<MessageManager.Message> read = new ArrayList<>();
+        assertDoesNotThrow(() -> assertEquals(2, MessageNdjson.readLines(new StringReader(
+                line("H1", "One") + "\n   \nnull\r\n" + line("H2", "Two")),
+                MessageJson.MANAGER_MESSAGE_ADAPTER, read::add)));
+        assertEquals("H2", read.get(1).getMessageHash());
+
+        IOException e = assertThrows(IOException.class, () -> MessageNdjson.readLines(new StringReader(
+                line("H1", "One") + "[1, 2]\n"), MessageJson.MANAGER_MESSAGE_ADAPTER, read::add));
+        assertTrue(e.getMessage().contains("2"));
+        assertThrows(IOException.class, () -> MessageNdjson.readLines(new StringReader(
+                "{\"messageHash\":\"H1\"} {\"messageHash\":\"H2\"}\n"), MessageJson.MANAGER_MESSAGE_ADAPTER, read::add));
+    }
+
+    @Test
+    @DisplayName("The follower picks up appended lines and waits for unfinished ones")
+    public void testFollowAppends() throws Exception {
+        append(line("OLD", "Before following"));
+        List<MessageManager.Message> received = Collections.synchronizedList(new ArrayList<>());
+
+        try (MessageNdjson.Follower follower = MessageNdjson.follow(file.getPath(), received::add, false, 1)) {
+            append(line("H1", "First"));
+            assertTrue(follower.awaitRecords(1, 5000));
+            assertEquals("H1", received.get(0).getMessageHash());
+
+            // Half a line stays pending until its newline is written
+            String second = line("H2", "Second");
+            append(second.substring(0, 20));
+            Thread.sleep(30);
+            assertEquals(1, follower.getRecords());
+            append(second.substring(20) + "not json\n" + line("H3", "Third"));
+
+            assertTrue(follower.awaitRecords(3, 5000));
+            assertEquals("H2", received.get(1).getMessageHash());
+            assertEquals("H3", received.get(2).getMessageHash());
+            assertEquals(1, follower.getMalformedLines());
+            assertEquals(file.length(), follower.getPosition());
+        }
+    }
+
+    @Test
+    @DisplayName("The follower waits for a missing file and restarts after truncation")
+    public void testFollowMissingAndTruncated() throws Exception {
+        assertTrue(file.delete());
+        List<MessageManager.Message> received = Collections.synchronizedList(new ArrayList<>());
+
+        try (MessageNdjson.Follower follower = MessageNdjson.follow(file.getPath(), received::add, false, 1)) {
+            Thread.sleep(20);
+            append(line("H1", "Created later") + line("H2", "Also new"));
+            assertTrue(follower.awaitRecords(2, 5000));
+
+            Files.writeString(file.toPath(), line("H3", "After truncation"));
+            assertTrue(follower.awaitRecords(3, 5000));
+            assertEquals("H3", received.get(2).getMessageHash());
+            assertTrue(follower.isRunning());
+        }
+    }
+
+    @Test
+    @DisplayName("Following from the end skips the rest of a half-written line")
+    public void testFollowSkipsPartialFirstLine() throws Exception {
+        String cut = line("CUT", "Being written");
+        append(line("OLD", "Before following") + cut.substring(0, 25));
+        List<MessageManager.Message> received = Collections.synchronizedList(new ArrayList<>());
+
+        try (MessageNdjson.Follower follower = MessageNdjson.follow(file.getPath(), received::add, false, 1)) {
+            append(cut.substring(25) + line("H1", "First whole line"));
+            assertTrue(follower.awaitRecords(1, 5000));
+            Thread.sleep(20);
+            assertEquals(1, received.size());
+            assertEquals("H1", received.get(0).getMessageHash());
+            assertEquals(0, follower.getMalformedLines());
+        }
+    }
+
+    @Test
+    @DisplayName("The follower finishes a rotated file and then reads its replacement")
+    public void testFollowRotation() throws Exception {
+        File rotated = new File(file.getPath() + ".1");
+        List<MessageManager.Message> received = Collections.synchronizedList(new ArrayList<>());
+
+        try (MessageNdjson.Follower follower = MessageNdjson.follow(file.getPath(), received::add, false, 1)) {
+            append(line("H1", "Before rotation"));
+            assertTrue(follower.awaitRecords(1, 5000));
+
+            Files.move(file.toPath(), rotated.toPath());
+            try (OutputStream out = new FileOutputStream(rotated, true)) {
+                out.write(line("H2", "Late write to the old file").getBytes(StandardCharsets.UTF_8));
+            }
+            Thread.sleep(20);
+            // Longer than the old file, so only the file key gives the rotation away
+            append(line("H3", "New file") + line("H4", "New file again") + line("H5", "And again"));
+
+            assertTrue(follower.awaitRecords(5, 5000));
+            List<String> hashes = new ArrayList<>();
+            for (MessageManager.Message msg : received) {
+                hashes.add(msg.getMessageHash());
+            }
+            assertEquals(List.of("H1", "H2", "H3", "H4", "H5"), hashes);
+            assertEquals(file.length(), follower.getPosition());
+        }
+    }
+
+    @Test
+    @DisplayName("A read error stops the follower and is kept as its failure")
+    public void testFollowReadError() throws Exception {
+        File notAFile = new File(directory, "folder" + MessageNdjson.EXTENSION);
+        assertTrue(notAFile.mkdir());
+
+        try (MessageNdjson.Follower follower = MessageNdjson.follow(notAFile.getPath(), msg -> { }, true, 1)) {
+            for (int i = 0; i < 5000 && follower.isRunning(); i++) {
+                Thread.sleep(1);
+            }
+            assertFalse(follower.isRunning());
+            assertInstanceOf(IOException.class, follower.getFailure());
+        }
+    }
+
+    @Test
+    @DisplayName("MessageManager follows a file into the arrays until stopped")
+    public void testManagerFollow() throws Exception {
+        MessageManager.populateArrays();
+        append(line("EXISTING", "Already in the file"));
+
+        MessageNdjson.Follower follower = MessageManager.followMessagesFile(file.getPath(), true);
+        append(line("LIVE", "Appended while following"));
+
+        assertTrue(follower.awaitRecords(2, 5000));
+        assertTrue(MessageManager.messageHashes.contains("EXISTING"));
+        assertTrue(MessageManager.messageHashes.contains("LIVE"));
+        assertEquals(7, MessageManager.allMessages.size());
+
+        assertEquals(2, MessageManager.stopFollowing());
+        assertFalse(follower.isRunning());
+        assertEquals(0, MessageManager.stopFollowing());
+    }
+}
@@ -0,0 +1,206 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for repository checkpoints and the redo journal
+ * A crash is simulated by closing the journal without a final checkpoint
+ * and opening it again
+ *
+ * @author Heloisa Campos
+ * @version 1.3 - Shared fixtures and JUnit temporary directory
+ */
+public class MessageRecoveryTest {
+    @TempDir
+    File directory;
+    private String checkpointFile;
+    private String journalFile;
+
+    @BeforeEach
+    public void setUp() {
+        checkpointFile = new File(directory, "messages.ckpt").getPath();
+        journalFile = new File(directory, "messages.journal").getPath();
+        MessageManager.populateArrays();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.closeJournal();
+        MessageManager.attachArchive(null);
+        MessageManager.setCheckpointInterval(10_000);
+        MessageManager.populateArrays();
+    }
+
+    /**
+     * Drops the open journal as a crash would: no final checkpoint
+     */
+    private static void crash() {
+        MessageManager.closeJournal(false);
+    }
+
+    @Test
+    @DisplayName("A checkpoint round-trips the messages in order with its LSN")
+    public void testCheckpointRoundTrip() throws IOException {
+        List<MessageManager.Message> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(MessageFixtures.message(0, i));
+        }
+        MessageCheckpoint.write(checkpointFile, 42, rows);
+
+        List<MessageManager.Message> read = new ArrayList<>();
+        MessageCheckpoint.Header header = MessageCheckpoint.read(checkpointFile, read::add);
+        assertEquals(42, header.getLsn());
+        assertEquals(500, header.getCount());
+        assertEquals(500, MessageCheckpoint.readHeader(checkpointFile).getCount());
+        assertEquals(rows.get(499).getMessageHash(), read.get(499).getMessageHash());
+        assertEquals(rows.get(7).getFlagValue(), read.get(7).getFlagValue());
+        assertFalse(new File(checkpointFile + ".tmp").exists());
+    }
+
+    @Test
+    @DisplayName("Recovery replays only the journal entries after the checkpoint")
+    public void testRecoveryReplaysTail() {
+        assertEquals(5, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        MessageManager.addMessageToArrays(new MessageManager.Message("H6", "M6", "+27830000006", "Before", "Sent"));
+        assertTrue(MessageManager.checkpoint());
+        assertEquals(0, new File(journalFile).length());
+
+        MessageManager.addMessageToArrays(new MessageManager.Message("H7", "M7", "+27830000007", "After", "Stored"));
+        MessageManager.deleteMessageByHash("H1");
+        assertTrue(MessageManager.changeMessageFlag("H2", MessageFlag.SENT));
+        crash();
+
+        MessageManager.populateArrays();
+        assertEquals(6, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertEquals(3, MessageManager.getJournal().replayedEntries());
+        assertFalse(MessageManager.messageHashes.contains("H1"));
+        assertTrue(MessageManager.messageHashes.contains("H6"));
+        assertTrue(MessageManager.storedMessages.stream().anyMatch(m -> m.getMessageHash().equals("H7")));
+        assertTrue(MessageManager.sentMessages.stream().anyMatch(m -> m.getMessageHash().equals("H2")));
+        assertEquals(List.of("H2", "H3", "H4", "H5", "H6", "H7"), new ArrayList<>(MessageManager.messageHashes));
+    }
+
+    @Test
+    @DisplayName("Checkpoints are written automatically every interval")
+    public void testAutomaticCheckpoint() throws IOException {
+        MessageManager.setCheckpointInterval(100);
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER);
+        for (int i = 0; i < 250; i++) {
+            MessageManager.addMessageToArrays(MessageFixtures.message(1, i));
+        }
+        long covered = MessageCheckpoint.readHeader(checkpointFile).getLsn();
+        assertEquals(200, covered);
+        assertEquals(50, MessageManager.getJournal().entryCount());
+        crash();
+
+        assertEquals(255, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertEquals(50, MessageManager.getJournal().replayedEntries());
+        assertEquals(250, MessageManager.getJournal().lastLsn());
+    }
+
+    @Test
+    @DisplayName("A torn journal line is cut off and later entries follow the last good one")
+    public void testTornJournalLine() throws IOException {
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.ALWAYS);
+        MessageManager.addMessageToArrays(new MessageManager.Message("H6", "M6", "+27830000006", "Kept", "Sent"));
+        crash();
+        try (FileWriter out = new FileWriter(journalFile, true)) {
+            out.write("{\"lsn\":99,\"op\":\"add\",\"message\":{\"messageHa");
+        }
+
+        assertEquals(6, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.ALWAYS));
+        MessageManager.addMessageToArrays(new MessageManager.Message("H7", "M7", "+27830000007", "Next", "Sent"));
+        crash();
+
+        MessageManager.populateArrays();
+        assertEquals(7, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.ALWAYS));
+        assertTrue(MessageManager.messageHashes.contains("H7"));
+    }
+
+    @Test
+    @DisplayName("Closing the journal checkpoints so the next start replays nothing")
+    public void testCloseCheckpoints() {
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.GROUP);
+        MessageManager.addMessageToArrays(new MessageManager.Message("H6", "M6", "+27830000006", "Saved", "Stored"));
+        MessageManager.closeJournal();
+        assertNull(MessageManager.getJournal());
+
+        assertEquals(6, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.GROUP));
+        assertEquals(0, MessageManager.getJournal().replayedEntries());
+    }
+
+    @Test
+    @DisplayName("A change the journal cannot record is not applied")
+    public void testFailingJournal() throws IOException {
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER);
+        // Every later append fails on the closed file
+        MessageManager.getJournal().close();
+
+        MessageManager.addMessageToArrays(new MessageManager.Message("H6", "M6", "+27830000006", "Lost", "Sent"));
+        assertFalse(MessageManager.importMessage(new MessageManager.Message("H7", "M7", "+27830000007", "Lost", "Sent")));
+        MessageManager.deleteMessageByHash("H1");
+        assertFalse(MessageManager.changeMessageFlag("H2", MessageFlag.DISREGARDED));
+
+        assertEquals(5, MessageManager.allMessages.size());
+        assertTrue(MessageManager.messageHashes.contains("H1"));
+        assertFalse(MessageManager.messageHashes.contains("H6"));
+        assertEquals(0, MessageManager.disregardedMessages.stream()
+                .filter(m -> m.getMessageHash().equals("H2")).count());
+    }
+
+    @Test
+    @DisplayName("Archived messages survive checkpoints and crashes")
+    public void testArchivedMessagesRecovered() {
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER);
+        assertEquals(2, MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore()));
+        // Deleting from the archive is journaled; moving into it is not
+        MessageManager.deleteMessageByHash("H5");
+        crash();
+        MessageManager.attachArchive(null);
+
+        assertEquals(4, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertFalse(MessageManager.messageHashes.contains("H5"));
+        assertEquals(1, MessageManager.storedMessages.size());
+
+        MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+        assertTrue(MessageManager.checkpoint());
+        assertFalse(new File(MessageIndexFile.pathFor(checkpointFile)).exists());
+        crash();
+        MessageManager.attachArchive(null);
+
+        assertEquals(4, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertEquals(1, MessageManager.storedMessages.size());
+    }
+
+    @Test
+    @DisplayName("Reopening with the archive attached does not bring archived messages back twice")
+    public void testReopenWithArchiveAttached() {
+        MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER);
+        ColumnarMessageStore archive = new ColumnarMessageStore();
+        assertEquals(2, MessageManager.archiveMessages(MessageFlag.STORED, archive));
+        assertTrue(MessageManager.checkpoint());
+
+        assertEquals(3, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertSame(archive, MessageManager.getArchive());
+        assertEquals(3, MessageManager.allMessages.size());
+        assertEquals(0, MessageManager.storedMessages.size());
+        assertEquals(2, archive.count(null));
+
+        // Checkpoints written after the reopen still hold every message once
+        assertTrue(MessageManager.checkpoint());
+        crash();
+        MessageManager.attachArchive(null);
+        assertEquals(5, MessageManager.openJournal(checkpointFile, journalFile, MessageLog.SyncPolicy.NEVER));
+        assertEquals(2, MessageManager.storedMessages.size());
+    }
+}
@@ -0,0 +1,116 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the hash-indexed MessageRepository
+ * Verifies constant-time lookups and that every view stays consistent
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Repository test coverage
+ */
+public class MessageRepositoryTest {
+    private MessageRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new MessageRepository();
+        repository.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        repository.add(new MessageManager.Message("H2", "M2", "+27838884567", "Where are you?", "Stored"));
+        repository.add(new MessageManager.Message("H3", "M3", "+27834484567", "Yohoooo, I am at your gate.", "Disregarded"));
+    }
+
+    @Test
+    @DisplayName("Lookup by hash and ID uses the indexes")
+    public void testFindByHashAndID() {
+        assertEquals("M2", repository.findByHash("H2").getMessageID());
+        assertEquals("H3", repository.findByID("M3").getMessageHash());
+        assertNull(repository.findByHash("NOPE"));
+        assertNull(repository.findByID("NOPE"));
+    }
+
+    @Test
+    @DisplayName("Remove keeps every view consistent")
+    public void testRemoveUpdatesAllViews() {
+        MessageManager.Message removed = repository.remove("H2");
+
+        assertNotNull(removed);
+        assertEquals(2, repository.size());
+        assertEquals(2, repository.messages().size());
+        assertFalse(repository.hashes().contains("H2"));
+        assertFalse(repository.ids().contains("M2"));
+        assertTrue(repository.flagged(MessageFlag.STORED).isEmpty());
+        assertNull(repository.remove("H2"), "Second removal should find nothing");
+    }
+
+    @Test
+    @DisplayName("Adding an existing hash replaces the old message")
+    public void testAddReplacesSameHash() {
+        MessageManager.Message previous = repository.add(
+                new MessageManager.Message("H1", "M1", "+27834557896", "Cake is gone", "Stored"));
+
+        assertEquals("Did you get the cake?", previous.getMessage());
+        assertEquals(3, repository.size());
+        assertTrue(repository.flagged(MessageFlag.SENT).isEmpty());
+        assertEquals(2, repository.flagged(MessageFlag.STORED).size());
+    }
+
+    @Test
+    @DisplayName("Duplicate IDs fall back to the remaining message")
+    public void testDuplicateIDs() {
+        repository.add(new MessageManager.Message("H4", "M1", "0838884567", "It is dinner time!", "Sent"));
+
+        repository.remove("H1");
+        assertEquals("H4", repository.findByID("M1").getMessageHash());
+    }
+
+    @Test
+    @DisplayName("Changing a flag moves the message between partitions")
+    public void testChangeFlag() {
+        assertTrue(repository.changeFlag("H2", MessageFlag.SENT));
+
+        assertEquals(2, repository.count(MessageFlag.SENT));
+        assertEquals(0, repository.count(MessageFlag.STORED));
+        assertEquals("Sent", repository.findByHash("H2").getFlag());
+        assertFalse(repository.changeFlag("NOPE", MessageFlag.SENT));
+    }
+
+    @Test
+    @DisplayName("Flag labels parse case-insensitively")
+    public void testFlagLabels() {
+        assertEquals(MessageFlag.DISREGARDED, MessageFlag.fromLabel("disregarded"));
+        assertEquals(MessageFlag.STORED, MessageFlag.fromCode(MessageFlag.STORED.code()));
+        assertNull(MessageFlag.fromLabel("Pending"));
+        assertNull(new MessageManager.Message("H9", "M9", "+27831234567", "?", "Pending").getFlag());
+    }
+
+    @Test
+    @DisplayName("Length index serves longest, top-K and range queries")
+    public void testLengthIndex() {
+        repository.add(new MessageManager.Message("H4", "M4", "0838884567", "It is dinner time!", "Sent"));
+
+        assertEquals("Yohoooo, I am at your gate.", repository.longest(null).getMessage());
+        assertEquals("Did you get the cake?", repository.longest(MessageFlag.SENT).getMessage());
+        assertEquals(2, repository.topLongest(null, 2).size());
+        assertEquals("H1", repository.topLongest(null, 2).get(1).getMessageHash());
+        assertEquals(2, repository.findByLength(null, 14, 18).size());
+
+        repository.remove("H1");
+        assertEquals("It is dinner time!", repository.longest(MessageFlag.SENT).getMessage());
+        repository.changeFlag("H3", MessageFlag.SENT);
+        assertEquals("H3", repository.longest(MessageFlag.SENT).getMessageHash());
+        assertNull(repository.longest(MessageFlag.DISREGARDED));
+    }
+
+    @Test
+    @DisplayName("Views preserve insertion order")
+    public void testViewsPreserveOrder() {
+        MessageListView<String> hashes = new MessageListView<>(repository.hashes());
+        assertEquals("H1", hashes.get(0));
+        assertEquals("H3", hashes.get(2));
+        assertThrows(UnsupportedOperationException.class, () -> hashes.add("H9"));
+    }
+}
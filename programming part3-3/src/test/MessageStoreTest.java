@@ -0,0 +1,147 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the MessageStore backends and their selection by configuration
+ * Every file-backed type runs the same put / remove / reopen sequence
+ *
+ * @author Heloisa Campos
+ * @version 1.2 - Shared fixtures and JUnit temporary directory
+ */
+public class MessageStoreTest {
+    @TempDir
+    File directory;
+
+    @BeforeEach
+    public void setUp() {
+        MessageManager.populateArrays();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.useStore(null);
+        MessageManager.attachArchive(null);
+        MessageManager.populateArrays();
+    }
+
+    private Properties config(String type, String path) {
+        Properties config = new Properties();
+        config.setProperty("type", type);
+        config.setProperty("path", new File(directory, path).getPath());
+        return config;
+    }
+
+    private static List<MessageManager.Message> sample(int count) {
+        List<MessageManager.Message> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new MessageManager.Message("S" + i, "ID" + i, "+2783000000" + (i % 4),
+                    "Stored message " + i, MessageFlag.fromCode((byte) (i % 3))));
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("Every file-backed store keeps puts and removes across a reopen")
+    public void testStoresSurviveReopen() throws IOException {
+        String[][] backends = {
+                {"json", "messages.json"},
+                {"binary", "messages.msgb"},
+                {"log", "log"},
+                {"sharded", "shards"}
+        };
+        for (String[] backend : backends) {
+            Properties config = config(backend[0], backend[1]);
+            try (MessageStore store = MessageStores.open(config)) {
+                assertEquals(backend[0], store.getName());
+                store.putAll(sample(20));
+                store.put(new MessageManager.Message("S3", "ID3", "+27830000003", "Edited", MessageFlag.SENT));
+                assertTrue(store.remove("S5"), backend[0]);
+                assertFalse(store.remove("missing"), backend[0]);
+            }
+
+            try (MessageStore store = MessageStores.open(config)) {
+                assertEquals(19, store.size(), backend[0]);
+                assertNull(store.get("S5"), backend[0]);
+                assertEquals("Edited", store.get("S3").getMessage(), backend[0]);
+                List<MessageManager.Message> loaded = new ArrayList<>();
+                assertEquals(19, store.loadAll(loaded::add), backend[0]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The log store replays journal entries written after its last checkpoint")
+    public void testLogStoreReplaysJournal() throws IOException {
+        String path = new File(directory, "log").getPath();
+        LogMessageStore store = new LogMessageStore(path, MessageLog.SyncPolicy.ALWAYS, 5);
+        store.putAll(sample(12));
+        store.remove("S0");
+        store.flush();
+
+        // A second store opened over the same files sees the checkpoint and the journal tail
+        try (LogMessageStore reopened = new LogMessageStore(path, MessageLog.SyncPolicy.ALWAYS, 5)) {
+            assertEquals(11, reopened.size());
+            assertNull(reopened.get("S0"));
+        }
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Unknown store types are rejected")
+    public void testUnknownType() {
+        Properties config = new Properties();
+        config.setProperty("type", "cassandra");
+        assertThrows(IllegalArgumentException.class, () -> MessageStores.open(config));
+    }
+
+    @Test
+    @DisplayName("MessageManager saves to, loads from and writes through to the configured store")
+    public void testManagerWritesThrough() throws IOException {
+        Properties config = config("binary", "messages.msgb");
+        MessageStore store = MessageManager.openStore(config);
+        assertNotNull(store);
+        int saved = MessageManager.saveMessagesToStore();
+        assertEquals(MessageManager.allMessages.size(), saved);
+
+        String hash = MessageManager.messageHashes.get(0);
+        assertTrue(MessageManager.changeMessageFlag(hash, MessageFlag.DISREGARDED));
+        try (MessageStore onDisk = MessageStores.open(config)) {
+            assertEquals(MessageFlag.DISREGARDED, onDisk.get(hash).getFlagValue());
+        }
+
+        MessageManager.deleteMessageByHash(hash);
+        try (MessageStore onDisk = MessageStores.open(config)) {
+            assertEquals(saved - 1, onDisk.size());
+            assertNull(onDisk.get(hash));
+        }
+
+        // Reloading into the arrays skips everything already there
+        assertEquals(0, MessageManager.loadMessagesFromStore());
+    }
+
+    @Test
+    @DisplayName("Saving to the store includes archived messages")
+    public void testSaveIncludesArchive() throws IOException {
+        Properties config = config("binary", "messages.msgb");
+        assertNotNull(MessageManager.openStore(config));
+        MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+
+        assertEquals(5, MessageManager.saveMessagesToStore());
+        MessageManager.useStore(null);
+        try (MessageStore onDisk = MessageStores.open(config)) {
+            assertEquals(5, onDisk.size());
+            assertEquals(MessageFlag.STORED, onDisk.get("H5").getFlagValue());
+        }
+    }
+}
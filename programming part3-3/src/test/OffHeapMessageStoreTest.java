@@ -0,0 +1,123 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the off-heap message store
+ * Uses a tiny chunk size so records are spread over many direct buffers
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Oversized replacements
+ */
+public class OffHeapMessageStoreTest {
+    private OffHeapMessageStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new OffHeapMessageStore(64);
+        store.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        store.add(new MessageManager.Message("H2", "M2", "+27838884567", "Where are you? \u00dcn\u00efc\u00f6d\u00e9", "Stored"));
+        store.add(new MessageManager.Message("H4", "M4", "0838884567", "It is dinner time!", "Sent"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.attachArchive(null);
+    }
+
+    @Test
+    @DisplayName("Records decode every field from direct memory")
+    public void testRoundTrip() {
+        MessageManager.Message view = store.findByID("M2");
+
+        assertEquals("H2", view.getMessageHash());
+        assertEquals("+27838884567", view.getRecipient());
+        assertEquals("Where are you? \u00dcn\u00efc\u00f6d\u00e9", view.getMessage());
+        assertEquals(MessageFlag.STORED, view.getFlagValue());
+        assertEquals("System", view.getSender());
+        assertTrue(store.offHeapBytes() >= 3 * 64);
+    }
+
+    @Test
+    @DisplayName("Records larger than a chunk get a buffer of their own")
+    public void testOversizedRecord() {
+        String longText = "x".repeat(250);
+        store.add(new MessageManager.Message("H9", "M9", "+27831112222", longText, "Sent"));
+
+        assertEquals(longText, store.findByHash("H9").getMessage());
+        assertEquals("H9", store.longest(null).getMessageHash());
+        assertEquals("Did you get the cake?", store.findByHash("H1").getMessage());
+    }
+
+    @Test
+    @DisplayName("A replacement with an oversized field is refused and the original kept")
+    public void testOversizedReplacement() {
+        String longId = "x".repeat(0x10000);
+        assertThrows(IllegalArgumentException.class, () -> store.add(
+                new MessageManager.Message("H1", longId, "+27834557896", "Replaced", "Stored")));
+
+        MessageManager.Message original = store.findByHash("H1");
+        assertNotNull(original);
+        assertEquals("Did you get the cake?", original.getMessage());
+        assertEquals(3, store.count(null));
+        assertEquals("H1", store.findByID("M1").getMessageHash());
+    }
+
+    @Test
+    @DisplayName("Remove tombstones the record and replace re-indexes it")
+    public void testRemoveAndReplace() {
+        assertTrue(store.remove("H4"));
+        assertFalse(store.remove("H4"));
+        assertNull(store.findByID("M4"));
+        assertEquals(1, store.findByRecipient("+27838884567").size());
+
+        store.add(new MessageManager.Message("H1", "M1", "0834557896", "Replaced", "Stored"));
+        assertEquals(2, store.count(null));
+        assertEquals(0, store.count(MessageFlag.SENT));
+        assertEquals("Replaced", store.findByID("M1").getMessage());
+    }
+
+    @Test
+    @DisplayName("The longest row follows adds, ties and removals of the longest")
+    public void testLongestTracking() {
+        assertEquals("H2", store.longest(null).getMessageHash());
+        assertEquals("H1", store.longest(MessageFlag.SENT).getMessageHash());
+
+        // Same length as H1 but later, so H1 stays the longest sent message
+        store.add(new MessageManager.Message("H5", "M5", "+27830000005", "Did you get the pie?!", "Sent"));
+        assertEquals("H1", store.longest(MessageFlag.SENT).getMessageHash());
+
+        assertTrue(store.remove("H1"));
+        assertEquals("H5", store.longest(MessageFlag.SENT).getMessageHash());
+        assertTrue(store.remove("H2"));
+        assertEquals("H5", store.longest(null).getMessageHash());
+        assertNull(store.longest(MessageFlag.STORED));
+    }
+
+    @Test
+    @DisplayName("forEach walks one partition in insertion order")
+    public void testForEach() {
+        List<String> ids = new ArrayList<>();
+        store.forEach(MessageFlag.SENT, msg -> ids.add(msg.getMessageID()));
+
+        assertEquals(List.of("M1", "M4"), ids);
+    }
+
+    @Test
+    @DisplayName("MessageManager searches read through to the off-heap archive")
+    public void testArchiveReadThrough() {
+        MessageManager.populateArrays();
+        MessageManager.archiveMessages(MessageFlag.SENT, new OffHeapMessageStore());
+
+        assertEquals(0, MessageManager.sentMessages.size());
+        assertEquals(2, MessageManager.getArchive().count(MessageFlag.SENT));
+        assertEquals("H4", MessageManager.getArchive().findByRecipient("+27838884567").get(0).getMessageHash());
+        assertDoesNotThrow(() -> MessageManager.searchMessagesByRecipient("0838884567"));
+    }
+}
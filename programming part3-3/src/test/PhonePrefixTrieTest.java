@@ -0,0 +1,91 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for recipient prefix counts, listings and suggestions
+ * Uses the five test messages from the requirements document
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - Archived results keep their sender
+ */
+public class PhonePrefixTrieTest {
+    private MessageRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new MessageRepository();
+        repository.add(new MessageManager.Message("H1", "M1", "+27834557896", "Did you get the cake?", "Sent"));
+        repository.add(new MessageManager.Message("H2", "M2", "+27838884567",
+                "Where are you? You are late! I have asked you to be on time.", "Stored"));
+        repository.add(new MessageManager.Message("H3", "M3", "+27834484567", "Yohoooo, I am at your gate.", "Disregarded"));
+        repository.add(new MessageManager.Message("H4", "M4", "0838884567", "It is dinner time!", "Sent"));
+        repository.add(new MessageManager.Message("H5", "M5", "+27838884567", "Ok, I am leaving without you.", "Stored"));
+    }
+
+    @Test
+    @DisplayName("Prefix counts accept national and international spellings")
+    public void testCountByPrefix() {
+        assertEquals(5, repository.countByRecipientPrefix("+2783"));
+        assertEquals(5, repository.countByRecipientPrefix("083"));
+        assertEquals(3, repository.countByRecipientPrefix("+278388"));
+        assertEquals(2, repository.countByRecipientPrefix("0834"));
+        assertEquals(0, repository.countByRecipientPrefix("+2782"));
+        assertEquals(0, repository.countByRecipientPrefix("abc"));
+    }
+
+    @Test
+    @DisplayName("Prefix listing groups by number in ascending order")
+    public void testFindByPrefix() {
+        assertEquals(List.of("H3", "H1", "H2", "H4", "H5"), hashes(repository.findByRecipientPrefix("+2783")));
+        assertEquals(List.of("H2", "H4", "H5"), hashes(repository.findByRecipientPrefix("0838884567")));
+    }
+
+    @Test
+    @DisplayName("Suggestions list distinct known numbers and respect the limit")
+    public void testSuggest() {
+        assertEquals(List.of("+27834484567", "+27834557896", "+27838884567"), repository.suggestRecipients("+2783", 10));
+        assertEquals(List.of("+27834484567"), repository.suggestRecipients("083", 1));
+        assertTrue(repository.suggestRecipients("+1", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deletes and replacements keep counts and suggestions current")
+    public void testUpdates() {
+        repository.remove("H3");
+        assertEquals(0, repository.countByRecipientPrefix("+278344"));
+        assertEquals(List.of("+27834557896", "+27838884567"), repository.suggestRecipients("+2783", 10));
+
+        repository.add(new MessageManager.Message("H1", "M1", "+27711234567", "Moved", "Sent"));
+        assertEquals(0, repository.countByRecipientPrefix("+278345"));
+        assertEquals(List.of("+27711234567"), repository.suggestRecipients("+277", 10));
+        assertEquals(4, repository.countByRecipientPrefix("+27"));
+    }
+
+    @Test
+    @DisplayName("MessageManager prefix search reads through to the archive")
+    public void testManagerPrefixSearch() {
+        MessageManager.populateArrays();
+        MessageManager.allMessages.get(1).setSender("Bob");
+        MessageManager.archiveMessages(MessageFlag.STORED, new ColumnarMessageStore());
+
+        List<MessageManager.Message> matches = MessageManager.searchMessagesByRecipientPrefix("+27838");
+        assertEquals(List.of("H4", "H2", "H5"), hashes(matches));
+        assertEquals("Bob", matches.get(1).getSender());
+        assertEquals(List.of("+27838884567"), MessageManager.suggestRecipients("+27838", 5));
+        MessageManager.attachArchive(null);
+    }
+
+    private static List<String> hashes(List<MessageManager.Message> messages) {
+        List<String> result = new ArrayList<>();
+        for (MessageManager.Message msg : messages) {
+            result.add(msg.getMessageHash());
+        }
+        return result;
+    }
+}
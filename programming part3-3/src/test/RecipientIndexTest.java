@@ -0,0 +1,67 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for phone number normalization and the recipient index
+ * Uses the recipient spellings found in the Part 3 test data
+ *
+ * @author Heloisa Campos
+ * @version 1.0 - Recipient index test coverage
+ */
+public class RecipientIndexTest {
+
+    @Test
+    @DisplayName("All spellings of one number normalize to the same key")
+    public void testNormalizeSpellings() {
+        long expected = 27838884567L;
+        assertEquals(expected, PhoneNumbers.normalize("+27838884567"));
+        assertEquals(expected, PhoneNumbers.normalize("0838884567"));
+        assertEquals(expected, PhoneNumbers.normalize("0027 83 888 4567"));
+        assertEquals(expected, PhoneNumbers.normalize("(083) 888-4567"));
+        assertEquals("+27838884567", PhoneNumbers.format(expected));
+    }
+
+    @Test
+    @DisplayName("Invalid numbers are rejected")
+    public void testNormalizeInvalid() {
+        assertEquals(PhoneNumbers.INVALID, PhoneNumbers.normalize(null));
+        assertEquals(PhoneNumbers.INVALID, PhoneNumbers.normalize(""));
+        assertEquals(PhoneNumbers.INVALID, PhoneNumbers.normalize("not a number"));
+        assertEquals(PhoneNumbers.INVALID, PhoneNumbers.normalize("+2712345678901234"));
+        assertEquals("2783", PhoneNumbers.normalizePrefix("+2783"));
+        assertEquals("2783", PhoneNumbers.normalizePrefix("083"));
+    }
+
+    @Test
+    @DisplayName("Both spellings from the test data return the same conversation")
+    public void testRecipientIndexMergesSpellings() {
+        RecipientIndex index = new RecipientIndex();
+        MessageManager.Message stored = new MessageManager.Message("H2", "M2", "+27838884567", "Where are you?", "Stored");
+        MessageManager.Message sent = new MessageManager.Message("H4", "M4", "0838884567", "It is dinner time!", "Sent");
+        index.add(1, stored);
+        index.add(2, sent);
+
+        assertEquals(2, index.find("0838884567").size());
+        assertEquals(2, index.find("+27838884567").size());
+        assertEquals(1, index.recipientCount());
+
+        index.remove(1, stored);
+        assertEquals(1, index.find(27838884567L).size());
+        index.remove(2, sent);
+        assertTrue(index.find("+27838884567").isEmpty());
+        assertEquals(0, index.recipientCount());
+    }
+
+    @Test
+    @DisplayName("Unparseable recipients are indexed by exact text")
+    public void testRawTextFallback() {
+        RecipientIndex index = new RecipientIndex();
+        index.add(1, new MessageManager.Message("X1", "X1", "Mom", "Hi", "Sent"));
+
+        assertEquals(1, index.find("Mom").size());
+        assertTrue(index.find("mom").isEmpty());
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the buffered report sink and the report writers
+ * Compares every row against the printf format the console reports used
+ *
+ * @author Heloisa Campos
+ * @version 1.1 - JUnit temporary directory
+ */
+public class ReportWriterTest {
+    @TempDir
+    File directory;
+
+    @BeforeEach
+    public void setUp() {
+        MessageManager.attachArchive(null);
+        MessageManager.populateArrays();
+    }
+
+    @Test
+    @DisplayName("Cells and previews match printf padding exactly")
+    public void testCellsMatchPrintf() {
+        StringWriter target = new StringWriter();
+        try (ReportWriter out = new ReportWriter(target)) {
+            out.cell("H1", 10).cell(null, 12).lastPreviewCell("Where are you? You are late! I have asked you", 40, 45);
+            out.cell("Sender", 12).lastCell("A value longer than its column", 10);
+        }
+
+        String expected = String.format("%-10s %-12s %-45s\n", "H1", null, "Where are you? You are late! I have aske...")
+                + String.format("%-12s %-10s\n", "Sender", "A value longer than its column");
+        assertEquals(expected, target.toString());
+    }
+
+    @Test
+    @DisplayName("Sent messages report renders without touching stdout")
+    public void testSentMessagesReport() {
+        StringWriter target = new StringWriter();
+        try (ReportWriter out = new ReportWriter(target)) {
+            MessageManager.writeSentMessagesReport(out);
+        }
+
+        String report = target.toString();
+        assertTrue(report.contains(String.format("%-12s %-20s %-30s\n", "System", "+27834557896", "Did you get the cake?")));
+        assertTrue(report.contains(String.format("%-12s %-20s %-30s\n", "System", "0838884567", "It is dinner time!")));
+        assertFalse(report.contains("H2"));
+    }
+
+    @Test
+    @DisplayName("Full report pages only format the requested rows")
+    public void testPagination() {
+        StringWriter target = new StringWriter();
+        try (ReportWriter out = new ReportWriter(target)) {
+            MessageManager.writeFullReport(out, 2, 1);
+        }
+
+        String report = target.toString();
+        assertFalse(report.contains("Did you get the cake?"));
+        assertTrue(report.contains("It is dinner time!"));
+        assertTrue(report.contains("Total sent messages: 2"));
+        assertTrue(report.contains("Page 2 of 2"));
+    }
+
+    @Test
+    @DisplayName("Full report can be exported to a file")
+    public void testExportToFile() throws Exception {
+        File file = new File(directory, "report.txt");
+
+        assertTrue(MessageManager.exportFullReport(file.getPath()));
+        String report = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        assertTrue(report.contains(String.format("%-10s %-12s %-18s %-45s\n", "H4", "M4", "0838884567", "It is dinner time!")));
+        assertTrue(report.contains("Total sent messages: 2"));
+    }
+}
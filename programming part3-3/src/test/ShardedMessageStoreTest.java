@@ -0,0 +1,172 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the sharded on-disk message store
+ * Uses a fake clock so messages can be written into different time windows
+ *
+ * @author Heloisa Campos
+ * @version 1.3 - Shared fixtures and JUnit temporary directory
+ */
+public class ShardedMessageStoreTest {
+    private static final long WINDOW = 1000;
+
+    @TempDir
+    File directory;
+    private final AtomicLong now = new AtomicLong(5 * WINDOW);
+    private ShardedMessageStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        store = ShardedMessageStore.open(directory.getPath(), 8, WINDOW, ".json", now::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MessageManager.useStore(null);
+    }
+
+    @Test
+    @DisplayName("A recipient query reads only that recipient's bucket")
+    public void testRecipientQueryReadsOneBucket() throws IOException {
+        assertEquals(2000, store.put(MessageFixtures.messages(0, 2000)));
+        assertEquals(8, store.shardCount());
+        assertEquals(2000, store.size());
+
+        long readsBefore = store.shardReads();
+        List<MessageManager.Message> found = store.loadRecipient("0830000042");
+
+        assertEquals(1, store.shardReads() - readsBefore);
+        assertEquals(2, found.size());
+        assertEquals("W0:42", found.get(0).getMessageHash());
+        assertEquals("W0:1042", found.get(1).getMessageHash());
+    }
+
+    @Test
+    @DisplayName("Time windows split shards and limit window queries")
+    public void testTimeWindows() throws IOException {
+        store.put(List.of(new MessageManager.Message("H1", "M1", "+27834557896", "First window", MessageFlag.SENT)));
+        now.addAndGet(WINDOW);
+        store.put(List.of(new MessageManager.Message("H2", "M2", "+27834557896", "Second window", MessageFlag.SENT)));
+
+        assertEquals(2, store.shardCount());
+        List<MessageManager.Message> second = store.loadWindow(6 * WINDOW, 7 * WINDOW);
+        assertEquals(1, second.size());
+        assertEquals("H2", second.get(0).getMessageHash());
+        assertEquals(2, store.loadRecipient("+27834557896").size());
+        assertEquals(2, store.loadAll().size());
+    }
+
+    @Test
+    @DisplayName("Updates stay in the original shard and rewrite only it")
+    public void testUpdateInPlace() throws IOException {
+        store.put(List.of(new MessageManager.Message("H1", "M1", "+27834557896", "Original", MessageFlag.STORED)));
+        now.addAndGet(WINDOW);
+
+        long writesBefore = store.shardWrites();
+        assertEquals(0, store.put(List.of(
+                new MessageManager.Message("H1", "M1", "+27834557896", "Original", MessageFlag.SENT))));
+
+        assertEquals(1, store.shardWrites() - writesBefore);
+        assertEquals(1, store.shardCount());
+        assertEquals(MessageFlag.SENT, store.loadRecipient("+27834557896").get(0).getFlagValue());
+    }
+
+    @Test
+    @DisplayName("A message whose recipient changes bucket leaves no copy in the old one")
+    public void testRecipientChangesBucket() throws IOException {
+        String before = "+27834557896";
+        String after = "+27830000000";
+        for (int i = 1; store.bucketOf(after) == store.bucketOf(before); i++) {
+            after = "+2783000000" + i;
+        }
+        store.put(List.of(new MessageManager.Message("H1", "M1", before, "Original", MessageFlag.STORED)));
+        ShardedMessageStore reopened = ShardedMessageStore.open(directory.getPath(), 8, WINDOW, ".json", now::get);
+
+        assertEquals(0, reopened.put(List.of(new MessageManager.Message("H1", "M1", after, "Moved", MessageFlag.SENT))));
+        assertEquals(1, reopened.loadAll().size());
+        assertTrue(reopened.loadRecipient(before).isEmpty());
+        assertEquals("Moved", reopened.get("H1").getMessage());
+
+        assertTrue(reopened.remove("H1"));
+        assertTrue(reopened.loadAll().isEmpty());
+        assertEquals(0, reopened.shardCount());
+    }
+
+    @Test
+    @DisplayName("Removes rewrite one shard, drop empty shards and survive a reopen")
+    public void testRemoveAndReopen() throws IOException {
+        store.put(MessageFixtures.messages(0, 100));
+        store.put(List.of(new MessageManager.Message("HX", "MX", "+27831112222", "Alone", MessageFlag.SENT)));
+        int shards = store.shardCount();
+
+        long writesBefore = store.shardWrites();
+        assertTrue(store.remove("W0:7", "+27830000007"));
+        assertFalse(store.remove("W0:7", "+27830000007"));
+        assertEquals(1, store.shardWrites() - writesBefore);
+
+        ShardedMessageStore reopened = ShardedMessageStore.open(directory.getPath(), 2, 1, ".json", now::get);
+        assertEquals(8, reopened.getBuckets());
+        assertEquals(100, reopened.size());
+        assertTrue(reopened.loadRecipient("+27830000007").isEmpty());
+        assertEquals("Alone", reopened.loadRecipient("+27831112222").get(0).getMessage());
+
+        assertTrue(reopened.remove("HX", "+27831112222"));
+        assertTrue(reopened.shardCount() <= shards);
+        assertTrue(reopened.loadRecipient("+27831112222").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Shards can use the binary file format")
+    public void testBinaryShards() throws IOException {
+        File binaryDirectory = new File(directory, "binary");
+        ShardedMessageStore binary = ShardedMessageStore.open(binaryDirectory.getPath(), 4, WINDOW,
+                MessageFiles.BINARY_EXTENSION, now::get);
+        binary.put(MessageFixtures.messages(0, 50));
+
+        assertEquals(50, binary.loadAll().size());
+        File[] files = binaryDirectory.listFiles((dir, name) -> name.endsWith(MessageFiles.BINARY_EXTENSION));
+        assertNotNull(files);
+        assertEquals(binary.shardCount(), files.length);
+    }
+
+    @Test
+    @DisplayName("MessageManager writes deletes and flag changes through to the shards")
+    public void testManagerWriteThrough() {
+        MessageManager.populateArrays();
+        MessageManager.useStore(store);
+        assertEquals(5, MessageManager.saveMessagesToStore());
+
+        MessageManager.deleteMessageByHash("H3");
+        assertEquals(4, store.size());
+        assertTrue(MessageManager.changeMessageFlag("H2", MessageFlag.SENT));
+
+        // Fresh arrays without H2; detached so the delete stays in memory
+        MessageManager.useStore(null);
+        MessageManager.populateArrays();
+        MessageManager.deleteMessageByHash("H2");
+        MessageManager.useStore(store);
+
+        assertEquals(1, MessageManager.loadMessagesFromStore());
+        assertEquals(MessageFlag.SENT, findFlag("H2"));
+    }
+
+    private static MessageFlag findFlag(String hash) {
+        for (MessageManager.Message msg : MessageManager.allMessages) {
+            if (hash.equals(msg.getMessageHash())) {
+                return msg.getFlagValue();
+            }
+        }
+        return null;
+    }
+}